@@ -64,6 +64,31 @@ public class MetisUser {
     //Required for json serialization
   }
 
+  /**
+   * Copy constructor. The access token of the user is copied as well.
+   *
+   * @param metisUser the user to copy
+   */
+  public MetisUser(MetisUser metisUser) {
+    this.userId = metisUser.getUserId();
+    this.email = metisUser.getEmail();
+    this.firstName = metisUser.getFirstName();
+    this.lastName = metisUser.getLastName();
+    this.password = metisUser.getPassword();
+    this.organizationId = metisUser.getOrganizationId();
+    this.organizationName = metisUser.getOrganizationName();
+    this.accountRole = metisUser.getAccountRole();
+    this.country = metisUser.getCountry();
+    this.networkMember = metisUser.isNetworkMember();
+    this.metisUserFlag = metisUser.isMetisUserFlag();
+    this.createdDate = metisUser.getCreatedDate();
+    this.updatedDate = metisUser.getUpdatedDate();
+    final MetisUserAccessToken accessToken = metisUser.getMetisUserAccessToken();
+    this.metisUserAccessToken = accessToken == null ? null
+        : new MetisUserAccessToken(accessToken.getEmail(), accessToken.getAccessToken(),
+            accessToken.getTimestamp());
+  }
+
   public String getUserId() {
     return userId;
   }
@@ -16,6 +16,8 @@ import org.apache.logging.log4j.core.net.ssl.TrustStoreConfigurationException;
 import org.hibernate.SessionFactory;
 import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
 import org.hibernate.service.ServiceRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -44,6 +46,8 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 @EnableScheduling
 public class Application implements WebMvcConfigurer, InitializingBean {
 
+  private static final Logger LOGGER = LoggerFactory.getLogger(Application.class);
+
   //Custom trustore
   @Value("${truststore.path}")
   private String truststorePath;
@@ -54,6 +58,10 @@ public class Application implements WebMvcConfigurer, InitializingBean {
   private String zohoInitialGrantToken;
   @Value("${metis.access.token.expire.time.in.mins}")
   private int metisAccessTokenExpireTimeInMins;
+  @Value("${metis.access.token.cache.time.to.live.in.secs}")
+  private int metisAccessTokenCacheTimeToLiveInSecs;
+  @Value("${metis.access.token.cache.max.size}")
+  private int metisAccessTokenCacheMaxSize;
   @Value("${allowed.cors.hosts}")
   private String[] allowedCorsHosts;
 
@@ -87,6 +95,9 @@ public class Application implements WebMvcConfigurer, InitializingBean {
   public AuthenticationService getAuthenticationService(PsqlMetisUserDao psqlMetisUserDao,
       ZohoAccessClient zohoAccessClient) {
     authenticationService = new AuthenticationService(psqlMetisUserDao, zohoAccessClient);
+    authenticationService
+        .setAccessTokenCacheTimeToLiveInSecs(metisAccessTokenCacheTimeToLiveInSecs);
+    authenticationService.setAccessTokenCacheMaxSize(metisAccessTokenCacheMaxSize);
     return authenticationService;
   }
 
@@ -127,6 +138,8 @@ public class Application implements WebMvcConfigurer, InitializingBean {
   @Scheduled(fixedDelay = 60 * 1000, initialDelay = 60 * 1000) //1min
   public void expireAccessTokens() {
     authenticationService.expireAccessTokens();
+    LOGGER.debug("Access token cache statistics: {}",
+        authenticationService.getAccessTokenCacheStatistics());
   }
 
   /**
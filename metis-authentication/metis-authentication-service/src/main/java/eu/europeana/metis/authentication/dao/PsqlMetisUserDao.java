@@ -3,6 +3,7 @@ package eu.europeana.metis.authentication.dao;
 import eu.europeana.metis.authentication.user.AccountRole;
 import eu.europeana.metis.authentication.user.MetisUser;
 import eu.europeana.metis.authentication.user.MetisUserAccessToken;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import javax.persistence.criteria.CriteriaBuilder;
@@ -35,6 +36,7 @@ public class PsqlMetisUserDao {
   private static final String USER_ID_STRING = "user_id";
   private static final String TIMESTAMP_STRING = "timestamp";
   private static final String ACCESS_ROLE_STRING = "accessRole";
+  private static final String PASSWORD_STRING = "password";
 
   private int accessTokenExpireTimeInMins = DEFAULT_EXPIRE_TIME_IN_MINS;
   private final SessionFactory sessionFactory;
@@ -166,11 +168,13 @@ public class PsqlMetisUserDao {
    * database.</p>
    *
    * @param date the {@link Date} to compare the stored timestamp with
+   * @return the access tokens that were removed
    */
-  public void expireAccessTokens(Date date) {
+  public List<String> expireAccessTokens(Date date) {
     try (Session session = sessionFactory.openSession()) {
       Transaction tx = session.beginTransaction();
 
+      final List<String> removedAccessTokens = new ArrayList<>();
       int offset = 0;
       int pageSize = DEFAULT_PAGE_SIZE_FOR_ACCESS_TOKENS;
       List<?> metisUserAccessTokens;
@@ -183,17 +187,20 @@ public class PsqlMetisUserDao {
         query.setFirstResult(offset).setMaxResults(pageSize);
         metisUserAccessTokens = query.getResultList();
         if (!metisUserAccessTokens.isEmpty()) {
-          removeTokensBasedOnExpiryDate(date, session, metisUserAccessTokens);
+          removedAccessTokens
+              .addAll(removeTokensBasedOnExpiryDate(date, session, metisUserAccessTokens));
         }
         offset += pageSize;
       } while (!metisUserAccessTokens.isEmpty());
       commitTransaction(tx,
           "Something when wrong when trying to expire metis authentication tokens");
+      return removedAccessTokens;
     }
   }
 
-  private void removeTokensBasedOnExpiryDate(Date date, Session session,
+  private List<String> removeTokensBasedOnExpiryDate(Date date, Session session,
       List<?> metisUserAccessTokens) {
+    final List<String> removedAccessTokens = new ArrayList<>();
     for (Object object : metisUserAccessTokens) {
       MetisUserAccessToken metisUserAccessToken = (MetisUserAccessToken) object;
       long accessTokenInMillis = metisUserAccessToken.getTimestamp().getTime();
@@ -208,8 +215,10 @@ public class PsqlMetisUserDao {
         deleteQuery.setParameter(ACCESS_TOKEN_STRING, metisUserAccessToken.getAccessToken());
         int i = deleteQuery.executeUpdate();
         LOGGER.info("Removed {} Access Token: {}", i, metisUserAccessToken.getAccessToken());
+        removedAccessTokens.add(metisUserAccessToken.getAccessToken());
       }
     }
+    return removedAccessTokens;
   }
 
   public void setAccessTokenExpireTimeInMins(int accessTokenExpireTimeInMins) {
@@ -288,6 +297,27 @@ public class PsqlMetisUserDao {
     }
   }
 
+  /**
+   * Updates the password of a user. Only the password is changed: the other fields of the user are
+   * left untouched.
+   *
+   * @param userEmail the email of the user to update
+   * @param hashedPassword the new (hashed) password
+   */
+  public void updateMetisUserPassword(String userEmail, String hashedPassword) {
+    try (Session session = sessionFactory.openSession()) {
+      Transaction tx = session.beginTransaction();
+      Query updateQuery = session.createQuery(String
+          .format("UPDATE MetisUser SET password=:%s WHERE email=:%s", PASSWORD_STRING,
+              EMAIL_STRING));
+      updateQuery.setParameter(PASSWORD_STRING, hashedPassword);
+      updateQuery.setParameter(EMAIL_STRING, userEmail);
+      int i = updateQuery.executeUpdate();
+      LOGGER.info("Updated {} MetisUser with email: {}, changed password", i, userEmail);
+      commitTransaction(tx, "Could not update password of user.");
+    }
+  }
+
   /**
    * Updates a users {@link AccountRole} to administrator
    *
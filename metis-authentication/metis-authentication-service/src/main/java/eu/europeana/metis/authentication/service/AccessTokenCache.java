@@ -0,0 +1,188 @@
+package eu.europeana.metis.authentication.service;
+
+import eu.europeana.metis.authentication.user.MetisUser;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * A bounded cache of users by their access token, in which every entry is only kept for a limited
+ * time. Entries can be invalidated explicitly when the user or the access token changes. To avoid
+ * caching a user that was read before such a change, a user can only be cached if there was no
+ * invalidation since the lookup started (see {@link #getInvalidationGeneration()}). The cache
+ * keeps its own copies of the users and hands out copies, so that changes made by callers to the
+ * users they obtained do not affect the cached users.
+ * <p>This cache is local to one JVM: invalidations are not propagated to the caches of other
+ * instances of the application, which may therefore serve an out-of-date user until their entry
+ * expires.</p>
+ */
+class AccessTokenCache {
+
+  private final Map<String, CachedUser> cachedUsers = new ConcurrentHashMap<>();
+  private final AtomicLong invalidationGeneration = new AtomicLong(0);
+
+  private final AtomicLong hitCount = new AtomicLong(0);
+  private final AtomicLong missCount = new AtomicLong(0);
+  private final AtomicLong evictionCount = new AtomicLong(0);
+  private final AtomicLong invalidationCount = new AtomicLong(0);
+
+  private volatile long timeToLiveInMillis;
+  private volatile int maxSize;
+
+  /**
+   * Constructor.
+   *
+   * @param timeToLiveInSecs the time during which a user is kept in the cache. If 0, no users are
+   * cached.
+   * @param maxSize the maximum number of users to keep in the cache
+   */
+  AccessTokenCache(int timeToLiveInSecs, int maxSize) {
+    setTimeToLiveInSecs(timeToLiveInSecs);
+    setMaxSize(maxSize);
+  }
+
+  void setTimeToLiveInSecs(int timeToLiveInSecs) {
+    this.timeToLiveInMillis = TimeUnit.SECONDS.toMillis(Math.max(0, timeToLiveInSecs));
+    if (timeToLiveInSecs <= 0) {
+      clear();
+    }
+  }
+
+  void setMaxSize(int maxSize) {
+    this.maxSize = Math.max(0, maxSize);
+  }
+
+  /**
+   * @return the current invalidation generation, to be obtained before looking up a user that is
+   * to be cached
+   */
+  long getInvalidationGeneration() {
+    return invalidationGeneration.get();
+  }
+
+  /**
+   * Get the user for the given access token.
+   *
+   * @param accessToken the access token
+   * @return a copy of the user, or null if it is not in the cache (or it expired)
+   */
+  MetisUser get(String accessToken) {
+    final CachedUser cachedUser = cachedUsers.get(accessToken);
+    if (cachedUser != null && cachedUser.isExpired(System.currentTimeMillis())) {
+      if (cachedUsers.remove(accessToken, cachedUser)) {
+        evictionCount.incrementAndGet();
+      }
+    } else if (cachedUser != null) {
+      hitCount.incrementAndGet();
+      return new MetisUser(cachedUser.user);
+    }
+    missCount.incrementAndGet();
+    return null;
+  }
+
+  /**
+   * Cache the user for the given access token, unless there was an invalidation since the given
+   * generation. A copy of the user is cached.
+   *
+   * @param accessToken the access token
+   * @param user the user
+   * @param generation the invalidation generation obtained before the user was looked up
+   */
+  void put(String accessToken, MetisUser user, long generation) {
+    if (timeToLiveInMillis <= 0 || maxSize <= 0) {
+      return;
+    }
+    final long now = System.currentTimeMillis();
+    makeRoom(now);
+    cachedUsers.put(accessToken, new CachedUser(new MetisUser(user), now + timeToLiveInMillis));
+
+    // If there was an invalidation in the meantime, the user may be out of date.
+    if (invalidationGeneration.get() != generation) {
+      cachedUsers.remove(accessToken);
+    }
+  }
+
+  private void makeRoom(long now) {
+    if (cachedUsers.size() < maxSize) {
+      return;
+    }
+    removeIf(cachedUser -> cachedUser.isExpired(now), evictionCount);
+    while (cachedUsers.size() >= maxSize) {
+      final String oldestAccessToken = cachedUsers.entrySet().stream()
+          .min(Comparator.comparingLong(entry -> entry.getValue().expiryTimeInMillis))
+          .map(Entry::getKey).orElse(null);
+      if (oldestAccessToken == null) {
+        break;
+      }
+      if (cachedUsers.remove(oldestAccessToken) != null) {
+        evictionCount.incrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * Invalidate the given access tokens.
+   *
+   * @param accessTokens the access tokens
+   */
+  void invalidateAccessTokens(Collection<String> accessTokens) {
+    invalidationGeneration.incrementAndGet();
+    for (String accessToken : accessTokens) {
+      if (cachedUsers.remove(accessToken) != null) {
+        invalidationCount.incrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * Invalidate the access tokens of the user with the given email.
+   *
+   * @param email the email of the user
+   */
+  void invalidateUser(String email) {
+    invalidationGeneration.incrementAndGet();
+    removeIf(cachedUser -> Objects.equals(email, cachedUser.user.getEmail()), invalidationCount);
+  }
+
+  /**
+   * Invalidate all access tokens.
+   */
+  void clear() {
+    invalidationGeneration.incrementAndGet();
+    removeIf(cachedUser -> true, invalidationCount);
+  }
+
+  private void removeIf(Predicate<CachedUser> predicate, AtomicLong counter) {
+    cachedUsers.forEach((accessToken, cachedUser) -> {
+      if (predicate.test(cachedUser) && cachedUsers.remove(accessToken, cachedUser)) {
+        counter.incrementAndGet();
+      }
+    });
+  }
+
+  AccessTokenCacheStatistics getStatistics() {
+    return new AccessTokenCacheStatistics(cachedUsers.size(), hitCount.get(), missCount.get(),
+        evictionCount.get(), invalidationCount.get());
+  }
+
+  private static final class CachedUser {
+
+    private final MetisUser user;
+    private final long expiryTimeInMillis;
+
+    CachedUser(MetisUser user, long expiryTimeInMillis) {
+      this.user = user;
+      this.expiryTimeInMillis = expiryTimeInMillis;
+    }
+
+    boolean isExpired(long now) {
+      return now >= expiryTimeInMillis;
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package eu.europeana.metis.authentication.service;
+
+/**
+ * Contains the statistics of the cache that the {@link AuthenticationService} uses to look up
+ * users by their access token. The counts are taken since the start of the application.
+ */
+public class AccessTokenCacheStatistics {
+
+  private final int size;
+  private final long hitCount;
+  private final long missCount;
+  private final long evictionCount;
+  private final long invalidationCount;
+
+  AccessTokenCacheStatistics(int size, long hitCount, long missCount, long evictionCount,
+      long invalidationCount) {
+    this.size = size;
+    this.hitCount = hitCount;
+    this.missCount = missCount;
+    this.evictionCount = evictionCount;
+    this.invalidationCount = invalidationCount;
+  }
+
+  /**
+   * @return the number of access tokens currently in the cache (including expired ones that are
+   * not yet removed)
+   */
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * @return the number of lookups that were answered by the cache
+   */
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * @return the number of lookups that needed the database
+   */
+  public long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * @return the number of access tokens that were removed because they expired or because the
+   * cache was full
+   */
+  public long getEvictionCount() {
+    return evictionCount;
+  }
+
+  /**
+   * @return the number of access tokens that were removed because the user or the access token
+   * changed
+   */
+  public long getInvalidationCount() {
+    return invalidationCount;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("size: %d, hits: %d, misses: %d, evictions: %d, invalidations: %d", size,
+        hitCount, missCount, evictionCount, invalidationCount);
+  }
+}
@@ -41,8 +41,13 @@ public class AuthenticationService {
   private static final int CREDENTIAL_FIELDS_NUMBER = 2;
   private static final String ACCESS_TOKEN_CHARACTER_BASKET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
   private static final int ACCESS_TOKEN_LENGTH = 32;
+  // The cache is local to this JVM: other instances only see a change after this time to live.
+  private static final int DEFAULT_ACCESS_TOKEN_CACHE_TIME_TO_LIVE_IN_SECS = 60;
+  private static final int DEFAULT_ACCESS_TOKEN_CACHE_MAX_SIZE = 1000;
   private final PsqlMetisUserDao psqlMetisUserDao;
   private final ZohoAccessClient zohoAccessClient;
+  private final AccessTokenCache accessTokenCache = new AccessTokenCache(
+      DEFAULT_ACCESS_TOKEN_CACHE_TIME_TO_LIVE_IN_SECS, DEFAULT_ACCESS_TOKEN_CACHE_MAX_SIZE);
 
   /**
    * Constructor of class with required parameters
@@ -115,6 +120,7 @@ public class AuthenticationService {
     }
 
     psqlMetisUserDao.updateMetisUser(metisUser);
+    accessTokenCache.invalidateUser(email);
     return metisUser;
   }
 
@@ -280,15 +286,17 @@ public class AuthenticationService {
   }
 
   /**
-   * Update the {@link MetisUser} password.
+   * Update the {@link MetisUser} password. Only the password is stored: the given user may be a
+   * cached copy, so its other fields may be outdated and must not overwrite the stored ones. The
+   * given user is not changed.
    *
    * @param metisUser the metisUser to update
    * @param newPassword the new password
    */
   public void updateUserPassword(MetisUser metisUser, String newPassword) {
     String hashedPassword = generatePasswordHashing(newPassword);
-    metisUser.setPassword(hashedPassword);
-    psqlMetisUserDao.updateMetisUser(metisUser);
+    psqlMetisUserDao.updateMetisUserPassword(metisUser.getEmail(), hashedPassword);
+    accessTokenCache.invalidateUser(metisUser.getEmail());
   }
 
   /**
@@ -307,6 +315,7 @@ public class AuthenticationService {
           String.format("User with email %s does not exist", userEmailToMakeAdmin));
     }
     psqlMetisUserDao.updateMetisUserToMakeAdmin(userEmailToMakeAdmin);
+    accessTokenCache.invalidateUser(userEmailToMakeAdmin);
   }
 
   /**
@@ -365,7 +374,7 @@ public class AuthenticationService {
    */
   public void expireAccessTokens() {
     Date now = new Date();
-    psqlMetisUserDao.expireAccessTokens(now);
+    accessTokenCache.invalidateAccessTokens(psqlMetisUserDao.expireAccessTokens(now));
   }
 
   /**
@@ -375,6 +384,7 @@ public class AuthenticationService {
    */
   public void deleteUser(String email) {
     psqlMetisUserDao.deleteMetisUser(email);
+    accessTokenCache.invalidateUser(email);
   }
 
   /**
@@ -396,6 +406,11 @@ public class AuthenticationService {
 
   /**
    * Authenticates a user using an access token.
+   * <p>Users are cached by their access token for a short time (see
+   * {@link #setAccessTokenCacheTimeToLiveInSecs(int)}), during which the database is not consulted
+   * for this access token. The timestamp of the access token is updated only when the database is
+   * consulted: the time to live of the cache should therefore be well below the expiry time of the
+   * access tokens.</p>
    *
    * @param accessToken the access token used to authenticate a user
    * @return {@link MetisUser}
@@ -406,14 +421,56 @@ public class AuthenticationService {
    */
   public MetisUser authenticateUser(String accessToken)
       throws GenericMetisException {
+    final MetisUser cachedMetisUser = accessTokenCache.get(accessToken);
+    if (cachedMetisUser != null) {
+      return cachedMetisUser;
+    }
+    final long cacheGeneration = accessTokenCache.getInvalidationGeneration();
     MetisUser storedMetisUser = psqlMetisUserDao.getMetisUserByAccessToken(accessToken);
     if (storedMetisUser == null) {
       throw new UserUnauthorizedException(CommonStringValues.WRONG_ACCESS_TOKEN);
     }
     psqlMetisUserDao.updateAccessTokenTimestampByAccessToken(accessToken);
+    accessTokenCache.put(accessToken, storedMetisUser, cacheGeneration);
     return storedMetisUser;
   }
 
+  /**
+   * Removes all users from the cache of users by access token, so that the next authentication of
+   * every access token consults the database.
+   */
+  public void clearAccessTokenCache() {
+    accessTokenCache.clear();
+  }
+
+  /**
+   * @return the statistics of the cache of users by access token
+   */
+  public AccessTokenCacheStatistics getAccessTokenCacheStatistics() {
+    return accessTokenCache.getStatistics();
+  }
+
+  /**
+   * Set the time during which a user is kept in the cache of users by access token. If set to 0,
+   * users are not cached. Invalidation of this cache is local to this JVM: when several instances
+   * of the application run, a change made through one instance is only seen by the others after
+   * this time.
+   *
+   * @param accessTokenCacheTimeToLiveInSecs the time to live in seconds
+   */
+  public void setAccessTokenCacheTimeToLiveInSecs(int accessTokenCacheTimeToLiveInSecs) {
+    accessTokenCache.setTimeToLiveInSecs(accessTokenCacheTimeToLiveInSecs);
+  }
+
+  /**
+   * Set the maximum number of users in the cache of users by access token.
+   *
+   * @param accessTokenCacheMaxSize the maximum size
+   */
+  public void setAccessTokenCacheMaxSize(int accessTokenCacheMaxSize) {
+    accessTokenCache.setMaxSize(accessTokenCacheMaxSize);
+  }
+
   /**
    * Checks if a user, using an access token, has permission to request a list of all the users.
    *
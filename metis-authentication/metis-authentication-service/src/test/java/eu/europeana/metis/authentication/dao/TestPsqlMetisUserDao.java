@@ -294,6 +294,27 @@ class TestPsqlMetisUserDao {
     assertTrue(hqlArgumentCaptor.getValue().contains("WHERE access_token"));
   }
 
+  @Test
+  void updateMetisUserPassword() {
+    when(session.beginTransaction()).thenReturn(transaction);
+    when(session.createQuery(any(String.class))).thenReturn(query);
+    when(query.executeUpdate()).thenReturn(1);
+
+    psqlMetisUserDao.updateMetisUserPassword("email@email.com", "hashedPassword");
+
+    ArgumentCaptor<String> hqlArgumentCaptor = ArgumentCaptor.forClass(String.class);
+    InOrder inOrder = Mockito.inOrder(session, transaction, query);
+    inOrder.verify(session, times(1)).createQuery(hqlArgumentCaptor.capture());
+    inOrder.verify(query, times(1)).executeUpdate();
+    inOrder.verify(transaction, times(1)).commit();
+    inOrder.verify(session, times(1)).close();
+    inOrder.verifyNoMoreInteractions();
+
+    assertTrue(hqlArgumentCaptor.getValue().contains("UPDATE MetisUser"));
+    assertTrue(hqlArgumentCaptor.getValue().contains("SET password"));
+    assertTrue(hqlArgumentCaptor.getValue().contains("WHERE email"));
+  }
+
   @Test
   void updateMetisUserToMakeAdmin() {
     when(session.beginTransaction()).thenReturn(transaction);
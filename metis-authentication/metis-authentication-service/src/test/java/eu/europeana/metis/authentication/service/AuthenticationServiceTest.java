@@ -2,11 +2,16 @@ package eu.europeana.metis.authentication.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -58,6 +63,7 @@ class AuthenticationServiceTest {
   void cleanUp() {
     Mockito.reset(psqlMetisUserDao);
     Mockito.reset(zohoAccessClient);
+    authenticationService.clearAccessTokenCache();
   }
 
   @Test
@@ -263,10 +269,16 @@ class AuthenticationServiceTest {
 
   @Test
   void updateUserPassword() {
-    ArgumentCaptor<MetisUser> metisUserArgumentCaptor = ArgumentCaptor.forClass(MetisUser.class);
-    authenticationService.updateUserPassword(new MetisUser(), EXAMPLE_PASSWORD);
-    verify(psqlMetisUserDao).updateMetisUser(metisUserArgumentCaptor.capture());
-    assertNotNull(metisUserArgumentCaptor.getValue().getPassword());
+    ArgumentCaptor<String> passwordArgumentCaptor = ArgumentCaptor.forClass(String.class);
+    final MetisUser metisUser = new MetisUser();
+    metisUser.setEmail(EXAMPLE_EMAIL);
+    authenticationService.updateUserPassword(metisUser, EXAMPLE_PASSWORD);
+    verify(psqlMetisUserDao)
+        .updateMetisUserPassword(eq(EXAMPLE_EMAIL), passwordArgumentCaptor.capture());
+    assertNotNull(passwordArgumentCaptor.getValue());
+    assertNotEquals(EXAMPLE_PASSWORD, passwordArgumentCaptor.getValue());
+    verify(psqlMetisUserDao, never()).updateMetisUser(any(MetisUser.class));
+    assertNull(metisUser.getPassword());
   }
 
   @Test
@@ -391,6 +403,69 @@ class AuthenticationServiceTest {
     verify(psqlMetisUserDao).updateAccessTokenTimestampByAccessToken(EXAMPLE_ACCESS_TOKEN);
   }
 
+  @Test
+  void authenticateUserUsesCache() throws Exception {
+    final MetisUser metisUser = new MetisUser();
+    metisUser.setEmail(EXAMPLE_EMAIL);
+    when(psqlMetisUserDao.getMetisUserByAccessToken(EXAMPLE_ACCESS_TOKEN)).thenReturn(metisUser);
+    final long hitCountBefore = authenticationService.getAccessTokenCacheStatistics()
+        .getHitCount();
+
+    // The second authentication should not consult the database.
+    final MetisUser firstUser = authenticationService.authenticateUser(EXAMPLE_ACCESS_TOKEN);
+    assertEquals(EXAMPLE_EMAIL, firstUser.getEmail());
+    firstUser.setPassword(EXAMPLE_PASSWORD);
+    final MetisUser secondUser = authenticationService.authenticateUser(EXAMPLE_ACCESS_TOKEN);
+    assertEquals(EXAMPLE_EMAIL, secondUser.getEmail());
+    verify(psqlMetisUserDao, times(1)).getMetisUserByAccessToken(EXAMPLE_ACCESS_TOKEN);
+    verify(psqlMetisUserDao, times(1))
+        .updateAccessTokenTimestampByAccessToken(EXAMPLE_ACCESS_TOKEN);
+    assertEquals(hitCountBefore + 1,
+        authenticationService.getAccessTokenCacheStatistics().getHitCount());
+
+    // Changes to a returned user should not affect the cached user.
+    assertNotSame(firstUser, secondUser);
+    assertNull(secondUser.getPassword());
+
+    // After deleting the user, the database should be consulted again.
+    authenticationService.deleteUser(EXAMPLE_EMAIL);
+    when(psqlMetisUserDao.getMetisUserByAccessToken(EXAMPLE_ACCESS_TOKEN)).thenReturn(null);
+    assertThrows(UserUnauthorizedException.class,
+        () -> authenticationService.authenticateUser(EXAMPLE_ACCESS_TOKEN));
+    verify(psqlMetisUserDao, times(2)).getMetisUserByAccessToken(EXAMPLE_ACCESS_TOKEN);
+  }
+
+  @Test
+  void authenticateUserCacheInvalidatedOnUpdateAndExpiry() throws Exception {
+    final MetisUser metisUser = new MetisUser();
+    metisUser.setEmail(EXAMPLE_EMAIL);
+    when(psqlMetisUserDao.getMetisUserByEmail(EXAMPLE_EMAIL)).thenReturn(metisUser);
+    when(psqlMetisUserDao.getMetisUserByAccessToken(EXAMPLE_ACCESS_TOKEN)).thenReturn(metisUser);
+
+    // Making the user an administrator should invalidate the cached user.
+    authenticationService.authenticateUser(EXAMPLE_ACCESS_TOKEN);
+    authenticationService.updateUserMakeAdmin(EXAMPLE_EMAIL);
+    authenticationService.authenticateUser(EXAMPLE_ACCESS_TOKEN);
+    verify(psqlMetisUserDao, times(2)).getMetisUserByAccessToken(EXAMPLE_ACCESS_TOKEN);
+
+    // Expiring the access token should invalidate the cached user.
+    when(psqlMetisUserDao.expireAccessTokens(any(Date.class)))
+        .thenReturn(Collections.singletonList(EXAMPLE_ACCESS_TOKEN));
+    authenticationService.expireAccessTokens();
+    authenticationService.authenticateUser(EXAMPLE_ACCESS_TOKEN);
+    verify(psqlMetisUserDao, times(3)).getMetisUserByAccessToken(EXAMPLE_ACCESS_TOKEN);
+
+    // Without a cache, the database should be consulted every time.
+    authenticationService.setAccessTokenCacheTimeToLiveInSecs(0);
+    try {
+      authenticationService.authenticateUser(EXAMPLE_ACCESS_TOKEN);
+      authenticationService.authenticateUser(EXAMPLE_ACCESS_TOKEN);
+      verify(psqlMetisUserDao, times(5)).getMetisUserByAccessToken(EXAMPLE_ACCESS_TOKEN);
+    } finally {
+      authenticationService.setAccessTokenCacheTimeToLiveInSecs(60);
+    }
+  }
+
   @Test
   void authenticateUserWrongCredentials() {
     when(psqlMetisUserDao.getMetisUserByAccessToken(EXAMPLE_ACCESS_TOKEN)).thenReturn(null);
@@ -12,6 +12,7 @@ public final class CommonStringValues {
   public static final String BATCH_OF_DATASETS_RETURNED = "Batch of: {} datasets returned, using batch nextPage: {}";
   public static final String NEXT_PAGE_CANNOT_BE_NEGATIVE = "nextPage cannot be a negative number";
   public static final String PAGE_COUNT_CANNOT_BE_ZERO_OR_NEGATIVE = "pageCount cannot be zero or a negative number";
+  public static final String CONTINUATION_TOKEN_IS_NOT_VALID = "continuationToken is not valid";
   public static final String PLUGIN_EXECUTION_NOT_ALLOWED = "Plugin Execution Not Allowed";
   public static final String UNAUTHORIZED = "Unauthorized";
   public static final String EUROPEANA_ID_CREATOR_INITIALIZATION_FAILED = "EuropeanaIdCreator initialization failed.";
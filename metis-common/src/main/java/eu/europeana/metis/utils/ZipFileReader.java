@@ -1,13 +1,16 @@
 package eu.europeana.metis.utils;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Predicate;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import org.apache.commons.io.FileUtils;
@@ -45,29 +48,50 @@ public class ZipFileReader {
    * @throws IOException In case of problems with the temporary file or with reading the zip file.
    */
   public List<String> getRecordsFromZipFile(InputStream providedZipFile) throws IOException {
+    try (final RecordIterator records = getRecordIteratorFromZipFile(providedZipFile)) {
+      return getRecords(records);
+    }
+  }
+
+  /**
+   * This method returns an iterator over all files in a ZIP file, that reads these files (as
+   * strings) lazily, one at the time: only the record that is being returned is held in memory. The
+   * iterator only considers files in the main directory. This method creates a temporary file that
+   * is removed when the iterator is closed, so the caller is responsible for closing the iterator.
+   *
+   * @param providedZipFile Input stream containing the zip file. This method is not responsible for
+   *        closing the stream. The stream is fully read before this method returns.
+   * @return An iterator over the records. Reading problems during iteration will be thrown as
+   *         {@link UncheckedIOException}.
+   * @throws IOException In case of problems with the temporary file or with opening the zip file.
+   */
+  public RecordIterator getRecordIteratorFromZipFile(InputStream providedZipFile)
+      throws IOException {
 
     // Create temporary file.
     final String prefix = UUID.randomUUID().toString();
     final File tempFile = File.createTempFile(prefix, ".zip");
-    FileUtils.copyInputStreamToFile(providedZipFile, tempFile);
-    LOGGER.info("Temp file: {} created.", tempFile);
+    final ZipFile zipFile;
+    try {
+      FileUtils.copyInputStreamToFile(providedZipFile, tempFile);
+      LOGGER.info("Temp file: {} created.", tempFile);
 
-    // Open temporary zip file, read it and delete it.
-    try (final ZipFile zipFile = new ZipFile(tempFile, ZipFile.OPEN_READ | ZipFile.OPEN_DELETE)) {
-      return getRecordsFromZipFile(zipFile);
+      // Open temporary zip file: it will be deleted when it is closed.
+      zipFile = new ZipFile(tempFile, ZipFile.OPEN_READ | ZipFile.OPEN_DELETE);
+    } catch (IOException | RuntimeException e) {
+      FileUtils.deleteQuietly(tempFile);
+      throw e;
     }
+    return new RecordIterator(zipFile, this::accept);
   }
 
-  List<String> getRecordsFromZipFile(ZipFile zipFile) throws IOException {
+  List<String> getRecordsFromZipFile(ZipFile zipFile) {
+    return getRecords(new RecordIterator(zipFile, this::accept));
+  }
+
+  private static List<String> getRecords(Iterator<String> records) {
     final List<String> result = new ArrayList<>();
-    final Iterator<? extends ZipEntry> entries = zipFile.stream().iterator();
-    while (entries.hasNext()) {
-      final ZipEntry zipEntry = entries.next();
-      if (!accept(zipEntry)) {
-        continue;
-      }
-      result.add(IOUtils.toString(zipFile.getInputStream(zipEntry), StandardCharsets.UTF_8.name()));
-    }
+    records.forEachRemaining(result::add);
     return result;
   }
 
@@ -75,4 +99,39 @@ public class ZipFileReader {
     return !zipEntry.isDirectory() && !zipEntry.getName().startsWith(MAC_TEMP_FOLDER)
         && !zipEntry.getName().endsWith(MAC_TEMP_FILE);
   }
+
+  /**
+   * Iterator over the records in a zip file. Each record is read when it is requested. Closing this
+   * iterator closes the underlying zip file.
+   */
+  public static final class RecordIterator implements Iterator<String>, Closeable {
+
+    private final ZipFile zipFile;
+    private final Iterator<? extends ZipEntry> entries;
+
+    RecordIterator(ZipFile zipFile, Predicate<ZipEntry> acceptor) {
+      this.zipFile = zipFile;
+      this.entries = zipFile.stream().filter(acceptor).iterator();
+    }
+
+    @Override
+    public boolean hasNext() {
+      return entries.hasNext();
+    }
+
+    @Override
+    public String next() {
+      final ZipEntry zipEntry = entries.next();
+      try (final InputStream inputStream = zipFile.getInputStream(zipEntry)) {
+        return IOUtils.toString(inputStream, StandardCharsets.UTF_8.name());
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      zipFile.close();
+    }
+  }
 }
@@ -7,7 +7,10 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -68,6 +71,32 @@ class ZipFileReaderTest {
     assertEquals(goodEntries, result);
   }
 
+  @Test
+  void testRecordIteratorIsLazy() throws IOException {
+
+    // The content is equal to the name.
+    final List<ZipEntry> entries =
+        Stream.of("A", "B").map(name -> createEntry(name, false)).collect(Collectors.toList());
+    final ZipFile zipFile = mock(ZipFile.class);
+    doReturn(entries.stream()).when(zipFile).stream();
+    doAnswer(invocation -> IOUtils.toInputStream(((ZipEntry) invocation.getArgument(0)).getName()))
+        .when(zipFile).getInputStream(any());
+
+    // Records are only read when they are requested.
+    final ZipFileReader.RecordIterator iterator = new ZipFileReader.RecordIterator(zipFile,
+        entry -> true);
+    verify(zipFile, never()).getInputStream(any());
+    assertTrue(iterator.hasNext());
+    assertEquals("A", iterator.next());
+    verify(zipFile, times(1)).getInputStream(any());
+    assertEquals("B", iterator.next());
+    assertFalse(iterator.hasNext());
+
+    // Closing the iterator closes the zip file.
+    iterator.close();
+    verify(zipFile, times(1)).close();
+  }
+
   @Test
   void testAccept() {
     // Test against directories and special Mac files. Entry examples taken from actual zip file.
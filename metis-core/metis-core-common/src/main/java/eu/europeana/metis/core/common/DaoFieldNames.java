@@ -21,6 +21,9 @@ public enum DaoFieldNames {
   STARTED_DATE("startedDate"),
   UPDATED_DATE("updatedDate"),
   FINISHED_DATE("finishedDate"),
+  CLAIMED_BY("claimedBy"),
+  CLAIM_VERSION("claimVersion"),
+  NEXT_FIRE_TIME("nextFireTime"),
   PLUGIN_METADATA("pluginMetadata"),
   XSLT_ID("xsltId");
 
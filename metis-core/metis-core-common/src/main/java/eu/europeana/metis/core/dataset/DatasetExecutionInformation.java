@@ -1,11 +1,13 @@
 package eu.europeana.metis.core.dataset;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import eu.europeana.metis.core.workflow.plugins.PluginType;
 import java.util.Date;
 
 /**
  * Contains execution information of a dataset.
- * <p>Such as the last preview, last publish, first publish, last harvest information.</p>
+ * <p>Such as the last preview, last publish, first publish, last harvest and last failure
+ * information.</p>
  *
  * @author Simon Tzanakis (Simon.Tzanakis@europeana.eu)
  * @since 2018-04-03
@@ -25,6 +27,9 @@ public class DatasetExecutionInformation {
   @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX")
   private Date lastHarvestedDate;
   private int lastHarvestedRecords;
+  @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX")
+  private Date lastFailedDate;
+  private PluginType lastFailedPluginType;
 
   public DatasetExecutionInformation() {
     //Required for json serialization
@@ -104,4 +109,20 @@ public class DatasetExecutionInformation {
   public void setLastHarvestedRecords(int lastHarvestedRecords) {
     this.lastHarvestedRecords = lastHarvestedRecords;
   }
+
+  public Date getLastFailedDate() {
+    return lastFailedDate == null ? null : new Date(lastFailedDate.getTime());
+  }
+
+  public void setLastFailedDate(Date lastFailedDate) {
+    this.lastFailedDate = lastFailedDate == null ? null : new Date(lastFailedDate.getTime());
+  }
+
+  public PluginType getLastFailedPluginType() {
+    return lastFailedPluginType;
+  }
+
+  public void setLastFailedPluginType(PluginType lastFailedPluginType) {
+    this.lastFailedPluginType = lastFailedPluginType;
+  }
 }
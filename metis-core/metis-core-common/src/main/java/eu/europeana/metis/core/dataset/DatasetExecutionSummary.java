@@ -0,0 +1,145 @@
+package eu.europeana.metis.core.dataset;
+
+import dev.morphia.annotations.Entity;
+import dev.morphia.annotations.Id;
+import eu.europeana.metis.core.workflow.plugins.PluginType;
+import java.util.Date;
+
+/**
+ * Contains a summary of the executions of a dataset: the information on the last harvest, the
+ * first publication, the last preview and publication and the last failure. It is kept up to date
+ * whenever a plugin finishes or fails, so that this information does not need to be computed from
+ * all the executions of the dataset every time it is requested. It can be rebuilt from the
+ * executions at any time. There is at most one summary per dataset: the dataset identifier is used
+ * as the identifier of the summary.
+ */
+@Entity
+public class DatasetExecutionSummary {
+
+  @Id
+  private String datasetId;
+
+  private Date lastHarvestedDate;
+  private int lastHarvestedRecords;
+  private Date firstPublishedDate;
+  private Date lastPreviewDate;
+  private boolean lastPreviewDataValid;
+  private int lastPreviewRecords;
+  private Date lastPublishedDate;
+  private boolean lastPublishedDataValid;
+  private int lastPublishedRecords;
+  private Date lastFailedDate;
+  private PluginType lastFailedPluginType;
+
+  public DatasetExecutionSummary() {
+    //Required for json serialization
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param datasetId the dataset identifier that this summary belongs to
+   */
+  public DatasetExecutionSummary(String datasetId) {
+    this.datasetId = datasetId;
+  }
+
+  public String getDatasetId() {
+    return datasetId;
+  }
+
+  public void setDatasetId(String datasetId) {
+    this.datasetId = datasetId;
+  }
+
+  public Date getLastHarvestedDate() {
+    return lastHarvestedDate == null ? null : new Date(lastHarvestedDate.getTime());
+  }
+
+  public void setLastHarvestedDate(Date lastHarvestedDate) {
+    this.lastHarvestedDate =
+        lastHarvestedDate == null ? null : new Date(lastHarvestedDate.getTime());
+  }
+
+  public int getLastHarvestedRecords() {
+    return lastHarvestedRecords;
+  }
+
+  public void setLastHarvestedRecords(int lastHarvestedRecords) {
+    this.lastHarvestedRecords = lastHarvestedRecords;
+  }
+
+  public Date getFirstPublishedDate() {
+    return firstPublishedDate == null ? null : new Date(firstPublishedDate.getTime());
+  }
+
+  public void setFirstPublishedDate(Date firstPublishedDate) {
+    this.firstPublishedDate =
+        firstPublishedDate == null ? null : new Date(firstPublishedDate.getTime());
+  }
+
+  public Date getLastPreviewDate() {
+    return lastPreviewDate == null ? null : new Date(lastPreviewDate.getTime());
+  }
+
+  public void setLastPreviewDate(Date lastPreviewDate) {
+    this.lastPreviewDate = lastPreviewDate == null ? null : new Date(lastPreviewDate.getTime());
+  }
+
+  public boolean isLastPreviewDataValid() {
+    return lastPreviewDataValid;
+  }
+
+  public void setLastPreviewDataValid(boolean lastPreviewDataValid) {
+    this.lastPreviewDataValid = lastPreviewDataValid;
+  }
+
+  public int getLastPreviewRecords() {
+    return lastPreviewRecords;
+  }
+
+  public void setLastPreviewRecords(int lastPreviewRecords) {
+    this.lastPreviewRecords = lastPreviewRecords;
+  }
+
+  public Date getLastPublishedDate() {
+    return lastPublishedDate == null ? null : new Date(lastPublishedDate.getTime());
+  }
+
+  public void setLastPublishedDate(Date lastPublishedDate) {
+    this.lastPublishedDate =
+        lastPublishedDate == null ? null : new Date(lastPublishedDate.getTime());
+  }
+
+  public boolean isLastPublishedDataValid() {
+    return lastPublishedDataValid;
+  }
+
+  public void setLastPublishedDataValid(boolean lastPublishedDataValid) {
+    this.lastPublishedDataValid = lastPublishedDataValid;
+  }
+
+  public int getLastPublishedRecords() {
+    return lastPublishedRecords;
+  }
+
+  public void setLastPublishedRecords(int lastPublishedRecords) {
+    this.lastPublishedRecords = lastPublishedRecords;
+  }
+
+  public Date getLastFailedDate() {
+    return lastFailedDate == null ? null : new Date(lastFailedDate.getTime());
+  }
+
+  public void setLastFailedDate(Date lastFailedDate) {
+    this.lastFailedDate = lastFailedDate == null ? null : new Date(lastFailedDate.getTime());
+  }
+
+  public PluginType getLastFailedPluginType() {
+    return lastFailedPluginType;
+  }
+
+  public void setLastFailedPluginType(PluginType lastFailedPluginType) {
+    this.lastFailedPluginType = lastFailedPluginType;
+  }
+}
@@ -23,6 +23,7 @@ public class ResponseListWrapper<T> {
   private List<T> results;
   private int listSize;
   private int nextPage;
+  private String nextPageToken;
   private Boolean maxResultCountReached;
 
   /**
@@ -93,6 +94,27 @@ public class ResponseListWrapper<T> {
     setResults(results);
   }
 
+  /**
+   * Accepts a list of results objects that was retrieved using a continuation token. The next page
+   * number does not apply in this case and is set to -1: the next page (if any) is requested using
+   * the given token.
+   *
+   * @param results the {@link List} of objects
+   * @param nextPageToken the continuation token for the next page, or null if there shouldn't be
+   *        another page
+   * @param maxResultCountReached whether the maximum result count is reached (the number of
+   *        results, regardless of pagination, the server is willing to serve). Can be null if this
+   *        is not applicable.
+   */
+  public void setResultsAndNextPageToken(List<T> results, String nextPageToken,
+      Boolean maxResultCountReached) {
+    this.nextPage = -1;
+    this.nextPageToken = nextPageToken;
+    this.listSize = Optional.ofNullable(results).map(List::size).orElse(0);
+    this.maxResultCountReached = maxResultCountReached;
+    setResults(results);
+  }
+
   /**
    * Clear the internal data. Used to not recreate the same structure all the time if it's used in a
    * loop.
@@ -103,6 +125,7 @@ public class ResponseListWrapper<T> {
     }
     listSize = 0;
     nextPage = 0;
+    nextPageToken = null;
   }
 
   public List<T> getResults() {
@@ -121,6 +144,14 @@ public class ResponseListWrapper<T> {
     this.nextPage = nextPage;
   }
 
+  public String getNextPageToken() {
+    return nextPageToken;
+  }
+
+  public void setNextPageToken(String nextPageToken) {
+    this.nextPageToken = nextPageToken;
+  }
+
   public int getListSize() {
     return listSize;
   }
@@ -6,16 +6,24 @@ import dev.morphia.annotations.Entity;
 import dev.morphia.annotations.Field;
 import dev.morphia.annotations.Id;
 import dev.morphia.annotations.Index;
+import dev.morphia.annotations.IndexOptions;
 import dev.morphia.annotations.Indexed;
 import dev.morphia.annotations.Indexes;
 import eu.europeana.metis.CommonStringValues;
 import eu.europeana.metis.json.ObjectIdSerializer;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
 import java.util.Date;
 import org.bson.types.ObjectId;
 
 /**
  * Class to represent a scheduled workflow.
  * The {@link ScheduleFrequence} {@link #scheduleFrequence} will be used in conjunction with the {@link #pointerDate} to determine when a scheduled execution is ready to be ran.
+ * <p>The first execution is at the pointer date, after which (unless the frequence is {@link
+ * ScheduleFrequence#ONCE}) it repeats every day, week or month. The next time it is due is kept
+ * in {@link #nextFireTime}, so that the due scheduled workflows can be found with an indexed
+ * query.</p>
  *
  * @author Simon Tzanakis (Simon.Tzanakis@europeana.eu)
  * @since 2017-09-25
@@ -33,6 +41,9 @@ public class ScheduledWorkflow implements HasMongoObjectId {
   private Date pointerDate;
   private ScheduleFrequence scheduleFrequence;
   private int workflowPriority;
+  @Indexed(options = @IndexOptions(background = true))
+  @JsonFormat(pattern = CommonStringValues.DATE_FORMAT_FOR_SCHEDULING)
+  private Date nextFireTime;
 
   public ScheduledWorkflow() {
     //Required for json serialization
@@ -54,6 +65,49 @@ public class ScheduledWorkflow implements HasMongoObjectId {
     this.workflowPriority = workflowPriority;
   }
 
+  /**
+   * Calculates the first time after the given date that this scheduled workflow is due, based on
+   * the pointer date and the frequence.
+   *
+   * @param after the date after which the scheduled workflow should be due
+   * @return the next fire time, or null if the scheduled workflow will not be due anymore after the
+   * given date (or if there is no valid pointer date or frequence)
+   */
+  public Date calculateNextFireTime(Date after) {
+    if (pointerDate == null || after == null) {
+      return null;
+    }
+    final ChronoUnit unit;
+    switch (scheduleFrequence == null ? ScheduleFrequence.NULL : scheduleFrequence) {
+      case ONCE:
+        return pointerDate.after(after) ? getPointerDate() : null;
+      case DAILY:
+        unit = ChronoUnit.DAYS;
+        break;
+      case WEEKLY:
+        unit = ChronoUnit.WEEKS;
+        break;
+      case MONTHLY:
+        unit = ChronoUnit.MONTHS;
+        break;
+      default:
+        return null;
+    }
+
+    // Compute from the pointer date every time (so that e.g. the day of the month does not drift).
+    final LocalDateTime pointer = LocalDateTime
+        .ofInstant(pointerDate.toInstant(), ZoneId.systemDefault());
+    final LocalDateTime afterLocal = LocalDateTime
+        .ofInstant(after.toInstant(), ZoneId.systemDefault());
+    long periods = Math.max(0, unit.between(pointer, afterLocal));
+    LocalDateTime candidate = pointer.plus(periods, unit);
+    while (!candidate.isAfter(afterLocal)) {
+      periods++;
+      candidate = pointer.plus(periods, unit);
+    }
+    return Date.from(candidate.atZone(ZoneId.systemDefault()).toInstant());
+  }
+
   @Override
   public ObjectId getId() {
     return id;
@@ -95,4 +149,12 @@ public class ScheduledWorkflow implements HasMongoObjectId {
   public void setWorkflowPriority(int workflowPriority) {
     this.workflowPriority = workflowPriority;
   }
+
+  public Date getNextFireTime() {
+    return nextFireTime == null ? null : new Date(nextFireTime.getTime());
+  }
+
+  public void setNextFireTime(Date nextFireTime) {
+    this.nextFireTime = nextFireTime == null ? null : new Date(nextFireTime.getTime());
+  }
 }
@@ -1,13 +1,16 @@
 package eu.europeana.metis.core.workflow;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import dev.morphia.annotations.Entity;
 import dev.morphia.annotations.Field;
 import dev.morphia.annotations.Id;
 import dev.morphia.annotations.Index;
+import dev.morphia.annotations.IndexOptions;
 import dev.morphia.annotations.Indexed;
 import dev.morphia.annotations.Indexes;
+import dev.morphia.utils.IndexType;
 import eu.europeana.metis.CommonStringValues;
 import eu.europeana.metis.core.dataset.Dataset;
 import eu.europeana.metis.core.workflow.plugins.AbstractMetisPlugin;
@@ -30,7 +33,12 @@ import org.bson.types.ObjectId;
  * @since 2017-05-26
  */
 @Entity
-@Indexes({@Index(fields = {@Field("datasetId")})})
+@Indexes({
+    @Index(fields = {@Field("datasetId"), @Field("workflowStatus"),
+        @Field(value = "createdDate", type = IndexType.DESC), @Field("_id")},
+        options = @IndexOptions(background = true)),
+    @Index(fields = {@Field("workflowStatus"), @Field("updatedDate")},
+        options = @IndexOptions(background = true))})
 public class WorkflowExecution implements HasMongoObjectId {
 
   @Id
@@ -59,6 +67,11 @@ public class WorkflowExecution implements HasMongoObjectId {
   @JsonFormat(pattern = CommonStringValues.DATE_FORMAT)
   private Date finishedDate;
 
+  @JsonIgnore
+  private String claimedBy;
+  @JsonIgnore
+  private long claimVersion;
+
   private List<AbstractMetisPlugin> metisPlugins = new ArrayList<>();
 
   public WorkflowExecution() {
@@ -223,6 +236,22 @@ public class WorkflowExecution implements HasMongoObjectId {
     this.updatedDate = updatedDate == null ? null : new Date(updatedDate.getTime());
   }
 
+  public String getClaimedBy() {
+    return claimedBy;
+  }
+
+  public void setClaimedBy(String claimedBy) {
+    this.claimedBy = claimedBy;
+  }
+
+  public long getClaimVersion() {
+    return claimVersion;
+  }
+
+  public void setClaimVersion(long claimVersion) {
+    this.claimVersion = claimVersion;
+  }
+
   public List<AbstractMetisPlugin> getMetisPlugins() {
     return metisPlugins;
   }
@@ -382,6 +382,37 @@ public class OrchestratorController {
     return orchestratorService.getDatasetExecutionInformation(metisUser, datasetId);
   }
 
+  /**
+   * Rebuild the dataset level information of past executions {@link DatasetExecutionInformation}
+   * from the execution history. This is only needed if the information is suspected to be out of
+   * date: normally it is kept up to date whenever a plugin finishes or fails.
+   *
+   * @param authorization the authorization header with the access token
+   * @param datasetId the dataset identifier to rebuild the information for
+   * @return the structured class containing all the execution information
+   * @throws GenericMetisException which can be one of:
+   * <ul>
+   * <li>{@link eu.europeana.metis.core.exceptions.NoDatasetFoundException} if the dataset
+   * identifier provided does not exist</li>
+   * <li>{@link eu.europeana.metis.exception.UserUnauthorizedException} if the user is not
+   * authenticated or authorized to perform this operation</li>
+   * </ul>
+   */
+  @PutMapping(value = RestEndpoints.ORCHESTRATOR_WORKFLOWS_EXECUTIONS_DATASET_DATASETID_INFORMATION, produces = {
+      MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_XML_VALUE})
+  @ResponseStatus(HttpStatus.OK)
+  @ResponseBody
+  public DatasetExecutionInformation rebuildDatasetExecutionInformation(
+      @RequestHeader("Authorization") String authorization,
+      @PathVariable("datasetId") String datasetId) throws GenericMetisException {
+    if (LOGGER.isInfoEnabled()) {
+      LOGGER.info("Rebuilding dataset execution information for datasetId: {}",
+          datasetId.replaceAll(CommonStringValues.REPLACEABLE_CRLF_CHARACTERS_REGEX, ""));
+    }
+    MetisUser metisUser = authenticationClient.getUserByAccessTokenInHeader(authorization);
+    return orchestratorService.rebuildDatasetExecutionInformation(metisUser, datasetId);
+  }
+
   /**
    * Get all WorkflowExecutions paged.
    *
@@ -391,10 +422,15 @@ public class OrchestratorController {
    * @param orderField the field to be used to sort the results
    * @param ascending a boolean value to request the ordering to ascending or descending
    * @param nextPage the nextPage token, the end of the list is marked with -1 on the response
+   * @param continuationToken the continuation token returned with the previous page (ignored if
+   * null). It can be used instead of the next page when ordering on {@link DaoFieldNames#ID} or
+   * {@link DaoFieldNames#CREATED_DATE}. The end of the list is marked by the absence of a token on
+   * the response.
    * @return a list of all the WorkflowExecutions found
    * @throws GenericMetisException which can be one of:
    * <ul>
-   * <li>{@link BadContentException} if paging is not correctly provided</li>
+   * <li>{@link BadContentException} if paging is not correctly provided or if the continuation
+   * token is not valid</li>
    * <li>{@link eu.europeana.metis.core.exceptions.NoDatasetFoundException} if the dataset
    * identifier provided does not exist</li>
    * <li>{@link eu.europeana.metis.exception.UserUnauthorizedException} if the user is not
@@ -411,15 +447,16 @@ public class OrchestratorController {
       @RequestParam(value = "workflowStatus", required = false) Set<WorkflowStatus> workflowStatuses,
       @RequestParam(value = "orderField", required = false, defaultValue = "ID") DaoFieldNames orderField,
       @RequestParam(value = "ascending", required = false, defaultValue = "true") boolean ascending,
-      @RequestParam(value = "nextPage", required = false, defaultValue = "0") int nextPage)
+      @RequestParam(value = "nextPage", required = false, defaultValue = "0") int nextPage,
+      @RequestParam(value = "continuationToken", required = false) String continuationToken)
       throws GenericMetisException {
     if (nextPage < 0) {
       throw new BadContentException(CommonStringValues.NEXT_PAGE_CANNOT_BE_NEGATIVE);
     }
     final MetisUser metisUser = authenticationClient.getUserByAccessTokenInHeader(authorization);
-    final ResponseListWrapper<WorkflowExecution> result =
-        orchestratorService.getAllWorkflowExecutions(metisUser, datasetId, workflowStatuses,
-            orderField, ascending, nextPage);
+    final ResponseListWrapper<WorkflowExecution> result = orchestratorService
+        .getAllWorkflowExecutions(metisUser, datasetId, workflowStatuses, orderField, ascending,
+            nextPage, continuationToken);
     logPaging(result, nextPage);
     return result;
   }
@@ -434,10 +471,15 @@ public class OrchestratorController {
    * @param orderField the field to be used to sort the results
    * @param ascending a boolean value to request the ordering to ascending or descending
    * @param nextPage the nextPage token, the end of the list is marked with -1 on the response
+   * @param continuationToken the continuation token returned with the previous page (ignored if
+   * null). It can be used instead of the next page when ordering on {@link DaoFieldNames#ID} or
+   * {@link DaoFieldNames#CREATED_DATE}. The end of the list is marked by the absence of a token on
+   * the response.
    * @return a list of all the WorkflowExecutions found
    * @throws GenericMetisException which can be one of:
    * <ul>
-   * <li>{@link BadContentException} if paging is not correctly provided</li>
+   * <li>{@link BadContentException} if paging is not correctly provided or if the continuation
+   * token is not valid</li>
    * <li>{@link eu.europeana.metis.exception.UserUnauthorizedException} if the user is not
    * authenticated or authorized to perform this operation</li>
    * </ul>
@@ -451,15 +493,16 @@ public class OrchestratorController {
       @RequestParam(value = "workflowStatus", required = false) Set<WorkflowStatus> workflowStatuses,
       @RequestParam(value = "orderField", required = false, defaultValue = "ID") DaoFieldNames orderField,
       @RequestParam(value = "ascending", required = false, defaultValue = "true") boolean ascending,
-      @RequestParam(value = "nextPage", required = false, defaultValue = "0") int nextPage)
+      @RequestParam(value = "nextPage", required = false, defaultValue = "0") int nextPage,
+      @RequestParam(value = "continuationToken", required = false) String continuationToken)
       throws GenericMetisException {
     if (nextPage < 0) {
       throw new BadContentException(CommonStringValues.NEXT_PAGE_CANNOT_BE_NEGATIVE);
     }
     final MetisUser metisUser = authenticationClient.getUserByAccessTokenInHeader(authorization);
-    final ResponseListWrapper<WorkflowExecution> result =
-        orchestratorService.getAllWorkflowExecutions(metisUser, null, workflowStatuses, orderField,
-            ascending, nextPage);
+    final ResponseListWrapper<WorkflowExecution> result = orchestratorService
+        .getAllWorkflowExecutions(metisUser, null, workflowStatuses, orderField, ascending,
+            nextPage, continuationToken);
     logPaging(result, nextPage);
     return result;
   }
@@ -475,11 +518,15 @@ public class OrchestratorController {
    * @param fromDate the date from where the results should start. Can be null.
    * @param toDate the date to where the results should end. Can be null.
    * @param nextPage the nextPage token, the end of the list is marked with -1 on the response
+   * @param continuationToken the continuation token returned with the previous page (ignored if
+   * null). It can be used instead of the next page. The end of the list is marked by the absence
+   * of a token on the response.
    * @param pageCount the number of pages that is requested
    * @return a list of all the WorkflowExecutions together with the datasets that they belong to.
    * @throws GenericMetisException which can be one of:
    * <ul>
-   * <li>{@link BadContentException} if paging is not correctly provided</li>
+   * <li>{@link BadContentException} if paging is not correctly provided or if the continuation
+   * token is not valid</li>
    * <li>{@link eu.europeana.metis.exception.UserUnauthorizedException} if the user is not
    * authenticated or authorized to perform this operation</li>
    * </ul>
@@ -495,6 +542,7 @@ public class OrchestratorController {
       @RequestParam(value = "fromDate", required = false) @DateTimeFormat(iso = ISO.DATE_TIME) Date fromDate,
       @RequestParam(value = "toDate", required = false) @DateTimeFormat(iso = ISO.DATE_TIME) Date toDate,
       @RequestParam(value = "nextPage", required = false, defaultValue = "0") int nextPage,
+      @RequestParam(value = "continuationToken", required = false) String continuationToken,
       @RequestParam(value = "pageCount", required = false, defaultValue = "1") int pageCount)
       throws GenericMetisException {
     if (nextPage < 0) {
@@ -504,9 +552,9 @@ public class OrchestratorController {
       throw new BadContentException(CommonStringValues.PAGE_COUNT_CANNOT_BE_ZERO_OR_NEGATIVE);
     }
     final MetisUser metisUser = authenticationClient.getUserByAccessTokenInHeader(authorization);
-    final ResponseListWrapper<ExecutionAndDatasetView> result =
-        orchestratorService.getWorkflowExecutionsOverview(metisUser, pluginStatuses, pluginTypes,
-            fromDate, toDate, nextPage, pageCount);
+    final ResponseListWrapper<ExecutionAndDatasetView> result = orchestratorService
+        .getWorkflowExecutionsOverview(metisUser, pluginStatuses, pluginTypes, fromDate, toDate,
+            nextPage, continuationToken, pageCount);
     logPaging(result, nextPage);
     return result;
   }
@@ -4,6 +4,7 @@ import com.mongodb.MongoClient;
 import eu.europeana.cloud.mcs.driver.DataSetServiceClient;
 import eu.europeana.metis.authentication.rest.client.AuthenticationClient;
 import eu.europeana.metis.core.dao.DatasetDao;
+import eu.europeana.metis.core.dao.DatasetExecutionSummaryDao;
 import eu.europeana.metis.core.dao.DatasetXsltDao;
 import eu.europeana.metis.core.dao.ScheduledWorkflowDao;
 import eu.europeana.metis.core.dao.WorkflowDao;
@@ -123,6 +124,8 @@ public class Application implements WebMvcConfigurer {
    * @param workflowDao the Dao instance to access the Workflow database
    * @param workflowExecutionDao the Dao instance to access the WorkflowExecution database
    * @param scheduledWorkflowDao the Dao instance to access the ScheduledWorkflow database
+   * @param datasetExecutionSummaryDao the Dao instance to access the DatasetExecutionSummary
+   * database
    * @param redissonClient {@link RedissonClient}
    * @param authorizer the authorizer for this service
    * @return the dataset service instance instantiated
@@ -130,10 +133,12 @@ public class Application implements WebMvcConfigurer {
   @Bean
   public DatasetService getDatasetService(DatasetDao datasetDao, DatasetXsltDao datasetXsltDao,
       WorkflowDao workflowDao, WorkflowExecutionDao workflowExecutionDao,
-      ScheduledWorkflowDao scheduledWorkflowDao, RedissonClient redissonClient,
+      ScheduledWorkflowDao scheduledWorkflowDao,
+      DatasetExecutionSummaryDao datasetExecutionSummaryDao, RedissonClient redissonClient,
       Authorizer authorizer) {
     DatasetService datasetService = new DatasetService(datasetDao, datasetXsltDao, workflowDao,
-        workflowExecutionDao, scheduledWorkflowDao, redissonClient, authorizer);
+        workflowExecutionDao, scheduledWorkflowDao, datasetExecutionSummaryDao, redissonClient,
+        authorizer);
     datasetService.setMetisCoreUrl(propertiesHolder.getMetisCoreBaseUrl());
     return datasetService;
   }
@@ -18,6 +18,8 @@ public class ConfigurationPropertiesHolder {
   private int maxConcurrentThreads;
   @Value("${dps.monitor.check.interval.in.secs}")
   private int dpsMonitorCheckIntervalInSecs;
+  @Value("${dps.monitor.thread.count}")
+  private int dpsMonitorThreadCount;
   @Value("${dps.connect.timeout.in.millisecs}")
   private int dpsConnectTimeoutInMillisecs;
   @Value("${dps.read.timeout.in.millisecs}")
@@ -28,8 +30,6 @@ public class ConfigurationPropertiesHolder {
   private int periodicFailsafeCheckInMillisecs;
   @Value("${periodic.scheduler.check.in.millisecs}")
   private int periodicSchedulerCheckInMillisecs;
-  @Value("${polling.timeout.for.cleaning.completion.service.in.secs}")
-  private int pollingTimeoutForCleaningCompletionServiceInSecs;
   @Value("${period.of.no.processed.records.change.in.minutes}")
   private int periodOfNoProcessedRecordsChangeInMinutes;
 
@@ -70,6 +70,8 @@ public class ConfigurationPropertiesHolder {
   private String metisCoreBaseUrl;
   @Value("${metis.core.max.served.execution.list.length}")
   private int maxServedExecutionListLength;
+  @Value("${metis.core.continuation.token.secret}")
+  private String continuationTokenSecret;
 
   // Ecloud configuration
   @Value("${metis.use.alternative.indexing.environment}")
@@ -146,6 +148,14 @@ public class ConfigurationPropertiesHolder {
   private String ecloudUsername;
   @Value("${ecloud.password}")
   private String ecloudPassword;
+  @Value("${ecloud.max.concurrent.record.requests}")
+  private int ecloudMaxConcurrentRecordRequests;
+  @Value("${ecloud.record.request.timeout.in.secs}")
+  private int ecloudRecordRequestTimeoutInSecs;
+  @Value("${ecloud.content.uri.cache.time.to.live.in.secs}")
+  private int ecloudContentUriCacheTimeToLiveInSecs;
+  @Value("${ecloud.max.records.per.request}")
+  private int ecloudMaxRecordsPerRequest;
 
   public int getMaxConcurrentThreads() {
     return maxConcurrentThreads;
@@ -155,6 +165,10 @@ public class ConfigurationPropertiesHolder {
     return dpsMonitorCheckIntervalInSecs;
   }
 
+  public int getDpsMonitorThreadCount() {
+    return dpsMonitorThreadCount;
+  }
+
   public int getDpsConnectTimeoutInMillisecs() {
     return dpsConnectTimeoutInMillisecs;
   }
@@ -175,10 +189,6 @@ public class ConfigurationPropertiesHolder {
     return periodicSchedulerCheckInMillisecs;
   }
 
-  public int getPollingTimeoutForCleaningCompletionServiceInSecs() {
-    return pollingTimeoutForCleaningCompletionServiceInSecs;
-  }
-
   public int getPeriodOfNoProcessedRecordsChangeInMinutes() {
     return periodOfNoProcessedRecordsChangeInMinutes;
   }
@@ -247,6 +257,10 @@ public class ConfigurationPropertiesHolder {
     return maxServedExecutionListLength;
   }
 
+  public String getContinuationTokenSecret() {
+    return continuationTokenSecret;
+  }
+
   public boolean isMetisUseAlternativeIndexingEnvironment() {
     return metisUseAlternativeIndexingEnvironment;
   }
@@ -343,6 +357,22 @@ public class ConfigurationPropertiesHolder {
     return ecloudPassword;
   }
 
+  public int getEcloudMaxConcurrentRecordRequests() {
+    return ecloudMaxConcurrentRecordRequests;
+  }
+
+  public int getEcloudRecordRequestTimeoutInSecs() {
+    return ecloudRecordRequestTimeoutInSecs;
+  }
+
+  public int getEcloudContentUriCacheTimeToLiveInSecs() {
+    return ecloudContentUriCacheTimeToLiveInSecs;
+  }
+
+  public int getEcloudMaxRecordsPerRequest() {
+    return ecloudMaxRecordsPerRequest;
+  }
+
   public ValidationProperties getValidationExternalProperties() {
     return new ValidationProperties(validationExternalSchemaZip, validationExternalSchemaRoot,
         validationExternalSchematronRoot);
@@ -9,6 +9,7 @@ import eu.europeana.cloud.mcs.driver.DataSetServiceClient;
 import eu.europeana.cloud.mcs.driver.FileServiceClient;
 import eu.europeana.cloud.mcs.driver.RecordServiceClient;
 import eu.europeana.metis.core.dao.DatasetDao;
+import eu.europeana.metis.core.dao.DatasetExecutionSummaryDao;
 import eu.europeana.metis.core.dao.DatasetXsltDao;
 import eu.europeana.metis.core.dao.ScheduledWorkflowDao;
 import eu.europeana.metis.core.dao.WorkflowDao;
@@ -168,11 +169,12 @@ public class OrchestratorConfig implements WebMvcConfigurer {
   @Bean
   public OrchestratorService getOrchestratorService(WorkflowDao workflowDao,
       WorkflowExecutionDao workflowExecutionDao, WorkflowUtils workflowUtils, DatasetDao datasetDao,
+      DatasetExecutionSummaryDao datasetExecutionSummaryDao,
       WorkflowExecutionFactory workflowExecutionFactory,
       WorkflowExecutorManager workflowExecutorManager, Authorizer authorizer) {
     OrchestratorService orchestratorService = new OrchestratorService(workflowExecutionFactory,
-        workflowDao, workflowExecutionDao, workflowUtils, datasetDao, workflowExecutorManager,
-        redissonClient, authorizer);
+        workflowDao, workflowExecutionDao, workflowUtils, datasetDao, datasetExecutionSummaryDao,
+        workflowExecutorManager, redissonClient, authorizer);
     orchestratorService.setSolrCommitPeriodInMins(propertiesHolder.getSolrCommitPeriodInMins());
     return orchestratorService;
   }
@@ -204,25 +206,41 @@ public class OrchestratorConfig implements WebMvcConfigurer {
   public ProxiesService getProxiesService(WorkflowExecutionDao workflowExecutionDao,
       DataSetServiceClient ecloudDataSetServiceClient, RecordServiceClient recordServiceClient,
       FileServiceClient fileServiceClient, DpsClient dpsClient, Authorizer authorizer) {
-    return new ProxiesService(workflowExecutionDao, ecloudDataSetServiceClient, recordServiceClient,
-        fileServiceClient, dpsClient, propertiesHolder.getEcloudProvider(), authorizer);
+    final ProxiesService proxiesService = new ProxiesService(workflowExecutionDao,
+        ecloudDataSetServiceClient, recordServiceClient, fileServiceClient, dpsClient,
+        propertiesHolder.getEcloudProvider(), authorizer);
+    proxiesService.setMaxConcurrentRecordRequests(
+        propertiesHolder.getEcloudMaxConcurrentRecordRequests());
+    proxiesService.setRecordRequestTimeoutInSecs(
+        propertiesHolder.getEcloudRecordRequestTimeoutInSecs());
+    proxiesService.setContentUriCacheTimeToLiveInSecs(
+        propertiesHolder.getEcloudContentUriCacheTimeToLiveInSecs());
+    proxiesService.setMaxRecordsPerRequest(propertiesHolder.getEcloudMaxRecordsPerRequest());
+    return proxiesService;
   }
 
   @Bean
   public WorkflowExecutorManager getWorkflowExecutorManager(
       WorkflowExecutionDao workflowExecutionDao,
+      DatasetExecutionSummaryDao datasetExecutionSummaryDao,
       @Qualifier("rabbitmqPublisherChannel") Channel rabbitmqPublisherChannel,
       @Qualifier("rabbitmqConsumerChannel") Channel rabbitmqConsumerChannel,
       RedissonClient redissonClient, DpsClient dpsClient) {
     WorkflowExecutorManager workflowExecutorManager =
-        new WorkflowExecutorManager(workflowExecutionDao, rabbitmqPublisherChannel,
-            rabbitmqConsumerChannel, redissonClient, dpsClient);
+        new WorkflowExecutorManager(workflowExecutionDao, datasetExecutionSummaryDao,
+            rabbitmqPublisherChannel, rabbitmqConsumerChannel, redissonClient, dpsClient);
     workflowExecutorManager.setRabbitmqQueueName(propertiesHolder.getRabbitmqQueueName());
     workflowExecutorManager.setMaxConcurrentThreads(propertiesHolder.getMaxConcurrentThreads());
     workflowExecutorManager
         .setDpsMonitorCheckIntervalInSecs(propertiesHolder.getDpsMonitorCheckIntervalInSecs());
-    workflowExecutorManager.setPollingTimeoutForCleaningCompletionServiceInSecs(
-        propertiesHolder.getPollingTimeoutForCleaningCompletionServiceInSecs());
+    workflowExecutorManager
+        .setDpsMonitorThreadCount(propertiesHolder.getDpsMonitorThreadCount());
+    // Unchanged monitor information is not saved, but it must be saved often enough for the
+    // failsafe not to consider the execution inactive. The failsafe leniency (see below) already
+    // allows for the check interval and the DPS timeouts, so we take half of the margin of
+    // inactivity: the other half is left for the time it takes to actually save the information.
+    workflowExecutorManager.setDpsMonitorHeartbeatIntervalInSecs(
+        Math.max(1, propertiesHolder.getFailsafeMarginOfInactivityInSecs() / 2));
     workflowExecutorManager.setPeriodOfNoProcessedRecordsChangeInMinutes(
         propertiesHolder.getPeriodOfNoProcessedRecordsChangeInMinutes());
     workflowExecutorManager.setEcloudBaseUrl(propertiesHolder.getEcloudBaseUrl());
@@ -240,6 +258,7 @@ public class OrchestratorConfig implements WebMvcConfigurer {
         RequestLimits.WORKFLOW_EXECUTIONS_PER_REQUEST.getLimit());
     workflowExecutionDao
         .setMaxServedExecutionListLength(propertiesHolder.getMaxServedExecutionListLength());
+    workflowExecutionDao.setContinuationTokenSecret(propertiesHolder.getContinuationTokenSecret());
     return workflowExecutionDao;
   }
 
@@ -248,6 +267,12 @@ public class OrchestratorConfig implements WebMvcConfigurer {
     return new WorkflowUtils(workflowExecutionDao);
   }
 
+  @Bean
+  public DatasetExecutionSummaryDao getDatasetExecutionSummaryDao(
+      MorphiaDatastoreProvider morphiaDatastoreProvider) {
+    return new DatasetExecutionSummaryDao(morphiaDatastoreProvider);
+  }
+
   @Bean
   public ScheduledWorkflowDao getScheduledWorkflowDao(
       MorphiaDatastoreProvider morphiaDatastoreProvider) {
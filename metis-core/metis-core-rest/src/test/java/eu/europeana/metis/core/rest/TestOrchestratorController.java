@@ -487,6 +487,8 @@ class TestOrchestratorController {
     WorkflowExecution workflowExecution = TestObjectFactory
         .createWorkflowExecutionObject();
     workflowExecution.setWorkflowStatus(WorkflowStatus.RUNNING);
+    workflowExecution.setClaimedBy("1234@orchestrator-host");
+    workflowExecution.setClaimVersion(3);
     when(orchestratorService.getWorkflowExecutionByExecutionId(eq(metisUser), anyString()))
         .thenReturn(workflowExecution);
     orchestratorControllerMock.perform(
@@ -496,7 +498,9 @@ class TestOrchestratorController {
             .contentType(MediaType.APPLICATION_JSON_UTF8)
             .content(""))
         .andExpect(status().is(200))
-        .andExpect(jsonPath("$.workflowStatus", is(WorkflowStatus.RUNNING.name())));
+        .andExpect(jsonPath("$.workflowStatus", is(WorkflowStatus.RUNNING.name())))
+        .andExpect(jsonPath("$.claimedBy").doesNotExist())
+        .andExpect(jsonPath("$.claimVersion").doesNotExist());
   }
 
   @Test
@@ -592,7 +596,7 @@ class TestOrchestratorController {
 
     when(orchestratorService.getWorkflowExecutionsPerRequest()).thenReturn(listSize);
     when(orchestratorService.getAllWorkflowExecutions(eq(metisUser), anyString(),
-        ArgumentMatchers.anySet(), any(DaoFieldNames.class), anyBoolean(), anyInt()))
+        ArgumentMatchers.anySet(), any(DaoFieldNames.class), anyBoolean(), anyInt(), isNull()))
         .thenReturn(listOfWorkflowExecutions);
     orchestratorControllerMock
         .perform(get(RestEndpoints.ORCHESTRATOR_WORKFLOWS_EXECUTIONS_DATASET_DATASETID,
@@ -642,7 +646,7 @@ class TestOrchestratorController {
 
     when(orchestratorService.getWorkflowExecutionsPerRequest()).thenReturn(listSize);
     when(orchestratorService.getAllWorkflowExecutions(eq(metisUser), isNull(),
-        ArgumentMatchers.anySet(), any(DaoFieldNames.class), anyBoolean(), anyInt()))
+        ArgumentMatchers.anySet(), any(DaoFieldNames.class), anyBoolean(), anyInt(), isNull()))
         .thenReturn(listOfWorkflowExecutions);
     orchestratorControllerMock
         .perform(get(RestEndpoints.ORCHESTRATOR_WORKFLOWS_EXECUTIONS)
@@ -694,7 +698,7 @@ class TestOrchestratorController {
     when(orchestratorService.getWorkflowExecutionsPerRequest()).thenReturn(pageSize);
     when(orchestratorService
         .getWorkflowExecutionsOverview(eq(metisUser), isNull(), isNull(), isNull(), isNull(),
-            eq(nextPage), eq(pageCount)))
+            eq(nextPage), isNull(), eq(pageCount)))
         .thenReturn(listOfWorkflowExecutionAndDatasetViews);
     orchestratorControllerMock
         .perform(get(RestEndpoints.ORCHESTRATOR_WORKFLOWS_EXECUTIONS_OVERVIEW)
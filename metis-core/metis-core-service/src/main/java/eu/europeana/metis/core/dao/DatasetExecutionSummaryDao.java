@@ -0,0 +1,326 @@
+package eu.europeana.metis.core.dao;
+
+import static eu.europeana.metis.core.common.DaoFieldNames.ID;
+
+import com.mongodb.DuplicateKeyException;
+import com.mongodb.WriteResult;
+import dev.morphia.UpdateOptions;
+import dev.morphia.query.Query;
+import dev.morphia.query.UpdateOperations;
+import eu.europeana.metis.core.dataset.DatasetExecutionSummary;
+import eu.europeana.metis.core.mongo.MorphiaDatastoreProvider;
+import eu.europeana.metis.core.workflow.plugins.DataStatus;
+import eu.europeana.metis.core.workflow.plugins.ExecutablePlugin;
+import eu.europeana.metis.core.workflow.plugins.MetisPlugin;
+import eu.europeana.metis.core.workflow.plugins.PluginType;
+import eu.europeana.metis.utils.ExternalRequestUtil;
+import java.util.Date;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Data Access Object for dataset execution summaries (see {@link DatasetExecutionSummary}) using
+ * mongo.
+ * <p>The summaries are updated incrementally when plugins finish or fail. These updates only apply
+ * to summaries that already exist: a missing summary is to be rebuilt from the executions of the
+ * dataset, so that no information from before the first update is lost. The updates never replace
+ * more recent information, so that they can be applied in any order.</p>
+ */
+@Repository
+public class DatasetExecutionSummaryDao {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(DatasetExecutionSummaryDao.class);
+
+  private static final String LAST_HARVESTED_DATE = "lastHarvestedDate";
+  private static final String LAST_HARVESTED_RECORDS = "lastHarvestedRecords";
+  private static final String FIRST_PUBLISHED_DATE = "firstPublishedDate";
+  private static final String LAST_PREVIEW_DATE = "lastPreviewDate";
+  private static final String LAST_PREVIEW_DATA_VALID = "lastPreviewDataValid";
+  private static final String LAST_PREVIEW_RECORDS = "lastPreviewRecords";
+  private static final String LAST_PUBLISHED_DATE = "lastPublishedDate";
+  private static final String LAST_PUBLISHED_DATA_VALID = "lastPublishedDataValid";
+  private static final String LAST_PUBLISHED_RECORDS = "lastPublishedRecords";
+  private static final String LAST_FAILED_DATE = "lastFailedDate";
+  private static final String LAST_FAILED_PLUGIN_TYPE = "lastFailedPluginType";
+
+  private final MorphiaDatastoreProvider morphiaDatastoreProvider;
+
+  /**
+   * Constructs the DAO
+   *
+   * @param morphiaDatastoreProvider {@link MorphiaDatastoreProvider} used to access Mongo
+   */
+  @Autowired
+  public DatasetExecutionSummaryDao(MorphiaDatastoreProvider morphiaDatastoreProvider) {
+    this.morphiaDatastoreProvider = morphiaDatastoreProvider;
+  }
+
+  /**
+   * Get the summary of a dataset.
+   *
+   * @param datasetId the dataset identifier
+   * @return the summary, or null if there is none for this dataset
+   */
+  public DatasetExecutionSummary getByDatasetId(String datasetId) {
+    return ExternalRequestUtil.retryableExternalRequestConnectionReset(
+        () -> createQuery(datasetId).first());
+  }
+
+  /**
+   * Deletes the summary of a dataset.
+   *
+   * @param datasetId the dataset identifier
+   * @return true if a summary was deleted, false if there was none
+   */
+  public boolean deleteByDatasetId(String datasetId) {
+    final WriteResult delete = ExternalRequestUtil.retryableExternalRequestConnectionReset(
+        () -> morphiaDatastoreProvider.getDatastore().delete(createQuery(datasetId)));
+    LOGGER.debug("DatasetExecutionSummary with datasetId: {} deleted from Mongo", datasetId);
+    return (delete == null ? 0 : delete.getN()) >= 1;
+  }
+
+  /**
+   * Saves the summary of a dataset, but only if the dataset does not have a summary yet. An
+   * existing summary is left untouched.
+   *
+   * @param summary the summary
+   * @return whether the summary was saved
+   */
+  public boolean createIfAbsent(DatasetExecutionSummary summary) {
+    final UpdateOperations<DatasetExecutionSummary> updateOperations = createUpdateOperations();
+    setOnInsertIfNotNull(updateOperations, LAST_HARVESTED_DATE, summary.getLastHarvestedDate());
+    updateOperations.setOnInsert(LAST_HARVESTED_RECORDS, summary.getLastHarvestedRecords());
+    setOnInsertIfNotNull(updateOperations, FIRST_PUBLISHED_DATE, summary.getFirstPublishedDate());
+    setOnInsertIfNotNull(updateOperations, LAST_PREVIEW_DATE, summary.getLastPreviewDate());
+    updateOperations.setOnInsert(LAST_PREVIEW_DATA_VALID, summary.isLastPreviewDataValid());
+    updateOperations.setOnInsert(LAST_PREVIEW_RECORDS, summary.getLastPreviewRecords());
+    setOnInsertIfNotNull(updateOperations, LAST_PUBLISHED_DATE, summary.getLastPublishedDate());
+    updateOperations.setOnInsert(LAST_PUBLISHED_DATA_VALID, summary.isLastPublishedDataValid());
+    updateOperations.setOnInsert(LAST_PUBLISHED_RECORDS, summary.getLastPublishedRecords());
+    setOnInsertIfNotNull(updateOperations, LAST_FAILED_DATE, summary.getLastFailedDate());
+    setOnInsertIfNotNull(updateOperations, LAST_FAILED_PLUGIN_TYPE,
+        summary.getLastFailedPluginType());
+    final boolean created;
+    try {
+      created = ExternalRequestUtil.retryableExternalRequestConnectionReset(
+          () -> morphiaDatastoreProvider.getDatastore().update(
+              createQuery(summary.getDatasetId()), updateOperations,
+              new UpdateOptions().upsert(true))).getInsertedCount() > 0;
+    } catch (DuplicateKeyException e) {
+      // Another thread created the summary at the same time.
+      LOGGER.debug("Execution summary for datasetId: '{}' was created concurrently.",
+          summary.getDatasetId(), e);
+      return false;
+    }
+    if (created) {
+      LOGGER.debug("Execution summary for datasetId: '{}' created in Mongo",
+          summary.getDatasetId());
+    }
+    return created;
+  }
+
+  /**
+   * Overwrites the information in the summary of a dataset that is derived from the execution
+   * history (i.e. everything except the last failure) with the information in the given summary.
+   * The summary is created if it does not exist yet. Note that this may undo updates for plugins
+   * that finished while the given summary was computed: consider calling
+   * {@link #registerExecutionHistory(DatasetExecutionSummary)} afterwards.
+   *
+   * @param summary the summary
+   */
+  public void replaceExecutionHistory(DatasetExecutionSummary summary) {
+    final UpdateOperations<DatasetExecutionSummary> updateOperations = createUpdateOperations();
+    setOrUnset(updateOperations, LAST_HARVESTED_DATE, summary.getLastHarvestedDate());
+    updateOperations.set(LAST_HARVESTED_RECORDS, summary.getLastHarvestedRecords());
+    setOrUnset(updateOperations, FIRST_PUBLISHED_DATE, summary.getFirstPublishedDate());
+    setOrUnset(updateOperations, LAST_PREVIEW_DATE, summary.getLastPreviewDate());
+    updateOperations.set(LAST_PREVIEW_DATA_VALID, summary.isLastPreviewDataValid());
+    updateOperations.set(LAST_PREVIEW_RECORDS, summary.getLastPreviewRecords());
+    setOrUnset(updateOperations, LAST_PUBLISHED_DATE, summary.getLastPublishedDate());
+    updateOperations.set(LAST_PUBLISHED_DATA_VALID, summary.isLastPublishedDataValid());
+    updateOperations.set(LAST_PUBLISHED_RECORDS, summary.getLastPublishedRecords());
+    try {
+      upsert(createQuery(summary.getDatasetId()), updateOperations);
+    } catch (DuplicateKeyException e) {
+      // Another thread created the summary at the same time: it now exists, so we can update.
+      LOGGER.debug("Received duplicate key exception, trying again once more.", e);
+      upsert(createQuery(summary.getDatasetId()), updateOperations);
+    }
+    LOGGER.debug("Execution summary for datasetId: '{}' saved in Mongo", summary.getDatasetId());
+  }
+
+  /**
+   * Registers the information derived from the execution history in the summary of the dataset, if
+   * the summary exists. In contrast to
+   * {@link #replaceExecutionHistory(DatasetExecutionSummary)}, this only applies information that
+   * is more recent than the information in the summary (or, for the first publication, older), so
+   * it never undoes concurrent updates.
+   *
+   * @param summary the summary
+   */
+  public void registerExecutionHistory(DatasetExecutionSummary summary) {
+    final String datasetId = summary.getDatasetId();
+    final Date lastHarvestedDate = summary.getLastHarvestedDate();
+    if (lastHarvestedDate != null) {
+      updateIfNewer(datasetId, LAST_HARVESTED_DATE, lastHarvestedDate, createUpdateOperations()
+          .set(LAST_HARVESTED_DATE, lastHarvestedDate)
+          .set(LAST_HARVESTED_RECORDS, summary.getLastHarvestedRecords()));
+    }
+    final Date lastPreviewDate = summary.getLastPreviewDate();
+    if (lastPreviewDate != null) {
+      updateIfNewer(datasetId, LAST_PREVIEW_DATE, lastPreviewDate, createUpdateOperations()
+          .set(LAST_PREVIEW_DATE, lastPreviewDate)
+          .set(LAST_PREVIEW_DATA_VALID, summary.isLastPreviewDataValid())
+          .set(LAST_PREVIEW_RECORDS, summary.getLastPreviewRecords()));
+    }
+    final Date lastPublishedDate = summary.getLastPublishedDate();
+    if (lastPublishedDate != null) {
+      updateIfNewer(datasetId, LAST_PUBLISHED_DATE, lastPublishedDate, createUpdateOperations()
+          .set(LAST_PUBLISHED_DATE, lastPublishedDate)
+          .set(LAST_PUBLISHED_DATA_VALID, summary.isLastPublishedDataValid())
+          .set(LAST_PUBLISHED_RECORDS, summary.getLastPublishedRecords()));
+    }
+    if (summary.getFirstPublishedDate() != null) {
+      updateFirstPublishedDate(datasetId, summary.getFirstPublishedDate());
+    }
+  }
+
+  /**
+   * Registers a finished plugin in the summary of the dataset, if the summary exists and does not
+   * already contain more recent information. The record counts are only taken from executable
+   * plugins (i.e. not from reindexing plugins). Plugins that are not relevant for the summary are
+   * ignored.
+   *
+   * @param datasetId the dataset identifier
+   * @param plugin the plugin that finished
+   */
+  public void registerFinishedPlugin(String datasetId, MetisPlugin plugin) {
+    final PluginType pluginType = plugin.getPluginType();
+    final Date finishedDate = plugin.getFinishedDate();
+    if (finishedDate == null) {
+      return;
+    }
+    final UpdateOperations<DatasetExecutionSummary> updateOperations = createUpdateOperations();
+    final String dateField;
+    final boolean isPublication;
+    if (pluginType == PluginType.OAIPMH_HARVEST || pluginType == PluginType.HTTP_HARVEST) {
+      dateField = LAST_HARVESTED_DATE;
+      updateOperations.set(LAST_HARVESTED_RECORDS, getRecordCount(plugin));
+      isPublication = false;
+    } else if (pluginType == PluginType.PREVIEW || pluginType == PluginType.REINDEX_TO_PREVIEW) {
+      dateField = LAST_PREVIEW_DATE;
+      updateOperations.set(LAST_PREVIEW_DATA_VALID, isDataValid(plugin));
+      if (pluginType == PluginType.PREVIEW) {
+        updateOperations.set(LAST_PREVIEW_RECORDS, getRecordCount(plugin));
+      }
+      isPublication = false;
+    } else if (pluginType == PluginType.PUBLISH || pluginType == PluginType.REINDEX_TO_PUBLISH) {
+      dateField = LAST_PUBLISHED_DATE;
+      updateOperations.set(LAST_PUBLISHED_DATA_VALID, isDataValid(plugin));
+      if (pluginType == PluginType.PUBLISH) {
+        updateOperations.set(LAST_PUBLISHED_RECORDS, getRecordCount(plugin));
+      }
+      isPublication = true;
+    } else {
+      return;
+    }
+    updateIfNewer(datasetId, dateField, finishedDate,
+        updateOperations.set(dateField, finishedDate));
+
+    // The first publication date is only set if there is none yet (or a later one).
+    if (isPublication) {
+      updateFirstPublishedDate(datasetId, finishedDate);
+    }
+  }
+
+  /**
+   * Registers a failed plugin in the summary of the dataset, if the summary exists.
+   *
+   * @param datasetId the dataset identifier
+   * @param plugin the plugin that failed
+   * @param failedDate the date on which the plugin failed
+   */
+  public void registerFailedPlugin(String datasetId, MetisPlugin plugin, Date failedDate) {
+    update(createQuery(datasetId), createUpdateOperations().set(LAST_FAILED_DATE, failedDate)
+        .set(LAST_FAILED_PLUGIN_TYPE, plugin.getPluginType()));
+  }
+
+  /**
+   * Computes the number of records that a plugin processed successfully.
+   *
+   * @param plugin the plugin
+   * @return the number of records, or 0 if the plugin is not executable
+   */
+  public static int getRecordCount(MetisPlugin plugin) {
+    return Optional.of(plugin).filter(ExecutablePlugin.class::isInstance)
+        .map(ExecutablePlugin.class::cast).map(ExecutablePlugin::getExecutionProgress)
+        .map(progress -> progress.getProcessedRecords() - progress.getErrors()).orElse(0);
+  }
+
+  /**
+   * Determines whether the data that a plugin produced is valid.
+   *
+   * @param plugin the plugin
+   * @return whether the data is valid: always true if the plugin is not executable
+   */
+  public static boolean isDataValid(MetisPlugin plugin) {
+    return !(plugin instanceof ExecutablePlugin)
+        || ExecutablePlugin.getDataStatus((ExecutablePlugin) plugin) == DataStatus.VALID;
+  }
+
+  private Query<DatasetExecutionSummary> createQuery(String datasetId) {
+    return morphiaDatastoreProvider.getDatastore().find(DatasetExecutionSummary.class)
+        .field(ID.getFieldName()).equal(datasetId);
+  }
+
+  private UpdateOperations<DatasetExecutionSummary> createUpdateOperations() {
+    return morphiaDatastoreProvider.getDatastore()
+        .createUpdateOperations(DatasetExecutionSummary.class);
+  }
+
+  private static void setOnInsertIfNotNull(
+      UpdateOperations<DatasetExecutionSummary> updateOperations, String field, Object value) {
+    if (value != null) {
+      updateOperations.setOnInsert(field, value);
+    }
+  }
+
+  private static void setOrUnset(UpdateOperations<DatasetExecutionSummary> updateOperations,
+      String field, Object value) {
+    if (value == null) {
+      updateOperations.unset(field);
+    } else {
+      updateOperations.set(field, value);
+    }
+  }
+
+  private void updateIfNewer(String datasetId, String dateField, Date date,
+      UpdateOperations<DatasetExecutionSummary> updateOperations) {
+    final Query<DatasetExecutionSummary> query = createQuery(datasetId);
+    query.or(query.criteria(dateField).doesNotExist(), query.criteria(dateField).lessThan(date));
+    update(query, updateOperations);
+  }
+
+  private void updateFirstPublishedDate(String datasetId, Date date) {
+    final Query<DatasetExecutionSummary> query = createQuery(datasetId);
+    query.or(query.criteria(FIRST_PUBLISHED_DATE).doesNotExist(),
+        query.criteria(FIRST_PUBLISHED_DATE).greaterThan(date));
+    update(query, createUpdateOperations().set(FIRST_PUBLISHED_DATE, date));
+  }
+
+  private void update(Query<DatasetExecutionSummary> query,
+      UpdateOperations<DatasetExecutionSummary> updateOperations) {
+    ExternalRequestUtil.retryableExternalRequestConnectionReset(
+        () -> morphiaDatastoreProvider.getDatastore().update(query, updateOperations));
+  }
+
+  private void upsert(Query<DatasetExecutionSummary> query,
+      UpdateOperations<DatasetExecutionSummary> updateOperations) {
+    ExternalRequestUtil.retryableExternalRequestConnectionReset(
+        () -> morphiaDatastoreProvider.getDatastore()
+            .update(query, updateOperations, new UpdateOptions().upsert(true)));
+  }
+}
@@ -2,18 +2,19 @@ package eu.europeana.metis.core.dao;
 
 import static eu.europeana.metis.core.common.DaoFieldNames.DATASET_ID;
 import static eu.europeana.metis.core.common.DaoFieldNames.ID;
+import static eu.europeana.metis.core.common.DaoFieldNames.NEXT_FIRE_TIME;
 
 import com.mongodb.WriteResult;
 import dev.morphia.Key;
 import dev.morphia.query.FindOptions;
 import dev.morphia.query.Query;
+import dev.morphia.query.UpdateOperations;
+import dev.morphia.query.UpdateResults;
 import eu.europeana.metis.core.mongo.MorphiaDatastoreProvider;
 import eu.europeana.metis.core.rest.RequestLimits;
 import eu.europeana.metis.core.workflow.ScheduleFrequence;
 import eu.europeana.metis.core.workflow.ScheduledWorkflow;
 import eu.europeana.metis.utils.ExternalRequestUtil;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
 import java.util.Date;
 import java.util.List;
 import org.bson.types.ObjectId;
@@ -189,28 +190,73 @@ public class ScheduledWorkflowDao implements MetisDao<ScheduledWorkflow, String>
   }
 
   /**
-   * Get all ScheduledWorkflows using a date range check.
+   * Get all ScheduledWorkflows that are due, i.e. of which the next fire time is not after the
+   * given date. This uses the index on the next fire time, so the cost of this query depends on
+   * the number of due scheduled workflows, not on the total number.
    *
-   * @param lowerBound the lower edge of the date range with a check of greater or equal
-   * @param upperBound the upper edge of the date range with a check of lower than
-   * @param nextPage the nextPage positive number
+   * @param dueDate the date up to which (inclusive) the ScheduledWorkflows are due
+   * @return a list of due ScheduledWorkflows, ordered by their next fire time
+   */
+  public List<ScheduledWorkflow> getDueScheduledWorkflows(Date dueDate) {
+    final Query<ScheduledWorkflow> query = morphiaDatastoreProvider.getDatastore()
+        .createQuery(ScheduledWorkflow.class);
+    query.field(NEXT_FIRE_TIME.getFieldName()).lessThanOrEq(dueDate);
+    query.order(NEXT_FIRE_TIME.getFieldName());
+    return ExternalRequestUtil.retryableExternalRequestConnectionReset(query::asList);
+  }
+
+  /**
+   * Get all ScheduledWorkflows that don't have a next fire time, except the ones with frequence
+   * {@link ScheduleFrequence#ONCE} of which the pointer date is not after the given date. The
+   * latter will never be due again (and therefore never get a next fire time), so there is no need
+   * to retrieve them. The result contains the workflows that were stored before the next fire time
+   * was introduced.
+   *
+   * @param now the current date
    * @return a list of ScheduledWorkflows
    */
-  public List<ScheduledWorkflow> getAllScheduledWorkflowsByDateRangeONCE(
-      LocalDateTime lowerBound,
-      LocalDateTime upperBound, int nextPage) {
-    Query<ScheduledWorkflow> query = morphiaDatastoreProvider.getDatastore()
+  public List<ScheduledWorkflow> getScheduledWorkflowsWithoutNextFireTime(Date now) {
+    final Query<ScheduledWorkflow> query = morphiaDatastoreProvider.getDatastore()
         .createQuery(ScheduledWorkflow.class);
-    query.criteria("scheduleFrequence").equal(ScheduleFrequence.ONCE).and(
-        query.criteria("pointerDate").greaterThanOrEq(
-            Date.from(lowerBound.atZone(ZoneId.systemDefault()).toInstant()))).and(
-        query.criteria("pointerDate")
-            .lessThan(Date.from(upperBound.atZone(ZoneId.systemDefault()).toInstant())));
-    query.order(ID.getFieldName());
-    return ExternalRequestUtil.retryableExternalRequestConnectionReset(() -> query.asList(
-        new FindOptions().skip(nextPage * getScheduledWorkflowPerRequest())
-            .limit(getScheduledWorkflowPerRequest())));
+    query.field(NEXT_FIRE_TIME.getFieldName()).doesNotExist();
+    query.or(query.criteria("scheduleFrequence").notEqual(ScheduleFrequence.ONCE),
+        query.criteria("pointerDate").greaterThan(now));
+    return ExternalRequestUtil.retryableExternalRequestConnectionReset(query::asList);
+  }
 
+  /**
+   * Sets the next fire time of a ScheduledWorkflow, provided that its current next fire time in the
+   * database is still the one in the given ScheduledWorkflow (compare-and-set). This way, if
+   * multiple instances try to fire the same scheduled workflow, only one of them succeeds.
+   *
+   * @param scheduledWorkflow the ScheduledWorkflow, containing the expected current next fire time
+   * @param nextFireTime the new next fire time. Can be null, in which case the scheduled workflow
+   * will not be due anymore.
+   * @return whether the next fire time was updated
+   */
+  public boolean updateNextFireTime(ScheduledWorkflow scheduledWorkflow, Date nextFireTime) {
+    final Query<ScheduledWorkflow> query = morphiaDatastoreProvider.getDatastore()
+        .createQuery(ScheduledWorkflow.class);
+    query.field(ID.getFieldName()).equal(scheduledWorkflow.getId());
+    if (scheduledWorkflow.getNextFireTime() == null) {
+      query.field(NEXT_FIRE_TIME.getFieldName()).doesNotExist();
+    } else {
+      query.field(NEXT_FIRE_TIME.getFieldName()).equal(scheduledWorkflow.getNextFireTime());
+    }
+    final UpdateOperations<ScheduledWorkflow> updateOperations = morphiaDatastoreProvider
+        .getDatastore().createUpdateOperations(ScheduledWorkflow.class);
+    if (nextFireTime == null) {
+      updateOperations.unset(NEXT_FIRE_TIME.getFieldName());
+    } else {
+      updateOperations.set(NEXT_FIRE_TIME.getFieldName(), nextFireTime);
+    }
+    final UpdateResults updateResults = ExternalRequestUtil
+        .retryableExternalRequestConnectionReset(() -> morphiaDatastoreProvider.getDatastore()
+            .update(query, updateOperations));
+    final boolean updated = updateResults != null && updateResults.getUpdatedCount() == 1;
+    LOGGER.debug("ScheduledWorkflow with datasetId: '{}' next fire time set to {}: {}",
+        scheduledWorkflow.getDatasetId(), nextFireTime, updated);
+    return updated;
   }
 
   public int getScheduledWorkflowPerRequest() {
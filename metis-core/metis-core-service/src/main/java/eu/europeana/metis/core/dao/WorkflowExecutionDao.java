@@ -1,5 +1,7 @@
 package eu.europeana.metis.core.dao;
 
+import static eu.europeana.metis.core.common.DaoFieldNames.CLAIMED_BY;
+import static eu.europeana.metis.core.common.DaoFieldNames.CLAIM_VERSION;
 import static eu.europeana.metis.core.common.DaoFieldNames.CREATED_DATE;
 import static eu.europeana.metis.core.common.DaoFieldNames.DATASET_ID;
 import static eu.europeana.metis.core.common.DaoFieldNames.FINISHED_DATE;
@@ -9,13 +11,16 @@ import static eu.europeana.metis.core.common.DaoFieldNames.PLUGIN_METADATA;
 import static eu.europeana.metis.core.common.DaoFieldNames.PLUGIN_STATUS;
 import static eu.europeana.metis.core.common.DaoFieldNames.PLUGIN_TYPE;
 import static eu.europeana.metis.core.common.DaoFieldNames.STARTED_DATE;
+import static eu.europeana.metis.core.common.DaoFieldNames.UPDATED_DATE;
 import static eu.europeana.metis.core.common.DaoFieldNames.WORKFLOW_STATUS;
 import static eu.europeana.metis.core.common.DaoFieldNames.XSLT_ID;
 
 import com.mongodb.WriteResult;
+import dev.morphia.FindAndModifyOptions;
 import dev.morphia.Key;
 import dev.morphia.aggregation.AggregationPipeline;
 import dev.morphia.aggregation.Projection;
+import dev.morphia.mapping.Mapper;
 import dev.morphia.query.Criteria;
 import dev.morphia.query.CriteriaContainer;
 import dev.morphia.query.FilterOperator;
@@ -42,15 +47,28 @@ import eu.europeana.metis.core.workflow.plugins.MetisPlugin;
 import eu.europeana.metis.core.workflow.plugins.PluginStatus;
 import eu.europeana.metis.core.workflow.plugins.PluginType;
 import eu.europeana.metis.utils.ExternalRequestUtil;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
 import org.bson.types.ObjectId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -74,10 +92,15 @@ public class WorkflowExecutionDao implements MetisDao<WorkflowExecution, String>
   private static final int RUNNING_POSITION_IN_OVERVIEW = 2;
   private static final int DEFAULT_POSITION_IN_OVERVIEW = 3;
 
+  private static final String CONTINUATION_TOKEN_SIGNATURE_ALGORITHM = "HmacSHA256";
+  private static final String CONTINUATION_TOKEN_SIGNATURE_SEPARATOR = ".";
+  private static final int CONTINUATION_TOKEN_SECRET_LENGTH = 32;
+
   private final MorphiaDatastoreProvider morphiaDatastoreProvider;
   private int workflowExecutionsPerRequest =
       RequestLimits.WORKFLOW_EXECUTIONS_PER_REQUEST.getLimit();
   private int maxServedExecutionListLength = Integer.MAX_VALUE;
+  private byte[] continuationTokenSecret = createRandomContinuationTokenSecret();
 
   /**
    * Constructs the DAO
@@ -111,16 +134,18 @@ public class WorkflowExecutionDao implements MetisDao<WorkflowExecution, String>
 
   /**
    * Overwrites only the portion of the WorkflowExecution that contains the plugins.
+   * <p>If the execution is claimed (see {@link #claimExecution(WorkflowExecution, String,
+   * Date)}), the update only takes place if the execution is still held by the same claim.</p>
    *
    * @param workflowExecution the WorkflowExecution to update
+   * @return Whether the execution was updated. If false, the execution was claimed by another
+   * instance (or removed) in the meantime.
    */
-  public void updateWorkflowPlugins(WorkflowExecution workflowExecution) {
+  public boolean updateWorkflowPlugins(WorkflowExecution workflowExecution) {
     UpdateOperations<WorkflowExecution> workflowExecutionUpdateOperations = morphiaDatastoreProvider
         .getDatastore()
         .createUpdateOperations(WorkflowExecution.class);
-    Query<WorkflowExecution> query = morphiaDatastoreProvider.getDatastore()
-        .find(WorkflowExecution.class)
-        .filter("_id", workflowExecution.getId());
+    Query<WorkflowExecution> query = createClaimedExecutionQuery(workflowExecution);
     workflowExecutionUpdateOperations
         .set(METIS_PLUGINS.getFieldName(), workflowExecution.getMetisPlugins());
     UpdateResults updateResults = ExternalRequestUtil
@@ -130,21 +155,24 @@ public class WorkflowExecutionDao implements MetisDao<WorkflowExecution, String>
         "WorkflowExecution metisPlugins for datasetId '{}' updated in Mongo. (UpdateResults: {})",
         workflowExecution.getDatasetId(),
         updateResults == null ? 0 : updateResults.getUpdatedCount());
+    return isUpdated(updateResults);
   }
 
   /**
    * Overwrites only the portion of the WorkflowExecution that contains the monitor
    * information(plugins, started date, updated date).
+   * <p>If the execution is claimed (see {@link #claimExecution(WorkflowExecution, String,
+   * Date)}), the update only takes place if the execution is still held by the same claim.</p>
    *
    * @param workflowExecution the WorkflowExecution to update
+   * @return Whether the execution was updated. If false, the execution was claimed by another
+   * instance (or removed) in the meantime.
    */
-  public void updateMonitorInformation(WorkflowExecution workflowExecution) {
+  public boolean updateMonitorInformation(WorkflowExecution workflowExecution) {
     UpdateOperations<WorkflowExecution> workflowExecutionUpdateOperations = morphiaDatastoreProvider
         .getDatastore()
         .createUpdateOperations(WorkflowExecution.class);
-    Query<WorkflowExecution> query = morphiaDatastoreProvider.getDatastore()
-        .find(WorkflowExecution.class)
-        .filter("_id", workflowExecution.getId());
+    Query<WorkflowExecution> query = createClaimedExecutionQuery(workflowExecution);
     workflowExecutionUpdateOperations
         .set(WORKFLOW_STATUS.getFieldName(), workflowExecution.getWorkflowStatus());
     if (workflowExecution.getStartedDate() != null) {
@@ -164,6 +192,116 @@ public class WorkflowExecutionDao implements MetisDao<WorkflowExecution, String>
         "WorkflowExecution monitor information for datasetId '{}' updated in Mongo. (UpdateResults: {})",
         workflowExecution.getDatasetId(),
         updateResults == null ? 0 : updateResults.getUpdatedCount());
+    return isUpdated(updateResults);
+  }
+
+  /**
+   * Overwrites the status information of a claimed WorkflowExecution when it is done: the workflow
+   * status, the cancelling information, the dates and the plugins. The update only takes place if
+   * the execution is still held by the same claim (see {@link #claimExecution(WorkflowExecution,
+   * String, Date)}). Note that the cancelling state is taken from the given execution, so it should
+   * be up to date.
+   *
+   * @param workflowExecution the WorkflowExecution to update
+   * @return Whether the execution was updated. If false, the execution was claimed by another
+   * instance (or removed) in the meantime.
+   */
+  public boolean updateClaimedExecution(WorkflowExecution workflowExecution) {
+    final UpdateOperations<WorkflowExecution> updateOperations = morphiaDatastoreProvider
+        .getDatastore().createUpdateOperations(WorkflowExecution.class);
+    updateOperations.set(WORKFLOW_STATUS.getFieldName(), workflowExecution.getWorkflowStatus());
+    updateOperations.set("cancelling", workflowExecution.isCancelling());
+    setOrUnset(updateOperations, "cancelledBy", workflowExecution.getCancelledBy());
+    setOrUnset(updateOperations, STARTED_DATE.getFieldName(), workflowExecution.getStartedDate());
+    setOrUnset(updateOperations, UPDATED_DATE.getFieldName(), workflowExecution.getUpdatedDate());
+    setOrUnset(updateOperations, FINISHED_DATE.getFieldName(),
+        workflowExecution.getFinishedDate());
+    updateOperations.set(METIS_PLUGINS.getFieldName(), workflowExecution.getMetisPlugins());
+    final Query<WorkflowExecution> query = createClaimedExecutionQuery(workflowExecution);
+    final UpdateResults updateResults = ExternalRequestUtil
+        .retryableExternalRequestConnectionReset(() -> morphiaDatastoreProvider.getDatastore()
+            .update(query, updateOperations));
+    LOGGER.debug(
+        "Claimed WorkflowExecution for datasetId '{}' updated in Mongo. (UpdateResults: {})",
+        workflowExecution.getDatasetId(),
+        updateResults == null ? 0 : updateResults.getUpdatedCount());
+    return isUpdated(updateResults);
+  }
+
+  private static void setOrUnset(UpdateOperations<WorkflowExecution> updateOperations,
+      String fieldName, Object value) {
+    if (value == null) {
+      updateOperations.unset(fieldName);
+    } else {
+      updateOperations.set(fieldName, value);
+    }
+  }
+
+  private Query<WorkflowExecution> createClaimedExecutionQuery(
+      WorkflowExecution workflowExecution) {
+    final Query<WorkflowExecution> query = morphiaDatastoreProvider.getDatastore()
+        .find(WorkflowExecution.class).field(ID.getFieldName()).equal(workflowExecution.getId());
+    if (workflowExecution.getClaimedBy() != null) {
+      query.field(CLAIMED_BY.getFieldName()).equal(workflowExecution.getClaimedBy());
+      query.field(CLAIM_VERSION.getFieldName()).equal(workflowExecution.getClaimVersion());
+    }
+    return query;
+  }
+
+  private static boolean isUpdated(UpdateResults updateResults) {
+    return updateResults != null && updateResults.getUpdatedCount() > 0;
+  }
+
+  /**
+   * Claims a WorkflowExecution for running, using a conditional update (compare-and-set). The claim
+   * only succeeds if the execution in the database still has the workflow status, the updated date
+   * and the claim version of the given WorkflowExecution. If it does, the execution is set to
+   * {@link WorkflowStatus#RUNNING}, its updated date (and, if it was not yet running, its started
+   * date) is set to the given date, the owner is set and the claim version is incremented.
+   *
+   * @param workflowExecution the WorkflowExecution as retrieved before deciding to claim it
+   * @param claimedBy the identifier of the instance that claims the execution
+   * @param claimDate the date of the claim
+   * @return the claimed WorkflowExecution as it is in the database after the claim, or null if the
+   * execution was changed (or claimed by another instance) in the meantime
+   */
+  public WorkflowExecution claimExecution(WorkflowExecution workflowExecution, String claimedBy,
+      Date claimDate) {
+
+    // Create the query: the execution should not have changed since it was retrieved.
+    final Query<WorkflowExecution> query = morphiaDatastoreProvider.getDatastore()
+        .find(WorkflowExecution.class).field(ID.getFieldName()).equal(workflowExecution.getId());
+    query.field(WORKFLOW_STATUS.getFieldName()).equal(workflowExecution.getWorkflowStatus());
+    if (workflowExecution.getUpdatedDate() == null) {
+      query.field(UPDATED_DATE.getFieldName()).doesNotExist();
+    } else {
+      query.field(UPDATED_DATE.getFieldName()).equal(workflowExecution.getUpdatedDate());
+    }
+    if (workflowExecution.getClaimVersion() == 0) {
+      query.or(query.criteria(CLAIM_VERSION.getFieldName()).equal(0L),
+          query.criteria(CLAIM_VERSION.getFieldName()).doesNotExist());
+    } else {
+      query.field(CLAIM_VERSION.getFieldName()).equal(workflowExecution.getClaimVersion());
+    }
+
+    // Create the update operations.
+    final UpdateOperations<WorkflowExecution> updateOperations = morphiaDatastoreProvider
+        .getDatastore().createUpdateOperations(WorkflowExecution.class);
+    updateOperations.set(WORKFLOW_STATUS.getFieldName(), WorkflowStatus.RUNNING);
+    updateOperations.set(UPDATED_DATE.getFieldName(), claimDate);
+    if (workflowExecution.getWorkflowStatus() != WorkflowStatus.RUNNING) {
+      updateOperations.set(STARTED_DATE.getFieldName(), claimDate);
+    }
+    updateOperations.set(CLAIMED_BY.getFieldName(), claimedBy);
+    updateOperations.inc(CLAIM_VERSION.getFieldName());
+
+    // Perform the update and return the result.
+    final WorkflowExecution result = ExternalRequestUtil.retryableExternalRequestConnectionReset(
+        () -> morphiaDatastoreProvider.getDatastore().findAndModify(query, updateOperations,
+            new FindAndModifyOptions().returnNew(true)));
+    LOGGER.debug("WorkflowExecution with id '{}' claimed by '{}' in Mongo: {}",
+        workflowExecution.getId(), claimedBy, result != null);
+    return result;
   }
 
   /**
@@ -213,7 +351,9 @@ public class WorkflowExecutionDao implements MetisDao<WorkflowExecution, String>
 
   /**
    * Get the WorkflowExecution for a dataset identifier that is {@link WorkflowStatus#INQUEUE} or
-   * {@link WorkflowStatus#RUNNING}
+   * {@link WorkflowStatus#RUNNING}. Only the identifier, the dataset identifier, the workflow
+   * status and the type and status of the plugins are retrieved: the plugins are not retrieved in
+   * full.
    *
    * @param datasetId the dataset identifier
    * @return the WorkflowExecution if found
@@ -225,6 +365,15 @@ public class WorkflowExecutionDao implements MetisDao<WorkflowExecution, String>
             datasetId);
     query.or(query.criteria(WORKFLOW_STATUS.getFieldName()).equal(WorkflowStatus.INQUEUE),
         query.criteria(WORKFLOW_STATUS.getFieldName()).equal(WorkflowStatus.RUNNING));
+
+    // Projection: the class name of the plugins is needed to instantiate them.
+    query.disableValidation();
+    query.project(ID.getFieldName(), true);
+    query.project(DATASET_ID.getFieldName(), true);
+    query.project(WORKFLOW_STATUS.getFieldName(), true);
+    query.project(METIS_PLUGINS.getFieldName() + "." + PLUGIN_TYPE.getFieldName(), true);
+    query.project(METIS_PLUGINS.getFieldName() + "." + PLUGIN_STATUS.getFieldName(), true);
+    query.project(METIS_PLUGINS.getFieldName() + "." + Mapper.CLASS_NAME_FIELDNAME, true);
     return ExternalRequestUtil.retryableExternalRequestConnectionReset(query::first);
   }
 
@@ -242,9 +391,47 @@ public class WorkflowExecutionDao implements MetisDao<WorkflowExecution, String>
                 .project("_id", true).get()) != null;
   }
 
+  /**
+   * Get the {@link WorkflowStatus#RUNNING} WorkflowExecutions of which the heartbeat (the updated
+   * date, that is regularly set by the instance that runs the execution) is older than the given
+   * date. These executions are assumed to be orphaned. Only the fields needed to requeue the
+   * executions are retrieved.
+   *
+   * @param heartbeatThreshold the date before which the last heartbeat must have occurred
+   * @return the executions, with only the identifier, the priority and the updated date set
+   */
+  public List<WorkflowExecution> getRunningExecutionsWithHeartbeatBefore(Date heartbeatThreshold) {
+    final Query<WorkflowExecution> query = morphiaDatastoreProvider.getDatastore()
+        .find(WorkflowExecution.class);
+    query.field(WORKFLOW_STATUS.getFieldName()).equal(WorkflowStatus.RUNNING);
+    query.field(UPDATED_DATE.getFieldName()).lessThan(heartbeatThreshold);
+    projectFieldsForRequeue(query);
+    query.project(UPDATED_DATE.getFieldName(), true);
+    return ExternalRequestUtil.retryableExternalRequestConnectionReset(query::asList);
+  }
+
+  /**
+   * Get the {@link WorkflowStatus#INQUEUE} WorkflowExecutions. Only the fields needed to requeue
+   * the executions are retrieved.
+   *
+   * @return the executions, with only the identifier and the priority set
+   */
+  public List<WorkflowExecution> getInQueueExecutions() {
+    final Query<WorkflowExecution> query = morphiaDatastoreProvider.getDatastore()
+        .find(WorkflowExecution.class);
+    query.field(WORKFLOW_STATUS.getFieldName()).equal(WorkflowStatus.INQUEUE);
+    projectFieldsForRequeue(query);
+    return ExternalRequestUtil.retryableExternalRequestConnectionReset(query::asList);
+  }
+
+  private static void projectFieldsForRequeue(Query<WorkflowExecution> query) {
+    query.project(ID.getFieldName(), true);
+    query.project("workflowPriority", true);
+  }
+
   /**
    * Check if a WorkflowExecution exists for a dataset identifier and has not completed it's
-   * execution.
+   * execution. This query can be answered from the index on dataset identifier and status.
    *
    * @param datasetId the dataset identifier
    * @return the identifier of the execution if found, otherwise null
@@ -254,8 +441,7 @@ public class WorkflowExecutionDao implements MetisDao<WorkflowExecution, String>
         .find(WorkflowExecution.class).field(DATASET_ID.getFieldName()).equal(datasetId);
     query.or(query.criteria(WORKFLOW_STATUS.getFieldName()).equal(WorkflowStatus.INQUEUE),
         query.criteria(WORKFLOW_STATUS.getFieldName()).equal(WorkflowStatus.RUNNING));
-    query.project("_id", true);
-    query.project(WORKFLOW_STATUS.getFieldName(), true);
+    query.project(ID.getFieldName(), true);
 
     WorkflowExecution storedWorkflowExecution = ExternalRequestUtil
         .retryableExternalRequestConnectionReset(query::first);
@@ -437,9 +623,53 @@ public class WorkflowExecutionDao implements MetisDao<WorkflowExecution, String>
   public ResultList<WorkflowExecution> getAllWorkflowExecutions(Set<String> datasetIds,
       Set<WorkflowStatus> workflowStatuses, DaoFieldNames orderField, boolean ascending,
       int nextPage, boolean ignoreMaxServedExecutionsLimit) {
-
-    // Prepare pagination and check that there is something to query
     final Pagination pagination = createPagination(nextPage, 1, ignoreMaxServedExecutionsLimit);
+    return getAllWorkflowExecutions(datasetIds, workflowStatuses, orderField, ascending,
+        pagination, null);
+  }
+
+  /**
+   * Get all WorkflowExecutions paged, continuing from the position marked by a continuation token
+   * (see {@link ResultList#getNextPageToken()}). Instead of skipping all the results of the
+   * previous pages, the next page is found by seeking in the (indexed) sort order. This is only
+   * supported when ordering on {@link DaoFieldNames#ID} or {@link DaoFieldNames#CREATED_DATE}.
+   *
+   * @param datasetIds a set of dataset identifiers to filter, can be empty or null to get all
+   * @param workflowStatuses a set of workflow statuses to filter, can be empty or null
+   * @param orderField the field to be used to sort the results
+   * @param ascending a boolean value to request the ordering to ascending or descending
+   * @param continuationToken the continuation token returned with the previous page
+   * @param ignoreMaxServedExecutionsLimit whether this method is to apply the limit on the number
+   * of executions are served. Be carefull when setting this to true.
+   * @return a list of all the WorkflowExecutions found
+   * @throws IllegalArgumentException if the continuation token is not valid for this ordering
+   */
+  public ResultList<WorkflowExecution> getAllWorkflowExecutions(Set<String> datasetIds,
+      Set<WorkflowStatus> workflowStatuses, DaoFieldNames orderField, boolean ascending,
+      String continuationToken, boolean ignoreMaxServedExecutionsLimit) {
+    if (!supportsContinuationTokens(orderField)) {
+      throw new IllegalArgumentException(
+          "Continuation tokens are not supported when ordering on " + orderField + ".");
+    }
+    final ContinuationToken token = decodeContinuationToken(continuationToken);
+    if (orderField == CREATED_DATE && token.getCreatedDate() == null) {
+      throw new IllegalArgumentException("Continuation token does not contain a created date.");
+    }
+    final Pagination pagination = createPaginationFromOffset(token.getServedCount(),
+        getWorkflowExecutionsPerRequest(), ignoreMaxServedExecutionsLimit);
+    return getAllWorkflowExecutions(datasetIds, workflowStatuses, orderField, ascending,
+        pagination, token);
+  }
+
+  private static boolean supportsContinuationTokens(DaoFieldNames orderField) {
+    return orderField == ID || orderField == CREATED_DATE;
+  }
+
+  private ResultList<WorkflowExecution> getAllWorkflowExecutions(Set<String> datasetIds,
+      Set<WorkflowStatus> workflowStatuses, DaoFieldNames orderField, boolean ascending,
+      Pagination pagination, ContinuationToken continuationToken) {
+
+    // Check that there is something to query
     if (pagination.getLimit() < 1) {
       return createResultList(Collections.emptyList(), pagination);
     }
@@ -456,18 +686,27 @@ public class WorkflowExecutionDao implements MetisDao<WorkflowExecution, String>
       query.field(WORKFLOW_STATUS.getFieldName()).in(workflowStatuses);
     }
 
-    // Set ordering
+    // Set ordering: the creation date is not unique, so the identifier is used to break ties.
     if (orderField != null) {
-      if (ascending) {
-        query.order(Sort.ascending(orderField.getFieldName()));
+      final Function<String, Sort> sort = ascending ? Sort::ascending : Sort::descending;
+      if (orderField == CREATED_DATE) {
+        query.order(sort.apply(CREATED_DATE.getFieldName()), sort.apply(ID.getFieldName()));
       } else {
-        query.order(Sort.descending(orderField.getFieldName()));
+        query.order(sort.apply(orderField.getFieldName()));
       }
     }
 
+    // Seek to the position of the continuation token, or skip to the requested page.
+    final FindOptions findOptions = new FindOptions().limit(pagination.getLimit());
+    if (continuationToken == null) {
+      findOptions.skip(pagination.getSkip());
+    } else {
+      query.and(createSeekCriteria(query,
+          orderField == CREATED_DATE ? continuationToken.getCreatedDate() : null,
+          continuationToken.getId(), ascending));
+    }
+
     // Execute query with correct pagination
-    final FindOptions findOptions = new FindOptions().skip(pagination.getSkip())
-        .limit(pagination.getLimit());
     final List<WorkflowExecution> result = ExternalRequestUtil
         .retryableExternalRequestConnectionReset(
             () -> {
@@ -475,7 +714,34 @@ public class WorkflowExecutionDao implements MetisDao<WorkflowExecution, String>
                 return cursor.toList();
               }
             });
-    return createResultList(result, pagination);
+    if (!supportsContinuationTokens(orderField)) {
+      return createResultList(result, pagination);
+    }
+    return createResultList(result, pagination, (servedCount, execution) -> {
+      if (orderField == CREATED_DATE && execution.getCreatedDate() == null) {
+        return null;
+      }
+      return new ContinuationToken(servedCount, 0, execution.getCreatedDate(),
+          execution.getId());
+    });
+  }
+
+  /**
+   * Creates the criteria that select the executions that come after the given position in the sort
+   * order (on creation date, if given, and then on identifier).
+   */
+  private static Criteria createSeekCriteria(Query<WorkflowExecution> query, Date createdDate,
+      ObjectId id, boolean ascending) {
+    final Criteria idCriteria = ascending ? query.criteria(ID.getFieldName()).greaterThan(id)
+        : query.criteria(ID.getFieldName()).lessThan(id);
+    if (createdDate == null) {
+      return idCriteria;
+    }
+    final Criteria dateCriteria =
+        ascending ? query.criteria(CREATED_DATE.getFieldName()).greaterThan(createdDate)
+            : query.criteria(CREATED_DATE.getFieldName()).lessThan(createdDate);
+    return query.or(dateCriteria,
+        query.and(query.criteria(CREATED_DATE.getFieldName()).equal(createdDate), idCriteria));
   }
 
   /**
@@ -501,9 +767,47 @@ public class WorkflowExecutionDao implements MetisDao<WorkflowExecution, String>
   public ResultList<ExecutionDatasetPair> getWorkflowExecutionsOverview(Set<String> datasetIds,
       Set<PluginStatus> pluginStatuses, Set<PluginType> pluginTypes, Date fromDate, Date toDate,
       int nextPage, int pageCount) {
-
-    // Prepare pagination and check that there is something to query
     final Pagination pagination = createPagination(nextPage, pageCount, false);
+    return getWorkflowExecutionsOverview(datasetIds, pluginStatuses, pluginTypes, fromDate, toDate,
+        pagination, null);
+  }
+
+  /**
+   * Get an overview of all WorkflowExecutions, continuing from the position marked by a
+   * continuation token (see {@link ResultList#getNextPageToken()}). Instead of skipping all the
+   * results of the previous pages, the position is translated into a filter on status, creation
+   * date and identifier, so that the next page can be found without visiting the previous ones.
+   * See {@link #getWorkflowExecutionsOverview(Set, Set, Set, Date, Date, int, int)} for the order.
+   *
+   * @param datasetIds a set of dataset identifiers to filter, can be empty or null to get all
+   * @param pluginStatuses the plugin statuses to filter. Can be null.
+   * @param pluginTypes the plugin types to filter. Can be null.
+   * @param fromDate the date from where the results should start. Can be null.
+   * @param toDate the date to where the results should end. Can be null.
+   * @param continuationToken the continuation token returned with the previous page
+   * @param pageCount the number of pages that are requested
+   * @return a list of all the WorkflowExecutions found
+   * @throws IllegalArgumentException if the continuation token is not valid for the overview
+   */
+  public ResultList<ExecutionDatasetPair> getWorkflowExecutionsOverview(Set<String> datasetIds,
+      Set<PluginStatus> pluginStatuses, Set<PluginType> pluginTypes, Date fromDate, Date toDate,
+      String continuationToken, int pageCount) {
+    final ContinuationToken token = decodeContinuationToken(continuationToken);
+    if (token.getCreatedDate() == null || token.getStatusIndex() < INQUEUE_POSITION_IN_OVERVIEW
+        || token.getStatusIndex() > DEFAULT_POSITION_IN_OVERVIEW) {
+      throw new IllegalArgumentException("Continuation token is not valid for the overview.");
+    }
+    final Pagination pagination = createPaginationFromOffset(token.getServedCount(),
+        pageCount * getWorkflowExecutionsPerRequest(), false);
+    return getWorkflowExecutionsOverview(datasetIds, pluginStatuses, pluginTypes, fromDate, toDate,
+        pagination, token);
+  }
+
+  private ResultList<ExecutionDatasetPair> getWorkflowExecutionsOverview(Set<String> datasetIds,
+      Set<PluginStatus> pluginStatuses, Set<PluginType> pluginTypes, Date fromDate, Date toDate,
+      Pagination pagination, ContinuationToken continuationToken) {
+
+    // Check that there is something to query
     if (pagination.getLimit() < 1) {
       return createResultList(Collections.emptyList(), pagination);
     }
@@ -512,20 +816,26 @@ public class WorkflowExecutionDao implements MetisDao<WorkflowExecution, String>
     final AggregationPipeline pipeline = morphiaDatastoreProvider.getDatastore()
         .createAggregation(WorkflowExecution.class);
 
-    // Step 1: create query filters
+    // Step 1: create query filters (including the position to continue from, if any)
     final Query<WorkflowExecution> query = createQueryFilters(datasetIds, pluginStatuses,
         pluginTypes, fromDate, toDate);
+    if (continuationToken != null) {
+      addOverviewSeekCriteria(query, continuationToken);
+    }
     pipeline.match(query);
 
     // Step 2: determine status index field
     final String statusIndexField = determineOrderingStatusIndex(pipeline);
 
-    // Step 3: Sort - first on the status index, then on the createdDate.
+    // Step 3: Sort - first on the status index, then on the createdDate and then on the id.
     pipeline.sort(Sort.ascending(statusIndexField),
-        Sort.descending(CREATED_DATE.getFieldName()));
+        Sort.descending(CREATED_DATE.getFieldName()), Sort.descending(ID.getFieldName()));
 
-    // Step 4: Apply pagination
-    pipeline.skip(pagination.getSkip()).limit(pagination.getLimit());
+    // Step 4: Apply pagination (no need to skip when continuing from a token)
+    if (continuationToken == null) {
+      pipeline.skip(pagination.getSkip());
+    }
+    pipeline.limit(pagination.getLimit());
 
     // Step 5: Create join of dataset and execution to combine the data information
     joinDatasetAndWorkflowExecution(pipeline);
@@ -533,7 +843,54 @@ public class WorkflowExecutionDao implements MetisDao<WorkflowExecution, String>
     // Done: execute and return result.
     final List<ExecutionDatasetPair> result = new ArrayList<>();
     pipeline.aggregate(ExecutionDatasetPair.class).forEachRemaining(result::add);
-    return createResultList(result, pagination);
+    return createResultList(result, pagination, (servedCount, pair) -> {
+      final WorkflowExecution execution = pair.getExecution();
+      if (execution.getCreatedDate() == null) {
+        return null;
+      }
+      return new ContinuationToken(servedCount,
+          getPositionInOverview(execution.getWorkflowStatus()), execution.getCreatedDate(),
+          execution.getId());
+    });
+  }
+
+  private static int getPositionInOverview(WorkflowStatus workflowStatus) {
+    final int position;
+    if (workflowStatus == WorkflowStatus.INQUEUE) {
+      position = INQUEUE_POSITION_IN_OVERVIEW;
+    } else if (workflowStatus == WorkflowStatus.RUNNING) {
+      position = RUNNING_POSITION_IN_OVERVIEW;
+    } else {
+      position = DEFAULT_POSITION_IN_OVERVIEW;
+    }
+    return position;
+  }
+
+  /**
+   * Restricts the query to the executions that come after the position of the continuation token
+   * in the overview. The status index is computed later in the pipeline, so the restriction is
+   * expressed directly on the workflow status: this way it can be applied before anything else.
+   */
+  private static void addOverviewSeekCriteria(Query<WorkflowExecution> query,
+      ContinuationToken continuationToken) {
+    final Criteria afterPosition = createSeekCriteria(query, continuationToken.getCreatedDate(),
+        continuationToken.getId(), false);
+    switch (continuationToken.getStatusIndex()) {
+      case INQUEUE_POSITION_IN_OVERVIEW:
+        query.or(query.criteria(WORKFLOW_STATUS.getFieldName()).notEqual(WorkflowStatus.INQUEUE),
+            afterPosition);
+        break;
+      case RUNNING_POSITION_IN_OVERVIEW:
+        query.field(WORKFLOW_STATUS.getFieldName()).notEqual(WorkflowStatus.INQUEUE);
+        query.or(query.criteria(WORKFLOW_STATUS.getFieldName()).notEqual(WorkflowStatus.RUNNING),
+            afterPosition);
+        break;
+      default:
+        query.field(WORKFLOW_STATUS.getFieldName())
+            .notIn(EnumSet.of(WorkflowStatus.INQUEUE, WorkflowStatus.RUNNING));
+        query.and(afterPosition);
+        break;
+    }
   }
 
   private Query<WorkflowExecution> createQueryFilters(Set<String> datasetIds,
@@ -698,6 +1055,74 @@ public class WorkflowExecutionDao implements MetisDao<WorkflowExecution, String>
     }
   }
 
+  /**
+   * Set the secret with which the continuation tokens are signed, so that clients can not alter
+   * them (e.g. to circumvent the limit on the number of served executions). All instances that
+   * serve the same clients (e.g. behind a load balancer) must share the secret: an instance rejects
+   * the tokens signed by an instance with a different secret. The default (when not calling this
+   * method or calling it with a null or empty secret) is a random secret that is only known to this
+   * instance, which is only suitable when running a single instance. A warning is logged in that
+   * case.
+   *
+   * @param continuationTokenSecret The secret.
+   */
+  public void setContinuationTokenSecret(String continuationTokenSecret) {
+    if (continuationTokenSecret == null || continuationTokenSecret.isEmpty()) {
+      LOGGER.warn("No continuation token secret is configured: using a random secret. Continuation "
+          + "tokens will not be accepted by other instances.");
+    }
+    synchronized (this) {
+      this.continuationTokenSecret =
+          continuationTokenSecret == null || continuationTokenSecret.isEmpty()
+              ? createRandomContinuationTokenSecret()
+              : continuationTokenSecret.getBytes(StandardCharsets.UTF_8);
+    }
+  }
+
+  private static byte[] createRandomContinuationTokenSecret() {
+    final byte[] secret = new byte[CONTINUATION_TOKEN_SECRET_LENGTH];
+    new SecureRandom().nextBytes(secret);
+    return secret;
+  }
+
+  private String encodeContinuationToken(ContinuationToken token) {
+    final byte[] payload = token.encode().getBytes(StandardCharsets.UTF_8);
+    final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+    return encoder.encodeToString(payload) + CONTINUATION_TOKEN_SIGNATURE_SEPARATOR
+        + encoder.encodeToString(signContinuationToken(payload));
+  }
+
+  private ContinuationToken decodeContinuationToken(String token) {
+    if (token == null) {
+      throw new IllegalArgumentException("Continuation token cannot be null.");
+    }
+    final String[] parts = token.split(Pattern.quote(CONTINUATION_TOKEN_SIGNATURE_SEPARATOR), -1);
+    if (parts.length != 2) {
+      throw new IllegalArgumentException("Continuation token has an invalid format.");
+    }
+    final byte[] payload = Base64.getUrlDecoder().decode(parts[0]);
+    final byte[] signature = Base64.getUrlDecoder().decode(parts[1]);
+    if (!MessageDigest.isEqual(signContinuationToken(payload), signature)) {
+      throw new IllegalArgumentException("Continuation token has an invalid signature.");
+    }
+    return ContinuationToken.decode(new String(payload, StandardCharsets.UTF_8));
+  }
+
+  private byte[] signContinuationToken(byte[] payload) {
+    final byte[] secret;
+    synchronized (this) {
+      secret = continuationTokenSecret;
+    }
+    try {
+      final Mac mac = Mac.getInstance(CONTINUATION_TOKEN_SIGNATURE_ALGORITHM);
+      mac.init(new SecretKeySpec(secret, CONTINUATION_TOKEN_SIGNATURE_ALGORITHM));
+      return mac.doFinal(payload);
+    } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+      // Every Java platform is required to support HmacSHA256 and the key is never empty.
+      throw new IllegalStateException("Could not sign continuation token.", e);
+    }
+  }
+
   /**
    * Check if a WorkflowExecution using an execution identifier is {@link WorkflowStatus#CANCELLED}
    *
@@ -729,6 +1154,29 @@ public class WorkflowExecutionDao implements MetisDao<WorkflowExecution, String>
     return workflowExecution != null && workflowExecution.isCancelling();
   }
 
+  /**
+   * Check which of the WorkflowExecutions with the given execution identifiers are in a cancelling
+   * state. This is the bulk version of {@link #isCancelling(ObjectId)}: it requires only one query,
+   * regardless of the number of identifiers.
+   *
+   * @param ids the execution identifiers
+   * @return the identifiers (among the given ones) of the executions that are cancelling
+   */
+  public Set<ObjectId> getCancellingExecutionIds(Collection<ObjectId> ids) {
+    if (ids.isEmpty()) {
+      return Collections.emptySet();
+    }
+    final Query<WorkflowExecution> query = morphiaDatastoreProvider.getDatastore()
+        .find(WorkflowExecution.class);
+    query.field("_id").in(ids);
+    query.field("cancelling").equal(Boolean.TRUE);
+    query.project("_id", true);
+    final List<WorkflowExecution> cancellingExecutions = ExternalRequestUtil
+        .retryableExternalRequestConnectionReset(query::asList);
+    return cancellingExecutions.stream().map(WorkflowExecution::getId)
+        .collect(Collectors.toSet());
+  }
+
   /**
    * Delete all WorkflowExecutions for a dataset identifier
    *
@@ -883,21 +1331,26 @@ public class WorkflowExecutionDao implements MetisDao<WorkflowExecution, String>
 
   private Pagination createPagination(int firstPage, Integer pageCount,
       boolean ignoreMaxServedExecutionsLimit) {
-
-    // Compute the total number (including skipped pages)
     final int pageSize = getWorkflowExecutionsPerRequest();
+    return createPaginationFromOffset(firstPage * pageSize,
+        pageCount == null ? null : (pageCount * pageSize), ignoreMaxServedExecutionsLimit);
+  }
+
+  private Pagination createPaginationFromOffset(int offset, Integer resultCount,
+      boolean ignoreMaxServedExecutionsLimit) {
+
+    // Compute the total number (including skipped results)
     final int maxResultCount =
         ignoreMaxServedExecutionsLimit ? Integer.MAX_VALUE : getMaxServedExecutionListLength();
-    int total = maxResultCount; //Default value if no pageCount supplied
-    if (pageCount != null) {
-      total = Math.min((firstPage + pageCount) * pageSize, maxResultCount);
+    int total = maxResultCount; //Default value if no result count supplied
+    if (resultCount != null) {
+      total = Math.min(offset + resultCount, maxResultCount);
     }
 
-    // Compute the skipped result count and the returned result count (limit).
-    final int skip = firstPage * pageSize;
+    // Compute the returned result count (limit).
     final boolean maxRequested = total == maxResultCount;
-    final int limit = Math.max(total - skip, 0);
-    return new Pagination(skip, limit, maxRequested);
+    final int limit = Math.max(total - offset, 0);
+    return new Pagination(offset, limit, maxRequested);
   }
 
   private static class Pagination {
@@ -929,6 +1382,79 @@ public class WorkflowExecutionDao implements MetisDao<WorkflowExecution, String>
     return new ResultList<>(result, pagination.isMaxReached(result.size()));
   }
 
+  private <T> ResultList<T> createResultList(List<T> result, Pagination pagination,
+      BiFunction<Integer, T, ContinuationToken> continuationTokenCreator) {
+
+    // A next page may exist only if this page is full and the maximum is not reached.
+    final boolean maxReached = pagination.isMaxReached(result.size());
+    String nextPageToken = null;
+    if (!maxReached && !result.isEmpty() && result.size() == pagination.getLimit()) {
+      nextPageToken = Optional.ofNullable(continuationTokenCreator
+          .apply(pagination.getSkip() + result.size(), result.get(result.size() - 1)))
+          .map(this::encodeContinuationToken).orElse(null);
+    }
+    return new ResultList<>(result, maxReached, nextPageToken);
+  }
+
+  /**
+   * A continuation token for keyset pagination. It marks the position of the last served result in
+   * the sort order (its status index in the overview, if applicable, its creation date and its
+   * identifier) and the number of results that were served before, so that the limit on the number
+   * of served results can still be applied. This class only handles the content: the token is
+   * signed when it is handed out, so that clients can not change it.
+   */
+  private static final class ContinuationToken {
+
+    private static final String SEPARATOR = ":";
+
+    private final int servedCount;
+    private final int statusIndex;
+    private final Date createdDate;
+    private final ObjectId id;
+
+    ContinuationToken(int servedCount, int statusIndex, Date createdDate, ObjectId id) {
+      this.servedCount = servedCount;
+      this.statusIndex = statusIndex;
+      this.createdDate = createdDate == null ? null : new Date(createdDate.getTime());
+      this.id = id;
+    }
+
+    static ContinuationToken decode(String token) {
+      final String[] parts = token.split(SEPARATOR, -1);
+      if (parts.length != 4) {
+        throw new IllegalArgumentException("Continuation token has an invalid format.");
+      }
+      final int servedCount = Integer.parseInt(parts[0]);
+      if (servedCount < 0) {
+        throw new IllegalArgumentException("Continuation token has an invalid format.");
+      }
+      final Date createdDate = parts[2].isEmpty() ? null : new Date(Long.parseLong(parts[2]));
+      return new ContinuationToken(servedCount, Integer.parseInt(parts[1]), createdDate,
+          new ObjectId(parts[3]));
+    }
+
+    String encode() {
+      return String.join(SEPARATOR, Integer.toString(servedCount), Integer.toString(statusIndex),
+          createdDate == null ? "" : Long.toString(createdDate.getTime()), id.toHexString());
+    }
+
+    int getServedCount() {
+      return servedCount;
+    }
+
+    int getStatusIndex() {
+      return statusIndex;
+    }
+
+    Date getCreatedDate() {
+      return createdDate == null ? null : new Date(createdDate.getTime());
+    }
+
+    ObjectId getId() {
+      return id;
+    }
+  }
+
   /**
    * This object contains a result list with some pagination information.
    *
@@ -938,6 +1464,7 @@ public class WorkflowExecutionDao implements MetisDao<WorkflowExecution, String>
 
     private final List<T> results;
     private final boolean maxResultCountReached;
+    private final String nextPageToken;
 
     /**
      * Constructor.
@@ -947,8 +1474,22 @@ public class WorkflowExecutionDao implements MetisDao<WorkflowExecution, String>
      * whether next pages will be served).
      */
     public ResultList(List<T> results, boolean maxResultCountReached) {
+      this(results, maxResultCountReached, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param results The results.
+     * @param maxResultCountReached Whether the maximum result count has been reached (indicating
+     * whether next pages will be served).
+     * @param nextPageToken The continuation token with which to request the next page. Can be
+     * null if there is no next page or if continuation tokens are not supported for the query.
+     */
+    public ResultList(List<T> results, boolean maxResultCountReached, String nextPageToken) {
       this.results = new ArrayList<>(results);
       this.maxResultCountReached = maxResultCountReached;
+      this.nextPageToken = nextPageToken;
     }
 
     public List<T> getResults() {
@@ -958,5 +1499,9 @@ public class WorkflowExecutionDao implements MetisDao<WorkflowExecution, String>
     public boolean isMaxResultCountReached() {
       return maxResultCountReached;
     }
+
+    public String getNextPageToken() {
+      return nextPageToken;
+    }
   }
 }
@@ -3,6 +3,7 @@ package eu.europeana.metis.core.execution;
 import org.redisson.api.RedissonClient;
 import com.rabbitmq.client.Channel;
 import eu.europeana.cloud.client.dps.rest.DpsClient;
+import eu.europeana.metis.core.dao.DatasetExecutionSummaryDao;
 import eu.europeana.metis.core.dao.WorkflowExecutionDao;
 
 class PersistenceProvider {
@@ -10,15 +11,18 @@ class PersistenceProvider {
   private final Channel rabbitmqPublisherChannel;
   private final Channel rabbitmqConsumerChannel;
   private final WorkflowExecutionDao workflowExecutionDao;
+  private final DatasetExecutionSummaryDao datasetExecutionSummaryDao;
   private final RedissonClient redissonClient;
   private final DpsClient dpsClient;
 
   PersistenceProvider(Channel rabbitmqPublisherChannel, Channel rabbitmqConsumerChannel,
       WorkflowExecutionDao workflowExecutionDao,
+      DatasetExecutionSummaryDao datasetExecutionSummaryDao,
       RedissonClient redissonClient, DpsClient dpsClient) {
     this.rabbitmqPublisherChannel = rabbitmqPublisherChannel;
     this.rabbitmqConsumerChannel = rabbitmqConsumerChannel;
     this.workflowExecutionDao = workflowExecutionDao;
+    this.datasetExecutionSummaryDao = datasetExecutionSummaryDao;
     this.redissonClient = redissonClient;
     this.dpsClient = dpsClient;
   }
@@ -27,6 +31,10 @@ class PersistenceProvider {
     return workflowExecutionDao;
   }
 
+  DatasetExecutionSummaryDao getDatasetExecutionSummaryDao() {
+    return datasetExecutionSummaryDao;
+  }
+
   DpsClient getDpsClient() {
     return dpsClient;
   }
@@ -0,0 +1,186 @@
+package eu.europeana.metis.core.execution;
+
+import eu.europeana.metis.core.dao.WorkflowExecutionDao;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * This class monitors the external tasks of all running plugins centrally, so that a running
+ * workflow execution does not need a thread of its own. Periodically (with a fixed delay) all
+ * registered tasks are checked on a small pool of monitoring threads. Before every round, the
+ * cancelling state of all the workflow executions involved is retrieved in one query.
+ * </p>
+ * <p>
+ * The pool of monitoring threads is also made available (see {@link #getExecutor()}) for the other
+ * (short) steps of the executions, so that the number of executions that can run concurrently is
+ * not tied to the number of threads.
+ * </p>
+ */
+class PluginMonitoringScheduler {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(PluginMonitoringScheduler.class);
+
+  private final WorkflowExecutionDao workflowExecutionDao;
+  private final ScheduledExecutorService roundScheduler;
+  private final ExecutorService monitoringThreadPool;
+  private final Set<Registration> registrations = ConcurrentHashMap.newKeySet();
+  private volatile boolean closed;
+
+  /**
+   * Constructor.
+   *
+   * @param workflowExecutionDao the DAO used to check the cancelling state of the executions
+   * @param monitorCheckIntervalInMillis the time between two consecutive monitoring rounds
+   * @param monitorThreadCount the number of threads with which to monitor the tasks
+   */
+  PluginMonitoringScheduler(WorkflowExecutionDao workflowExecutionDao,
+      long monitorCheckIntervalInMillis, int monitorThreadCount) {
+    this.workflowExecutionDao = workflowExecutionDao;
+    this.roundScheduler = Executors
+        .newSingleThreadScheduledExecutor(createThreadFactory("plugin-monitor-scheduler"));
+    this.monitoringThreadPool = Executors
+        .newFixedThreadPool(Math.max(1, monitorThreadCount), createThreadFactory("plugin-monitor"));
+    this.roundScheduler.scheduleWithFixedDelay(this::performMonitoringRound,
+        Math.max(1, monitorCheckIntervalInMillis), Math.max(1, monitorCheckIntervalInMillis),
+        TimeUnit.MILLISECONDS);
+  }
+
+  private static ThreadFactory createThreadFactory(String namePrefix) {
+    final AtomicInteger threadCounter = new AtomicInteger(0);
+    return runnable -> {
+      final Thread thread = new Thread(runnable,
+          namePrefix + "-" + threadCounter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  /**
+   * Registers a task for monitoring. The task will be checked in every monitoring round (the first
+   * time in the next round) until it reports that it is done, or until it throws an exception.
+   *
+   * @param task the task to monitor
+   * @return a future that completes when the task is done (or exceptionally if the task threw an
+   * exception). If the monitoring is stopped before that, it completes with a {@link
+   * CancellationException}.
+   */
+  CompletableFuture<Void> monitor(MonitoredTask task) {
+    final Registration registration = new Registration(task);
+    registrations.add(registration);
+    if (closed) {
+      registration.cancel();
+    }
+    return registration.completion;
+  }
+
+  /**
+   * @return the executor that runs the monitoring checks. It is intended for short steps only.
+   */
+  Executor getExecutor() {
+    return monitoringThreadPool;
+  }
+
+  /**
+   * @return the number of tasks that are currently being monitored
+   */
+  int getMonitoredTaskCount() {
+    return registrations.size();
+  }
+
+  private void performMonitoringRound() {
+    try {
+      if (registrations.isEmpty()) {
+        return;
+      }
+      final List<Registration> round = new ArrayList<>(registrations);
+
+      // Check the cancelling state of all executions in one go.
+      final Set<ObjectId> cancellingExecutionIds = workflowExecutionDao.getCancellingExecutionIds(
+          round.stream().map(registration -> registration.task.getWorkflowExecutionId())
+              .collect(Collectors.toSet()));
+
+      // Check all tasks on the monitoring threads and wait until they are all done.
+      final CompletableFuture<?>[] checks = round.stream().map(registration -> CompletableFuture
+          .runAsync(() -> registration.check(cancellingExecutionIds), monitoringThreadPool))
+          .toArray(CompletableFuture[]::new);
+      CompletableFuture.allOf(checks).join();
+    } catch (RuntimeException e) {
+      // Don't let the exception escape: it would stop all subsequent monitoring rounds.
+      LOGGER.warn("An error occurred during the monitoring round of external tasks.", e);
+    }
+  }
+
+  /**
+   * Stops all monitoring. Tasks that are still registered will not be checked anymore: their
+   * futures complete with a {@link CancellationException}, so that nothing waits for them forever.
+   */
+  void close() {
+    closed = true;
+    roundScheduler.shutdownNow();
+    monitoringThreadPool.shutdown();
+    new ArrayList<>(registrations).forEach(Registration::cancel);
+  }
+
+  /**
+   * A task that can be monitored by this scheduler.
+   */
+  interface MonitoredTask {
+
+    /**
+     * @return the identifier of the workflow execution to which this task belongs
+     */
+    ObjectId getWorkflowExecutionId();
+
+    /**
+     * Performs one check of the task. This method is never called concurrently for the same task.
+     *
+     * @param cancelling whether the workflow execution to which this task belongs is cancelling
+     * @return whether the task is done, in which case it will not be checked again
+     */
+    boolean check(boolean cancelling);
+  }
+
+  private class Registration {
+
+    private final MonitoredTask task;
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+    Registration(MonitoredTask task) {
+      this.task = task;
+    }
+
+    void check(Set<ObjectId> cancellingExecutionIds) {
+      try {
+        if (task.check(cancellingExecutionIds.contains(task.getWorkflowExecutionId()))) {
+          registrations.remove(this);
+          completion.complete(null);
+        }
+      } catch (RuntimeException e) {
+        registrations.remove(this);
+        completion.completeExceptionally(e);
+      }
+    }
+
+    void cancel() {
+      registrations.remove(this);
+      completion.completeExceptionally(
+          new CancellationException("The monitoring of external tasks was stopped."));
+    }
+  }
+}
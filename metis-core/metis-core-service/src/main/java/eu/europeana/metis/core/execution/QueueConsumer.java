@@ -3,11 +3,12 @@ package eu.europeana.metis.core.execution;
 import com.rabbitmq.client.AMQP.BasicProperties;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.util.concurrent.ExecutorCompletionService;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,7 +21,17 @@ import eu.europeana.metis.core.workflow.WorkflowExecution;
 /**
  * Class that handles the initializing connection to the RabbitMQ distributed queue and handling the
  * consuming of items from the queue, through the implemented {@link #handleDelivery(String,
- * Envelope, BasicProperties, byte[])} method.
+ * Envelope, BasicProperties, byte[])} method. The executions don't occupy a thread each: they are
+ * run and monitored by a {@link PluginMonitoringScheduler} with a small number of threads. The
+ * maximum number of concurrent executions is given by {@link
+ * WorkflowExecutionSettings#getMaxConcurrentThreads()}.
+ * <p>
+ * When this maximum is reached, this consumer stops consuming from the queue (it cancels its
+ * subscription) and resumes as soon as an execution completes. This way, messages stay in the queue
+ * (where other consumers can pick them up) instead of being delivered and sent back to the queue
+ * over and over again. If resuming fails, it is retried with an increasing delay until it succeeds,
+ * as there may not be another completion to trigger it.
+ * </p>
  *
  * @author Simon Tzanakis (Simon.Tzanakis@europeana.eu)
  * @since 2018-04-13
@@ -29,13 +40,27 @@ public class QueueConsumer extends DefaultConsumer {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(QueueConsumer.class);
 
+  private static final long INITIAL_CONSUMPTION_RETRY_DELAY_IN_MILLIS = 1_000L;
+  private static final long MAX_CONSUMPTION_RETRY_DELAY_IN_MILLIS = 60_000L;
+
   private final WorkflowExecutionSettings workflowExecutionSettings;
   private final PersistenceProvider persistenceProvider;
   private final WorkflowExecutionMonitor workflowExecutionMonitor;
 
-  private final ExecutorService threadPool;
-  private final ExecutorCompletionService<WorkflowExecution> completionService;
-  private int threadsCounter;
+  private final PluginMonitoringScheduler pluginMonitoringScheduler;
+  private final String rabbitmqQueueName;
+  private final AtomicInteger threadsCounter = new AtomicInteger(0);
+  private final ScheduledExecutorService consumptionRetryScheduler = Executors
+      .newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "queue-consumption-retry");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+  private final Object consumptionLock = new Object();
+  private String consumerTag;
+  private boolean consuming;
+  private boolean closed;
 
   /**
    * Constructor with all required parameters to initialize the consumer connection to the
@@ -54,16 +79,21 @@ public class QueueConsumer extends DefaultConsumer {
     super(persistenceProvider.getRabbitmqConsumerChannel());
     this.workflowExecutionSettings = workflowExecutionSettings;
     this.persistenceProvider = persistenceProvider;
-    threadPool =
-        Executors.newFixedThreadPool(this.workflowExecutionSettings.getMaxConcurrentThreads());
-    completionService = new ExecutorCompletionService<>(threadPool);
+    this.pluginMonitoringScheduler = new PluginMonitoringScheduler(
+        persistenceProvider.getWorkflowExecutionDao(), TimeUnit.SECONDS
+        .toMillis(this.workflowExecutionSettings.getDpsMonitorCheckIntervalInSecs()),
+        this.workflowExecutionSettings.getDpsMonitorThreadCount());
     this.workflowExecutionMonitor = workflowExecutionMonitor;
+    this.rabbitmqQueueName = rabbitmqQueueName;
 
     // For correct priority. Keep in mind this pre-fetches a message before going into
-    // handleDelivery
+    // handleDelivery. We don't prefetch more: the flow control is done by pausing consumption.
     rabbitmqConsumerChannel.basicQos(1);
     // Auto acknowledge false(second parameter) because of Qos.
-    rabbitmqConsumerChannel.basicConsume(rabbitmqQueueName, false, this);
+    synchronized (consumptionLock) {
+      this.consumerTag = rabbitmqConsumerChannel.basicConsume(rabbitmqQueueName, false, this);
+      this.consuming = true;
+    }
   }
 
   //Does not run as a thread. Each execution will run separately one after the other for each consumption
@@ -75,13 +105,6 @@ public class QueueConsumer extends DefaultConsumer {
       AMQP.BasicProperties properties, byte[] body) throws IOException {
     String objectId = new String(body, StandardCharsets.UTF_8);
     LOGGER.info("WorkflowExecution id: {} received from queue.", objectId);
-    //Clean thread pool, some executions might have already finished
-    if (threadsCounter >= workflowExecutionSettings.getMaxConcurrentThreads()) {
-      LOGGER.debug(
-          "Trying to clean thread pool, found thread pool full with threadsCounter: {}, maxConcurrentThreads: {}",
-          threadsCounter, workflowExecutionSettings.getMaxConcurrentThreads());
-      checkAndCleanCompletionService();
-    }
 
     boolean sendAck = true;
     try {
@@ -108,20 +131,83 @@ public class QueueConsumer extends DefaultConsumer {
     }
   }
 
-  private boolean submitExecutionOrMarkNack(String objectId) {
-    boolean sendAck;
-    //If the thread pool is still full, executions are still active. Flag to send the message back to the queue.
-    if (threadsCounter >= workflowExecutionSettings.getMaxConcurrentThreads()) {
-      sendAck = false;
-    } else {
-      // Submit for execution
+  private boolean submitExecutionOrMarkNack(String objectId) throws IOException {
+    //If the thread pool is full, we may still receive a message that was delivered before pausing
+    //the consumption. Flag to send the message back to the queue. Note that the counter is only
+    //incremented in this (single) consumer thread, so this check is not subject to a race.
+    if (threadsCounter.get() >= workflowExecutionSettings.getMaxConcurrentThreads()) {
+      return false;
+    }
+
+    // Submit for execution
+    threadsCounter.incrementAndGet();
+    final CompletableFuture<WorkflowExecution> execution;
+    try {
       WorkflowExecutor workflowExecutor = new WorkflowExecutor(objectId, persistenceProvider,
-          workflowExecutionSettings, workflowExecutionMonitor);
-      completionService.submit(workflowExecutor);
-      threadsCounter++;
-      sendAck = true;
+          workflowExecutionSettings, workflowExecutionMonitor, pluginMonitoringScheduler);
+      execution = workflowExecutor.executeAsync();
+    } catch (RuntimeException e) {
+      threadsCounter.decrementAndGet();
+      throw e;
+    }
+    execution.whenComplete((result, exception) -> {
+      if (exception != null) {
+        LOGGER.warn("Workflow execution with id: {} ended with an exception.", objectId,
+            exception);
+      }
+      threadsCounter.decrementAndGet();
+      updateConsumptionOrRetry(INITIAL_CONSUMPTION_RETRY_DELAY_IN_MILLIS);
+    });
+
+    // Pause consumption if the pool is now full.
+    updateConsumption();
+    return true;
+  }
+
+  /**
+   * Updates the consumption (see {@link #updateConsumption()}). If this fails, a new attempt is
+   * scheduled after the given delay, and the delay is doubled (up to a maximum) for every next
+   * attempt.
+   *
+   * @param retryDelayInMillis the delay after which to retry if this attempt fails
+   */
+  private void updateConsumptionOrRetry(long retryDelayInMillis) {
+    try {
+      updateConsumption();
+    } catch (IOException | RuntimeException e) {
+      LOGGER.error("Could not update the consumption from the queue, will retry in {} ms.",
+          retryDelayInMillis, e);
+      final long nextRetryDelayInMillis = Math
+          .min(retryDelayInMillis * 2, MAX_CONSUMPTION_RETRY_DELAY_IN_MILLIS);
+      try {
+        consumptionRetryScheduler.schedule(() -> updateConsumptionOrRetry(nextRetryDelayInMillis),
+            retryDelayInMillis, TimeUnit.MILLISECONDS);
+      } catch (RejectedExecutionException rejectedExecutionException) {
+        LOGGER.info("Consumer is closed: not retrying to update the consumption.");
+      }
+    }
+  }
+
+  /**
+   * Pauses or resumes the consumption from the queue, depending on whether there is capacity for
+   * more executions.
+   */
+  private void updateConsumption() throws IOException {
+    synchronized (consumptionLock) {
+      final boolean hasCapacity =
+          threadsCounter.get() < workflowExecutionSettings.getMaxConcurrentThreads();
+      if (hasCapacity && !consuming && !closed) {
+        consumerTag = super.getChannel().basicConsume(rabbitmqQueueName, false, this);
+        consuming = true;
+        LOGGER.debug("Consumption from queue resumed with threadsCounter: {}",
+            threadsCounter.get());
+      } else if (!hasCapacity && consuming) {
+        super.getChannel().basicCancel(consumerTag);
+        consuming = false;
+        LOGGER.debug("Consumption from queue paused with threadsCounter: {}",
+            threadsCounter.get());
+      }
     }
-    return sendAck;
   }
 
   private void sendAckOrNack(Envelope rabbitmqEnvelope, String objectId, boolean sendAck)
@@ -138,31 +224,22 @@ public class QueueConsumer extends DefaultConsumer {
     }
   }
 
-  private void checkAndCleanCompletionService() throws IOException {
-    //Block for a small period and try cleaning up
-    try {
-      Future<WorkflowExecution> userWorkflowExecutionFuture = completionService
-          .poll(workflowExecutionSettings.getPollingTimeoutForCleaningCompletionServiceInSecs(),
-              TimeUnit.SECONDS);
-      if (userWorkflowExecutionFuture != null) {
-        threadsCounter--;
-      }
-      while (completionService.poll() != null) {
-        threadsCounter--;
-      }
-    } catch (InterruptedException e) {
-      Thread.currentThread().interrupt();
-      throw new IOException(
-          "Interrupted while polling for taking a Future from the ExecutorCompletionService", e);
-    }
-  }
-
   @PreDestroy
   void close() {
-    threadPool.shutdown();
+    synchronized (consumptionLock) {
+      closed = true;
+    }
+    consumptionRetryScheduler.shutdownNow();
+    pluginMonitoringScheduler.close();
   }
 
   int getThreadsCounter() {
-    return threadsCounter;
+    return threadsCounter.get();
+  }
+
+  boolean isConsuming() {
+    synchronized (consumptionLock) {
+      return consuming;
+    }
   }
 }
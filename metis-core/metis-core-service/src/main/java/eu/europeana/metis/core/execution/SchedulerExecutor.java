@@ -1,15 +1,10 @@
 package eu.europeana.metis.core.execution;
 
-import eu.europeana.metis.core.rest.ResponseListWrapper;
 import eu.europeana.metis.core.service.OrchestratorService;
 import eu.europeana.metis.core.service.ScheduleWorkflowService;
-import eu.europeana.metis.core.workflow.ScheduleFrequence;
 import eu.europeana.metis.core.workflow.ScheduledWorkflow;
 import eu.europeana.metis.exception.GenericMetisException;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
-import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Date;
 import java.util.List;
 import org.redisson.api.RLock;
 import org.redisson.api.RedissonClient;
@@ -31,7 +26,7 @@ public class SchedulerExecutor {
   private final OrchestratorService orchestratorService;
   private final ScheduleWorkflowService scheduleWorkflowService;
   private static final String SCHEDULER_LOCK = "schedulerLock";
-  private LocalDateTime lastExecutionTime = LocalDateTime.now();
+  private boolean nextFireTimesInitialized;
 
   /**
    * Constructs the executor
@@ -48,26 +43,37 @@ public class SchedulerExecutor {
   }
 
   /**
-   * Makes a run to check if there are executions scheduled in a range of dates and if some are
-   * found it will send them in the distributed queue. It is meant that this method is ran
-   * periodically.
+   * Makes a run to check if there are executions scheduled that are due and if some are found it
+   * will send them in the distributed queue. Due scheduled workflows are found using their next
+   * fire time, which is advanced (atomically) before the workflow is sent. A scheduled workflow
+   * that is overdue (e.g. because no scheduler was running) is sent once, after which its next fire
+   * time is advanced past the current time: any other missed occurrences are not sent. It is meant
+   * that this method is ran periodically.
    */
   public void performScheduling() {
     try {
       lock.lock();
-      final LocalDateTime thisExecutionTime = LocalDateTime.now();
-      LOGGER.info("Date range checking lowerbound: {}, upperBound:{}", this.lastExecutionTime,
-          thisExecutionTime);
-      List<ScheduledWorkflow> allCleanedScheduledWorkflows =
-          getCleanedScheduledUserWorkflows(lastExecutionTime, thisExecutionTime);
+      final Date now = new Date();
 
-      for (ScheduledWorkflow scheduledWorkflow : allCleanedScheduledWorkflows) {
-        LOGGER.info("Adding ScheduledWorkflow with DatasetId: {},pointerDate: {}, frequence: {}",
-            scheduledWorkflow.getDatasetId(), scheduledWorkflow.getPointerDate(),
-            scheduledWorkflow.getScheduleFrequence());
-        tryAddUserWorkflowInQueueOfUserWorkflowExecutions(scheduledWorkflow);
+      // The first time, make sure that all scheduled workflows have a next fire time.
+      if (!nextFireTimesInitialized) {
+        scheduleWorkflowService.initializeNextFireTimesWithoutAuthorization(now);
+        nextFireTimesInitialized = true;
+      }
+
+      LOGGER.debug("Checking for scheduled workflows that are due at: {}", now);
+      final List<ScheduledWorkflow> dueScheduledWorkflows = scheduleWorkflowService
+          .getDueScheduledWorkflowsWithoutAuthorization(now);
+      for (ScheduledWorkflow scheduledWorkflow : dueScheduledWorkflows) {
+        if (scheduleWorkflowService
+            .advanceNextFireTimeWithoutAuthorization(scheduledWorkflow, now)) {
+          LOGGER.info(
+              "Adding ScheduledWorkflow with DatasetId: {},pointerDate: {}, frequence: {}",
+              scheduledWorkflow.getDatasetId(), scheduledWorkflow.getPointerDate(),
+              scheduledWorkflow.getScheduleFrequence());
+          tryAddUserWorkflowInQueueOfUserWorkflowExecutions(scheduledWorkflow);
+        }
       }
-      lastExecutionTime = thisExecutionTime;
     } catch (RuntimeException e) {
       LOGGER.warn(
           "Exception thrown from rabbitmq channel or Redis disconnection, scheduler thread continues",
@@ -81,129 +87,6 @@ public class SchedulerExecutor {
     }
   }
 
-  private List<ScheduledWorkflow> getCleanedScheduledUserWorkflows(LocalDateTime lowerBound,
-      LocalDateTime upperBound) {
-    List<ScheduledWorkflow> scheduledWorkflows = new ArrayList<>();
-    scheduledWorkflows.addAll(getScheduledUserWorkflowsFrequenceOnce(lowerBound, upperBound));
-    scheduledWorkflows.addAll(getScheduledUserWorkflowsFrequenceDaily(lowerBound, upperBound));
-    scheduledWorkflows.addAll(getScheduledUserWorkflowsFrequenceWeekly(lowerBound, upperBound));
-    scheduledWorkflows
-        .addAll(getScheduledUserWorkflowsFrequenceMonthly(lowerBound, upperBound));
-    return scheduledWorkflows;
-  }
-
-  private List<ScheduledWorkflow> getScheduledUserWorkflowsFrequenceOnce(LocalDateTime lowerBound,
-      LocalDateTime upperBound) {
-    int nextPage = 0;
-    List<ScheduledWorkflow> scheduledWorkflows = new ArrayList<>();
-    ResponseListWrapper<ScheduledWorkflow> scheduledUserWorkflowResponseListWrapper = new ResponseListWrapper<>();
-    do {
-      scheduledUserWorkflowResponseListWrapper.clear();
-      scheduledUserWorkflowResponseListWrapper
-          .setResultsAndLastPage(scheduleWorkflowService
-                  .getAllScheduledWorkflowsByDateRangeONCE(lowerBound, upperBound, nextPage),
-              scheduleWorkflowService.getScheduledWorkflowsPerRequest(), nextPage);
-      scheduledWorkflows
-          .addAll(scheduledUserWorkflowResponseListWrapper.getResults());
-      nextPage = scheduledUserWorkflowResponseListWrapper.getNextPage();
-    } while (nextPage != -1);
-    return scheduledWorkflows;
-  }
-
-  private List<ScheduledWorkflow> getScheduledUserWorkflowsFrequenceDaily(LocalDateTime lowerBound,
-      LocalDateTime upperBound) {
-    List<ScheduledWorkflow> scheduledWorkflows = getScheduledUserWorkflows(
-        ScheduleFrequence.DAILY);
-    for (Iterator<ScheduledWorkflow> iterator = scheduledWorkflows.iterator();
-        iterator.hasNext(); ) {
-      ScheduledWorkflow scheduledWorkflow = iterator.next();
-
-      LocalDateTime pointerDate = LocalDateTime
-          .ofInstant(scheduledWorkflow.getPointerDate().toInstant(), ZoneId.systemDefault());
-      LocalDateTime localDateToCheck = lowerBound.withYear(lowerBound.getYear())
-          .withMonth(lowerBound.getMonthValue()).withHour(pointerDate.getHour())
-          .withMinute(pointerDate.getMinute()).withSecond(pointerDate.getSecond())
-          .withNano(pointerDate.getNano());
-
-      if (localDateToCheck.isBefore(lowerBound) || localDateToCheck.isEqual(upperBound)
-          || localDateToCheck.isAfter(upperBound)) {
-        iterator.remove();
-      }
-    }
-    return scheduledWorkflows;
-  }
-
-  private List<ScheduledWorkflow> getScheduledUserWorkflowsFrequenceWeekly(LocalDateTime lowerBound,
-      LocalDateTime upperBound) {
-    List<ScheduledWorkflow> scheduledWorkflows = getScheduledUserWorkflows(
-        ScheduleFrequence.WEEKLY);
-    for (Iterator<ScheduledWorkflow> scheduledWorkflowIterator = scheduledWorkflows.iterator();
-        scheduledWorkflowIterator.hasNext(); ) {
-      LocalDateTime localDateToCheck = getLocalDateTimeBasedOnLowerBound(lowerBound,
-          scheduledWorkflowIterator.next());
-
-      if (lowerBound.getDayOfWeek() == localDateToCheck.getDayOfWeek()) {
-        localDateToCheck = localDateToCheck.withDayOfMonth(lowerBound.getDayOfMonth());
-      }
-
-      if (localDateToCheck.isBefore(lowerBound) || localDateToCheck.isEqual(upperBound)
-          || localDateToCheck.isAfter(upperBound)) {
-        scheduledWorkflowIterator.remove();
-      }
-    }
-    return scheduledWorkflows;
-  }
-
-  private List<ScheduledWorkflow> getScheduledUserWorkflowsFrequenceMonthly(
-      LocalDateTime lowerBound, LocalDateTime upperBound) {
-    List<ScheduledWorkflow> scheduledWorkflows = getScheduledUserWorkflows(
-        ScheduleFrequence.MONTHLY);
-    for (Iterator<ScheduledWorkflow> scheduledWorkflowIterator = scheduledWorkflows.iterator();
-        scheduledWorkflowIterator.hasNext(); ) {
-      LocalDateTime localDateToCheck = getLocalDateTimeBasedOnLowerBound(lowerBound,
-          scheduledWorkflowIterator.next());
-
-      if (lowerBound.getDayOfMonth() == localDateToCheck.getDayOfMonth()) {
-        localDateToCheck = localDateToCheck.withMonth(lowerBound.getMonthValue());
-      }
-
-      if (localDateToCheck.isBefore(lowerBound) || localDateToCheck.isEqual(upperBound)
-          || localDateToCheck.isAfter(upperBound)) {
-        scheduledWorkflowIterator.remove();
-      }
-    }
-    return scheduledWorkflows;
-  }
-
-  private LocalDateTime getLocalDateTimeBasedOnLowerBound(LocalDateTime lowerBound,
-      ScheduledWorkflow scheduledWorkflow) {
-    LocalDateTime pointerDate = LocalDateTime
-        .ofInstant(scheduledWorkflow.getPointerDate().toInstant(), ZoneId.systemDefault());
-    return lowerBound.withYear(lowerBound.getYear())
-        .withMonth(pointerDate.getMonthValue()).withDayOfMonth(pointerDate.getDayOfMonth())
-        .withHour(pointerDate.getHour())
-        .withMinute(pointerDate.getMinute()).withSecond(pointerDate.getSecond())
-        .withNano(pointerDate.getNano());
-  }
-
-  private List<ScheduledWorkflow> getScheduledUserWorkflows(
-      ScheduleFrequence scheduleFrequence) {
-    int nextPage = 0;
-    List<ScheduledWorkflow> scheduledWorkflows = new ArrayList<>();
-    ResponseListWrapper<ScheduledWorkflow> scheduledUserWorkflowResponseListWrapper = new ResponseListWrapper<>();
-    do {
-      scheduledUserWorkflowResponseListWrapper.clear();
-      scheduledUserWorkflowResponseListWrapper
-          .setResultsAndLastPage(scheduleWorkflowService
-                  .getAllScheduledWorkflowsWithoutAuthorization(scheduleFrequence, nextPage),
-              scheduleWorkflowService.getScheduledWorkflowsPerRequest(), nextPage);
-      scheduledWorkflows
-          .addAll(scheduledUserWorkflowResponseListWrapper.getResults());
-      nextPage = scheduledUserWorkflowResponseListWrapper.getNextPage();
-    } while (nextPage != -1);
-    return scheduledWorkflows;
-  }
-
   private void tryAddUserWorkflowInQueueOfUserWorkflowExecutions(
       ScheduledWorkflow scheduledWorkflow) {
     try {
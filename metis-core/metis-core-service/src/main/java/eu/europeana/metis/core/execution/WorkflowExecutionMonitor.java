@@ -1,21 +1,14 @@
 package eu.europeana.metis.core.execution;
 
-import eu.europeana.metis.core.common.DaoFieldNames;
 import eu.europeana.metis.core.dao.WorkflowExecutionDao;
-import eu.europeana.metis.core.dao.WorkflowExecutionDao.ResultList;
-import eu.europeana.metis.core.rest.ResponseListWrapper;
 import eu.europeana.metis.core.workflow.WorkflowExecution;
 import eu.europeana.metis.core.workflow.WorkflowStatus;
+import java.lang.management.ManagementFactory;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Date;
-import java.util.EnumSet;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Objects;
 import org.redisson.api.RLock;
 import org.redisson.api.RedissonClient;
 import org.redisson.client.RedisConnectionException;
@@ -25,7 +18,17 @@ import org.slf4j.LoggerFactory;
 /**
  * This class monitors workflow executions. It provides functionality that determines whether a
  * running execution is progressing (as opposed to hanging) as well as functionality to deal with
- * this eventuality. Two of its methods are meant to be scheduled for a periodical run.
+ * this eventuality. One of its methods is meant to be scheduled for a periodical run.
+ * <p>
+ * An execution is assumed to be hanging when its heartbeat (the updated date, which is regularly
+ * set by the instance running the execution, also when there is no progress) is older than the
+ * failsafe leniency. Note that this compares times set by different instances: their clocks are
+ * assumed to be synchronized well within the leniency.
+ * </p>
+ * <p>
+ * Only the failsafe sweep is performed under a global lock, so that the sweeps of different
+ * instances don't overlap. Claiming an execution is done optimistically, without the lock.
+ * </p>
  */
 public class WorkflowExecutionMonitor {
 
@@ -37,9 +40,7 @@ public class WorkflowExecutionMonitor {
   private final WorkflowExecutorManager workflowExecutorManager;
   private final Duration failsafeLeniency;
   private final RLock lock;
-
-  /** The currently running executions. **/
-  private Map<String, WorkflowExecutionEntry> currentRunningExecutions = Collections.emptyMap();
+  private final String claimOwner;
 
   /**
    * Constructor the executor
@@ -56,35 +57,7 @@ public class WorkflowExecutionMonitor {
     this.workflowExecutionDao = workflowExecutionDao;
     this.workflowExecutorManager = workflowExecutorManager;
     this.lock = redissonClient.getFairLock(FAILSAFE_LOCK);
-  }
-
-  /* DO NOT CALL THIS METHOD WITHOUT POSSESSING THE LOCK */
-  List<WorkflowExecution> updateCurrentRunningExecutions() {
-
-    // Get all workflow executions that are currently running
-    final List<WorkflowExecution> allRunningWorkflowExecutions =
-        getWorkflowExecutionsWithStatus(WorkflowStatus.RUNNING);
-
-    // Go by all running executions and compare them with the data we already have.
-    final Map<String, WorkflowExecutionEntry> newExecutions = new HashMap<>(allRunningWorkflowExecutions.size());
-    for (WorkflowExecution execution : allRunningWorkflowExecutions) {
-      final WorkflowExecutionEntry currentEntry = getEntry(execution);
-      final WorkflowExecutionEntry newEntry;
-      if (currentEntry != null && currentEntry.updateTimeValueIsEqual(execution.getUpdatedDate())) {
-        // If the known update time has not changed, we keep the entry (the
-        // timeOfLastUpdateTimeChange property should not change).
-        newEntry = currentEntry;
-      } else {
-        // If we find a change of the known update time, we make a new entry with a new
-        // timeOfLastUpdateTimeChange value).
-        newEntry = new WorkflowExecutionEntry(execution.getUpdatedDate());
-      }
-      newExecutions.put(execution.getId().toString(), newEntry);
-    }
-    currentRunningExecutions = Collections.unmodifiableMap(newExecutions);
-
-    // Done: return all currently running executions.
-    return allRunningWorkflowExecutions;
+    this.claimOwner = ManagementFactory.getRuntimeMXBean().getName();
   }
 
   /**
@@ -99,21 +72,13 @@ public class WorkflowExecutionMonitor {
       // Lock for the duration of this scheduled task
       lock.lock();
 
-      // Update the execution times. This way we always have the latest values.
-      final List<WorkflowExecution> allRunningWorkflowExecutions = updateCurrentRunningExecutions();
-
-      // Determine which running executions appear to be hanging. Those we requeue. If an execution
-      // is running but there is no entry, requeue it just to be safe (this can't happen).
-      final List<WorkflowExecution> toBeRequeued = new ArrayList<>();
-      for (WorkflowExecution runningExecution : allRunningWorkflowExecutions) {
-        final WorkflowExecutionEntry executionEntry = getEntry(runningExecution);
-        if (executionEntry == null || executionEntry.assumeHanging(failsafeLeniency)) {
-          toBeRequeued.add(runningExecution);
-        }
-      }
+      // Find the running executions that appear to be hanging (using an index on the heartbeat).
+      // Those we requeue.
+      final List<WorkflowExecution> toBeRequeued = new ArrayList<>(
+          workflowExecutionDao.getRunningExecutionsWithHeartbeatBefore(getHeartbeatThreshold()));
 
       // Get all workflow executions that are currently in queue - they are all to be requeued.
-      toBeRequeued.addAll(getWorkflowExecutionsWithStatus(WorkflowStatus.INQUEUE));
+      toBeRequeued.addAll(workflowExecutionDao.getInQueueExecutions());
 
       // Requeue executions.
       for (WorkflowExecution workflowExecution : toBeRequeued) {
@@ -133,84 +98,46 @@ public class WorkflowExecutionMonitor {
     }
   }
 
-  /* DO NOT CALL THIS METHOD WITHOUT POSSESSING THE LOCK */
-  List<WorkflowExecution> getWorkflowExecutionsWithStatus(WorkflowStatus workflowStatus) {
-
-    // Get all the executions, using paging.
-    final List<WorkflowExecution> workflowExecutions = new ArrayList<>();
-    int nextPage = 0;
-    ResponseListWrapper<WorkflowExecution> userWorkflowExecutionResponseListWrapper =
-        new ResponseListWrapper<>();
-    do {
-      userWorkflowExecutionResponseListWrapper.clear();
-      final ResultList<WorkflowExecution> result = workflowExecutionDao.getAllWorkflowExecutions(
-          null, EnumSet.of(workflowStatus), DaoFieldNames.ID, true, nextPage, true);
-      userWorkflowExecutionResponseListWrapper.setResultsAndLastPage(result.getResults(),
-          workflowExecutionDao.getWorkflowExecutionsPerRequest(), nextPage,
-          result.isMaxResultCountReached());
-      workflowExecutions.addAll(userWorkflowExecutionResponseListWrapper.getResults());
-      nextPage = userWorkflowExecutionResponseListWrapper.getNextPage();
-    } while (nextPage != -1);
-
-    // Done.
-    return workflowExecutions;
-  }
-
   /**
    * This method determines whether a workflow execution may be started. Executions in queue may
-   * always be started. Running executions are granted or denied permission according to the
-   * following rules:
-   * <ol>
-   * <li>If we know a last change time and it is recent, we assume that a process is already working
-   * on this permission and permission is denied.</li>
-   * <li>If we know a last change time and it is old, but the database has a different update time,
-   * permission is denied as this signifies a change (which will be captured by the next run of the
-   * monitor).</li>
-   * <li>If we don't have a monitor last change time, we assume that this will appear shortly and we
-   * postpone the decision (by denying it now). This shouldn't happen.</li>
-   * <li>In all other cases permission is granted: the execution is determined to be hanging.</li>
-   * </ol>
-   * 
+   * always be started. Running executions may only be started if their heartbeat (the updated date)
+   * is older than the failsafe leniency: the execution is then determined to be hanging.
+   * <p>
+   * This method does not use the (global) lock: the claim is made with a conditional update that
+   * only succeeds if the execution did not change since it was retrieved. So if multiple instances
+   * try to claim the same execution concurrently, at most one of them will succeed.
+   * </p>
+   *
    * @param workflowExecutionId The ID of the workflow execution which the caller wishes to claim.
    * @return A recent version of the workflow execution if the claim is granted. Null if the claim
    *         is denied.
    */
   public WorkflowExecution claimExecution(String workflowExecutionId) {
-
     try {
 
-      // Lock for the duration of this request
-      lock.lock();
-
       // Retrieve the most current version of the execution.
       final WorkflowExecution workflowExecution = workflowExecutionDao.getById(workflowExecutionId);
 
       // If we can't claim the execution, we're done.
-      if (!mayClaimExecution(workflowExecution)) {
+      if (workflowExecution == null || !mayClaimExecution(workflowExecution)) {
         return null;
       }
 
-      // Otherwise prepare the execution for running.
-      final Date now = new Date();
-      workflowExecution.setUpdatedDate(now);
-      if (workflowExecution.getWorkflowStatus() != WorkflowStatus.RUNNING) {
-        workflowExecution.setStartedDate(now);
-        workflowExecution.setWorkflowStatus(WorkflowStatus.RUNNING);
+      // Otherwise try to claim the execution: this fails if it was changed in the meantime.
+      final WorkflowExecution claimedExecution = workflowExecutionDao
+          .claimExecution(workflowExecution, claimOwner, new Date());
+      if (claimedExecution == null) {
+        LOGGER.info("Claim for execution {} denied: execution was changed or claimed concurrently.",
+            workflowExecutionId);
       }
-      workflowExecutionDao.updateMonitorInformation(workflowExecution);
-
-      // Done
-      return workflowExecution;
+      return claimedExecution;
 
     } catch (RuntimeException e) {
       LOGGER.warn("Exception thrown while claiming workflow execution.", e);
       return null;
-    } finally {
-      lock.unlock();
     }
   }
 
-  /* DO NOT CALL THIS METHOD WITHOUT POSSESSING THE LOCK */
   boolean mayClaimExecution(WorkflowExecution workflowExecution) {
 
     // If the status is not RUNNING, we can give the answer straight away: only executions in the
@@ -224,21 +151,9 @@ public class WorkflowExecutionMonitor {
       return result;
     }
 
-    // If it is running, we check whether it is currently hanging. Get the map entry.
-    final WorkflowExecutionEntry currentExecution = getEntry(workflowExecution);
-
-    // If there is no entry, permission is denied: we assume one will appear shortly.
-    if (currentExecution == null) {
-      LOGGER.info(
-          "Claim for execution {} denied: wait for scheduled monitoring task to monitor this RUNNING execution.",
-          workflowExecution.getId());
-      return false;
-    }
-
-    // Grant permission only if the execution appears to be hanging.
-    final boolean result =
-        currentExecution.updateTimeValueIsEqual(workflowExecution.getUpdatedDate())
-            && currentExecution.assumeHanging(failsafeLeniency);
+    // If it is running, grant permission only if the execution appears to be hanging.
+    final Date heartbeat = workflowExecution.getUpdatedDate();
+    final boolean result = heartbeat == null || heartbeat.before(getHeartbeatThreshold());
     if (!result) {
       LOGGER.info(
           "Claim for execution {} denied: RUNNING execution does not (yet) appear to be hanging.",
@@ -247,55 +162,15 @@ public class WorkflowExecutionMonitor {
     return result;
   }
 
-  /* DO NOT CALL THIS METHOD WITHOUT POSSESSING THE LOCK */
-  WorkflowExecutionEntry getEntry(WorkflowExecution workflowExecution) {
-    return currentRunningExecutions.get(workflowExecution.getId().toString());
+  /**
+   * @return The date before which the heartbeat of a running execution must have occurred for the
+   * execution to be assumed hanging.
+   */
+  Date getHeartbeatThreshold() {
+    return Date.from(getNow().minus(failsafeLeniency));
   }
 
-  static class WorkflowExecutionEntry {
-
-    /**
-     * This is the date that other core instances may provide. Should be treated as a version
-     * number: no time calculations should be done with this as the clock may differ from ours.
-     **/
-    private final Instant executionUpdateTime;
-
-    /** This is the date on this machine. Can be treated as a time. **/
-    private final Instant timeOfLastUpdateTimeChange;
-
-    public WorkflowExecutionEntry(Date updateTime) {
-      this.executionUpdateTime = updateTime == null ? null : updateTime.toInstant();
-      this.timeOfLastUpdateTimeChange = Instant.now();
-    }
-
-    /**
-     * Determines whether the given update time is equal to the one we know.
-     * 
-     * @param otherUpdateTime the update time to compare.
-     * @return Whether it is equal to the one we have in the entry.
-     */
-    public boolean updateTimeValueIsEqual(Date otherUpdateTime) {
-      Instant otherInstant = otherUpdateTime == null ? null : otherUpdateTime.toInstant();
-      return Objects.equals(otherInstant, executionUpdateTime);
-    }
-
-    /**
-     * Determines whether this workflow execution is hanging according to the given leniency. It is
-     * assumed to be hanging if we obtained the last update more than the leniency period ago.
-     * 
-     * @param leniency The leniency with which to decide whether the execution is hanging.
-     * @return Whether or not the execution is assumed to be hanging.
-     */
-    public boolean assumeHanging(Duration leniency) {
-      return getLastValueChange().plus(leniency).isBefore(getNow());
-    }
-
-    public Instant getLastValueChange() {
-      return timeOfLastUpdateTimeChange;
-    }
-
-    Instant getNow() {
-      return Instant.now();
-    }
+  Instant getNow() {
+    return Instant.now();
   }
 }
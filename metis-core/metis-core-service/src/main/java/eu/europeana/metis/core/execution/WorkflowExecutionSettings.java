@@ -8,9 +8,11 @@ interface WorkflowExecutionSettings {
 
   int getDpsMonitorCheckIntervalInSecs();
 
-  int getMaxConcurrentThreads();
+  int getDpsMonitorHeartbeatIntervalInSecs();
+
+  int getDpsMonitorThreadCount();
 
-  int getPollingTimeoutForCleaningCompletionServiceInSecs();
+  int getMaxConcurrentThreads();
 
   int getPeriodOfNoProcessedRecordsChangeInMinutes();
 
@@ -2,8 +2,10 @@ package eu.europeana.metis.core.execution;
 
 import eu.europeana.cloud.client.dps.rest.DpsClient;
 import eu.europeana.cloud.common.model.dps.TaskState;
+import eu.europeana.metis.core.dao.DatasetExecutionSummaryDao;
 import eu.europeana.metis.core.dao.WorkflowExecutionDao;
 import eu.europeana.metis.core.dao.WorkflowUtils;
+import eu.europeana.metis.core.execution.PluginMonitoringScheduler.MonitoredTask;
 import eu.europeana.metis.core.workflow.WorkflowExecution;
 import eu.europeana.metis.core.workflow.WorkflowStatus;
 import eu.europeana.metis.core.workflow.plugins.AbstractExecutablePlugin;
@@ -11,6 +13,7 @@ import eu.europeana.metis.core.workflow.plugins.ExecutablePlugin.MonitorResult;
 import eu.europeana.metis.core.workflow.plugins.AbstractExecutablePluginMetadata;
 import eu.europeana.metis.core.workflow.plugins.AbstractMetisPlugin;
 import eu.europeana.metis.core.workflow.plugins.EcloudBasePluginParameters;
+import eu.europeana.metis.core.workflow.plugins.ExecutionProgress;
 import eu.europeana.metis.core.workflow.plugins.PluginStatus;
 import eu.europeana.metis.core.workflow.plugins.PluginType;
 import eu.europeana.metis.exception.ExternalTaskException;
@@ -22,11 +25,15 @@ import java.util.Date;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import org.apache.commons.lang3.StringUtils;
+import org.bson.types.ObjectId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.web.client.HttpServerErrorException;
@@ -37,7 +44,8 @@ import org.springframework.web.client.HttpServerErrorException;
  * ends either by user interaction or by the end of the Workflow. When the WorkflowExecution is
  * received there is a chance that the execution is already being handled from another
  * WorkflowExecutor in another instance and if that is the case the WorkflowExecution will be
- * dropped.
+ * dropped. The external tasks are monitored by a {@link PluginMonitoringScheduler}, so that no
+ * thread is occupied while they are running.
  *
  * @author Simon Tzanakis (Simon.Tzanakis@europeana.eu)
  * @since 2017-05-29
@@ -54,14 +62,17 @@ public class WorkflowExecutor implements Callable<WorkflowExecution> {
   private final String workflowExecutionId;
   private final WorkflowExecutionMonitor workflowExecutionMonitor;
   private final WorkflowExecutionDao workflowExecutionDao;
-  private final int monitorCheckIntervalInSecs;
+  private final DatasetExecutionSummaryDao datasetExecutionSummaryDao;
+  private final long monitorHeartbeatIntervalInMillis;
   private final long periodOfNoProcessedRecordsChangeInSeconds;
   private final DpsClient dpsClient;
   private final String ecloudBaseUrl;
   private final String ecloudProvider;
   private final String metisCoreBaseUrl;
+  private final PluginMonitoringScheduler pluginMonitoringScheduler;
 
   private WorkflowExecution workflowExecution;
+  private volatile boolean claimLost = false;
 
   private static final Map<Class<?>, String> mapWithRetriableExceptions;
 
@@ -75,25 +86,62 @@ public class WorkflowExecutor implements Callable<WorkflowExecution> {
 
   WorkflowExecutor(String workflowExecutionId, PersistenceProvider persistenceProvider,
       WorkflowExecutionSettings workflowExecutionSettings,
-      WorkflowExecutionMonitor workflowExecutionMonitor) {
+      WorkflowExecutionMonitor workflowExecutionMonitor,
+      PluginMonitoringScheduler pluginMonitoringScheduler) {
     this.workflowExecutionId = workflowExecutionId;
     this.workflowExecutionDao = persistenceProvider.getWorkflowExecutionDao();
+    this.datasetExecutionSummaryDao = persistenceProvider.getDatasetExecutionSummaryDao();
     this.dpsClient = persistenceProvider.getDpsClient();
-    this.monitorCheckIntervalInSecs = workflowExecutionSettings.getDpsMonitorCheckIntervalInSecs();
+    this.monitorHeartbeatIntervalInMillis = TimeUnit.SECONDS
+        .toMillis(workflowExecutionSettings.getDpsMonitorHeartbeatIntervalInSecs());
     this.periodOfNoProcessedRecordsChangeInSeconds = TimeUnit.MINUTES
         .toSeconds(workflowExecutionSettings.getPeriodOfNoProcessedRecordsChangeInMinutes());
     this.ecloudBaseUrl = workflowExecutionSettings.getEcloudBaseUrl();
     this.ecloudProvider = workflowExecutionSettings.getEcloudProvider();
     this.metisCoreBaseUrl = workflowExecutionSettings.getMetisCoreBaseUrl();
     this.workflowExecutionMonitor = workflowExecutionMonitor;
+    this.pluginMonitoringScheduler = pluginMonitoringScheduler;
   }
 
+  /**
+   * Runs the workflow execution and waits for it to end. Note that the calling thread is blocked
+   * for the duration of the execution: consider using {@link #executeAsync()} instead.
+   *
+   * @return The workflow execution, or null if it could not be claimed (or if it was claimed by
+   * another instance while running).
+   */
   @Override
   public WorkflowExecution call() {
-    return callInternal();
+    try {
+      return executeAsync().join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
   }
 
-  private WorkflowExecution callInternal() {
+  /**
+   * Runs the workflow execution without occupying a thread while the external tasks are running:
+   * the short steps of the execution run on the executor of the {@link PluginMonitoringScheduler},
+   * and the external tasks are monitored by that scheduler.
+   *
+   * @return A future for the workflow execution. It completes with null if the execution could not
+   * be claimed (or if it was claimed by another instance while running).
+   */
+  CompletableFuture<WorkflowExecution> executeAsync() {
+    final Executor executor = pluginMonitoringScheduler.getExecutor();
+    return CompletableFuture.supplyAsync(this::claimExecution, executor).thenCompose(claimed -> {
+      if (!claimed) {
+        return CompletableFuture.completedFuture(null);
+      }
+      return runMetisPlugins(getFirstPluginPositionToStart())
+          .thenApplyAsync(done -> finishExecution(), executor);
+    });
+  }
+
+  private boolean claimExecution() {
 
     // Claim the execution: if this claim is denied, we stop this execution.
     LOGGER.info("Claiming workflow execution with id: {}", workflowExecutionId);
@@ -101,13 +149,31 @@ public class WorkflowExecutor implements Callable<WorkflowExecution> {
     if (this.workflowExecution == null) {
       LOGGER.info("Discarding WorkflowExecution with id: {}, it could not be claimed.",
           workflowExecutionId);
-      return null;
+      return false;
     }
 
     // Perform the work - run the workflow.
     LOGGER.info("Starting user workflow execution with id: {} and priority {}",
         workflowExecution.getId(), workflowExecution.getWorkflowPriority());
-    final Date finishDate = runInqueueOrRunningStateWorkflowExecution();
+    return true;
+  }
+
+  private WorkflowExecution finishExecution() {
+
+    // Compute the finished date
+    final AbstractMetisPlugin lastPlugin =
+        workflowExecution.getMetisPlugins().get(workflowExecution.getMetisPlugins().size() - 1);
+    final Date finishDate;
+    if (lastPlugin.getPluginStatus() == PluginStatus.FINISHED) {
+      finishDate = lastPlugin.getFinishedDate();
+    } else {
+      finishDate = null;
+    }
+
+    // If we lost the claim, we stop here: the instance holding the claim will finish it.
+    if (claimLost) {
+      return null;
+    }
 
     // Process the results
     if (finishDate == null && workflowExecutionDao.isCancelling(workflowExecution.getId())) {
@@ -132,64 +198,83 @@ public class WorkflowExecutor implements Callable<WorkflowExecution> {
 
     // The only full update is used here. The rest of the execution uses partial updates to avoid
     // losing the cancelling state field
-    workflowExecutionDao.update(workflowExecution);
+    if (!workflowExecutionDao.updateClaimedExecution(workflowExecution)) {
+      registerLostClaim();
+      return null;
+    }
     return workflowExecution;
   }
 
   /**
-   * Will determine from which plugin of the workflow to start execution from and will iterate
-   * through the plugins of the workflow one by one.
-   *
-   * @return The date the full workflow finished (or null if it did not finish successfully).
+   * Registers that the execution was claimed by another instance (or removed): an update did not
+   * match the execution with our claim. This execution stops without making any more changes.
    */
-  private Date runInqueueOrRunningStateWorkflowExecution() {
+  private void registerLostClaim() {
+    if (!claimLost) {
+      LOGGER.warn("Stopping workflow execution with id: {}, it was claimed by another instance.",
+          workflowExecution.getId());
+    }
+    claimLost = true;
+  }
 
-    // Find the first plugin to continue execution from
-    int firstPluginPositionToStart = 0;
+  /**
+   * Will determine from which plugin of the workflow to start execution from.
+   *
+   * @return The position of the first plugin to run.
+   */
+  private int getFirstPluginPositionToStart() {
     for (int i = 0; i < workflowExecution.getMetisPlugins().size(); i++) {
       AbstractMetisPlugin metisPlugin = workflowExecution.getMetisPlugins().get(i);
       if (metisPlugin.getPluginStatus() == PluginStatus.INQUEUE
           || metisPlugin.getPluginStatus() == PluginStatus.RUNNING
           || metisPlugin.getPluginStatus() == PluginStatus.CLEANING
           || metisPlugin.getPluginStatus() == PluginStatus.PENDING) {
-        firstPluginPositionToStart = i;
-        break;
-      }
-    }
-
-    // One by one start the plugins of the workflow
-    for (int i = firstPluginPositionToStart; i < workflowExecution.getMetisPlugins().size(); i++) {
-      final AbstractMetisPlugin plugin = workflowExecution.getMetisPlugins().get(i);
-      final Date startDateToUse = i == 0 ? workflowExecution.getStartedDate() : new Date();
-      runMetisPlugin(plugin, startDateToUse);
-      if ((workflowExecutionDao.isCancelling(workflowExecution.getId())
-          && plugin.getFinishedDate() == null)
-          || plugin.getPluginStatus() == PluginStatus.FAILED) {
-        break;
+        return i;
       }
     }
+    return 0;
+  }
 
-    // Compute the finished date
-    final AbstractMetisPlugin lastPlugin =
-        workflowExecution.getMetisPlugins().get(workflowExecution.getMetisPlugins().size() - 1);
-    final Date finishDate;
-    if (lastPlugin.getPluginStatus() == PluginStatus.FINISHED) {
-      finishDate = lastPlugin.getFinishedDate();
-    } else {
-      finishDate = null;
+  /**
+   * Will run the plugins of the workflow one by one, starting from the given position.
+   *
+   * @param position The position of the first plugin to run.
+   * @return A future that completes when no more plugins are to be run.
+   */
+  private CompletableFuture<Void> runMetisPlugins(int position) {
+    if (position >= workflowExecution.getMetisPlugins().size()) {
+      return CompletableFuture.completedFuture(null);
     }
-    return finishDate;
+    final Executor executor = pluginMonitoringScheduler.getExecutor();
+    final AbstractMetisPlugin plugin = workflowExecution.getMetisPlugins().get(position);
+    final Date startDateToUse = position == 0 ? workflowExecution.getStartedDate() : new Date();
+    return CompletableFuture.supplyAsync(() -> triggerMetisPlugin(plugin, startDateToUse), executor)
+        .thenCompose(triggeredPlugin -> triggeredPlugin == null
+            ? CompletableFuture.<Void>completedFuture(null)
+            : pluginMonitoringScheduler.monitor(new PluginMonitor(triggeredPlugin)))
+        .thenComposeAsync(done -> {
+          if (claimLost || (workflowExecutionDao.isCancelling(workflowExecution.getId())
+              && plugin.getFinishedDate() == null)
+              || plugin.getPluginStatus() == PluginStatus.FAILED) {
+            return CompletableFuture.completedFuture(null);
+          }
+          return runMetisPlugins(position + 1);
+        }, executor);
   }
 
   /**
-   * It will prepare the plugin, request the external execution and will periodically monitor,
-   * update the plugin's progress and at the end finalize the plugin's status and finished date.
+   * It will prepare the plugin and request the external execution. The monitoring, updating of the
+   * plugin's progress and at the end the finalizing of the plugin's status and finished date is
+   * done by a {@link PluginMonitor}.
    *
    * @param pluginUnchecked the plugin to run
    * @param startDateToUse The date that should be used as start date (if the plugin is not already
    * running).
+   * @return The plugin, if it is triggered (or was already running) and needs to be monitored, or
+   * null if it failed to trigger.
    */
-  private void runMetisPlugin(AbstractMetisPlugin pluginUnchecked, Date startDateToUse) {
+  private AbstractExecutablePlugin<?> triggerMetisPlugin(AbstractMetisPlugin pluginUnchecked,
+      Date startDateToUse) {
 
     // Sanity check
     if (pluginUnchecked == null) {
@@ -230,14 +315,17 @@ public class WorkflowExecutor implements Callable<WorkflowExecution> {
       pluginUnchecked.setFinishedDate(null);
       pluginUnchecked.setPluginStatusAndResetFailMessage(PluginStatus.FAILED);
       pluginUnchecked.setFailMessage(TRIGGER_ERROR_PREFIX + e.getMessage());
-      return;
+      return null;
     } finally {
-      workflowExecutionDao.updateWorkflowPlugins(workflowExecution);
+      if (workflowExecutionDao.updateWorkflowPlugins(workflowExecution)) {
+        updateDatasetExecutionSummary(pluginUnchecked);
+      } else {
+        registerLostClaim();
+      }
     }
 
-    // Start periodical check and wait for plugin to be done
-    long sleepTime = TimeUnit.SECONDS.toMillis(monitorCheckIntervalInSecs);
-    periodicCheckingLoop(sleepTime, plugin);
+    // The plugin is to be monitored until it is done (unless we lost the claim).
+    return claimLost ? null : plugin;
   }
 
   private String getExternalTaskIdOfPreviousPlugin(
@@ -269,20 +357,46 @@ public class WorkflowExecutor implements Callable<WorkflowExecution> {
         + " that is not an executable plugin.");
   }
 
-  private void periodicCheckingLoop(long sleepTime, AbstractExecutablePlugin plugin) {
-    MonitorResult monitorResult = null;
-    int consecutiveCancelOrMonitorFailures = 0;
-    boolean externalCancelCallSent = false;
-    AtomicInteger previousProcessedRecords = new AtomicInteger(0);
-    AtomicLong checkPointDateOfProcessedRecordsPeriodInMillis = new AtomicLong(
+  /**
+   * Monitors the external task of a plugin, one check at the time (see {@link
+   * PluginMonitoringScheduler}). The monitor information is only written to the database if the
+   * plugin's progress changed, or if it was last written longer than the heartbeat interval ago
+   * (so that the failsafe can still tell that the execution is alive).
+   */
+  private class PluginMonitor implements MonitoredTask {
+
+    private final AbstractExecutablePlugin<?> plugin;
+    private int consecutiveCancelOrMonitorFailures = 0;
+    private boolean externalCancelCallSent = false;
+    private final AtomicInteger previousProcessedRecords = new AtomicInteger(0);
+    private final AtomicLong checkPointDateOfProcessedRecordsPeriodInMillis = new AtomicLong(
         System.currentTimeMillis());
-    do {
+    private String lastWrittenProgress = null;
+    private long lastWriteTimeInMillis = 0;
+
+    PluginMonitor(AbstractExecutablePlugin<?> plugin) {
+      this.plugin = plugin;
+    }
+
+    @Override
+    public ObjectId getWorkflowExecutionId() {
+      return workflowExecution.getId();
+    }
+
+    @Override
+    public boolean check(boolean cancelling) {
+      MonitorResult monitorResult = null;
+      boolean failed = false;
       try {
-        Thread.sleep(sleepTime);
-        if (!externalCancelCallSent && shouldPluginBeCancelled(plugin,
+        if (!externalCancelCallSent && shouldPluginBeCancelled(plugin, cancelling,
             previousProcessedRecords, checkPointDateOfProcessedRecordsPeriodInMillis)) {
-          // Update workflowExecution first, to retrieve cancelling information from db
-          workflowExecution = workflowExecutionDao.getById(workflowExecution.getId().toString());
+          // Retrieve the cancelling information from db first. We don't replace our copy of the
+          // execution: it holds our claim and the plugin that we are monitoring.
+          final WorkflowExecution current = workflowExecutionDao
+              .getById(workflowExecution.getId().toString());
+          if (current != null) {
+            workflowExecution.setCancelledBy(current.getCancelledBy());
+          }
           plugin.cancel(dpsClient, workflowExecution.getCancelledBy());
           externalCancelCallSent = true;
         }
@@ -291,10 +405,6 @@ public class WorkflowExecutor implements Callable<WorkflowExecution> {
         plugin.setPluginStatusAndResetFailMessage(
             monitorResult.getTaskState() == TaskState.REMOVING_FROM_SOLR_AND_MONGO
                 ? PluginStatus.CLEANING : PluginStatus.RUNNING);
-      } catch (InterruptedException e) {
-        LOGGER.warn("Thread was interrupted during monitoring of external task", e);
-        Thread.currentThread().interrupt();
-        return;
       } catch (ExternalTaskException e) {
         LOGGER.warn("ExternalTaskException occurred.", e);
         if (ExternalRequestUtil
@@ -308,31 +418,67 @@ public class WorkflowExecutor implements Callable<WorkflowExecution> {
             plugin.setPluginStatusAndResetFailMessage(PluginStatus.PENDING);
           }
         } else {
-          // Set plugin to FAILED and return immediately
+          // Set plugin to FAILED and stop monitoring
           plugin.setFinishedDate(null);
           plugin.setPluginStatusAndResetFailMessage(PluginStatus.FAILED);
           plugin.setFailMessage(MONITOR_ERROR_PREFIX + e.getMessage());
-          return;
+          failed = true;
         }
-      } finally {
-        Date updatedDate = new Date();
+      }
+
+      // Determine whether we are done and save the monitor information if needed.
+      final boolean done = failed || (monitorResult != null
+          && (monitorResult.getTaskState() == TaskState.DROPPED
+          || monitorResult.getTaskState() == TaskState.PROCESSED));
+      // If we lost the claim, we stop monitoring: the instance holding the claim takes over.
+      if (!updateMonitorInformationIfNeeded(done)) {
+        registerLostClaim();
+        return true;
+      }
+      if (done && !failed) {
+        preparePluginStateAndFinishedDate(plugin, monitorResult);
+      }
+      if (done && !claimLost) {
+        updateDatasetExecutionSummary(plugin);
+      }
+      return done;
+    }
+
+    private boolean updateMonitorInformationIfNeeded(boolean done) {
+      final long now = System.currentTimeMillis();
+      final String progress = getProgressSummary(plugin);
+      if (done || !progress.equals(lastWrittenProgress)
+          || now - lastWriteTimeInMillis >= monitorHeartbeatIntervalInMillis) {
+        final Date updatedDate = new Date(now);
         plugin.setUpdatedDate(updatedDate);
         workflowExecution.setUpdatedDate(updatedDate);
-        workflowExecutionDao.updateMonitorInformation(workflowExecution);
+        if (!workflowExecutionDao.updateMonitorInformation(workflowExecution)) {
+          return false;
+        }
+        lastWrittenProgress = progress;
+        lastWriteTimeInMillis = now;
       }
-    } while (monitorResult == null || (monitorResult.getTaskState() != TaskState.DROPPED
-        && monitorResult.getTaskState() != TaskState.PROCESSED));
+      return true;
+    }
+  }
 
-    preparePluginStateAndFinishedDate(plugin, monitorResult);
+  private static String getProgressSummary(AbstractExecutablePlugin<?> plugin) {
+    final ExecutionProgress progress = plugin.getExecutionProgress();
+    final StringBuilder summary = new StringBuilder().append(plugin.getPluginStatus());
+    if (progress != null) {
+      summary.append('/').append(progress.getStatus()).append('/')
+          .append(progress.getExpectedRecords()).append('/')
+          .append(progress.getProcessedRecords()).append('/').append(progress.getErrors());
+    }
+    return summary.toString();
   }
 
-  private boolean shouldPluginBeCancelled(AbstractExecutablePlugin plugin,
+  private boolean shouldPluginBeCancelled(AbstractExecutablePlugin plugin, boolean cancelling,
       AtomicInteger previousProcessedRecords,
       AtomicLong checkPointDateOfProcessedRecordsPeriodInMillis) {
     // A plugin with CLEANING state is NOT cancellable, it will be when the state is updated
     final boolean notCleaningAndCancelling =
-        plugin.getPluginStatus() != PluginStatus.CLEANING && workflowExecutionDao
-            .isCancelling(workflowExecution.getId());
+        plugin.getPluginStatus() != PluginStatus.CLEANING && cancelling;
     // A cleaning or a pending task should not be cancelled by exceeding the minute cap
     final boolean notCleaningOrPending =
         plugin.getPluginStatus() != PluginStatus.CLEANING
@@ -381,6 +527,23 @@ public class WorkflowExecutor implements Callable<WorkflowExecution> {
               : monitorResult.getTaskInfo();
       plugin.setFailMessage(EXECUTION_ERROR_PREFIX + failMessage);
     }
-    workflowExecutionDao.updateWorkflowPlugins(workflowExecution);
+    if (!workflowExecutionDao.updateWorkflowPlugins(workflowExecution)) {
+      registerLostClaim();
+    }
+  }
+
+  private void updateDatasetExecutionSummary(AbstractMetisPlugin plugin) {
+    // The summary can always be rebuilt, so a failure here should not affect the execution.
+    try {
+      if (plugin.getPluginStatus() == PluginStatus.FINISHED) {
+        datasetExecutionSummaryDao.registerFinishedPlugin(workflowExecution.getDatasetId(), plugin);
+      } else if (plugin.getPluginStatus() == PluginStatus.FAILED) {
+        datasetExecutionSummaryDao
+            .registerFailedPlugin(workflowExecution.getDatasetId(), plugin, new Date());
+      }
+    } catch (RuntimeException e) {
+      LOGGER.warn(String.format("Could not update the execution summary of dataset with id: %s",
+          workflowExecution.getDatasetId()), e);
+    }
   }
 }
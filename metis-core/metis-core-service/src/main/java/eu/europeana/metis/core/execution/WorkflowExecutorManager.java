@@ -4,6 +4,7 @@ import com.rabbitmq.client.AMQP.BasicProperties;
 import com.rabbitmq.client.Channel;
 import com.rabbitmq.client.MessageProperties;
 import eu.europeana.cloud.client.dps.rest.DpsClient;
+import eu.europeana.metis.core.dao.DatasetExecutionSummaryDao;
 import eu.europeana.metis.core.dao.WorkflowExecutionDao;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
@@ -23,12 +24,14 @@ public class WorkflowExecutorManager extends PersistenceProvider implements
   private static final Logger LOGGER = LoggerFactory.getLogger(WorkflowExecutorManager.class);
   private static final int DEFAULT_MAX_CONCURRENT_THREADS = 10;
   private static final int DEFAULT_MONITOR_CHECK_INTERVAL_IN_SECS = 5;
-  private static final int DEFAULT_POLLING_TIMEOUT_FOR_CLEANING_COMPLETION_SERVICE_IN_SECS = 10;
+  private static final int DEFAULT_MONITOR_HEARTBEAT_INTERVAL_IN_SECS = 60;
+  private static final int DEFAULT_MONITOR_THREAD_COUNT = 4;
   private static final int DEFAULT_PERIOD_OF_NO_PROCESSED_RECORDS_CHANGE_IN_MINUTES = 30;
 
   private int maxConcurrentThreads = DEFAULT_MAX_CONCURRENT_THREADS; //Use setter otherwise default
   private int dpsMonitorCheckIntervalInSecs = DEFAULT_MONITOR_CHECK_INTERVAL_IN_SECS; //Use setter otherwise default
-  private int pollingTimeoutForCleaningCompletionServiceInSecs = DEFAULT_POLLING_TIMEOUT_FOR_CLEANING_COMPLETION_SERVICE_IN_SECS; //Use setter otherwise default
+  private int dpsMonitorHeartbeatIntervalInSecs = DEFAULT_MONITOR_HEARTBEAT_INTERVAL_IN_SECS; //Use setter otherwise default
+  private int dpsMonitorThreadCount = DEFAULT_MONITOR_THREAD_COUNT; //Use setter otherwise default
   private int periodOfNoProcessedRecordsChangeInMinutes = DEFAULT_PERIOD_OF_NO_PROCESSED_RECORDS_CHANGE_IN_MINUTES; //Use setter otherwise default
 
   private String rabbitmqQueueName; //Initialize with setter
@@ -40,16 +43,17 @@ public class WorkflowExecutorManager extends PersistenceProvider implements
    * Autowired constructor.
    *
    * @param workflowExecutionDao the DAO for accessing WorkflowExecutions
+   * @param datasetExecutionSummaryDao the DAO for accessing the execution summaries of datasets
    * @param rabbitmqPublisherChannel the channel for publishing to RabbitMQ
    * @param rabbitmqConsumerChannel the channel for consuming from RabbitMQ
    * @param redissonClient the redisson client for distributed locks
    * @param dpsClient the Data Processing Service client from ECloud
    */
   public WorkflowExecutorManager(WorkflowExecutionDao workflowExecutionDao,
-      Channel rabbitmqPublisherChannel, Channel rabbitmqConsumerChannel,
-      RedissonClient redissonClient, DpsClient dpsClient) {
-    super(rabbitmqPublisherChannel, rabbitmqConsumerChannel, workflowExecutionDao, redissonClient,
-        dpsClient);
+      DatasetExecutionSummaryDao datasetExecutionSummaryDao, Channel rabbitmqPublisherChannel,
+      Channel rabbitmqConsumerChannel, RedissonClient redissonClient, DpsClient dpsClient) {
+    super(rabbitmqPublisherChannel, rabbitmqConsumerChannel, workflowExecutionDao,
+        datasetExecutionSummaryDao, redissonClient, dpsClient);
   }
 
   /**
@@ -98,9 +102,12 @@ public class WorkflowExecutorManager extends PersistenceProvider implements
     this.dpsMonitorCheckIntervalInSecs = dpsMonitorCheckIntervalInSecs;
   }
 
-  public void setPollingTimeoutForCleaningCompletionServiceInSecs(
-      int pollingTimeoutForCleaningCompletionServiceInSecs) {
-    this.pollingTimeoutForCleaningCompletionServiceInSecs = pollingTimeoutForCleaningCompletionServiceInSecs;
+  public void setDpsMonitorHeartbeatIntervalInSecs(int dpsMonitorHeartbeatIntervalInSecs) {
+    this.dpsMonitorHeartbeatIntervalInSecs = dpsMonitorHeartbeatIntervalInSecs;
+  }
+
+  public void setDpsMonitorThreadCount(int dpsMonitorThreadCount) {
+    this.dpsMonitorThreadCount = dpsMonitorThreadCount;
   }
 
   public void setPeriodOfNoProcessedRecordsChangeInMinutes(
@@ -114,13 +121,18 @@ public class WorkflowExecutorManager extends PersistenceProvider implements
   }
 
   @Override
-  public int getMaxConcurrentThreads() {
-    return maxConcurrentThreads;
+  public int getDpsMonitorHeartbeatIntervalInSecs() {
+    return dpsMonitorHeartbeatIntervalInSecs;
   }
 
   @Override
-  public int getPollingTimeoutForCleaningCompletionServiceInSecs() {
-    return pollingTimeoutForCleaningCompletionServiceInSecs;
+  public int getDpsMonitorThreadCount() {
+    return dpsMonitorThreadCount;
+  }
+
+  @Override
+  public int getMaxConcurrentThreads() {
+    return maxConcurrentThreads;
   }
 
   @Override
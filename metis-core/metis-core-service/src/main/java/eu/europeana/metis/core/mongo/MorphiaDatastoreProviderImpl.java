@@ -1,10 +1,14 @@
 package eu.europeana.metis.core.mongo;
 
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
 import com.mongodb.MongoClient;
 import dev.morphia.Datastore;
 import dev.morphia.Morphia;
+import eu.europeana.metis.core.common.DaoFieldNames;
 import eu.europeana.metis.core.dao.DatasetXsltDao;
 import eu.europeana.metis.core.dataset.Dataset;
+import eu.europeana.metis.core.dataset.DatasetExecutionSummary;
 import eu.europeana.metis.core.dataset.DatasetIdSequence;
 import eu.europeana.metis.core.dataset.DatasetXslt;
 import eu.europeana.metis.core.workflow.ScheduledWorkflow;
@@ -22,6 +26,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Class to initialize the mongo collections and the {@link Datastore} connection. It also performs
@@ -29,11 +35,24 @@ import org.apache.commons.io.IOUtils;
  */
 public class MorphiaDatastoreProviderImpl implements MorphiaDatastoreProvider {
 
+  private static final Logger LOGGER = LoggerFactory.getLogger(MorphiaDatastoreProviderImpl.class);
+
+  /**
+   * The single-field index on the dataset ID of workflow executions: it is replaced by the
+   * compound index starting with the dataset ID.
+   */
+  private static final String REPLACED_WORKFLOW_EXECUTION_INDEX = "datasetId_1";
+
   private final Datastore datastore;
 
   /**
    * Constructor to initialize the mongo mappings/collections and the {@link Datastore} connection.
-   * This also initializes the {@link DatasetIdSequence} that this database uses.
+   * This also initializes the {@link DatasetIdSequence} that this database uses, creates the
+   * indexes that the workflow execution and scheduling queries rely on (if they don't exist yet) in
+   * the background and drops the indexes that are no longer needed.
+   * <p>Note that the other indexes declared on the mapped classes are not created: they have never
+   * been built by this application and some of them (the unique ones) could not be built on
+   * existing data that contains duplicates.</p>
    *
    * @param mongoClient {@link MongoClient}
    * @param databaseName the database name
@@ -56,8 +75,25 @@ public class MorphiaDatastoreProviderImpl implements MorphiaDatastoreProvider {
     morphia.map(ValidationExternalPlugin.class);
     morphia.map(AbstractMetisPluginMetadata.class);
     morphia.map(DatasetXslt.class);
+    morphia.map(DatasetExecutionSummary.class);
     datastore = morphia.createDatastore(mongoClient, databaseName);
 
+    // Create the indexes if required. This is done in the background, so that creating an index on
+    // an existing (large) collection does not block the collection while the application starts.
+    createIndex(datastore, WorkflowExecution.class, new BasicDBObject()
+        .append(DaoFieldNames.DATASET_ID.getFieldName(), 1)
+        .append(DaoFieldNames.WORKFLOW_STATUS.getFieldName(), 1)
+        .append(DaoFieldNames.CREATED_DATE.getFieldName(), -1)
+        .append(DaoFieldNames.ID.getFieldName(), 1));
+    createIndex(datastore, WorkflowExecution.class, new BasicDBObject()
+        .append(DaoFieldNames.WORKFLOW_STATUS.getFieldName(), 1)
+        .append(DaoFieldNames.UPDATED_DATE.getFieldName(), 1));
+    createIndex(datastore, ScheduledWorkflow.class,
+        new BasicDBObject(DaoFieldNames.NEXT_FIRE_TIME.getFieldName(), 1));
+
+    // Drop the indexes that are replaced by (i.e. that are a prefix of) a compound index.
+    dropIndexIfPresent(datastore, WorkflowExecution.class, REPLACED_WORKFLOW_EXECUTION_INDEX);
+
     // Initialize the DatasetIdSequence if required.
     final DatasetIdSequence datasetIdSequence = datastore.find(DatasetIdSequence.class).get();
     if (datasetIdSequence == null) {
@@ -94,6 +130,21 @@ public class MorphiaDatastoreProviderImpl implements MorphiaDatastoreProvider {
     }
   }
 
+  private static void createIndex(Datastore datastore, Class<?> type, BasicDBObject keys) {
+    // This does nothing if the index already exists.
+    datastore.getCollection(type).createIndex(keys, new BasicDBObject("background", true));
+  }
+
+  private static void dropIndexIfPresent(Datastore datastore, Class<?> type, String indexName) {
+    final DBCollection collection = datastore.getCollection(type);
+    final boolean present = collection.getIndexInfo().stream()
+        .anyMatch(index -> indexName.equals(index.get("name")));
+    if (present) {
+      collection.dropIndex(indexName);
+      LOGGER.info("Dropped index {} of collection {}.", indexName, collection.getName());
+    }
+  }
+
   @Override
   public Datastore getDatastore() {
     return datastore;
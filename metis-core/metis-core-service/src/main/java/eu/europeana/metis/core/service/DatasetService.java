@@ -4,6 +4,7 @@ import eu.europeana.metis.CommonStringValues;
 import eu.europeana.metis.RestEndpoints;
 import eu.europeana.metis.authentication.user.MetisUser;
 import eu.europeana.metis.core.dao.DatasetDao;
+import eu.europeana.metis.core.dao.DatasetExecutionSummaryDao;
 import eu.europeana.metis.core.dao.DatasetXsltDao;
 import eu.europeana.metis.core.dao.ScheduledWorkflowDao;
 import eu.europeana.metis.core.dao.WorkflowDao;
@@ -64,6 +65,7 @@ public class DatasetService {
   private final WorkflowDao workflowDao;
   private final WorkflowExecutionDao workflowExecutionDao;
   private final ScheduledWorkflowDao scheduledWorkflowDao;
+  private final DatasetExecutionSummaryDao datasetExecutionSummaryDao;
   private final RedissonClient redissonClient;
   private String metisCoreUrl; //Initialize with setter
 
@@ -75,19 +77,23 @@ public class DatasetService {
    * @param workflowDao the Dao instance to access the Workflow database
    * @param workflowExecutionDao the Dao instance to access the WorkflowExecution database
    * @param scheduledWorkflowDao the Dao instance to access the ScheduledWorkflow database
+   * @param datasetExecutionSummaryDao the Dao instance to access the DatasetExecutionSummary
+   * database
    * @param redissonClient the redisson client used for distributed locks
    * @param authorizer the authorizer for this service
    */
   @Autowired
   public DatasetService(DatasetDao datasetDao, DatasetXsltDao datasetXsltDao,
       WorkflowDao workflowDao, WorkflowExecutionDao workflowExecutionDao,
-      ScheduledWorkflowDao scheduledWorkflowDao, RedissonClient redissonClient,
+      ScheduledWorkflowDao scheduledWorkflowDao,
+      DatasetExecutionSummaryDao datasetExecutionSummaryDao, RedissonClient redissonClient,
       Authorizer authorizer) {
     this.datasetDao = datasetDao;
     this.datasetXsltDao = datasetXsltDao;
     this.workflowDao = workflowDao;
     this.workflowExecutionDao = workflowExecutionDao;
     this.scheduledWorkflowDao = scheduledWorkflowDao;
+    this.datasetExecutionSummaryDao = datasetExecutionSummaryDao;
     this.redissonClient = redissonClient;
     this.authorizer = authorizer;
   }
@@ -251,6 +257,7 @@ public class DatasetService {
     workflowDao.deleteWorkflow(datasetId);
     workflowExecutionDao.deleteAllByDatasetId(datasetId);
     scheduledWorkflowDao.deleteAllByDatasetId(datasetId);
+    datasetExecutionSummaryDao.deleteByDatasetId(datasetId);
   }
 
   /**
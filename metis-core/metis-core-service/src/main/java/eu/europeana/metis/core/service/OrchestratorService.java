@@ -1,9 +1,11 @@
 package eu.europeana.metis.core.service;
 
+import eu.europeana.metis.CommonStringValues;
 import eu.europeana.metis.authentication.user.AccountRole;
 import eu.europeana.metis.authentication.user.MetisUser;
 import eu.europeana.metis.core.common.DaoFieldNames;
 import eu.europeana.metis.core.dao.DatasetDao;
+import eu.europeana.metis.core.dao.DatasetExecutionSummaryDao;
 import eu.europeana.metis.core.dao.WorkflowDao;
 import eu.europeana.metis.core.dao.WorkflowExecutionDao;
 import eu.europeana.metis.core.dao.WorkflowExecutionDao.ExecutionDatasetPair;
@@ -12,6 +14,7 @@ import eu.europeana.metis.core.dao.WorkflowExecutionDao.ResultList;
 import eu.europeana.metis.core.dao.WorkflowUtils;
 import eu.europeana.metis.core.dataset.Dataset;
 import eu.europeana.metis.core.dataset.DatasetExecutionInformation;
+import eu.europeana.metis.core.dataset.DatasetExecutionSummary;
 import eu.europeana.metis.core.exceptions.NoDatasetFoundException;
 import eu.europeana.metis.core.exceptions.NoWorkflowExecutionFoundException;
 import eu.europeana.metis.core.exceptions.NoWorkflowFoundException;
@@ -31,7 +34,6 @@ import eu.europeana.metis.core.workflow.Workflow;
 import eu.europeana.metis.core.workflow.WorkflowExecution;
 import eu.europeana.metis.core.workflow.WorkflowStatus;
 import eu.europeana.metis.core.workflow.plugins.AbstractMetisPlugin;
-import eu.europeana.metis.core.workflow.plugins.DataStatus;
 import eu.europeana.metis.core.workflow.plugins.ExecutablePlugin;
 import eu.europeana.metis.core.workflow.plugins.ExecutablePluginType;
 import eu.europeana.metis.core.workflow.plugins.ExecutionProgress;
@@ -88,6 +90,7 @@ public class OrchestratorService {
   private final WorkflowUtils workflowUtils;
   private final WorkflowDao workflowDao;
   private final DatasetDao datasetDao;
+  private final DatasetExecutionSummaryDao datasetExecutionSummaryDao;
   private final WorkflowExecutorManager workflowExecutorManager;
   private final RedissonClient redissonClient;
   private final Authorizer authorizer;
@@ -101,6 +104,8 @@ public class OrchestratorService {
    * @param workflowExecutionDao the Dao instance to access the WorkflowExecution database
    * @param workflowUtils The utilities class providing more functionality on top of DAOs.
    * @param datasetDao the Dao instance to access the Dataset database
+   * @param datasetExecutionSummaryDao the Dao instance to access the execution summaries of
+   * datasets
    * @param workflowExecutionFactory the orchestratorHelper instance
    * @param workflowExecutorManager the instance that handles the production and consumption of
    * workflowExecutions
@@ -111,6 +116,7 @@ public class OrchestratorService {
   public OrchestratorService(WorkflowExecutionFactory workflowExecutionFactory,
       WorkflowDao workflowDao, WorkflowExecutionDao workflowExecutionDao,
       WorkflowUtils workflowUtils, DatasetDao datasetDao,
+      DatasetExecutionSummaryDao datasetExecutionSummaryDao,
       WorkflowExecutorManager workflowExecutorManager, RedissonClient redissonClient,
       Authorizer authorizer) {
     this.workflowExecutionFactory = workflowExecutionFactory;
@@ -118,6 +124,7 @@ public class OrchestratorService {
     this.workflowExecutionDao = workflowExecutionDao;
     this.workflowUtils = workflowUtils;
     this.datasetDao = datasetDao;
+    this.datasetExecutionSummaryDao = datasetExecutionSummaryDao;
     this.workflowExecutorManager = workflowExecutorManager;
     this.redissonClient = redissonClient;
     this.authorizer = authorizer;
@@ -473,20 +480,8 @@ public class OrchestratorService {
       String datasetId, Set<WorkflowStatus> workflowStatuses, DaoFieldNames orderField,
       boolean ascending, int nextPage) throws GenericMetisException {
 
-    // Authorize
-    if (datasetId == null) {
-      authorizer.authorizeReadAllDatasets(metisUser);
-    } else {
-      authorizer.authorizeReadExistingDatasetById(metisUser, datasetId);
-    }
-
-    // Determine the dataset IDs to filter on.
-    final Set<String> datasetIds;
-    if (datasetId == null) {
-      datasetIds = getDatasetIdsToFilterOn(metisUser);
-    } else {
-      datasetIds = Collections.singleton(datasetId);
-    }
+    // Authorize and determine the dataset IDs to filter on.
+    final Set<String> datasetIds = authorizeAndGetDatasetIdsToFilterOn(metisUser, datasetId);
 
     // Find the executions.
     final ResultList<WorkflowExecution> data = workflowExecutionDao.getAllWorkflowExecutions(
@@ -496,9 +491,75 @@ public class OrchestratorService {
     final ResponseListWrapper<WorkflowExecution> result = new ResponseListWrapper<>();
     result.setResultsAndLastPage(data.getResults(), getWorkflowExecutionsPerRequest(), nextPage,
         data.isMaxResultCountReached());
+    result.setNextPageToken(data.getNextPageToken());
+    return result;
+  }
+
+  /**
+   * Get all WorkflowExecutions paged, continuing from the position marked by a continuation token
+   * that was returned with the previous page. This is only supported when ordering on
+   * {@link DaoFieldNames#ID} or {@link DaoFieldNames#CREATED_DATE}. If no continuation token is
+   * given, the requested page is returned instead (see
+   * {@link #getAllWorkflowExecutions(MetisUser, String, Set, DaoFieldNames, boolean, int)}).
+   *
+   * @param metisUser the user wishing to perform this operation
+   * @param datasetId the dataset identifier filter, can be null to get all datasets
+   * @param workflowStatuses a set of workflow statuses to filter, can be empty or null
+   * @param orderField the field to be used to sort the results
+   * @param ascending a boolean value to request the ordering to ascending or descending
+   * @param nextPage the nextPage token (ignored if a continuation token is given)
+   * @param continuationToken the continuation token returned with the previous page. Can be null.
+   * @return A list of all the WorkflowExecutions found. If the user is not admin, the list is
+   * filtered to only show those executions that are in the user's organization.
+   * @throws GenericMetisException which can be one of:
+   * <ul>
+   * <li>{@link BadContentException} if the continuation token is not valid</li>
+   * <li>{@link NoDatasetFoundException} if the dataset identifier provided does not exist</li>
+   * <li>{@link UserUnauthorizedException} if the user is not authorized to perform this task</li>
+   * </ul>
+   */
+  public ResponseListWrapper<WorkflowExecution> getAllWorkflowExecutions(MetisUser metisUser,
+      String datasetId, Set<WorkflowStatus> workflowStatuses, DaoFieldNames orderField,
+      boolean ascending, int nextPage, String continuationToken) throws GenericMetisException {
+
+    // Without a continuation token, we serve the requested page.
+    if (continuationToken == null) {
+      return getAllWorkflowExecutions(metisUser, datasetId, workflowStatuses, orderField,
+          ascending, nextPage);
+    }
+
+    // Authorize and determine the dataset IDs to filter on.
+    final Set<String> datasetIds = authorizeAndGetDatasetIdsToFilterOn(metisUser, datasetId);
+
+    // Find the executions.
+    final ResultList<WorkflowExecution> data;
+    try {
+      data = workflowExecutionDao.getAllWorkflowExecutions(datasetIds, workflowStatuses,
+          orderField, ascending, continuationToken, false);
+    } catch (IllegalArgumentException e) {
+      throw new BadContentException(CommonStringValues.CONTINUATION_TOKEN_IS_NOT_VALID, e);
+    }
+
+    // Compile and return the result.
+    final ResponseListWrapper<WorkflowExecution> result = new ResponseListWrapper<>();
+    result.setResultsAndNextPageToken(data.getResults(), data.getNextPageToken(),
+        data.isMaxResultCountReached());
     return result;
   }
 
+  private Set<String> authorizeAndGetDatasetIdsToFilterOn(MetisUser metisUser, String datasetId)
+      throws GenericMetisException {
+    final Set<String> datasetIds;
+    if (datasetId == null) {
+      authorizer.authorizeReadAllDatasets(metisUser);
+      datasetIds = getDatasetIdsToFilterOn(metisUser);
+    } else {
+      authorizer.authorizeReadExistingDatasetById(metisUser, datasetId);
+      datasetIds = Collections.singleton(datasetId);
+    }
+    return datasetIds;
+  }
+
   /**
    * Get the overview of WorkflowExecutions. This returns a list of executions ordered to display an
    * overview. First the ones in queue, then those in progress and then those that are finalized.
@@ -532,6 +593,55 @@ public class OrchestratorService {
     final ResponseListWrapper<ExecutionAndDatasetView> result = new ResponseListWrapper<>();
     result.setResultsAndLastPage(views, getWorkflowExecutionsPerRequest(), nextPage, pageCount,
         data.isMaxResultCountReached());
+    result.setNextPageToken(data.getNextPageToken());
+    return result;
+  }
+
+  /**
+   * Get the overview of WorkflowExecutions, continuing from the position marked by a continuation
+   * token that was returned with the previous page. If no continuation token is given, the
+   * requested page is returned instead. See
+   * {@link #getWorkflowExecutionsOverview(MetisUser, Set, Set, Date, Date, int, int)}.
+   *
+   * @param metisUser the user wishing to perform this operation
+   * @param pluginStatuses the plugin statuses to filter. Can be null.
+   * @param pluginTypes the plugin types to filter. Can be null.
+   * @param fromDate the date from where the results should start. Can be null.
+   * @param toDate the date to where the results should end. Can be null.
+   * @param nextPage the nextPage token (ignored if a continuation token is given)
+   * @param continuationToken the continuation token returned with the previous page. Can be null.
+   * @param pageCount the number of pages that are requested
+   * @return a list of all the WorkflowExecutions together with the datasets that they belong to.
+   * @throws GenericMetisException which can be one of:
+   * <ul>
+   * <li>{@link BadContentException} if the continuation token is not valid</li>
+   * <li>{@link eu.europeana.metis.exception.UserUnauthorizedException} if the user is not
+   * authenticated or authorized to perform this operation</li>
+   * </ul>
+   */
+  public ResponseListWrapper<ExecutionAndDatasetView> getWorkflowExecutionsOverview(
+      MetisUser metisUser, Set<PluginStatus> pluginStatuses, Set<PluginType> pluginTypes,
+      Date fromDate, Date toDate, int nextPage, String continuationToken, int pageCount)
+      throws GenericMetisException {
+    if (continuationToken == null) {
+      return getWorkflowExecutionsOverview(metisUser, pluginStatuses, pluginTypes, fromDate,
+          toDate, nextPage, pageCount);
+    }
+    authorizer.authorizeReadAllDatasets(metisUser);
+    final Set<String> datasetIds = getDatasetIdsToFilterOn(metisUser);
+    final ResultList<ExecutionDatasetPair> data;
+    try {
+      data = workflowExecutionDao.getWorkflowExecutionsOverview(datasetIds, pluginStatuses,
+          pluginTypes, fromDate, toDate, continuationToken, pageCount);
+    } catch (IllegalArgumentException e) {
+      throw new BadContentException(CommonStringValues.CONTINUATION_TOKEN_IS_NOT_VALID, e);
+    }
+    final List<ExecutionAndDatasetView> views = data.getResults().stream()
+        .map(result -> new ExecutionAndDatasetView(result.getExecution(), result.getDataset()))
+        .collect(Collectors.toList());
+    final ResponseListWrapper<ExecutionAndDatasetView> result = new ResponseListWrapper<>();
+    result.setResultsAndNextPageToken(views, data.getNextPageToken(),
+        data.isMaxResultCountReached());
     return result;
   }
 
@@ -547,7 +657,9 @@ public class OrchestratorService {
   }
 
   /**
-   * Retrieve dataset level information of past executions {@link DatasetExecutionInformation}
+   * Retrieve dataset level information of past executions {@link DatasetExecutionInformation}.
+   * This information is taken from the execution summary of the dataset, which is built from the
+   * execution history (and saved) if it does not exist yet.
    *
    * @param metisUser the user wishing to perform this operation
    * @param datasetId the dataset identifier to generate the information for
@@ -561,6 +673,57 @@ public class OrchestratorService {
   public DatasetExecutionInformation getDatasetExecutionInformation(MetisUser metisUser,
       String datasetId) throws GenericMetisException {
     authorizer.authorizeReadExistingDatasetById(metisUser, datasetId);
+    final DatasetExecutionSummary summary = Optional
+        .ofNullable(datasetExecutionSummaryDao.getByDatasetId(datasetId))
+        .orElseGet(() -> createDatasetExecutionSummary(datasetId));
+    return createDatasetExecutionInformation(summary);
+  }
+
+  private DatasetExecutionSummary createDatasetExecutionSummary(String datasetId) {
+
+    // Create the summary, unless it was created in the meantime.
+    final DatasetExecutionSummary summary = buildDatasetExecutionSummary(datasetId);
+    if (datasetExecutionSummaryDao.createIfAbsent(summary)) {
+
+      // Plugins that finished while building the summary could not update it (as it did not exist
+      // yet). So we check the execution history again, now that they will update it.
+      datasetExecutionSummaryDao.registerExecutionHistory(buildDatasetExecutionSummary(datasetId));
+    }
+    return Optional.ofNullable(datasetExecutionSummaryDao.getByDatasetId(datasetId))
+        .orElse(summary);
+  }
+
+  /**
+   * Rebuild the execution summary of a dataset from its execution history and retrieve the
+   * resulting dataset level information of past executions {@link DatasetExecutionInformation}.
+   * The last failure can not be derived from the execution history: it is kept from the existing
+   * summary.
+   *
+   * @param metisUser the user wishing to perform this operation
+   * @param datasetId the dataset identifier to rebuild the information for
+   * @return the structured class containing all the execution information
+   * @throws GenericMetisException which can be one of:
+   * <ul>
+   * <li>{@link NoDatasetFoundException} if the dataset identifier provided does not exist</li>
+   * <li>{@link UserUnauthorizedException} if the user is not authorized to perform this task</li>
+   * </ul>
+   */
+  public DatasetExecutionInformation rebuildDatasetExecutionInformation(MetisUser metisUser,
+      String datasetId) throws GenericMetisException {
+    authorizer.authorizeWriteExistingDatasetById(metisUser, datasetId);
+
+    // Replace the information derived from the execution history (leaving the last failure).
+    final DatasetExecutionSummary summary = buildDatasetExecutionSummary(datasetId);
+    datasetExecutionSummaryDao.replaceExecutionHistory(summary);
+
+    // Plugins that finished while building the summary may have been overwritten by the above. So
+    // we check the execution history again, now that the summary will no longer be overwritten.
+    datasetExecutionSummaryDao.registerExecutionHistory(buildDatasetExecutionSummary(datasetId));
+    return createDatasetExecutionInformation(Optional
+        .ofNullable(datasetExecutionSummaryDao.getByDatasetId(datasetId)).orElse(summary));
+  }
+
+  private DatasetExecutionSummary buildDatasetExecutionSummary(String datasetId) {
 
     // Obtain the relevant parts of the execution history
     final ExecutablePlugin lastHarvestPlugin = Optional.ofNullable(workflowExecutionDao
@@ -579,61 +742,89 @@ public class OrchestratorService {
     final MetisPlugin lastPublishPlugin = workflowExecutionDao
         .getLatestSuccessfulPlugin(datasetId, PUBLISH_TYPES);
 
-    // Obtain the relevant current executions
-    final WorkflowExecution runningOrInQueueExecution = workflowExecutionDao
-        .getRunningOrInQueueExecution(datasetId);
-    final boolean isPreviewCleaningOrRunning = isPluginInWorkflowCleaningOrRunning(
-        runningOrInQueueExecution, PREVIEW_TYPES);
-    final boolean isPublishCleaningOrRunning = isPluginInWorkflowCleaningOrRunning(
-        runningOrInQueueExecution, PUBLISH_TYPES);
-
     // Set the last harvest information
-    final DatasetExecutionInformation executionInfo = new DatasetExecutionInformation();
+    final DatasetExecutionSummary summary = new DatasetExecutionSummary(datasetId);
     if (lastHarvestPlugin != null) {
-      executionInfo.setLastHarvestedDate(lastHarvestPlugin.getFinishedDate());
-      executionInfo.setLastHarvestedRecords(
-          lastHarvestPlugin.getExecutionProgress().getProcessedRecords() - lastHarvestPlugin
-              .getExecutionProgress().getErrors());
+      summary.setLastHarvestedDate(lastHarvestPlugin.getFinishedDate());
+      summary.setLastHarvestedRecords(DatasetExecutionSummaryDao.getRecordCount(lastHarvestPlugin));
     }
 
     // Set the first publication information
-    executionInfo.setFirstPublishedDate(firstPublishPlugin == null ? null :
+    summary.setFirstPublishedDate(firstPublishPlugin == null ? null :
         firstPublishPlugin.getFinishedDate());
 
     // Set the last preview information
-    final Date now = new Date();
     if (lastPreviewPlugin != null) {
-      executionInfo.setLastPreviewDate(lastPreviewPlugin.getFinishedDate());
-      executionInfo.setLastPreviewRecordsReadyForViewing(
-          !isPreviewCleaningOrRunning && isPreviewOrPublishReadyForViewing(lastPreviewPlugin, now));
+      summary.setLastPreviewDate(lastPreviewPlugin.getFinishedDate());
+      summary.setLastPreviewDataValid(DatasetExecutionSummaryDao.isDataValid(lastPreviewPlugin));
     }
     if (lastExecutablePreviewPlugin != null) {
-      executionInfo.setLastPreviewRecords(
-          lastExecutablePreviewPlugin.getExecutionProgress().getProcessedRecords()
-              - lastExecutablePreviewPlugin.getExecutionProgress().getErrors());
+      summary.setLastPreviewRecords(
+          DatasetExecutionSummaryDao.getRecordCount(lastExecutablePreviewPlugin));
     }
 
     // Set the last publish information
     if (lastPublishPlugin != null) {
-      executionInfo.setLastPublishedDate(lastPublishPlugin.getFinishedDate());
-      executionInfo.setLastPublishedRecordsReadyForViewing(
-          !isPublishCleaningOrRunning && isPreviewOrPublishReadyForViewing(lastPublishPlugin, now));
+      summary.setLastPublishedDate(lastPublishPlugin.getFinishedDate());
+      summary.setLastPublishedDataValid(DatasetExecutionSummaryDao.isDataValid(lastPublishPlugin));
     }
     if (lastExecutablePublishPlugin != null) {
-      executionInfo.setLastPublishedRecords(
-          lastExecutablePublishPlugin.getExecutionProgress().getProcessedRecords()
-              - lastExecutablePublishPlugin.getExecutionProgress().getErrors());
+      summary.setLastPublishedRecords(
+          DatasetExecutionSummaryDao.getRecordCount(lastExecutablePublishPlugin));
     }
 
+    // Done.
+    return summary;
+  }
+
+  private DatasetExecutionInformation createDatasetExecutionInformation(
+      DatasetExecutionSummary summary) {
+
+    // Obtain the relevant current executions
+    final WorkflowExecution runningOrInQueueExecution = workflowExecutionDao
+        .getRunningOrInQueueExecution(summary.getDatasetId());
+    final boolean isPreviewCleaningOrRunning = isPluginInWorkflowCleaningOrRunning(
+        runningOrInQueueExecution, PREVIEW_TYPES);
+    final boolean isPublishCleaningOrRunning = isPluginInWorkflowCleaningOrRunning(
+        runningOrInQueueExecution, PUBLISH_TYPES);
+
+    // Set the last harvest and the first publication information
+    final DatasetExecutionInformation executionInfo = new DatasetExecutionInformation();
+    executionInfo.setLastHarvestedDate(summary.getLastHarvestedDate());
+    executionInfo.setLastHarvestedRecords(summary.getLastHarvestedRecords());
+    executionInfo.setFirstPublishedDate(summary.getFirstPublishedDate());
+
+    // Set the last preview information
+    final Date now = new Date();
+    executionInfo.setLastPreviewDate(summary.getLastPreviewDate());
+    executionInfo.setLastPreviewRecords(summary.getLastPreviewRecords());
+    if (summary.getLastPreviewDate() != null) {
+      executionInfo.setLastPreviewRecordsReadyForViewing(
+          !isPreviewCleaningOrRunning && isPreviewOrPublishReadyForViewing(
+              summary.isLastPreviewDataValid(), summary.getLastPreviewDate(), now));
+    }
+
+    // Set the last publish information
+    executionInfo.setLastPublishedDate(summary.getLastPublishedDate());
+    executionInfo.setLastPublishedRecords(summary.getLastPublishedRecords());
+    if (summary.getLastPublishedDate() != null) {
+      executionInfo.setLastPublishedRecordsReadyForViewing(
+          !isPublishCleaningOrRunning && isPreviewOrPublishReadyForViewing(
+              summary.isLastPublishedDataValid(), summary.getLastPublishedDate(), now));
+    }
+
+    // Set the last failure information
+    executionInfo.setLastFailedDate(summary.getLastFailedDate());
+    executionInfo.setLastFailedPluginType(summary.getLastFailedPluginType());
+
     // Done.
     return executionInfo;
   }
 
-  private boolean isPreviewOrPublishReadyForViewing(MetisPlugin plugin, Date now) {
-    final boolean dataIsValid = !(plugin instanceof ExecutablePlugin)
-        || ExecutablePlugin.getDataStatus((ExecutablePlugin) plugin) == DataStatus.VALID;
+  private boolean isPreviewOrPublishReadyForViewing(boolean dataIsValid, Date finishedDate,
+      Date now) {
     final boolean enoughTimeHasPassed = getSolrCommitPeriodInMins() <
-        DateUtils.calculateDateDifference(plugin.getFinishedDate(), now, TimeUnit.MINUTES);
+        DateUtils.calculateDateDifference(finishedDate, now, TimeUnit.MINUTES);
     return dataIsValid && enoughTimeHasPassed;
   }
 
@@ -29,6 +29,7 @@ import eu.europeana.metis.core.workflow.plugins.AbstractMetisPlugin;
 import eu.europeana.metis.core.workflow.plugins.ExecutablePluginType;
 import eu.europeana.metis.core.workflow.plugins.MetisPlugin;
 import eu.europeana.metis.core.workflow.plugins.PluginType;
+import eu.europeana.metis.exception.BadContentException;
 import eu.europeana.metis.exception.ExternalTaskException;
 import eu.europeana.metis.exception.GenericMetisException;
 import java.io.IOException;
@@ -38,8 +39,22 @@ import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
@@ -52,6 +67,13 @@ import org.apache.commons.lang3.tuple.Pair;
  */
 public class ProxiesService {
 
+  private static final int DEFAULT_MAX_CONCURRENT_RECORD_REQUESTS = 10;
+  private static final int DEFAULT_RECORD_REQUEST_TIMEOUT_IN_SECS = 60;
+  private static final int DEFAULT_CONTENT_URI_CACHE_TIME_TO_LIVE_IN_SECS = 300;
+  private static final int DEFAULT_MAX_RECORDS_PER_REQUEST = 100;
+  private static final int MAX_QUEUED_RECORD_REQUESTS_PER_THREAD = 10;
+  private static final int MAX_CONTENT_URI_CACHE_SIZE = 10_000;
+
   protected final DateFormat pluginDateFormatForEcloud = new SimpleDateFormat(
       "yyyy-MM-dd'T'HH:mm:ss.SSSXXX", Locale.US);
 
@@ -63,6 +85,14 @@ public class ProxiesService {
   private final String ecloudProvider;
   private final Authorizer authorizer;
   private final ProxiesHelper proxiesHelper;
+  private final Map<ContentUriKey, CachedContentUri> contentUriCache = new ConcurrentHashMap<>();
+  private ThreadPoolExecutor recordRequestExecutor;
+  private boolean closed = false;
+
+  private int maxConcurrentRecordRequests = DEFAULT_MAX_CONCURRENT_RECORD_REQUESTS; //Use setter otherwise default
+  private int recordRequestTimeoutInSecs = DEFAULT_RECORD_REQUEST_TIMEOUT_IN_SECS; //Use setter otherwise default
+  private int contentUriCacheTimeToLiveInSecs = DEFAULT_CONTENT_URI_CACHE_TIME_TO_LIVE_IN_SECS; //Use setter otherwise default
+  private int maxRecordsPerRequest = DEFAULT_MAX_RECORDS_PER_REQUEST; //Use setter otherwise default
 
   /**
    * Constructor with required parameters.
@@ -319,8 +349,8 @@ public class ProxiesService {
     final String datasetId = executionAndPlugin.getLeft().getEcloudDatasetId();
     final String representationName = MetisPlugin.getRepresentationName();
     final String revisionName = executionAndPlugin.getRight().getPluginType().name();
-    final String revisionTimestamp = pluginDateFormatForEcloud
-        .format(executionAndPlugin.getRight().getStartedDate());
+    final String revisionTimestamp = formatRevisionTimestamp(
+        executionAndPlugin.getRight().getStartedDate());
     final ResultSlice<CloudTagsResponse> resultSlice;
     final String nextPageAfterResponse;
     try {
@@ -335,10 +365,11 @@ public class ProxiesService {
     }
 
     // Get the records themselves.
-    final List<Record> records = new ArrayList<>(resultSlice.getResults().size());
+    final List<String> cloudIds = new ArrayList<>(resultSlice.getResults().size());
     for (CloudTagsResponse cloudTagsResponse : resultSlice.getResults()) {
-      records.add(getRecord(executionAndPlugin.getRight(), cloudTagsResponse.getCloudId()));
+      cloudIds.add(cloudTagsResponse.getCloudId());
     }
+    final List<Record> records = getRecords(executionAndPlugin.getRight(), cloudIds);
 
     // Compile the result.
     return new PaginatedRecordsResponse(records, nextPageAfterResponse);
@@ -355,6 +386,8 @@ public class ProxiesService {
    * @return the list of records from the external resource
    * @throws GenericMetisException can be one of:
    * <ul>
+   * <li>{@link BadContentException} if more records are requested than allowed (see
+   * {@link #setMaxRecordsPerRequest(int)})</li>
    * <li>{@link MCSException} if an error occurred while retrieving the records from the external
    * resource</li>
    * <li>{@link eu.europeana.metis.exception.UserUnauthorizedException} if the user is not
@@ -367,6 +400,13 @@ public class ProxiesService {
       String workflowExecutionId, ExecutablePluginType pluginType, ListOfIds ecloudIds)
       throws GenericMetisException {
 
+    // Check the number of requested records.
+    final List<String> ids = ecloudIds.getIds();
+    if (ids.size() > maxRecordsPerRequest) {
+      throw new BadContentException(String.format(
+          "Too many records requested: %d. The maximum is %d.", ids.size(), maxRecordsPerRequest));
+    }
+
     // Get the right workflow execution and plugin type.
     final Pair<WorkflowExecution, AbstractExecutablePlugin> executionAndPlugin = getExecutionAndPlugin(
         metisUser, workflowExecutionId, pluginType);
@@ -377,10 +417,7 @@ public class ProxiesService {
     }
 
     // Get the records.
-    final List<Record> records = new ArrayList<>(ecloudIds.getIds().size());
-    for (String cloudId : ecloudIds.getIds()) {
-      records.add(getRecord(executionAndPlugin.getRight(), cloudId));
-    }
+    final List<Record> records = getRecords(executionAndPlugin.getRight(), ids);
 
     // Done.
     return new RecordsResponse(records);
@@ -407,15 +444,112 @@ public class ProxiesService {
     return null;
   }
 
+  /**
+   * Get the records with the given IDs. The records are requested in parallel (with a bound on the
+   * number of concurrent requests for all callers together), but the result is in the same order as
+   * the given IDs. The whole list is subject to one timeout: if not all records are available
+   * within this time, the request fails. This includes the time spent waiting for space in the
+   * queue of waiting requests if it is full.
+   */
+  List<Record> getRecords(AbstractExecutablePlugin plugin, List<String> ecloudIds)
+      throws ExternalTaskException {
+    final ThreadPoolExecutor executor = getRecordRequestExecutor();
+    final long deadlineInNanos =
+        System.nanoTime() + TimeUnit.SECONDS.toNanos(recordRequestTimeoutInSecs);
+    final List<Future<Record>> futures = new ArrayList<>(ecloudIds.size());
+    final List<Record> records = new ArrayList<>(ecloudIds.size());
+    try {
+
+      // Submit the requests.
+      for (String ecloudId : ecloudIds) {
+        futures.add(submitRecordRequest(executor, () -> getRecord(plugin, ecloudId),
+            deadlineInNanos));
+      }
+
+      // Collect the results in order. If one fails, the others are no longer needed.
+      for (Future<Record> future : futures) {
+        records.add(future.get(getRemainingNanos(deadlineInNanos), TimeUnit.NANOSECONDS));
+      }
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof ExternalTaskException) {
+        throw (ExternalTaskException) e.getCause();
+      }
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new ExternalTaskException("Getting record list with file content failed.", e);
+    } catch (TimeoutException e) {
+      throw new ExternalTaskException(String.format(
+          "Getting record list with file content timed out. externalTaskId: %s, pluginType: %s",
+          plugin.getExternalTaskId(), plugin.getPluginType()), e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ExternalTaskException("Interrupted while getting record list with file content.",
+          e);
+    } finally {
+      futures.forEach(future -> future.cancel(true));
+    }
+    return records;
+  }
+
+  private static Future<Record> submitRecordRequest(ThreadPoolExecutor executor,
+      Callable<Record> request, long deadlineInNanos)
+      throws TimeoutException, InterruptedException {
+    final FutureTask<Record> task = new FutureTask<>(request);
+    try {
+      executor.execute(task);
+    } catch (RejectedExecutionException e) {
+      if (executor.isShutdown()) {
+        throw e;
+      }
+      // The queue is full: wait for space in the queue, but not beyond the deadline. As the queue
+      // was full, all threads have been started and will pick up the task.
+      if (!executor.getQueue()
+          .offer(task, getRemainingNanos(deadlineInNanos), TimeUnit.NANOSECONDS)) {
+        throw new TimeoutException("No room in the queue for the record request.");
+      }
+    }
+    return task;
+  }
+
+  private static long getRemainingNanos(long deadlineInNanos) {
+    return Math.max(0, deadlineInNanos - System.nanoTime());
+  }
+
   Record getRecord(AbstractExecutablePlugin plugin, String ecloudId) throws ExternalTaskException {
 
+    // Get the content URI of the file of the representation: see if we have it already.
+    final String revisionTimestamp = formatRevisionTimestamp(plugin.getStartedDate());
+    final ContentUriKey cacheKey = new ContentUriKey(ecloudId, plugin.getPluginType(),
+        revisionTimestamp);
+    String contentUri = getCachedContentUri(cacheKey);
+    if (contentUri == null) {
+      contentUri = getContentUri(plugin, ecloudId, revisionTimestamp);
+      cacheContentUri(cacheKey, contentUri);
+    }
+
+    // Obtain the file contents belonging to this representation version.
+    try {
+      final InputStream inputStream = fileServiceClient.getFile(contentUri);
+      return new Record(ecloudId, IOUtils.toString(inputStream, StandardCharsets.UTF_8.name()));
+    } catch (MCSException e) {
+      throw new ExternalTaskException(String.format(
+          "Getting record list with file content failed. externalTaskId: %s, pluginType: %s",
+          plugin.getExternalTaskId(), plugin.getPluginType()), e);
+    } catch (IOException e) {
+      throw new ExternalTaskException("Problem while reading the contents of the file.", e);
+    }
+  }
+
+  private String getContentUri(AbstractExecutablePlugin plugin, String ecloudId,
+      String revisionTimestamp) throws ExternalTaskException {
+
     // Get the representation(s) for the given combination of plugin and record ID.
     final List<Representation> representations;
     try {
       representations = recordServiceClient
           .getRepresentationsByRevision(ecloudId, MetisPlugin.getRepresentationName(),
-              plugin.getPluginType().name(), ecloudProvider,
-              pluginDateFormatForEcloud.format(plugin.getStartedDate()));
+              plugin.getPluginType().name(), ecloudProvider, revisionTimestamp);
     } catch (MCSException e) {
       throw new ExternalTaskException(String.format(
           "Getting record list with file content failed. externalTaskId: %s, pluginType: %s, ecloudId: %s",
@@ -437,21 +571,176 @@ public class ProxiesService {
           plugin.getExternalTaskId(), plugin.getPluginType(), ecloudId));
     }
     final File file = representation.getFiles().get(0);
+    return file.getContentUri().toString();
+  }
 
-    // Obtain the file contents belonging to this representation version.
-    try {
-      final InputStream inputStream = fileServiceClient.getFile(file.getContentUri().toString());
-      return new Record(ecloudId, IOUtils.toString(inputStream, StandardCharsets.UTF_8.name()));
-    } catch (MCSException e) {
-      throw new ExternalTaskException(String.format(
-          "Getting record list with file content failed. externalTaskId: %s, pluginType: %s",
-          plugin.getExternalTaskId(), plugin.getPluginType()), e);
-    } catch (IOException e) {
-      throw new ExternalTaskException("Problem while reading the contents of the file.", e);
+  private String formatRevisionTimestamp(Date revisionTimestamp) {
+    // The date format is not thread-safe, and records are requested in parallel.
+    synchronized (pluginDateFormatForEcloud) {
+      return pluginDateFormatForEcloud.format(revisionTimestamp);
+    }
+  }
+
+  private String getCachedContentUri(ContentUriKey key) {
+    final CachedContentUri cachedContentUri = contentUriCache.get(key);
+    if (cachedContentUri == null) {
+      return null;
+    }
+    if (cachedContentUri.isExpired(System.currentTimeMillis())) {
+      contentUriCache.remove(key, cachedContentUri);
+      return null;
+    }
+    return cachedContentUri.contentUri;
+  }
+
+  private void cacheContentUri(ContentUriKey key, String contentUri) {
+    if (contentUriCacheTimeToLiveInSecs <= 0) {
+      return;
+    }
+
+    // Keep the cache bounded: remove expired entries, and if that is not enough, start over.
+    final long now = System.currentTimeMillis();
+    if (contentUriCache.size() >= MAX_CONTENT_URI_CACHE_SIZE) {
+      contentUriCache.values().removeIf(cachedContentUri -> cachedContentUri.isExpired(now));
+      if (contentUriCache.size() >= MAX_CONTENT_URI_CACHE_SIZE) {
+        contentUriCache.clear();
+      }
+    }
+    contentUriCache.put(key, new CachedContentUri(contentUri,
+        now + TimeUnit.SECONDS.toMillis(contentUriCacheTimeToLiveInSecs)));
+  }
+
+  private synchronized ThreadPoolExecutor getRecordRequestExecutor() {
+    if (closed) {
+      throw new IllegalStateException("The service is closed: no more records can be requested.");
+    }
+    if (recordRequestExecutor == null) {
+      final AtomicInteger threadCounter = new AtomicInteger(0);
+      recordRequestExecutor = new ThreadPoolExecutor(maxConcurrentRecordRequests,
+          maxConcurrentRecordRequests, 0L, TimeUnit.MILLISECONDS,
+          new LinkedBlockingQueue<>(maxConcurrentRecordRequests
+              * MAX_QUEUED_RECORD_REQUESTS_PER_THREAD),
+          runnable -> {
+            final Thread thread = new Thread(runnable,
+                "record-request-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+          });
+    }
+    return recordRequestExecutor;
+  }
+
+  /**
+   * Releases the resources held by this service: it stops the threads used for requesting records.
+   * After this method is called, no more records can be requested.
+   */
+  public synchronized void close() {
+    closed = true;
+    if (recordRequestExecutor != null) {
+      recordRequestExecutor.shutdownNow();
+    }
+  }
+
+  /**
+   * Set the maximum number of records that can be requested concurrently (for all callers
+   * together). This only has effect if set before the first records are requested. The default
+   * (when not calling this method or calling it with zero or a negative number) is {@value
+   * #DEFAULT_MAX_CONCURRENT_RECORD_REQUESTS}.
+   *
+   * @param maxConcurrentRecordRequests the maximum number of concurrent record requests
+   */
+  public void setMaxConcurrentRecordRequests(int maxConcurrentRecordRequests) {
+    this.maxConcurrentRecordRequests = maxConcurrentRecordRequests < 1
+        ? DEFAULT_MAX_CONCURRENT_RECORD_REQUESTS : maxConcurrentRecordRequests;
+  }
+
+  /**
+   * Set the maximum time to wait for all records when requesting a list of records. The default
+   * (when not calling this method or calling it with zero or a negative number) is {@value
+   * #DEFAULT_RECORD_REQUEST_TIMEOUT_IN_SECS} seconds.
+   *
+   * @param recordRequestTimeoutInSecs the timeout in seconds
+   */
+  public void setRecordRequestTimeoutInSecs(int recordRequestTimeoutInSecs) {
+    this.recordRequestTimeoutInSecs = recordRequestTimeoutInSecs < 1
+        ? DEFAULT_RECORD_REQUEST_TIMEOUT_IN_SECS : recordRequestTimeoutInSecs;
+  }
+
+  /**
+   * Set the time during which the location of a record's file is remembered, so that it does not
+   * need to be requested again when the same record is requested. If set to 0, nothing is
+   * remembered. The default (when not calling this method or calling it with a negative number) is
+   * {@value #DEFAULT_CONTENT_URI_CACHE_TIME_TO_LIVE_IN_SECS} seconds.
+   *
+   * @param contentUriCacheTimeToLiveInSecs the time to live in seconds
+   */
+  public void setContentUriCacheTimeToLiveInSecs(int contentUriCacheTimeToLiveInSecs) {
+    this.contentUriCacheTimeToLiveInSecs = contentUriCacheTimeToLiveInSecs < 0
+        ? DEFAULT_CONTENT_URI_CACHE_TIME_TO_LIVE_IN_SECS : contentUriCacheTimeToLiveInSecs;
+    if (this.contentUriCacheTimeToLiveInSecs == 0) {
+      contentUriCache.clear();
     }
   }
 
+  /**
+   * Set the maximum number of records that can be requested by ID in one request. The default
+   * (when not calling this method or calling it with zero or a negative number) is {@value
+   * #DEFAULT_MAX_RECORDS_PER_REQUEST}.
+   *
+   * @param maxRecordsPerRequest the maximum number of records per request
+   */
+  public void setMaxRecordsPerRequest(int maxRecordsPerRequest) {
+    this.maxRecordsPerRequest = maxRecordsPerRequest < 1 ? DEFAULT_MAX_RECORDS_PER_REQUEST
+        : maxRecordsPerRequest;
+  }
+
   String getEcloudProvider() {
     return ecloudProvider;
   }
+
+  private static final class ContentUriKey {
+
+    private final String ecloudId;
+    private final PluginType pluginType;
+    private final String revisionTimestamp;
+
+    ContentUriKey(String ecloudId, PluginType pluginType, String revisionTimestamp) {
+      this.ecloudId = ecloudId;
+      this.pluginType = pluginType;
+      this.revisionTimestamp = revisionTimestamp;
+    }
+
+    @Override
+    public boolean equals(Object otherObject) {
+      if (this == otherObject) {
+        return true;
+      }
+      if (otherObject == null || getClass() != otherObject.getClass()) {
+        return false;
+      }
+      final ContentUriKey other = (ContentUriKey) otherObject;
+      return Objects.equals(ecloudId, other.ecloudId) && pluginType == other.pluginType
+          && Objects.equals(revisionTimestamp, other.revisionTimestamp);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(ecloudId, pluginType, revisionTimestamp);
+    }
+  }
+
+  private static final class CachedContentUri {
+
+    private final String contentUri;
+    private final long expiryTimeInMillis;
+
+    CachedContentUri(String contentUri, long expiryTimeInMillis) {
+      this.contentUri = contentUri;
+      this.expiryTimeInMillis = expiryTimeInMillis;
+    }
+
+    boolean isExpired(long now) {
+      return now >= expiryTimeInMillis;
+    }
+  }
 }
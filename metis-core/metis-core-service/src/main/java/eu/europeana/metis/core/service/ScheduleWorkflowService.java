@@ -15,7 +15,7 @@ import eu.europeana.metis.core.workflow.Workflow;
 import eu.europeana.metis.exception.BadContentException;
 import eu.europeana.metis.exception.GenericMetisException;
 import eu.europeana.metis.exception.UserUnauthorizedException;
-import java.time.LocalDateTime;
+import java.util.Date;
 import java.util.List;
 import org.apache.commons.lang3.StringUtils;
 import org.bson.types.ObjectId;
@@ -88,6 +88,7 @@ public class ScheduleWorkflowService {
       throws GenericMetisException {
     authorizer.authorizeWriteExistingDatasetById(metisUser, scheduledWorkflow.getDatasetId());
     checkRestrictionsOnScheduleWorkflow(scheduledWorkflow);
+    scheduledWorkflow.setNextFireTime(scheduledWorkflow.calculateNextFireTime(new Date()));
     scheduledWorkflowDao.create(scheduledWorkflow);
   }
 
@@ -104,11 +105,48 @@ public class ScheduleWorkflowService {
   }
 
   // This method does not require authorization. It is called from a scheduled task.
-  public List<ScheduledWorkflow> getAllScheduledWorkflowsByDateRangeONCE(
-      LocalDateTime lowerBound,
-      LocalDateTime upperBound, int nextPage) {
+  public List<ScheduledWorkflow> getDueScheduledWorkflowsWithoutAuthorization(Date dueDate) {
+    return scheduledWorkflowDao.getDueScheduledWorkflows(dueDate);
+  }
+
+  /**
+   * Advances the next fire time of a scheduled workflow that is due to the first time after the
+   * given date. This is done atomically: if the scheduled workflow was already advanced (or
+   * changed) by someone else in the meantime, it is not changed and this method returns false.
+   * Note that if multiple occurrences were missed (e.g. because no scheduler was running), the
+   * scheduled workflow is fired only once for all of them. This method does not require
+   * authorization. It is called from a scheduled task.
+   *
+   * @param scheduledWorkflow the scheduled workflow that is due, as retrieved
+   * @param now the date after which the new next fire time should be
+   * @return whether the next fire time was advanced, meaning that the caller should fire the
+   * scheduled workflow
+   */
+  public boolean advanceNextFireTimeWithoutAuthorization(ScheduledWorkflow scheduledWorkflow,
+      Date now) {
+    final Date after = scheduledWorkflow.getNextFireTime() == null
+        || scheduledWorkflow.getNextFireTime().before(now) ? now
+        : scheduledWorkflow.getNextFireTime();
     return scheduledWorkflowDao
-        .getAllScheduledWorkflowsByDateRangeONCE(lowerBound, upperBound, nextPage);
+        .updateNextFireTime(scheduledWorkflow, scheduledWorkflow.calculateNextFireTime(after));
+  }
+
+  /**
+   * Sets the next fire time of the scheduled workflows that don't have one yet (i.e. that were
+   * stored before the next fire time was introduced). Scheduled workflows with frequence {@link
+   * ScheduleFrequence#ONCE} that are in the past are not considered. This method does not require
+   * authorization. It is called from a scheduled task.
+   *
+   * @param now the date after which the next fire times should be
+   */
+  public void initializeNextFireTimesWithoutAuthorization(Date now) {
+    for (ScheduledWorkflow scheduledWorkflow : scheduledWorkflowDao
+        .getScheduledWorkflowsWithoutNextFireTime(now)) {
+      final Date nextFireTime = scheduledWorkflow.calculateNextFireTime(now);
+      if (nextFireTime != null) {
+        scheduledWorkflowDao.updateNextFireTime(scheduledWorkflow, nextFireTime);
+      }
+    }
   }
 
   private void checkScheduledWorkflowExistenceForDatasetId(String datasetId)
@@ -126,6 +164,7 @@ public class ScheduleWorkflowService {
     authorizer.authorizeWriteExistingDatasetById(metisUser, scheduledWorkflow.getDatasetId());
     String storedId = checkRestrictionsOnScheduledWorkflowUpdate(scheduledWorkflow);
     scheduledWorkflow.setId(new ObjectId(storedId));
+    scheduledWorkflow.setNextFireTime(scheduledWorkflow.calculateNextFireTime(new Date()));
     scheduledWorkflowDao.update(scheduledWorkflow);
   }
 
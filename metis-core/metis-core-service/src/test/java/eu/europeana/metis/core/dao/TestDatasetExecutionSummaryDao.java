@@ -0,0 +1,224 @@
+package eu.europeana.metis.core.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.mongodb.MongoClient;
+import com.mongodb.ServerAddress;
+import dev.morphia.Datastore;
+import eu.europeana.metis.core.dataset.DatasetExecutionSummary;
+import eu.europeana.metis.core.mongo.MorphiaDatastoreProviderImpl;
+import eu.europeana.metis.core.workflow.plugins.AbstractExecutablePlugin;
+import eu.europeana.metis.core.workflow.plugins.AbstractExecutablePluginMetadata;
+import eu.europeana.metis.core.workflow.plugins.DataStatus;
+import eu.europeana.metis.core.workflow.plugins.ExecutablePluginFactory;
+import eu.europeana.metis.core.workflow.plugins.ExecutionProgress;
+import eu.europeana.metis.core.workflow.plugins.IndexToPublishPluginMetadata;
+import eu.europeana.metis.core.workflow.plugins.OaipmhHarvestPluginMetadata;
+import eu.europeana.metis.core.workflow.plugins.TransformationPluginMetadata;
+import eu.europeana.metis.mongo.EmbeddedLocalhostMongo;
+import java.util.Date;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class TestDatasetExecutionSummaryDao {
+
+  private static final String DATASET_ID = "1";
+
+  private static DatasetExecutionSummaryDao datasetExecutionSummaryDao;
+  private static EmbeddedLocalhostMongo embeddedLocalhostMongo;
+  private static MorphiaDatastoreProviderImpl provider;
+
+  @BeforeAll
+  static void prepare() {
+    embeddedLocalhostMongo = new EmbeddedLocalhostMongo();
+    embeddedLocalhostMongo.start();
+    String mongoHost = embeddedLocalhostMongo.getMongoHost();
+    int mongoPort = embeddedLocalhostMongo.getMongoPort();
+    ServerAddress address = new ServerAddress(mongoHost, mongoPort);
+    MongoClient mongoClient = new MongoClient(address);
+    provider = new MorphiaDatastoreProviderImpl(mongoClient, "test");
+
+    datasetExecutionSummaryDao = new DatasetExecutionSummaryDao(provider);
+  }
+
+  @AfterAll
+  static void destroy() {
+    embeddedLocalhostMongo.stop();
+  }
+
+  @AfterEach
+  void cleanUp() {
+    Datastore datastore = provider.getDatastore();
+    datastore.delete(datastore.createQuery(DatasetExecutionSummary.class));
+  }
+
+  private static AbstractExecutablePlugin createFinishedPlugin(
+      AbstractExecutablePluginMetadata metadata, Date finishedDate, int processedRecords) {
+    final ExecutionProgress executionProgress = new ExecutionProgress();
+    executionProgress.setProcessedRecords(processedRecords);
+    executionProgress.setErrors(1);
+    final AbstractExecutablePlugin plugin = ExecutablePluginFactory.createPlugin(metadata);
+    plugin.setFinishedDate(finishedDate);
+    plugin.setExecutionProgress(executionProgress);
+    return plugin;
+  }
+
+  @Test
+  void createIfAbsent() {
+    assertNull(datasetExecutionSummaryDao.getByDatasetId(DATASET_ID));
+
+    final DatasetExecutionSummary summary = new DatasetExecutionSummary(DATASET_ID);
+    summary.setLastHarvestedDate(new Date(1));
+    summary.setLastHarvestedRecords(10);
+    assertTrue(datasetExecutionSummaryDao.createIfAbsent(summary));
+    DatasetExecutionSummary storedSummary = datasetExecutionSummaryDao.getByDatasetId(DATASET_ID);
+    assertEquals(new Date(1), storedSummary.getLastHarvestedDate());
+    assertEquals(10, storedSummary.getLastHarvestedRecords());
+    assertNull(storedSummary.getLastPreviewDate());
+
+    // An existing summary should not be touched.
+    final DatasetExecutionSummary newSummary = new DatasetExecutionSummary(DATASET_ID);
+    newSummary.setLastPreviewDate(new Date(2));
+    assertFalse(datasetExecutionSummaryDao.createIfAbsent(newSummary));
+    storedSummary = datasetExecutionSummaryDao.getByDatasetId(DATASET_ID);
+    assertEquals(new Date(1), storedSummary.getLastHarvestedDate());
+    assertNull(storedSummary.getLastPreviewDate());
+    assertEquals(1, provider.getDatastore().getCount(DatasetExecutionSummary.class));
+  }
+
+  @Test
+  void deleteByDatasetId() {
+    datasetExecutionSummaryDao.createIfAbsent(new DatasetExecutionSummary(DATASET_ID));
+    datasetExecutionSummaryDao.createIfAbsent(new DatasetExecutionSummary("2"));
+
+    assertTrue(datasetExecutionSummaryDao.deleteByDatasetId(DATASET_ID));
+    assertNull(datasetExecutionSummaryDao.getByDatasetId(DATASET_ID));
+    assertNotNull(datasetExecutionSummaryDao.getByDatasetId("2"));
+    assertFalse(datasetExecutionSummaryDao.deleteByDatasetId(DATASET_ID));
+  }
+
+  @Test
+  void replaceExecutionHistory() {
+    final DatasetExecutionSummary summary = new DatasetExecutionSummary(DATASET_ID);
+    summary.setLastHarvestedDate(new Date(1));
+    summary.setLastFailedDate(new Date(3));
+    datasetExecutionSummaryDao.createIfAbsent(summary);
+
+    // The history is replaced, but the last failure is kept.
+    final DatasetExecutionSummary newSummary = new DatasetExecutionSummary(DATASET_ID);
+    newSummary.setLastPreviewDate(new Date(2));
+    datasetExecutionSummaryDao.replaceExecutionHistory(newSummary);
+    final DatasetExecutionSummary storedSummary = datasetExecutionSummaryDao
+        .getByDatasetId(DATASET_ID);
+    assertNull(storedSummary.getLastHarvestedDate());
+    assertEquals(new Date(2), storedSummary.getLastPreviewDate());
+    assertEquals(new Date(3), storedSummary.getLastFailedDate());
+
+    // A missing summary is created.
+    datasetExecutionSummaryDao.replaceExecutionHistory(new DatasetExecutionSummary("2"));
+    assertNotNull(datasetExecutionSummaryDao.getByDatasetId("2"));
+  }
+
+  @Test
+  void registerExecutionHistory() {
+    final DatasetExecutionSummary summary = new DatasetExecutionSummary(DATASET_ID);
+    summary.setLastHarvestedDate(new Date(2));
+    summary.setLastHarvestedRecords(20);
+    summary.setLastPreviewDate(new Date(2));
+    summary.setLastPreviewRecords(20);
+    summary.setFirstPublishedDate(new Date(2));
+    datasetExecutionSummaryDao.createIfAbsent(summary);
+
+    // Only more recent information (or an earlier first publication) should be applied.
+    final DatasetExecutionSummary history = new DatasetExecutionSummary(DATASET_ID);
+    history.setLastHarvestedDate(new Date(1));
+    history.setLastHarvestedRecords(10);
+    history.setLastPreviewDate(new Date(3));
+    history.setLastPreviewRecords(30);
+    history.setFirstPublishedDate(new Date(1));
+    datasetExecutionSummaryDao.registerExecutionHistory(history);
+    final DatasetExecutionSummary storedSummary = datasetExecutionSummaryDao
+        .getByDatasetId(DATASET_ID);
+    assertEquals(new Date(2), storedSummary.getLastHarvestedDate());
+    assertEquals(20, storedSummary.getLastHarvestedRecords());
+    assertEquals(new Date(3), storedSummary.getLastPreviewDate());
+    assertEquals(30, storedSummary.getLastPreviewRecords());
+    assertEquals(new Date(1), storedSummary.getFirstPublishedDate());
+  }
+
+  @Test
+  void registerFinishedPlugin() {
+    datasetExecutionSummaryDao.createIfAbsent(new DatasetExecutionSummary(DATASET_ID));
+
+    // Register a harvest
+    datasetExecutionSummaryDao.registerFinishedPlugin(DATASET_ID,
+        createFinishedPlugin(new OaipmhHarvestPluginMetadata(), new Date(1), 10));
+    DatasetExecutionSummary summary = datasetExecutionSummaryDao.getByDatasetId(DATASET_ID);
+    assertEquals(new Date(1), summary.getLastHarvestedDate());
+    assertEquals(9, summary.getLastHarvestedRecords());
+
+    // Register two publications: the first publication date should remain.
+    final AbstractExecutablePlugin firstPublishPlugin = createFinishedPlugin(
+        new IndexToPublishPluginMetadata(), new Date(2), 20);
+    datasetExecutionSummaryDao.registerFinishedPlugin(DATASET_ID, firstPublishPlugin);
+    final AbstractExecutablePlugin secondPublishPlugin = createFinishedPlugin(
+        new IndexToPublishPluginMetadata(), new Date(3), 30);
+    secondPublishPlugin.setDataStatus(DataStatus.DEPRECATED);
+    datasetExecutionSummaryDao.registerFinishedPlugin(DATASET_ID, secondPublishPlugin);
+    summary = datasetExecutionSummaryDao.getByDatasetId(DATASET_ID);
+    assertEquals(new Date(2), summary.getFirstPublishedDate());
+    assertEquals(new Date(3), summary.getLastPublishedDate());
+    assertEquals(29, summary.getLastPublishedRecords());
+    assertFalse(summary.isLastPublishedDataValid());
+
+    // Register an older harvest: nothing should change.
+    datasetExecutionSummaryDao.registerFinishedPlugin(DATASET_ID,
+        createFinishedPlugin(new OaipmhHarvestPluginMetadata(), new Date(0), 50));
+    summary = datasetExecutionSummaryDao.getByDatasetId(DATASET_ID);
+    assertEquals(new Date(1), summary.getLastHarvestedDate());
+    assertEquals(9, summary.getLastHarvestedRecords());
+
+    // Register an irrelevant plugin: nothing should change.
+    datasetExecutionSummaryDao.registerFinishedPlugin(DATASET_ID,
+        createFinishedPlugin(new TransformationPluginMetadata(), new Date(4), 40));
+    summary = datasetExecutionSummaryDao.getByDatasetId(DATASET_ID);
+    assertEquals(new Date(1), summary.getLastHarvestedDate());
+    assertEquals(new Date(3), summary.getLastPublishedDate());
+    assertNull(summary.getLastPreviewDate());
+  }
+
+  @Test
+  void registerFailedPlugin() {
+    datasetExecutionSummaryDao.createIfAbsent(new DatasetExecutionSummary(DATASET_ID));
+    final AbstractExecutablePlugin plugin = ExecutablePluginFactory
+        .createPlugin(new TransformationPluginMetadata());
+    datasetExecutionSummaryDao.registerFailedPlugin(DATASET_ID, plugin, new Date(5));
+    final DatasetExecutionSummary summary = datasetExecutionSummaryDao.getByDatasetId(DATASET_ID);
+    assertEquals(new Date(5), summary.getLastFailedDate());
+    assertEquals(plugin.getPluginType(), summary.getLastFailedPluginType());
+  }
+
+  @Test
+  void registerWithoutExistingSummary() {
+    datasetExecutionSummaryDao.registerFinishedPlugin(DATASET_ID,
+        createFinishedPlugin(new OaipmhHarvestPluginMetadata(), new Date(1), 10));
+    datasetExecutionSummaryDao.registerFailedPlugin(DATASET_ID,
+        ExecutablePluginFactory.createPlugin(new TransformationPluginMetadata()), new Date(2));
+    assertNull(datasetExecutionSummaryDao.getByDatasetId(DATASET_ID));
+  }
+
+  @Test
+  void isDataValid() {
+    final AbstractExecutablePlugin plugin = ExecutablePluginFactory
+        .createPlugin(new IndexToPublishPluginMetadata());
+    assertTrue(DatasetExecutionSummaryDao.isDataValid(plugin));
+    plugin.setDataStatus(DataStatus.DELETED);
+    assertFalse(DatasetExecutionSummaryDao.isDataValid(plugin));
+  }
+}
@@ -3,6 +3,7 @@ package eu.europeana.metis.core.dao;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.mongodb.MongoClient;
@@ -14,10 +15,11 @@ import eu.europeana.metis.core.utils.TestObjectFactory;
 import eu.europeana.metis.core.workflow.ScheduleFrequence;
 import eu.europeana.metis.core.workflow.ScheduledWorkflow;
 import eu.europeana.metis.mongo.EmbeddedLocalhostMongo;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
+import java.util.Arrays;
 import java.util.Date;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
@@ -189,36 +191,65 @@ class TestScheduledWorkflowDao {
   }
 
   @Test
-  void getAllScheduledUserWorkflowsByDateRangeONCE() {
-    int minutesRange = 10;
-    LocalDateTime lowerBound = LocalDateTime.now();
-    LocalDateTime upperBound = lowerBound.plusMinutes(minutesRange);
-
-    int scheduledUserWorkflowToCreate =
-        scheduledWorkflowDao.getScheduledWorkflowPerRequest() + 1;
-    for (int i = 0; i < scheduledUserWorkflowToCreate; i++) {
-      ScheduledWorkflow scheduledWorkflow = TestObjectFactory
-          .createScheduledWorkflowObject();
-      scheduledWorkflow.setDatasetId(Integer.toString(TestObjectFactory.DATASETID + i));
-      int plusMinutes = ThreadLocalRandom.current().nextInt(1, minutesRange);
-      Date pointerDate = Date
-          .from(lowerBound.plusMinutes(plusMinutes).atZone(ZoneId.systemDefault()).toInstant());
-      scheduledWorkflow.setPointerDate(pointerDate);
-      scheduledWorkflowDao.create(scheduledWorkflow);
-    }
-    int nextPage = 0;
-    int allScheduledUserWorkflowsCount = 0;
-    do {
-      ResponseListWrapper<ScheduledWorkflow> scheduledUserWorkflowResponseListWrapper = new ResponseListWrapper<>();
-      scheduledUserWorkflowResponseListWrapper.setResultsAndLastPage(
-          scheduledWorkflowDao
-              .getAllScheduledWorkflowsByDateRangeONCE(lowerBound, upperBound, nextPage),
-          scheduledWorkflowDao.getScheduledWorkflowPerRequest(), nextPage);
-      allScheduledUserWorkflowsCount += scheduledUserWorkflowResponseListWrapper.getListSize();
-      nextPage = scheduledUserWorkflowResponseListWrapper.getNextPage();
-    } while (nextPage != -1);
+  void getDueScheduledWorkflows() {
+    final Date now = new Date();
+    final Date past = new Date(now.getTime() - 1000);
+    final Date future = new Date(now.getTime() + 1000);
+    final ScheduledWorkflow due = TestObjectFactory.createScheduledWorkflowObject();
+    due.setNextFireTime(past);
+    scheduledWorkflowDao.create(due);
+    final ScheduledWorkflow dueNow = TestObjectFactory.createScheduledWorkflowObject();
+    dueNow.setDatasetId(Integer.toString(TestObjectFactory.DATASETID + 1));
+    dueNow.setNextFireTime(now);
+    scheduledWorkflowDao.create(dueNow);
+    final ScheduledWorkflow notDue = TestObjectFactory.createScheduledWorkflowObject();
+    notDue.setDatasetId(Integer.toString(TestObjectFactory.DATASETID + 2));
+    notDue.setNextFireTime(future);
+    scheduledWorkflowDao.create(notDue);
+    final ScheduledWorkflow withoutNextFire = TestObjectFactory.createScheduledWorkflowObject();
+    withoutNextFire.setDatasetId(Integer.toString(TestObjectFactory.DATASETID + 3));
+    withoutNextFire.setScheduleFrequence(ScheduleFrequence.DAILY);
+    scheduledWorkflowDao.create(withoutNextFire);
+    final ScheduledWorkflow expired = TestObjectFactory.createScheduledWorkflowObject();
+    expired.setDatasetId(Integer.toString(TestObjectFactory.DATASETID + 4));
+    expired.setPointerDate(past);
+    scheduledWorkflowDao.create(expired);
+    final ScheduledWorkflow onceInFuture = TestObjectFactory.createScheduledWorkflowObject();
+    onceInFuture.setDatasetId(Integer.toString(TestObjectFactory.DATASETID + 5));
+    onceInFuture.setPointerDate(future);
+    scheduledWorkflowDao.create(onceInFuture);
+
+    final List<ScheduledWorkflow> result = scheduledWorkflowDao.getDueScheduledWorkflows(now);
+    assertEquals(2, result.size());
+    assertEquals(due.getDatasetId(), result.get(0).getDatasetId());
+    assertEquals(dueNow.getDatasetId(), result.get(1).getDatasetId());
+
+    // Scheduled workflows with frequence ONCE that are in the past are not returned.
+    final List<ScheduledWorkflow> withoutNextFireTime = scheduledWorkflowDao
+        .getScheduledWorkflowsWithoutNextFireTime(now);
+    assertEquals(2, withoutNextFireTime.size());
+    assertEquals(new HashSet<>(Arrays.asList(withoutNextFire.getDatasetId(),
+        onceInFuture.getDatasetId())), withoutNextFireTime.stream()
+        .map(ScheduledWorkflow::getDatasetId).collect(Collectors.toSet()));
+  }
 
-    assertEquals(scheduledUserWorkflowToCreate, allScheduledUserWorkflowsCount);
+  @Test
+  void updateNextFireTime() {
+    final Date now = new Date();
+    final ScheduledWorkflow scheduledWorkflow = TestObjectFactory.createScheduledWorkflowObject();
+    scheduledWorkflow.setNextFireTime(now);
+    final String objectId = scheduledWorkflowDao.create(scheduledWorkflow);
+
+    // The first update succeeds, a second one based on the same next fire time fails.
+    final Date next = new Date(now.getTime() + 1000);
+    assertTrue(scheduledWorkflowDao.updateNextFireTime(scheduledWorkflow, next));
+    assertFalse(scheduledWorkflowDao.updateNextFireTime(scheduledWorkflow, next));
+    assertEquals(next, scheduledWorkflowDao.getById(objectId).getNextFireTime());
+
+    // Clearing the next fire time.
+    scheduledWorkflow.setNextFireTime(next);
+    assertTrue(scheduledWorkflowDao.updateNextFireTime(scheduledWorkflow, null));
+    assertNull(scheduledWorkflowDao.getById(objectId).getNextFireTime());
   }
 
 }
@@ -16,6 +16,8 @@ import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
 import com.mongodb.MongoClient;
 import com.mongodb.ServerAddress;
 import dev.morphia.Datastore;
@@ -28,6 +30,7 @@ import eu.europeana.metis.core.mongo.MorphiaDatastoreProviderImpl;
 import eu.europeana.metis.core.rest.ResponseListWrapper;
 import eu.europeana.metis.core.utils.TestObjectFactory;
 import eu.europeana.metis.core.workflow.CancelledSystemId;
+import eu.europeana.metis.core.workflow.ScheduledWorkflow;
 import eu.europeana.metis.core.workflow.WorkflowExecution;
 import eu.europeana.metis.core.workflow.WorkflowStatus;
 import eu.europeana.metis.core.workflow.plugins.AbstractExecutablePlugin;
@@ -43,7 +46,10 @@ import eu.europeana.metis.core.workflow.plugins.PluginStatus;
 import eu.europeana.metis.core.workflow.plugins.PluginType;
 import eu.europeana.metis.core.workflow.plugins.TransformationPluginMetadata;
 import eu.europeana.metis.mongo.EmbeddedLocalhostMongo;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collections;
 import java.util.Date;
 import java.util.EnumSet;
@@ -67,6 +73,7 @@ class TestWorkflowExecutionDao {
   private static WorkflowExecutionDao workflowExecutionDao;
   private static EmbeddedLocalhostMongo embeddedLocalhostMongo;
   private static MorphiaDatastoreProviderImpl provider;
+  private static MongoClient mongoClient;
 
   @BeforeAll
   static void prepare() {
@@ -75,7 +82,7 @@ class TestWorkflowExecutionDao {
     String mongoHost = embeddedLocalhostMongo.getMongoHost();
     int mongoPort = embeddedLocalhostMongo.getMongoPort();
     ServerAddress address = new ServerAddress(mongoHost, mongoPort);
-    MongoClient mongoClient = new MongoClient(address);
+    mongoClient = new MongoClient(address);
     provider = new MorphiaDatastoreProviderImpl(mongoClient, "test");
 
     workflowExecutionDao = spy(new WorkflowExecutionDao(provider));
@@ -99,6 +106,29 @@ class TestWorkflowExecutionDao {
     reset(workflowExecutionDao);
   }
 
+  @Test
+  void indexesAreUpdatedWhenDatastoreIsSetUp() {
+    final DBCollection collection = provider.getDatastore().getCollection(WorkflowExecution.class);
+    collection.createIndex(new BasicDBObject("datasetId", 1));
+    assertTrue(getIndexNames(collection).contains("datasetId_1"));
+
+    // Setting up the datastore drops the replaced index and creates only the intended ones.
+    new MorphiaDatastoreProviderImpl(mongoClient, "test");
+    final Set<String> indexNames = getIndexNames(collection);
+    assertFalse(indexNames.contains("datasetId_1"));
+    assertTrue(indexNames.contains("datasetId_1_workflowStatus_1_createdDate_-1__id_1"));
+    assertTrue(indexNames.contains("workflowStatus_1_updatedDate_1"));
+    assertFalse(indexNames.contains("updatedDate_1"));
+    assertFalse(indexNames.contains("workflowStatus_1"));
+    assertTrue(getIndexNames(provider.getDatastore().getCollection(ScheduledWorkflow.class))
+        .contains("nextFireTime_1"));
+  }
+
+  private static Set<String> getIndexNames(DBCollection collection) {
+    return collection.getIndexInfo().stream().map(index -> (String) index.get("name"))
+        .collect(Collectors.toSet());
+  }
+
   @Test
   void createUserWorkflowExecution() {
     WorkflowExecution workflowExecution = TestObjectFactory
@@ -216,6 +246,17 @@ class TestWorkflowExecutionDao {
     WorkflowExecution runningOrInQueueExecution = workflowExecutionDao
         .getRunningOrInQueueExecution(workflowExecutionRunning.getDatasetId());
     assertEquals(WorkflowStatus.RUNNING, runningOrInQueueExecution.getWorkflowStatus());
+
+    // Only the type and status of the plugins are retrieved.
+    assertEquals(workflowExecutionRunning.getMetisPlugins().size(),
+        runningOrInQueueExecution.getMetisPlugins().size());
+    for (int i = 0; i < runningOrInQueueExecution.getMetisPlugins().size(); i++) {
+      final AbstractMetisPlugin expected = workflowExecutionRunning.getMetisPlugins().get(i);
+      final AbstractMetisPlugin actual = runningOrInQueueExecution.getMetisPlugins().get(i);
+      assertEquals(expected.getPluginType(), actual.getPluginType());
+      assertEquals(expected.getPluginStatus(), actual.getPluginStatus());
+      assertNull(actual.getPluginMetadata());
+    }
   }
 
   @Test
@@ -529,6 +570,92 @@ class TestWorkflowExecutionDao {
         allUserWorkflowsExecutionsCount);
   }
 
+  @Test
+  void getAllWorkflowExecutionsWithContinuationToken() {
+
+    // Create executions, some of which share the same created date.
+    final int userWorkflowExecutionsToCreate =
+        workflowExecutionDao.getMaxServedExecutionListLength() - 2;
+    for (int i = 0; i < userWorkflowExecutionsToCreate; i++) {
+      final WorkflowExecution workflowExecution = TestObjectFactory
+          .createWorkflowExecutionObject();
+      workflowExecution.setCreatedDate(new Date(1000L * (i / 2)));
+      workflowExecutionDao.create(workflowExecution);
+    }
+    final Set<String> datasetIds = Collections
+        .singleton(Integer.toString(TestObjectFactory.DATASETID));
+
+    // Get the expected order in one page.
+    workflowExecutionDao.setWorkflowExecutionsPerRequest(userWorkflowExecutionsToCreate);
+    final List<ObjectId> expectedOrder = workflowExecutionDao
+        .getAllWorkflowExecutions(datasetIds, null, DaoFieldNames.CREATED_DATE, false, 0, true)
+        .getResults().stream().map(WorkflowExecution::getId).collect(Collectors.toList());
+    assertEquals(userWorkflowExecutionsToCreate, expectedOrder.size());
+    workflowExecutionDao.setWorkflowExecutionsPerRequest(3);
+
+    // Go through the pages using continuation tokens.
+    final List<ObjectId> actualOrder = new ArrayList<>();
+    ResultList<WorkflowExecution> result = workflowExecutionDao
+        .getAllWorkflowExecutions(datasetIds, null, DaoFieldNames.CREATED_DATE, false, 0, false);
+    actualOrder.addAll(result.getResults().stream().map(WorkflowExecution::getId)
+        .collect(Collectors.toList()));
+    while (result.getNextPageToken() != null) {
+      result = workflowExecutionDao.getAllWorkflowExecutions(datasetIds, null,
+          DaoFieldNames.CREATED_DATE, false, result.getNextPageToken(), false);
+      actualOrder.addAll(result.getResults().stream().map(WorkflowExecution::getId)
+          .collect(Collectors.toList()));
+    }
+    assertEquals(expectedOrder, actualOrder);
+
+    // The maximum number of served executions still applies.
+    for (int i = 0; i < 2; i++) {
+      workflowExecutionDao.create(TestObjectFactory.createWorkflowExecutionObject());
+    }
+    result = workflowExecutionDao
+        .getAllWorkflowExecutions(datasetIds, null, DaoFieldNames.ID, true, 0, false);
+    int servedCount = result.getResults().size();
+    while (result.getNextPageToken() != null) {
+      result = workflowExecutionDao.getAllWorkflowExecutions(datasetIds, null, DaoFieldNames.ID,
+          true, result.getNextPageToken(), false);
+      servedCount += result.getResults().size();
+    }
+    assertTrue(result.isMaxResultCountReached());
+    assertEquals(workflowExecutionDao.getMaxServedExecutionListLength(), servedCount);
+
+    // Continuation tokens are not supported for other orderings nor can they be invented.
+    final String validToken = workflowExecutionDao
+        .getAllWorkflowExecutions(datasetIds, null, DaoFieldNames.ID, true, 0, false)
+        .getNextPageToken();
+    assertNotNull(validToken);
+    assertThrows(IllegalArgumentException.class, () -> workflowExecutionDao
+        .getAllWorkflowExecutions(datasetIds, null, DaoFieldNames.STARTED_DATE, true, validToken,
+            false));
+    assertThrows(IllegalArgumentException.class, () -> workflowExecutionDao
+        .getAllWorkflowExecutions(datasetIds, null, DaoFieldNames.ID, true, "invalid", false));
+
+    // Continuation tokens can not be altered: the served count in particular is protected.
+    final String[] tokenParts = validToken.split("\\.");
+    final String payload = new String(Base64.getUrlDecoder().decode(tokenParts[0]),
+        StandardCharsets.UTF_8);
+    final String alteredPayload = "0" + payload.substring(payload.indexOf(':'));
+    final String alteredToken = Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(alteredPayload.getBytes(StandardCharsets.UTF_8)) + "." + tokenParts[1];
+    assertThrows(IllegalArgumentException.class, () -> workflowExecutionDao
+        .getAllWorkflowExecutions(datasetIds, null, DaoFieldNames.ID, true, alteredToken, false));
+
+    // Continuation tokens are only accepted by instances that share the secret.
+    workflowExecutionDao.setContinuationTokenSecret("secret");
+    assertThrows(IllegalArgumentException.class, () -> workflowExecutionDao
+        .getAllWorkflowExecutions(datasetIds, null, DaoFieldNames.ID, true, validToken, false));
+    final WorkflowExecutionDao otherDao = new WorkflowExecutionDao(provider);
+    otherDao.setContinuationTokenSecret("secret");
+    final String sharedToken = workflowExecutionDao
+        .getAllWorkflowExecutions(datasetIds, null, DaoFieldNames.ID, true, 0, false)
+        .getNextPageToken();
+    assertNotNull(otherDao
+        .getAllWorkflowExecutions(datasetIds, null, DaoFieldNames.ID, true, sharedToken, false));
+  }
+
   @Test
   void isCancelled() {
     WorkflowExecution workflowExecution = TestObjectFactory
@@ -547,6 +674,115 @@ class TestWorkflowExecutionDao {
     assertTrue(workflowExecutionDao.isCancelling(new ObjectId(objectId)));
   }
 
+  @Test
+  void getRunningExecutionsWithHeartbeatBefore() {
+    final Date threshold = new Date(1000);
+    final WorkflowExecution hanging = TestObjectFactory.createWorkflowExecutionObject();
+    hanging.setWorkflowStatus(WorkflowStatus.RUNNING);
+    hanging.setWorkflowPriority(3);
+    hanging.setUpdatedDate(new Date(999));
+    final String hangingId = workflowExecutionDao.create(hanging);
+    final WorkflowExecution alive = TestObjectFactory.createWorkflowExecutionObject();
+    alive.setWorkflowStatus(WorkflowStatus.RUNNING);
+    alive.setUpdatedDate(threshold);
+    workflowExecutionDao.create(alive);
+    final WorkflowExecution finished = TestObjectFactory.createWorkflowExecutionObject();
+    finished.setWorkflowStatus(WorkflowStatus.FINISHED);
+    finished.setUpdatedDate(new Date(999));
+    workflowExecutionDao.create(finished);
+
+    final List<WorkflowExecution> result = workflowExecutionDao
+        .getRunningExecutionsWithHeartbeatBefore(threshold);
+    assertEquals(1, result.size());
+    assertEquals(hangingId, result.get(0).getId().toString());
+    assertEquals(3, result.get(0).getWorkflowPriority());
+    assertEquals(new Date(999), result.get(0).getUpdatedDate());
+  }
+
+  @Test
+  void claimExecution() {
+    final WorkflowExecution workflowExecution = TestObjectFactory.createWorkflowExecutionObject();
+    workflowExecution.setWorkflowStatus(WorkflowStatus.INQUEUE);
+    final String objectId = workflowExecutionDao.create(workflowExecution);
+    final WorkflowExecution retrieved = workflowExecutionDao.getById(objectId);
+
+    // The first claim succeeds.
+    final Date claimDate = new Date(1000);
+    final WorkflowExecution claimed = workflowExecutionDao
+        .claimExecution(retrieved, "owner1", claimDate);
+    assertNotNull(claimed);
+    assertEquals(WorkflowStatus.RUNNING, claimed.getWorkflowStatus());
+    assertEquals(claimDate, claimed.getStartedDate());
+    assertEquals(claimDate, claimed.getUpdatedDate());
+    assertEquals("owner1", claimed.getClaimedBy());
+    assertEquals(1, claimed.getClaimVersion());
+
+    // A second claim based on the same (now outdated) version fails.
+    assertNull(workflowExecutionDao.claimExecution(retrieved, "owner2", new Date(2000)));
+    assertEquals("owner1", workflowExecutionDao.getById(objectId).getClaimedBy());
+
+    // A claim based on the current version succeeds, but keeps the started date.
+    final WorkflowExecution reclaimed = workflowExecutionDao
+        .claimExecution(claimed, "owner2", new Date(3000));
+    assertNotNull(reclaimed);
+    assertEquals(claimDate, reclaimed.getStartedDate());
+    assertEquals(new Date(3000), reclaimed.getUpdatedDate());
+    assertEquals("owner2", reclaimed.getClaimedBy());
+    assertEquals(2, reclaimed.getClaimVersion());
+
+    // A claim fails if the heartbeat changed in the meantime.
+    final WorkflowExecution beforeHeartbeat = workflowExecutionDao.getById(objectId);
+    reclaimed.setUpdatedDate(new Date(4000));
+    assertTrue(workflowExecutionDao.updateMonitorInformation(reclaimed));
+    assertNull(workflowExecutionDao.claimExecution(beforeHeartbeat, "owner3", new Date(5000)));
+  }
+
+  @Test
+  void updatesOfClaimedExecutionRequireTheClaim() {
+    final WorkflowExecution workflowExecution = TestObjectFactory.createWorkflowExecutionObject();
+    workflowExecution.setWorkflowStatus(WorkflowStatus.INQUEUE);
+    final String objectId = workflowExecutionDao.create(workflowExecution);
+    final WorkflowExecution claimed = workflowExecutionDao
+        .claimExecution(workflowExecutionDao.getById(objectId), "owner1", new Date(1000));
+    final WorkflowExecution reclaimed = workflowExecutionDao
+        .claimExecution(claimed, "owner2", new Date(2000));
+    assertNotNull(reclaimed);
+
+    // The updates of the previous owner don't match anymore.
+    claimed.setUpdatedDate(new Date(3000));
+    assertFalse(workflowExecutionDao.updateMonitorInformation(claimed));
+    assertFalse(workflowExecutionDao.updateWorkflowPlugins(claimed));
+    claimed.setWorkflowStatus(WorkflowStatus.FINISHED);
+    assertFalse(workflowExecutionDao.updateClaimedExecution(claimed));
+    assertEquals(WorkflowStatus.RUNNING, workflowExecutionDao.getById(objectId).getWorkflowStatus());
+    assertEquals(new Date(2000), workflowExecutionDao.getById(objectId).getUpdatedDate());
+
+    // The updates of the current owner do.
+    reclaimed.setWorkflowStatus(WorkflowStatus.FINISHED);
+    reclaimed.setFinishedDate(new Date(4000));
+    assertTrue(workflowExecutionDao.updateClaimedExecution(reclaimed));
+    final WorkflowExecution finished = workflowExecutionDao.getById(objectId);
+    assertEquals(WorkflowStatus.FINISHED, finished.getWorkflowStatus());
+    assertEquals(new Date(4000), finished.getFinishedDate());
+    assertEquals("owner2", finished.getClaimedBy());
+  }
+
+  @Test
+  void getInQueueExecutions() {
+    final WorkflowExecution inQueue = TestObjectFactory.createWorkflowExecutionObject();
+    inQueue.setWorkflowStatus(WorkflowStatus.INQUEUE);
+    inQueue.setWorkflowPriority(2);
+    final String inQueueId = workflowExecutionDao.create(inQueue);
+    final WorkflowExecution running = TestObjectFactory.createWorkflowExecutionObject();
+    running.setWorkflowStatus(WorkflowStatus.RUNNING);
+    workflowExecutionDao.create(running);
+
+    final List<WorkflowExecution> result = workflowExecutionDao.getInQueueExecutions();
+    assertEquals(1, result.size());
+    assertEquals(inQueueId, result.get(0).getId().toString());
+    assertEquals(2, result.get(0).getWorkflowPriority());
+  }
+
   @Test
   void deleteAllByDatasetId() {
     WorkflowExecution workflowExecution = TestObjectFactory
@@ -762,4 +998,46 @@ class TestWorkflowExecutionDao {
     assertTrue(emptyResultWithMaxServed.isMaxResultCountReached());
     assertTrue(emptyResultWithMaxServed.getResults().isEmpty());  
   }
+
+  @Test
+  void getWorkflowExecutionOverviewWithContinuationToken() {
+
+    // Create executions with all statuses, some of which share the same created date.
+    final List<WorkflowStatus> statuses = Arrays
+        .asList(WorkflowStatus.INQUEUE, WorkflowStatus.RUNNING, WorkflowStatus.FINISHED,
+            WorkflowStatus.FAILED);
+    for (int i = 0; i < 8; i++) {
+      final WorkflowExecution workflowExecution = TestObjectFactory
+          .createWorkflowExecutionObject();
+      workflowExecution.setWorkflowStatus(statuses.get(i % statuses.size()));
+      workflowExecution.setCreatedDate(new Date(1000L * (i / 3)));
+      workflowExecutionDao.create(workflowExecution);
+    }
+
+    // Get the expected order in one page.
+    workflowExecutionDao.setWorkflowExecutionsPerRequest(8);
+    final List<ObjectId> expectedOrder = workflowExecutionDao
+        .getWorkflowExecutionsOverview(null, null, null, null, null, 0, 1).getResults().stream()
+        .map(ExecutionDatasetPair::getExecution).map(WorkflowExecution::getId)
+        .collect(Collectors.toList());
+    assertEquals(8, expectedOrder.size());
+
+    // Go through the pages using continuation tokens.
+    workflowExecutionDao.setWorkflowExecutionsPerRequest(1);
+    final List<ObjectId> actualOrder = new ArrayList<>();
+    ResultList<ExecutionDatasetPair> result = workflowExecutionDao
+        .getWorkflowExecutionsOverview(null, null, null, null, null, 0, 2);
+    result.getResults().forEach(pair -> actualOrder.add(pair.getExecution().getId()));
+    while (result.getNextPageToken() != null) {
+      result = workflowExecutionDao.getWorkflowExecutionsOverview(null, null, null, null, null,
+          result.getNextPageToken(), 2);
+      result.getResults().forEach(pair -> actualOrder.add(pair.getExecution().getId()));
+    }
+    assertFalse(result.isMaxResultCountReached());
+    assertEquals(expectedOrder, actualOrder);
+
+    // Invalid tokens are rejected.
+    assertThrows(IllegalArgumentException.class, () -> workflowExecutionDao
+        .getWorkflowExecutionsOverview(null, null, null, null, null, "invalid", 1));
+  }
 }
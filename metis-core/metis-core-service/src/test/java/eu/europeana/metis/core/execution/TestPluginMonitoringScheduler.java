@@ -0,0 +1,70 @@
+package eu.europeana.metis.core.execution;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+import eu.europeana.metis.core.dao.WorkflowExecutionDao;
+import eu.europeana.metis.core.execution.PluginMonitoringScheduler.MonitoredTask;
+import java.util.Collections;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+class TestPluginMonitoringScheduler {
+
+  private static MonitoredTask createTask(boolean done) {
+    final ObjectId workflowExecutionId = new ObjectId();
+    return new MonitoredTask() {
+      @Override
+      public ObjectId getWorkflowExecutionId() {
+        return workflowExecutionId;
+      }
+
+      @Override
+      public boolean check(boolean cancelling) {
+        return done;
+      }
+    };
+  }
+
+  @Test
+  void monitorUntilDone() throws Exception {
+    final WorkflowExecutionDao workflowExecutionDao = mock(WorkflowExecutionDao.class);
+    doReturn(Collections.emptySet()).when(workflowExecutionDao).getCancellingExecutionIds(anyCollection());
+    final PluginMonitoringScheduler scheduler = new PluginMonitoringScheduler(
+        workflowExecutionDao, 10, 2);
+    try {
+      scheduler.monitor(createTask(true)).get(10, TimeUnit.SECONDS);
+      assertEquals(0, scheduler.getMonitoredTaskCount());
+    } finally {
+      scheduler.close();
+    }
+  }
+
+  @Test
+  void closeCompletesPendingTasks() {
+    final WorkflowExecutionDao workflowExecutionDao = mock(WorkflowExecutionDao.class);
+    doReturn(Collections.emptySet()).when(workflowExecutionDao).getCancellingExecutionIds(anyCollection());
+    final PluginMonitoringScheduler scheduler = new PluginMonitoringScheduler(
+        workflowExecutionDao, 10, 2);
+    final CompletableFuture<Void> pending = scheduler.monitor(createTask(false));
+    final CompletableFuture<String> dependent = pending.thenApply(done -> "done");
+    scheduler.close();
+
+    // The pending task and the stages depending on it complete exceptionally.
+    assertThrows(CancellationException.class, pending::join);
+    final CompletionException exception = assertThrows(CompletionException.class, dependent::join);
+    assertTrue(exception.getCause() instanceof CancellationException);
+    assertEquals(0, scheduler.getMonitoredTaskCount());
+
+    // Tasks that are registered after closing complete right away.
+    assertTrue(scheduler.monitor(createTask(false)).isCompletedExceptionally());
+  }
+}
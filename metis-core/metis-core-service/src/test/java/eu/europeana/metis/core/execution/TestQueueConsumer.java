@@ -3,9 +3,9 @@ package eu.europeana.metis.core.execution;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
-import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
@@ -21,6 +21,7 @@ import com.rabbitmq.client.Envelope;
 import com.rabbitmq.client.MessageProperties;
 import eu.europeana.cloud.client.dps.rest.DpsClient;
 import eu.europeana.cloud.common.model.dps.TaskState;
+import eu.europeana.metis.core.dao.DatasetExecutionSummaryDao;
 import eu.europeana.metis.core.dao.WorkflowExecutionDao;
 import eu.europeana.metis.core.utils.TestObjectFactory;
 import eu.europeana.metis.core.workflow.WorkflowExecution;
@@ -66,7 +67,8 @@ class TestQueueConsumer {
     rabbitmqConsumerChannel = Mockito.mock(Channel.class);
     DpsClient dpsClient = Mockito.mock(DpsClient.class);
     workflowExecutorManager =
-        new WorkflowExecutorManager(workflowExecutionDao, rabbitmqPublisherChannel,
+        new WorkflowExecutorManager(workflowExecutionDao,
+            Mockito.mock(DatasetExecutionSummaryDao.class), rabbitmqPublisherChannel,
             rabbitmqConsumerChannel, redissonClient, dpsClient);
     workflowExecutorManager.setRabbitmqQueueName("ExampleQueueName");
     workflowExecutorManager.setMaxConcurrentThreads(2);
@@ -216,7 +218,7 @@ class TestQueueConsumer {
         .thenReturn(workflowExecution2).thenReturn(null);
     when(workflowExecutionMonitor.claimExecution(workflowExecution3.getId().toString()))
         .thenReturn(workflowExecution3).thenReturn(null);
-    doNothing().when(workflowExecutionDao).updateMonitorInformation(any(WorkflowExecution.class));
+    doReturn(true).when(workflowExecutionDao).updateMonitorInformation(any(WorkflowExecution.class));
     when(workflowExecutionDao.isCancelling(any(ObjectId.class))).thenReturn(false);
     doReturn(new MonitorResult(currentlyProcessingExecutionProgress.getStatus(), null))
         .doReturn(new MonitorResult(processedExecutionProgress.getStatus(), null))
@@ -227,8 +229,8 @@ class TestQueueConsumer {
     doReturn(new MonitorResult(currentlyProcessingExecutionProgress.getStatus(), null))
         .doReturn(new MonitorResult(processedExecutionProgress.getStatus(), null))
         .when(oaipmhHarvestPlugin3).monitor(any(DpsClient.class));
-    doNothing().when(workflowExecutionDao).updateWorkflowPlugins(any(WorkflowExecution.class));
-    when(workflowExecutionDao.update(any(WorkflowExecution.class))).thenReturn(anyString());
+    doReturn(true).when(workflowExecutionDao).updateWorkflowPlugins(any(WorkflowExecution.class));
+    doReturn(true).when(workflowExecutionDao).updateClaimedExecution(any(WorkflowExecution.class));
 
     QueueConsumer queueConsumer = new QueueConsumer(rabbitmqConsumerChannel, null,
         workflowExecutorManager, workflowExecutorManager, workflowExecutionMonitor);
@@ -241,7 +243,9 @@ class TestQueueConsumer {
     queueConsumer.handleDelivery("3", envelope, basicProperties, objectIdBytes3);
     Awaitility.await().atMost(30, TimeUnit.SECONDS)
         .until(() -> workflowExecution3.getWorkflowStatus() == WorkflowStatus.FINISHED);
-    assertEquals(1, queueConsumer.getThreadsCounter());
+    Awaitility.await().atMost(30, TimeUnit.SECONDS)
+        .until(() -> queueConsumer.getThreadsCounter() == 0);
+    assertTrue(queueConsumer.isConsuming());
   }
 
   @Test
@@ -263,8 +267,6 @@ class TestQueueConsumer {
     ArrayList<AbstractMetisPlugin> abstractMetisPlugins2 = new ArrayList<>();
     abstractMetisPlugins2.add(oaipmhHarvestPlugin2);
 
-    workflowExecutorManager.setPollingTimeoutForCleaningCompletionServiceInSecs(0);
-
     int priority = 0;
     BasicProperties basicProperties = MessageProperties.PERSISTENT_TEXT_PLAIN.builder()
         .priority(priority).build();
@@ -302,7 +304,7 @@ class TestQueueConsumer {
         .thenReturn(workflowExecution2).thenReturn(null);
     when(workflowExecutionMonitor.claimExecution(workflowExecution3.getId().toString()))
         .thenReturn(workflowExecution3).thenReturn(null);
-    doNothing().when(workflowExecutionDao).updateMonitorInformation(any(WorkflowExecution.class));
+    doReturn(true).when(workflowExecutionDao).updateMonitorInformation(any(WorkflowExecution.class));
     when(workflowExecutionDao.isCancelling(any(ObjectId.class))).thenReturn(false);
     doReturn(new MonitorResult(currentlyProcessingExecutionProgress.getStatus(), null))
         .doReturn(new MonitorResult(processedExecutionProgress.getStatus(), null))
@@ -310,80 +312,68 @@ class TestQueueConsumer {
     doReturn(new MonitorResult(currentlyProcessingExecutionProgress.getStatus(), null))
         .doReturn(new MonitorResult(processedExecutionProgress.getStatus(), null))
         .when(oaipmhHarvestPlugin2).monitor(any(DpsClient.class));
-    doNothing().when(workflowExecutionDao).updateWorkflowPlugins(any(WorkflowExecution.class));
-    when(workflowExecutionDao.update(any(WorkflowExecution.class))).thenReturn(anyString());
+    doReturn(true).when(workflowExecutionDao).updateWorkflowPlugins(any(WorkflowExecution.class));
+    doReturn(true).when(workflowExecutionDao).updateClaimedExecution(any(WorkflowExecution.class));
 
     QueueConsumer queueConsumer = new QueueConsumer(rabbitmqConsumerChannel, null,
         workflowExecutorManager, workflowExecutorManager, workflowExecutionMonitor);
     queueConsumer.handleDelivery("1", envelope, basicProperties, objectIdBytes1);
+    assertTrue(queueConsumer.isConsuming());
     queueConsumer.handleDelivery("2", envelope, basicProperties, objectIdBytes2);
     assertEquals(2, queueConsumer.getThreadsCounter());
+
+    // The pool is full: consumption is paused and a message that still arrives is sent back.
+    assertFalse(queueConsumer.isConsuming());
+    verify(rabbitmqConsumerChannel, times(1)).basicCancel(any());
     queueConsumer.handleDelivery("3", envelope, basicProperties, objectIdBytes3);
-//    verify(rabbitmqChannel, times(1)).basicNack(envelope.getDeliveryTag(), false, true);
+    verify(rabbitmqConsumerChannel, times(1)).basicNack(envelope.getDeliveryTag(), false, true);
+    assertEquals(2, queueConsumer.getThreadsCounter());
+
+    // When executions complete, consumption is resumed.
     Awaitility.await().atMost(30, TimeUnit.SECONDS)
         .until(() -> workflowExecution1.getWorkflowStatus() == WorkflowStatus.FINISHED);
     Awaitility.await().atMost(30, TimeUnit.SECONDS)
         .until(() -> workflowExecution2.getWorkflowStatus() == WorkflowStatus.FINISHED);
+    Awaitility.await().atMost(30, TimeUnit.SECONDS).until(queueConsumer::isConsuming);
+    verify(rabbitmqConsumerChannel, times(2)).basicConsume(any(), eq(false), eq(queueConsumer));
   }
 
   @Test
-  void handleDeliveryOverMaxConcurrentThreadsInterruptWillPolling() throws Exception {
-
+  void resumeConsumptionIsRetriedAfterFailure() throws Exception {
     ExecutionProgress currentlyProcessingExecutionProgress = new ExecutionProgress();
     currentlyProcessingExecutionProgress.setStatus(TaskState.CURRENTLY_PROCESSING);
     ExecutionProgress processedExecutionProgress = new ExecutionProgress();
     processedExecutionProgress.setStatus(TaskState.PROCESSED);
 
     OaipmhHarvestPlugin oaipmhHarvestPlugin1 = Mockito.spy(OaipmhHarvestPlugin.class);
-    OaipmhHarvestPluginMetadata oaipmhHarvestPluginMetadata1 = new OaipmhHarvestPluginMetadata();
-    oaipmhHarvestPlugin1.setPluginMetadata(oaipmhHarvestPluginMetadata1);
+    oaipmhHarvestPlugin1.setPluginMetadata(new OaipmhHarvestPluginMetadata());
     ArrayList<AbstractMetisPlugin> abstractMetisPlugins1 = new ArrayList<>();
     abstractMetisPlugins1.add(oaipmhHarvestPlugin1);
-
     OaipmhHarvestPlugin oaipmhHarvestPlugin2 = Mockito.spy(OaipmhHarvestPlugin.class);
-    OaipmhHarvestPluginMetadata oaipmhHarvestPluginMetadata2 = new OaipmhHarvestPluginMetadata();
-    oaipmhHarvestPlugin2.setPluginMetadata(oaipmhHarvestPluginMetadata2);
+    oaipmhHarvestPlugin2.setPluginMetadata(new OaipmhHarvestPluginMetadata());
     ArrayList<AbstractMetisPlugin> abstractMetisPlugins2 = new ArrayList<>();
     abstractMetisPlugins2.add(oaipmhHarvestPlugin2);
 
-    int priority = 0;
     BasicProperties basicProperties = MessageProperties.PERSISTENT_TEXT_PLAIN.builder()
-        .priority(priority).build();
+        .priority(0).build();
     Envelope envelope = new Envelope(1, false, "", "");
     ObjectId objectId1 = new ObjectId(Date.from(Instant.now().minusSeconds(1)));
     ObjectId objectId2 = new ObjectId(Date.from(Instant.now()));
-    ObjectId objectId3 = new ObjectId(Date.from(Instant.now().plusSeconds(1)));
-    byte[] objectIdBytes1 = objectId1.toString().getBytes("UTF-8");
-    byte[] objectIdBytes2 = objectId2.toString().getBytes("UTF-8");
-    byte[] objectIdBytes3 = objectId3.toString().getBytes("UTF-8");
-    WorkflowExecution workflowExecution1 = TestObjectFactory
-        .createWorkflowExecutionObject();
-    WorkflowExecution workflowExecution2 = TestObjectFactory
-        .createWorkflowExecutionObject();
-    WorkflowExecution workflowExecution3 = TestObjectFactory
-        .createWorkflowExecutionObject();
+    WorkflowExecution workflowExecution1 = TestObjectFactory.createWorkflowExecutionObject();
+    WorkflowExecution workflowExecution2 = TestObjectFactory.createWorkflowExecutionObject();
     workflowExecution1.setId(objectId1);
     workflowExecution1.setWorkflowStatus(WorkflowStatus.INQUEUE);
     workflowExecution1.setMetisPlugins(abstractMetisPlugins1);
     workflowExecution2.setId(objectId2);
     workflowExecution2.setWorkflowStatus(WorkflowStatus.INQUEUE);
     workflowExecution2.setMetisPlugins(abstractMetisPlugins2);
-    workflowExecution3.setId(objectId3);
-    workflowExecution3.setWorkflowStatus(WorkflowStatus.INQUEUE);
-    workflowExecution3.setMetisPlugins(abstractMetisPlugins2);
     when(workflowExecutionDao.getById(objectId1.toString())).thenReturn(workflowExecution1);
     when(workflowExecutionDao.getById(objectId2.toString())).thenReturn(workflowExecution2);
-    when(workflowExecutionDao.getById(objectId3.toString())).thenReturn(workflowExecution3);
-    doNothing().when(rabbitmqConsumerChannel).basicNack(envelope.getDeliveryTag(), false, true);
-
-    //For running properly the WorkflowExecution.
-    when(workflowExecutionMonitor.claimExecution(workflowExecution1.getId().toString()))
+    when(workflowExecutionMonitor.claimExecution(objectId1.toString()))
         .thenReturn(workflowExecution1).thenReturn(null);
-    when(workflowExecutionMonitor.claimExecution(workflowExecution2.getId().toString()))
+    when(workflowExecutionMonitor.claimExecution(objectId2.toString()))
         .thenReturn(workflowExecution2).thenReturn(null);
-    when(workflowExecutionMonitor.claimExecution(workflowExecution3.getId().toString()))
-        .thenReturn(workflowExecution3).thenReturn(null);
-    doNothing().when(workflowExecutionDao).updateMonitorInformation(any(WorkflowExecution.class));
+    doReturn(true).when(workflowExecutionDao).updateMonitorInformation(any(WorkflowExecution.class));
     when(workflowExecutionDao.isCancelling(any(ObjectId.class))).thenReturn(false);
     doReturn(new MonitorResult(currentlyProcessingExecutionProgress.getStatus(), null))
         .doReturn(new MonitorResult(processedExecutionProgress.getStatus(), null))
@@ -391,28 +381,27 @@ class TestQueueConsumer {
     doReturn(new MonitorResult(currentlyProcessingExecutionProgress.getStatus(), null))
         .doReturn(new MonitorResult(processedExecutionProgress.getStatus(), null))
         .when(oaipmhHarvestPlugin2).monitor(any(DpsClient.class));
-    doNothing().when(workflowExecutionDao).updateWorkflowPlugins(any(WorkflowExecution.class));
-    when(workflowExecutionDao.update(any(WorkflowExecution.class))).thenReturn(anyString());
+    doReturn(true).when(workflowExecutionDao).updateWorkflowPlugins(any(WorkflowExecution.class));
+    doReturn(true).when(workflowExecutionDao).updateClaimedExecution(any(WorkflowExecution.class));
+
+    // The initial subscription succeeds, the first attempts to resume fail, then it succeeds.
+    when(rabbitmqConsumerChannel.basicConsume(any(), eq(false), any(QueueConsumer.class)))
+        .thenReturn("tag").thenThrow(new IOException("Chaos")).thenThrow(new IOException("Chaos"))
+        .thenReturn("tag");
 
     QueueConsumer queueConsumer = new QueueConsumer(rabbitmqConsumerChannel, null,
         workflowExecutorManager, workflowExecutorManager, workflowExecutionMonitor);
-    queueConsumer.handleDelivery("1", envelope, basicProperties, objectIdBytes1);
-    queueConsumer.handleDelivery("2", envelope, basicProperties, objectIdBytes2);
+    queueConsumer.handleDelivery("1", envelope, basicProperties,
+        objectId1.toString().getBytes(StandardCharsets.UTF_8));
+    queueConsumer.handleDelivery("2", envelope, basicProperties,
+        objectId2.toString().getBytes(StandardCharsets.UTF_8));
+    assertFalse(queueConsumer.isConsuming());
 
-    Thread t = new Thread(() -> {
-      try {
-        queueConsumer.handleDelivery("3", envelope, basicProperties, objectIdBytes3);
-      } catch (IOException e) {
-        e.printStackTrace();
-      }
-    });
-    t.start();
-    t.interrupt();
-    t.join();
-    Awaitility.await().atMost(30, TimeUnit.SECONDS)
-        .until(() -> workflowExecution1.getWorkflowStatus() == WorkflowStatus.FINISHED);
+    // After both executions complete, there is no further completion to trigger a new attempt.
     Awaitility.await().atMost(30, TimeUnit.SECONDS)
-        .until(() -> workflowExecution2.getWorkflowStatus() == WorkflowStatus.FINISHED);
-    assertEquals(2, queueConsumer.getThreadsCounter());
+        .until(() -> queueConsumer.getThreadsCounter() == 0);
+    Awaitility.await().atMost(30, TimeUnit.SECONDS).until(queueConsumer::isConsuming);
+    verify(rabbitmqConsumerChannel, times(4)).basicConsume(any(), eq(false), eq(queueConsumer));
+    queueConsumer.close();
   }
 }
@@ -4,10 +4,10 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.isNull;
-import static org.mockito.Mockito.atMost;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -19,8 +19,8 @@ import eu.europeana.metis.core.service.ScheduleWorkflowService;
 import eu.europeana.metis.core.utils.TestObjectFactory;
 import eu.europeana.metis.core.workflow.ScheduleFrequence;
 import eu.europeana.metis.core.workflow.ScheduledWorkflow;
-import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import org.junit.jupiter.api.Test;
@@ -66,51 +66,45 @@ class TestSchedulerExecutor {
         scheduleWorkflowService,
         redissonClient);
 
-    int userWorkflowExecutionsPerRequest = 3;
-    int listSize = userWorkflowExecutionsPerRequest - 1; //To not trigger paging
-    Date now = new Date();
-    now.setTime(now.getTime() + periodicSchedulerCheckInSecs * 1000);
-    List<ScheduledWorkflow> listOfScheduledWorkflowsWithDateONCE = TestObjectFactory
-        .createListOfScheduledWorkflowsWithDateAndFrequence(listSize, now, ScheduleFrequence.ONCE);
-    List<ScheduledWorkflow> listOfScheduledWorkflowsWithDateDAILY = TestObjectFactory
-        .createListOfScheduledWorkflowsWithDateAndFrequence(listSize, now, ScheduleFrequence.DAILY);
-    List<ScheduledWorkflow> listOfScheduledWorkflowsWithDateWEEKLY = TestObjectFactory
-        .createListOfScheduledWorkflowsWithDateAndFrequence(listSize, now,
-            ScheduleFrequence.WEEKLY);
-    List<ScheduledWorkflow> listOfScheduledWorkflowsWithDateMONTHLY = TestObjectFactory
-        .createListOfScheduledWorkflowsWithDateAndFrequence(listSize, now,
-            ScheduleFrequence.MONTHLY);
-
-    when(scheduleWorkflowService.getScheduledWorkflowsPerRequest())
-        .thenReturn(userWorkflowExecutionsPerRequest);
-
-    when(scheduleWorkflowService.getAllScheduledWorkflowsByDateRangeONCE(any(LocalDateTime.class),
-        any(LocalDateTime.class), anyInt()))
-        .thenReturn(listOfScheduledWorkflowsWithDateONCE);
-    when(
-        scheduleWorkflowService.getAllScheduledWorkflowsWithoutAuthorization(any(ScheduleFrequence.class), anyInt()))
-        .thenReturn(listOfScheduledWorkflowsWithDateDAILY).thenReturn(
-        listOfScheduledWorkflowsWithDateWEEKLY).thenReturn(
-        listOfScheduledWorkflowsWithDateMONTHLY);
+    int listSize = 2;
+    Date past = new Date();
+    past.setTime(past.getTime() - periodicSchedulerCheckInSecs * 1000);
+    List<ScheduledWorkflow> dueScheduledWorkflows = new ArrayList<>();
+    for (ScheduleFrequence frequence : Arrays.asList(ScheduleFrequence.ONCE,
+        ScheduleFrequence.DAILY, ScheduleFrequence.WEEKLY, ScheduleFrequence.MONTHLY)) {
+      dueScheduledWorkflows.addAll(TestObjectFactory
+          .createListOfScheduledWorkflowsWithDateAndFrequence(listSize, past, frequence));
+    }
+    dueScheduledWorkflows.forEach(scheduledWorkflow -> scheduledWorkflow.setNextFireTime(past));
+
+    when(scheduleWorkflowService.getDueScheduledWorkflowsWithoutAuthorization(any(Date.class)))
+        .thenReturn(dueScheduledWorkflows);
+    //One of the scheduled workflows was already fired by another instance
+    when(scheduleWorkflowService
+        .advanceNextFireTimeWithoutAuthorization(any(ScheduledWorkflow.class), any(Date.class)))
+        .thenReturn(false).thenReturn(true);
     when(orchestratorService.addWorkflowInQueueOfWorkflowExecutionsWithoutAuthorization(anyString(), isNull(), anyInt()))
         .thenThrow(new NoDatasetFoundException("Some Error"))
         .thenReturn(null); //Throw an exception as well, should continue execution after that
     doNothing().when(rlock).unlock();
 
+    schedulerExecutor.performScheduling();
     schedulerExecutor.performScheduling();
 
-    verify(scheduleWorkflowService, times(4)).getScheduledWorkflowsPerRequest();
     verify(scheduleWorkflowService, times(1))
-        .getAllScheduledWorkflowsByDateRangeONCE(any(LocalDateTime.class),
-            any(LocalDateTime.class), anyInt());
-    verify(scheduleWorkflowService, times(3))
-        .getAllScheduledWorkflowsWithoutAuthorization(any(ScheduleFrequence.class), anyInt());
-    verify(orchestratorService, atMost(listSize * 4))
+        .initializeNextFireTimesWithoutAuthorization(any(Date.class));
+    verify(scheduleWorkflowService, times(2))
+        .getDueScheduledWorkflowsWithoutAuthorization(any(Date.class));
+    verify(scheduleWorkflowService, times(dueScheduledWorkflows.size() * 2))
+        .advanceNextFireTimeWithoutAuthorization(any(ScheduledWorkflow.class), any(Date.class));
+    verify(orchestratorService, times(dueScheduledWorkflows.size() * 2 - 1))
         .addWorkflowInQueueOfWorkflowExecutionsWithoutAuthorization(anyString(), isNull(), anyInt());
+    verify(scheduleWorkflowService, never()).getAllScheduledWorkflowsWithoutAuthorization(any(),
+        anyInt());
   }
 
   @Test
-  void runAllSchedulesOutOfRange() throws Exception {
+  void runNoSchedulesDue() throws Exception {
     RLock rlock = mock(RLock.class);
     when(redissonClient.getFairLock(SCHEDULER_LOCK)).thenReturn(rlock);
     doNothing().when(rlock).lock();
@@ -118,47 +112,17 @@ class TestSchedulerExecutor {
         scheduleWorkflowService,
         redissonClient);
 
-    int userWorkflowExecutionsPerRequest = 3;
-    int listSize = userWorkflowExecutionsPerRequest - 1; //To not trigger paging
-    Date past = new Date();
-    past.setTime(past.getTime() - periodicSchedulerCheckInSecs * 1000);
-    List<ScheduledWorkflow> listOfScheduledWorkflowsWithDateDAILY = TestObjectFactory
-        .createListOfScheduledWorkflowsWithDateAndFrequence(listSize, past,
-            ScheduleFrequence.DAILY);
-    List<ScheduledWorkflow> listOfScheduledWorkflowsWithDateWEEKLY = TestObjectFactory
-        .createListOfScheduledWorkflowsWithDateAndFrequence(listSize, past,
-            ScheduleFrequence.WEEKLY);
-    List<ScheduledWorkflow> listOfScheduledWorkflowsWithDateMONTHLY = TestObjectFactory
-        .createListOfScheduledWorkflowsWithDateAndFrequence(listSize, past,
-            ScheduleFrequence.MONTHLY);
-
-    when(scheduleWorkflowService.getScheduledWorkflowsPerRequest())
-        .thenReturn(userWorkflowExecutionsPerRequest);
-
-    when(scheduleWorkflowService.getAllScheduledWorkflowsByDateRangeONCE(any(LocalDateTime.class),
-        any(LocalDateTime.class), anyInt()))
+    when(scheduleWorkflowService.getDueScheduledWorkflowsWithoutAuthorization(any(Date.class)))
         .thenReturn(new ArrayList<>());
-    when(
-        scheduleWorkflowService.getAllScheduledWorkflowsWithoutAuthorization(any(ScheduleFrequence.class), anyInt()))
-        .thenReturn(listOfScheduledWorkflowsWithDateDAILY).thenReturn(
-        listOfScheduledWorkflowsWithDateWEEKLY).thenReturn(
-        listOfScheduledWorkflowsWithDateMONTHLY);
-    when(orchestratorService
-        .addWorkflowInQueueOfWorkflowExecutionsWithoutAuthorization(anyString(), isNull(), anyInt()))
-        .thenThrow(new NoDatasetFoundException("Some Error"))
-        .thenReturn(null); //Throw an exception as well, should continue execution after that
     doNothing().when(rlock).unlock();
 
     schedulerExecutor.performScheduling();
 
-    verify(scheduleWorkflowService, times(4)).getScheduledWorkflowsPerRequest();
     verify(scheduleWorkflowService, times(1))
-        .getAllScheduledWorkflowsByDateRangeONCE(any(LocalDateTime.class),
-            any(LocalDateTime.class), anyInt());
-    verify(scheduleWorkflowService, times(3))
-        .getAllScheduledWorkflowsWithoutAuthorization(any(ScheduleFrequence.class), anyInt());
-    verify(orchestratorService, times(0))
-        .addWorkflowInQueueOfWorkflowExecutionsWithoutAuthorization(anyString(), isNull(), anyInt());
+        .getDueScheduledWorkflowsWithoutAuthorization(any(Date.class));
+    verify(scheduleWorkflowService, never())
+        .advanceNextFireTimeWithoutAuthorization(any(ScheduledWorkflow.class), any(Date.class));
+    verifyNoMoreInteractions(orchestratorService);
   }
 
   @Test
@@ -2,8 +2,10 @@ package eu.europeana.metis.core.execution;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.notNull;
 import static org.mockito.Mockito.atMost;
 import static org.mockito.Mockito.doNothing;
@@ -18,6 +20,7 @@ import static org.mockito.Mockito.when;
 
 import eu.europeana.cloud.client.dps.rest.DpsClient;
 import eu.europeana.cloud.common.model.dps.TaskState;
+import eu.europeana.metis.core.dao.DatasetExecutionSummaryDao;
 import eu.europeana.metis.core.dao.WorkflowExecutionDao;
 import eu.europeana.metis.core.utils.TestObjectFactory;
 import eu.europeana.metis.core.workflow.CancelledSystemId;
@@ -32,10 +35,13 @@ import eu.europeana.metis.core.workflow.plugins.OaipmhHarvestPluginMetadata;
 import eu.europeana.metis.core.workflow.plugins.PluginStatus;
 import eu.europeana.metis.exception.ExternalTaskException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InOrder;
@@ -54,6 +60,7 @@ class TestWorkflowExecutor {
   private static WorkflowExecutionMonitor workflowExecutionMonitor;
   private static PersistenceProvider persistenceProvider;
   private static WorkflowExecutionSettings workflowExecutionSettings;
+  private static PluginMonitoringScheduler pluginMonitoringScheduler;
 
   @BeforeAll
   static void prepare() {
@@ -61,9 +68,24 @@ class TestWorkflowExecutor {
     dpsClient = Mockito.mock(DpsClient.class);
     workflowExecutionMonitor = Mockito.mock(WorkflowExecutionMonitor.class);
     persistenceProvider =
-        new PersistenceProvider(null, null, workflowExecutionDao, null, dpsClient);
+        new PersistenceProvider(null, null, workflowExecutionDao,
+            Mockito.mock(DatasetExecutionSummaryDao.class), null, dpsClient);
     workflowExecutionSettings = Mockito.mock(WorkflowExecutionSettings.class);
     when(workflowExecutionSettings.getPeriodOfNoProcessedRecordsChangeInMinutes()).thenReturn(10);
+    when(workflowExecutionSettings.getDpsMonitorHeartbeatIntervalInSecs()).thenReturn(60);
+    pluginMonitoringScheduler = new PluginMonitoringScheduler(workflowExecutionDao, 10, 2);
+  }
+
+  @AfterAll
+  static void tearDown() {
+    pluginMonitoringScheduler.close();
+  }
+
+  @BeforeEach
+  void prepareUpdates() {
+    doReturn(true).when(workflowExecutionDao).updateMonitorInformation(any());
+    doReturn(true).when(workflowExecutionDao).updateWorkflowPlugins(any());
+    doReturn(true).when(workflowExecutionDao).updateClaimedExecution(any());
   }
 
   @AfterEach
@@ -101,19 +123,19 @@ class TestWorkflowExecutor {
 
     when(workflowExecutionMonitor.claimExecution(workflowExecution.getId().toString()))
         .thenReturn(workflowExecution);
-    doNothing().when(workflowExecutionDao).updateMonitorInformation(workflowExecution);
+    doReturn(true).when(workflowExecutionDao).updateMonitorInformation(workflowExecution);
     when(workflowExecutionDao.isCancelling(workflowExecution.getId())).thenReturn(false);
 
-    doNothing().when(workflowExecutionDao).updateWorkflowPlugins(workflowExecution);
-    when(workflowExecutionDao.update(workflowExecution))
-        .thenReturn(workflowExecution.getId().toString());
+    doReturn(true).when(workflowExecutionDao).updateWorkflowPlugins(workflowExecution);
+    doReturn(true).when(workflowExecutionDao).updateClaimedExecution(workflowExecution);
 
     WorkflowExecutor workflowExecutor = new WorkflowExecutor(workflowExecution.getId().toString(),
-        persistenceProvider, workflowExecutionSettings, workflowExecutionMonitor);
+        persistenceProvider, workflowExecutionSettings, workflowExecutionMonitor,
+        pluginMonitoringScheduler);
     workflowExecutor.call();
 
     verify(workflowExecutionDao, times(2)).updateMonitorInformation(workflowExecution);
-    verify(workflowExecutionDao, times(1)).update(workflowExecution);
+    verify(workflowExecutionDao, times(1)).updateClaimedExecution(workflowExecution);
 
     InOrder inOrderForPlugin = inOrder(oaipmhHarvestPlugin);
     inOrderForPlugin.verify(oaipmhHarvestPlugin, times(2))
@@ -145,18 +167,18 @@ class TestWorkflowExecutor {
 
     when(workflowExecutionMonitor.claimExecution(workflowExecution.getId().toString()))
         .thenReturn(workflowExecution);
-    doNothing().when(workflowExecutionDao).updateMonitorInformation(workflowExecution);
+    doReturn(true).when(workflowExecutionDao).updateMonitorInformation(workflowExecution);
     when(workflowExecutionDao.isCancelling(workflowExecution.getId())).thenReturn(false);
 
-    doNothing().when(workflowExecutionDao).updateWorkflowPlugins(workflowExecution);
-    when(workflowExecutionDao.update(workflowExecution))
-        .thenReturn(workflowExecution.getId().toString());
+    doReturn(true).when(workflowExecutionDao).updateWorkflowPlugins(workflowExecution);
+    doReturn(true).when(workflowExecutionDao).updateClaimedExecution(workflowExecution);
 
     WorkflowExecutor workflowExecutor = new WorkflowExecutor(workflowExecution.getId().toString(),
-        persistenceProvider, workflowExecutionSettings, workflowExecutionMonitor);
+        persistenceProvider, workflowExecutionSettings, workflowExecutionMonitor,
+        pluginMonitoringScheduler);
     workflowExecutor.call();
 
-    verify(workflowExecutionDao, times(1)).update(workflowExecution);
+    verify(workflowExecutionDao, times(1)).updateClaimedExecution(workflowExecution);
 
     verify(oaipmhHarvestPlugin).setPluginStatusAndResetFailMessage(PluginStatus.FAILED);
     verify(oaipmhHarvestPlugin, atMost(1)).setPluginStatusAndResetFailMessage(any());
@@ -192,19 +214,19 @@ class TestWorkflowExecutor {
 
     when(workflowExecutionMonitor.claimExecution(workflowExecution.getId().toString()))
         .thenReturn(workflowExecution);
-    doNothing().when(workflowExecutionDao).updateMonitorInformation(workflowExecution);
+    doReturn(true).when(workflowExecutionDao).updateMonitorInformation(workflowExecution);
     when(workflowExecutionDao.isCancelling(workflowExecution.getId())).thenReturn(false);
 
-    doNothing().when(workflowExecutionDao).updateWorkflowPlugins(workflowExecution);
-    when(workflowExecutionDao.update(workflowExecution))
-        .thenReturn(workflowExecution.getId().toString());
+    doReturn(true).when(workflowExecutionDao).updateWorkflowPlugins(workflowExecution);
+    doReturn(true).when(workflowExecutionDao).updateClaimedExecution(workflowExecution);
 
     WorkflowExecutor workflowExecutor = new WorkflowExecutor(workflowExecution.getId().toString(),
-        persistenceProvider, workflowExecutionSettings, workflowExecutionMonitor);
+        persistenceProvider, workflowExecutionSettings, workflowExecutionMonitor,
+        pluginMonitoringScheduler);
     workflowExecutor.call();
 
     verify(workflowExecutionDao, times(2)).updateMonitorInformation(workflowExecution);
-    verify(workflowExecutionDao, times(1)).update(workflowExecution);
+    verify(workflowExecutionDao, times(1)).updateClaimedExecution(workflowExecution);
 
     InOrder inOrderForPlugin = inOrder(oaipmhHarvestPlugin);
     inOrderForPlugin.verify(oaipmhHarvestPlugin, times(2))
@@ -240,18 +262,18 @@ class TestWorkflowExecutor {
 
     when(workflowExecutionMonitor.claimExecution(workflowExecution.getId().toString()))
         .thenReturn(workflowExecution);
-    doNothing().when(workflowExecutionDao).updateMonitorInformation(workflowExecution);
+    doReturn(true).when(workflowExecutionDao).updateMonitorInformation(workflowExecution);
     when(workflowExecutionDao.isCancelling(workflowExecution.getId())).thenReturn(false);
 
-    doNothing().when(workflowExecutionDao).updateWorkflowPlugins(workflowExecution);
-    when(workflowExecutionDao.update(workflowExecution))
-        .thenReturn(workflowExecution.getId().toString());
+    doReturn(true).when(workflowExecutionDao).updateWorkflowPlugins(workflowExecution);
+    doReturn(true).when(workflowExecutionDao).updateClaimedExecution(workflowExecution);
 
     WorkflowExecutor workflowExecutor = new WorkflowExecutor(workflowExecution.getId().toString(),
-        persistenceProvider, workflowExecutionSettings, workflowExecutionMonitor);
+        persistenceProvider, workflowExecutionSettings, workflowExecutionMonitor,
+        pluginMonitoringScheduler);
     workflowExecutor.call();
 
-    verify(workflowExecutionDao, times(1)).update(workflowExecution);
+    verify(workflowExecutionDao, times(1)).updateClaimedExecution(workflowExecution);
 
     verify(oaipmhHarvestPlugin).setPluginStatusAndResetFailMessage(PluginStatus.FAILED);
     verify(oaipmhHarvestPlugin, atMost(1)).setPluginStatusAndResetFailMessage(any());
@@ -295,18 +317,18 @@ class TestWorkflowExecutor {
 
     when(workflowExecutionMonitor.claimExecution(workflowExecution.getId().toString()))
         .thenReturn(workflowExecution);
-    doNothing().when(workflowExecutionDao).updateMonitorInformation(workflowExecution);
+    doReturn(true).when(workflowExecutionDao).updateMonitorInformation(workflowExecution);
     when(workflowExecutionDao.isCancelling(workflowExecution.getId())).thenReturn(false);
 
-    doNothing().when(workflowExecutionDao).updateWorkflowPlugins(workflowExecution);
-    when(workflowExecutionDao.update(workflowExecution))
-        .thenReturn(workflowExecution.getId().toString());
+    doReturn(true).when(workflowExecutionDao).updateWorkflowPlugins(workflowExecution);
+    doReturn(true).when(workflowExecutionDao).updateClaimedExecution(workflowExecution);
 
     WorkflowExecutor workflowExecutor = new WorkflowExecutor(workflowExecution.getId().toString(),
-        persistenceProvider, workflowExecutionSettings, workflowExecutionMonitor);
+        persistenceProvider, workflowExecutionSettings, workflowExecutionMonitor,
+        pluginMonitoringScheduler);
     workflowExecutor.call();
 
-    verify(workflowExecutionDao, times(1)).update(workflowExecution);
+    verify(workflowExecutionDao, times(1)).updateClaimedExecution(workflowExecution);
 
     InOrder inOrderForPlugin = inOrder(oaipmhHarvestPlugin);
     inOrderForPlugin.verify(oaipmhHarvestPlugin, times(1))
@@ -350,26 +372,71 @@ class TestWorkflowExecutor {
 
     when(workflowExecutionMonitor.claimExecution(workflowExecution.getId().toString()))
         .thenReturn(workflowExecution);
-    doNothing().when(workflowExecutionDao).updateMonitorInformation(workflowExecution);
+    doReturn(true).when(workflowExecutionDao).updateMonitorInformation(workflowExecution);
     when(workflowExecutionDao.isCancelling(workflowExecution.getId())).thenReturn(false)
         .thenReturn(true);
+    when(workflowExecutionDao.getCancellingExecutionIds(any())).thenReturn(Collections.emptySet())
+        .thenReturn(Collections.singleton(workflowExecution.getId()));
     when(workflowExecutionDao.getById(workflowExecution.getId().toString()))
         .thenReturn(workflowExecution);
 
-    doNothing().when(workflowExecutionDao).updateWorkflowPlugins(workflowExecution);
-    when(workflowExecutionDao.update(workflowExecution))
-        .thenReturn(workflowExecution.getId().toString());
+    doReturn(true).when(workflowExecutionDao).updateWorkflowPlugins(workflowExecution);
+    doReturn(true).when(workflowExecutionDao).updateClaimedExecution(workflowExecution);
 
     WorkflowExecutor workflowExecutor = new WorkflowExecutor(workflowExecution.getId().toString(),
-        persistenceProvider, workflowExecutionSettings, workflowExecutionMonitor);
+        persistenceProvider, workflowExecutionSettings, workflowExecutionMonitor,
+        pluginMonitoringScheduler);
     workflowExecutor.call();
 
     verify(workflowExecutionDao, times(2)).updateMonitorInformation(workflowExecution);
-    verify(workflowExecutionDao, times(1)).update(workflowExecution);
+    verify(workflowExecutionDao, times(1)).updateClaimedExecution(workflowExecution);
+    verify(oaipmhHarvestPlugin, times(1)).cancel(eq(dpsClient), any());
 
     verify(oaipmhHarvestPlugin, never()).setFailMessage(anyString());
   }
 
+  @Test
+  void callNonMockedFieldValue_NoMonitorInformationUpdateWithoutProgress() throws Exception {
+    ExecutionProgress currentlyProcessingExecutionProgress = new ExecutionProgress();
+    currentlyProcessingExecutionProgress.setStatus(TaskState.CURRENTLY_PROCESSING);
+
+    OaipmhHarvestPlugin oaipmhHarvestPlugin = Mockito.mock(OaipmhHarvestPlugin.class);
+    OaipmhHarvestPluginMetadata oaipmhHarvestPluginMetadata = new OaipmhHarvestPluginMetadata();
+    oaipmhHarvestPlugin.setPluginMetadata(oaipmhHarvestPluginMetadata);
+    ArrayList<AbstractMetisPlugin> abstractMetisPlugins = new ArrayList<>();
+    abstractMetisPlugins.add(oaipmhHarvestPlugin);
+
+    WorkflowExecution workflowExecution = TestObjectFactory.createWorkflowExecutionObject();
+    workflowExecution.setId(new ObjectId());
+    workflowExecution.setWorkflowStatus(WorkflowStatus.INQUEUE);
+    workflowExecution.setMetisPlugins(abstractMetisPlugins);
+
+    when(oaipmhHarvestPlugin.getPluginMetadata()).thenReturn(oaipmhHarvestPluginMetadata);
+    when(oaipmhHarvestPlugin.monitor(dpsClient))
+        .thenReturn(new MonitorResult(TaskState.CURRENTLY_PROCESSING, null))
+        .thenReturn(new MonitorResult(TaskState.CURRENTLY_PROCESSING, null))
+        .thenReturn(new MonitorResult(TaskState.CURRENTLY_PROCESSING, null))
+        .thenReturn(new MonitorResult(TaskState.PROCESSED, null));
+    when(oaipmhHarvestPlugin.getExecutionProgress())
+        .thenReturn(currentlyProcessingExecutionProgress);
+
+    when(workflowExecutionMonitor.claimExecution(workflowExecution.getId().toString()))
+        .thenReturn(workflowExecution);
+    when(workflowExecutionDao.isCancelling(workflowExecution.getId())).thenReturn(false);
+    doReturn(true).when(workflowExecutionDao).updateClaimedExecution(workflowExecution);
+
+    WorkflowExecutor workflowExecutor = new WorkflowExecutor(workflowExecution.getId().toString(),
+        persistenceProvider, workflowExecutionSettings, workflowExecutionMonitor,
+        pluginMonitoringScheduler);
+    workflowExecutor.call();
+
+    // Only the first and the last check are saved: the progress did not change in between.
+    verify(oaipmhHarvestPlugin, times(4)).monitor(dpsClient);
+    verify(workflowExecutionDao, times(2)).updateMonitorInformation(workflowExecution);
+    verify(workflowExecutionDao, times(4)).getCancellingExecutionIds(any());
+    verify(workflowExecutionDao, times(1)).updateClaimedExecution(workflowExecution);
+  }
+
   @Test
   void callExecutionInRUNNINGState() throws ExternalTaskException {
     ExecutionProgress currentlyProcessingExecutionProgress = new ExecutionProgress();
@@ -398,17 +465,17 @@ class TestWorkflowExecutor {
 
     when(workflowExecutionMonitor.claimExecution(workflowExecution.getId().toString()))
         .thenReturn(workflowExecution);
-    doNothing().when(workflowExecutionDao).updateMonitorInformation(workflowExecution);
+    doReturn(true).when(workflowExecutionDao).updateMonitorInformation(workflowExecution);
     when(workflowExecutionDao.isCancelling(workflowExecution.getId())).thenReturn(false);
     when(oaipmhHarvestPlugin.monitor(dpsClient))
         .thenReturn(new MonitorResult(currentlyProcessingExecutionProgress.getStatus(), null))
         .thenReturn(new MonitorResult(processedExecutionProgress.getStatus(), null));
-    doNothing().when(workflowExecutionDao).updateWorkflowPlugins(workflowExecution);
-    when(workflowExecutionDao.update(workflowExecution))
-        .thenReturn(workflowExecution.getId().toString());
+    doReturn(true).when(workflowExecutionDao).updateWorkflowPlugins(workflowExecution);
+    doReturn(true).when(workflowExecutionDao).updateClaimedExecution(workflowExecution);
 
     WorkflowExecutor workflowExecutor = new WorkflowExecutor(workflowExecution.getId().toString(),
-        persistenceProvider, workflowExecutionSettings, workflowExecutionMonitor);
+        persistenceProvider, workflowExecutionSettings, workflowExecutionMonitor,
+        pluginMonitoringScheduler);
     workflowExecutor.call();
 
     assertEquals(WorkflowStatus.FINISHED, workflowExecution.getWorkflowStatus());
@@ -418,12 +485,50 @@ class TestWorkflowExecutor {
     assertNotNull(workflowExecution.getMetisPlugins().get(0).getFinishedDate());
   }
 
+  @Test
+  void callStopsWhenClaimIsLost() throws Exception {
+    ExecutionProgress currentlyProcessingExecutionProgress = new ExecutionProgress();
+    currentlyProcessingExecutionProgress.setStatus(TaskState.CURRENTLY_PROCESSING);
+
+    OaipmhHarvestPlugin oaipmhHarvestPlugin = Mockito.mock(OaipmhHarvestPlugin.class);
+    OaipmhHarvestPluginMetadata oaipmhHarvestPluginMetadata = new OaipmhHarvestPluginMetadata();
+    ArrayList<AbstractMetisPlugin> abstractMetisPlugins = new ArrayList<>();
+    abstractMetisPlugins.add(oaipmhHarvestPlugin);
+
+    WorkflowExecution workflowExecution = TestObjectFactory.createWorkflowExecutionObject();
+    workflowExecution.setId(new ObjectId());
+    workflowExecution.setWorkflowStatus(WorkflowStatus.INQUEUE);
+    workflowExecution.setMetisPlugins(abstractMetisPlugins);
+
+    when(oaipmhHarvestPlugin.getPluginMetadata()).thenReturn(oaipmhHarvestPluginMetadata);
+    when(oaipmhHarvestPlugin.monitor(dpsClient))
+        .thenReturn(new MonitorResult(TaskState.CURRENTLY_PROCESSING, null));
+    when(oaipmhHarvestPlugin.getExecutionProgress())
+        .thenReturn(currentlyProcessingExecutionProgress);
+    when(workflowExecutionMonitor.claimExecution(workflowExecution.getId().toString()))
+        .thenReturn(workflowExecution);
+    when(workflowExecutionDao.isCancelling(workflowExecution.getId())).thenReturn(false);
+
+    // Another instance claimed the execution: the monitor information can't be saved.
+    doReturn(false).when(workflowExecutionDao).updateMonitorInformation(workflowExecution);
+
+    WorkflowExecutor workflowExecutor = new WorkflowExecutor(workflowExecution.getId().toString(),
+        persistenceProvider, workflowExecutionSettings, workflowExecutionMonitor,
+        pluginMonitoringScheduler);
+    assertNull(workflowExecutor.call());
+
+    // The monitoring stops after the first check and the execution is not finished by us.
+    verify(oaipmhHarvestPlugin, times(1)).monitor(dpsClient);
+    verify(workflowExecutionDao, times(1)).updateMonitorInformation(workflowExecution);
+    verify(workflowExecutionDao, never()).updateClaimedExecution(any());
+  }
+
   @Test
   void callExecutionThatMayNotBeClaimed() {
     when(workflowExecutionMonitor.claimExecution(any())).thenReturn(null);
 
     WorkflowExecutor workflowExecutor = new WorkflowExecutor("testId", persistenceProvider,
-        workflowExecutionSettings, workflowExecutionMonitor);
+        workflowExecutionSettings, workflowExecutionMonitor, pluginMonitoringScheduler);
     workflowExecutor.call();
 
     verify(workflowExecutionMonitor, times(1)).claimExecution(any());
@@ -457,12 +562,13 @@ class TestWorkflowExecutor {
         .thenReturn(workflowExecution);
 
     WorkflowExecutor workflowExecutor = new WorkflowExecutor(workflowExecution.getId().toString(),
-        persistenceProvider, workflowExecutionSettings, workflowExecutionMonitor);
+        persistenceProvider, workflowExecutionSettings, workflowExecutionMonitor,
+        pluginMonitoringScheduler);
     workflowExecutor.call();
 
     ArgumentCaptor<WorkflowExecution> workflowExecutionArgumentCaptor = ArgumentCaptor
         .forClass(WorkflowExecution.class);
-    verify(workflowExecutionDao, times(1)).update(workflowExecutionArgumentCaptor.capture());
+    verify(workflowExecutionDao, times(1)).updateClaimedExecution(workflowExecutionArgumentCaptor.capture());
     assertEquals(WorkflowStatus.CANCELLED,
         workflowExecutionArgumentCaptor.getValue().getWorkflowStatus());
     assertEquals(CancelledSystemId.SYSTEM_MINUTE_CAP_EXPIRE.name(),
@@ -498,12 +604,13 @@ class TestWorkflowExecutor {
         .thenReturn(workflowExecution);
 
     WorkflowExecutor workflowExecutor = new WorkflowExecutor(workflowExecution.getId().toString(),
-        persistenceProvider, workflowExecutionSettings, workflowExecutionMonitor);
+        persistenceProvider, workflowExecutionSettings, workflowExecutionMonitor,
+        pluginMonitoringScheduler);
     workflowExecutor.call();
 
     ArgumentCaptor<WorkflowExecution> workflowExecutionArgumentCaptor = ArgumentCaptor
         .forClass(WorkflowExecution.class);
-    verify(workflowExecutionDao, times(1)).update(workflowExecutionArgumentCaptor.capture());
+    verify(workflowExecutionDao, times(1)).updateClaimedExecution(workflowExecutionArgumentCaptor.capture());
     assertEquals(WorkflowStatus.CANCELLED,
         workflowExecutionArgumentCaptor.getValue().getWorkflowStatus());
     assertEquals(CancelledSystemId.SYSTEM_MINUTE_CAP_EXPIRE.name(),
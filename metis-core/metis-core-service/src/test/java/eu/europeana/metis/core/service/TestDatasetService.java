@@ -25,6 +25,7 @@ import com.github.tomakehurst.wiremock.WireMockServer;
 import eu.europeana.metis.RestEndpoints;
 import eu.europeana.metis.authentication.user.MetisUser;
 import eu.europeana.metis.core.dao.DatasetDao;
+import eu.europeana.metis.core.dao.DatasetExecutionSummaryDao;
 import eu.europeana.metis.core.dao.DatasetXsltDao;
 import eu.europeana.metis.core.dao.ScheduledWorkflowDao;
 import eu.europeana.metis.core.dao.WorkflowDao;
@@ -78,6 +79,7 @@ class TestDatasetService {
   private DatasetXsltDao datasetXsltDao;
   private WorkflowExecutionDao workflowExecutionDao;
   private ScheduledWorkflowDao scheduledWorkflowDao;
+  private DatasetExecutionSummaryDao datasetExecutionSummaryDao;
   private DatasetService datasetService;
   private RedissonClient redissonClient;
   private Authorizer authorizer;
@@ -119,11 +121,13 @@ class TestDatasetService {
     WorkflowDao workflowDao = mock(WorkflowDao.class);
     workflowExecutionDao = mock(WorkflowExecutionDao.class);
     scheduledWorkflowDao = mock(ScheduledWorkflowDao.class);
+    datasetExecutionSummaryDao = mock(DatasetExecutionSummaryDao.class);
     redissonClient = mock(RedissonClient.class);
     authorizer = mock(Authorizer.class);
 
     datasetService = new DatasetService(datasetDao, datasetXsltDao, workflowDao,
-        workflowExecutionDao, scheduledWorkflowDao, redissonClient, authorizer);
+        workflowExecutionDao, scheduledWorkflowDao, datasetExecutionSummaryDao, redissonClient,
+        authorizer);
     datasetService.setMetisCoreUrl(String.format("http://localhost:%d", portForWireMock));
   }
 
@@ -301,6 +305,8 @@ class TestDatasetService {
         .deleteAllByDatasetId(Integer.toString(TestObjectFactory.DATASETID));
     verify(scheduledWorkflowDao, times(1))
         .deleteAllByDatasetId(Integer.toString(TestObjectFactory.DATASETID));
+    verify(datasetExecutionSummaryDao, times(1))
+        .deleteByDatasetId(Integer.toString(TestObjectFactory.DATASETID));
   }
 
   @Test
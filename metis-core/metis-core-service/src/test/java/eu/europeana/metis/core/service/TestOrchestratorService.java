@@ -27,6 +27,7 @@ import eu.europeana.metis.authentication.user.AccountRole;
 import eu.europeana.metis.authentication.user.MetisUser;
 import eu.europeana.metis.core.common.DaoFieldNames;
 import eu.europeana.metis.core.dao.DatasetDao;
+import eu.europeana.metis.core.dao.DatasetExecutionSummaryDao;
 import eu.europeana.metis.core.dao.DatasetXsltDao;
 import eu.europeana.metis.core.dao.WorkflowDao;
 import eu.europeana.metis.core.dao.WorkflowExecutionDao;
@@ -37,6 +38,7 @@ import eu.europeana.metis.core.dao.WorkflowExecutionDao.ResultList;
 import eu.europeana.metis.core.dao.WorkflowUtils;
 import eu.europeana.metis.core.dataset.Dataset;
 import eu.europeana.metis.core.dataset.DatasetExecutionInformation;
+import eu.europeana.metis.core.dataset.DatasetExecutionSummary;
 import eu.europeana.metis.core.dataset.DatasetXslt;
 import eu.europeana.metis.core.exceptions.NoDatasetFoundException;
 import eu.europeana.metis.core.exceptions.NoWorkflowExecutionFoundException;
@@ -47,6 +49,7 @@ import eu.europeana.metis.core.exceptions.WorkflowExecutionAlreadyExistsExceptio
 import eu.europeana.metis.core.execution.WorkflowExecutorManager;
 import eu.europeana.metis.core.rest.ExecutionHistory;
 import eu.europeana.metis.core.rest.PluginsWithDataAvailability;
+import eu.europeana.metis.core.rest.ResponseListWrapper;
 import eu.europeana.metis.core.rest.VersionEvolution;
 import eu.europeana.metis.core.rest.VersionEvolution.VersionEvolutionStep;
 import eu.europeana.metis.core.rest.execution.overview.DatasetSummaryView;
@@ -116,6 +119,7 @@ class TestOrchestratorService {
   private static WorkflowUtils workflowUtils;
   private static WorkflowDao workflowDao;
   private static DatasetDao datasetDao;
+  private static DatasetExecutionSummaryDao datasetExecutionSummaryDao;
   private static DatasetXsltDao datasetXsltDao;
   private static WorkflowExecutorManager workflowExecutorManager;
   private static WorkflowExecutionFactory workflowExecutionFactory;
@@ -129,6 +133,7 @@ class TestOrchestratorService {
     workflowUtils = mock(WorkflowUtils.class);
     workflowDao = mock(WorkflowDao.class);
     datasetDao = mock(DatasetDao.class);
+    datasetExecutionSummaryDao = mock(DatasetExecutionSummaryDao.class);
     datasetXsltDao = mock(DatasetXsltDao.class);
     workflowExecutorManager = mock(WorkflowExecutorManager.class);
     redissonClient = mock(RedissonClient.class);
@@ -141,8 +146,8 @@ class TestOrchestratorService {
         new ValidationProperties("url-int", "schema-int", "schematron-int"));
 
     orchestratorService = spy(new OrchestratorService(workflowExecutionFactory, workflowDao,
-        workflowExecutionDao, workflowUtils, datasetDao, workflowExecutorManager, redissonClient,
-        authorizer));
+        workflowExecutionDao, workflowUtils, datasetDao, datasetExecutionSummaryDao,
+        workflowExecutorManager, redissonClient, authorizer));
     orchestratorService.setSolrCommitPeriodInMins(SOLR_COMMIT_PERIOD_IN_MINS);
   }
 
@@ -152,6 +157,7 @@ class TestOrchestratorService {
     Mockito.reset(workflowUtils);
     Mockito.reset(workflowDao);
     Mockito.reset(datasetDao);
+    Mockito.reset(datasetExecutionSummaryDao);
     Mockito.reset(workflowExecutorManager);
     Mockito.reset(redissonClient);
     Mockito.reset(authorizer);
@@ -732,6 +738,46 @@ class TestOrchestratorService {
     verifyNoMoreInteractions(workflowExecutionDao);
   }
 
+  @Test
+  void getAllWorkflowExecutionsWithContinuationToken() throws GenericMetisException {
+
+    // Define some constants
+    final String continuationToken = "token";
+    final String nextPageToken = "nextToken";
+    final MetisUser metisUser = TestObjectFactory.createMetisUser(TestObjectFactory.EMAIL);
+    metisUser.setAccountRole(AccountRole.METIS_ADMIN);
+    final Set<WorkflowStatus> workflowStatuses = Collections.singleton(WorkflowStatus.INQUEUE);
+
+    // Check that the token is passed on and that the next token is returned.
+    doReturn(new ResultList<>(Collections.emptyList(), false, nextPageToken))
+        .when(workflowExecutionDao).getAllWorkflowExecutions(any(), any(), any(), anyBoolean(),
+        eq(continuationToken), anyBoolean());
+    final ResponseListWrapper<WorkflowExecution> result = orchestratorService
+        .getAllWorkflowExecutions(metisUser, null, workflowStatuses, DaoFieldNames.ID, true, 0,
+            continuationToken);
+    assertEquals(nextPageToken, result.getNextPageToken());
+    assertEquals(-1, result.getNextPage());
+    verify(workflowExecutionDao, times(1)).getAllWorkflowExecutions(isNull(), eq(workflowStatuses),
+        eq(DaoFieldNames.ID), eq(true), eq(continuationToken), eq(false));
+
+    // Check that an invalid token results in a bad content exception.
+    doThrow(IllegalArgumentException.class).when(workflowExecutionDao)
+        .getAllWorkflowExecutions(any(), any(), any(), anyBoolean(), eq(continuationToken),
+            anyBoolean());
+    assertThrows(BadContentException.class, () -> orchestratorService
+        .getAllWorkflowExecutions(metisUser, null, workflowStatuses, DaoFieldNames.ID, true, 0,
+            continuationToken));
+
+    // Check that without a token, the requested page is served.
+    doReturn(new ResultList<>(Collections.emptyList(), false, nextPageToken))
+        .when(workflowExecutionDao).getAllWorkflowExecutions(any(), any(), any(), anyBoolean(),
+        anyInt(), anyBoolean());
+    orchestratorService.getAllWorkflowExecutions(metisUser, null, workflowStatuses,
+        DaoFieldNames.ID, true, 2, null);
+    verify(workflowExecutionDao, times(1)).getAllWorkflowExecutions(isNull(), eq(workflowStatuses),
+        eq(DaoFieldNames.ID), eq(true), eq(2), eq(false));
+  }
+
   @Test
   void getWorkflowExecutionOverviewForRegularUser() throws GenericMetisException {
 
@@ -899,6 +945,7 @@ class TestOrchestratorService {
             .thenReturn(lastPublishPlugin);
     when(workflowExecutionDao.getRunningOrInQueueExecution(datasetId))
         .thenReturn(workflowExecutionObject);
+    when(datasetExecutionSummaryDao.createIfAbsent(any())).thenReturn(true);
 
     DatasetExecutionInformation executionInfo = orchestratorService
         .getDatasetExecutionInformation(metisUser, datasetId);
@@ -906,6 +953,15 @@ class TestOrchestratorService {
     verify(authorizer, times(1)).authorizeReadExistingDatasetById(metisUser, datasetId);
     verifyNoMoreInteractions(authorizer);
 
+    // There was no summary yet: it should have been built and created, and then checked again.
+    final ArgumentCaptor<DatasetExecutionSummary> summaryCaptor = ArgumentCaptor
+        .forClass(DatasetExecutionSummary.class);
+    verify(datasetExecutionSummaryDao, times(1)).createIfAbsent(summaryCaptor.capture());
+    assertEquals(datasetId, summaryCaptor.getValue().getDatasetId());
+    assertEquals(lastPublishPlugin.getFinishedDate(),
+        summaryCaptor.getValue().getLastPublishedDate());
+    verify(datasetExecutionSummaryDao, times(1)).registerExecutionHistory(any());
+
     assertEquals(oaipmhHarvestPlugin.getFinishedDate(), executionInfo.getLastHarvestedDate());
     assertEquals(reindexToPreviewPlugin.getFinishedDate(), executionInfo.getLastPreviewDate());
     assertEquals(firstPublishPlugin.getFinishedDate(), executionInfo.getFirstPublishedDate());
@@ -925,6 +981,72 @@ class TestOrchestratorService {
     assertFalse(executionInfo.isLastPublishedRecordsReadyForViewing());
   }
 
+  @Test
+  void rebuildDatasetExecutionInformation() throws GenericMetisException {
+    final MetisUser metisUser = TestObjectFactory.createMetisUser(TestObjectFactory.EMAIL);
+    final String datasetId = Integer.toString(TestObjectFactory.DATASETID);
+    final DatasetExecutionSummary summary = new DatasetExecutionSummary(datasetId);
+    summary.setLastFailedDate(new Date(1));
+    when(datasetExecutionSummaryDao.getByDatasetId(datasetId)).thenReturn(summary);
+
+    final DatasetExecutionInformation executionInfo = orchestratorService
+        .rebuildDatasetExecutionInformation(metisUser, datasetId);
+
+    // The history should be replaced and then checked again: the summary is never saved as a whole.
+    verify(authorizer, times(1)).authorizeWriteExistingDatasetById(metisUser, datasetId);
+    final InOrder inOrder = Mockito.inOrder(datasetExecutionSummaryDao);
+    inOrder.verify(datasetExecutionSummaryDao, times(1)).replaceExecutionHistory(any());
+    inOrder.verify(datasetExecutionSummaryDao, times(1)).registerExecutionHistory(any());
+    inOrder.verify(datasetExecutionSummaryDao, times(1)).getByDatasetId(datasetId);
+    verifyNoMoreInteractions(datasetExecutionSummaryDao);
+    assertEquals(summary.getLastFailedDate(), executionInfo.getLastFailedDate());
+  }
+
+  @Test
+  void getDatasetExecutionInformationFromSummary() throws GenericMetisException {
+
+    // Create the summary
+    final String datasetId = Integer.toString(TestObjectFactory.DATASETID);
+    final DatasetExecutionSummary summary = new DatasetExecutionSummary(datasetId);
+    summary.setLastHarvestedDate(new Date(1));
+    summary.setLastHarvestedRecords(10);
+    summary.setLastPreviewDate(new Date(2));
+    summary.setLastPreviewDataValid(true);
+    summary.setLastPreviewRecords(20);
+    summary.setLastPublishedDate(DateUtils.modifyDateByTimeUnitAmount(new Date(),
+        -(SOLR_COMMIT_PERIOD_IN_MINS - 1), TimeUnit.MINUTES));
+    summary.setLastPublishedDataValid(true);
+    summary.setLastPublishedRecords(30);
+    summary.setFirstPublishedDate(new Date(3));
+    summary.setLastFailedDate(new Date(4));
+    summary.setLastFailedPluginType(PluginType.TRANSFORMATION);
+    when(datasetExecutionSummaryDao.getByDatasetId(datasetId)).thenReturn(summary);
+
+    // Get the information
+    final MetisUser metisUser = TestObjectFactory.createMetisUser(TestObjectFactory.EMAIL);
+    final DatasetExecutionInformation executionInfo = orchestratorService
+        .getDatasetExecutionInformation(metisUser, datasetId);
+
+    // Only the running execution should have been looked up.
+    verify(authorizer, times(1)).authorizeReadExistingDatasetById(metisUser, datasetId);
+    verify(workflowExecutionDao, times(1)).getRunningOrInQueueExecution(datasetId);
+    verifyNoMoreInteractions(workflowExecutionDao);
+    verify(datasetExecutionSummaryDao, times(1)).getByDatasetId(datasetId);
+    verifyNoMoreInteractions(datasetExecutionSummaryDao);
+
+    assertEquals(summary.getLastHarvestedDate(), executionInfo.getLastHarvestedDate());
+    assertEquals(summary.getLastHarvestedRecords(), executionInfo.getLastHarvestedRecords());
+    assertEquals(summary.getLastPreviewDate(), executionInfo.getLastPreviewDate());
+    assertEquals(summary.getLastPreviewRecords(), executionInfo.getLastPreviewRecords());
+    assertEquals(summary.getLastPublishedDate(), executionInfo.getLastPublishedDate());
+    assertEquals(summary.getLastPublishedRecords(), executionInfo.getLastPublishedRecords());
+    assertEquals(summary.getFirstPublishedDate(), executionInfo.getFirstPublishedDate());
+    assertEquals(summary.getLastFailedDate(), executionInfo.getLastFailedDate());
+    assertEquals(summary.getLastFailedPluginType(), executionInfo.getLastFailedPluginType());
+    assertTrue(executionInfo.isLastPreviewRecordsReadyForViewing());
+    assertFalse(executionInfo.isLastPublishedRecordsReadyForViewing());
+  }
+
   @Test
   void testGetDatasetExecutionHistory() throws GenericMetisException {
 
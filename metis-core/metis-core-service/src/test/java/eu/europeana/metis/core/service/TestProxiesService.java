@@ -3,6 +3,7 @@ package eu.europeana.metis.core.service;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -11,6 +12,7 @@ import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
@@ -37,11 +39,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -72,6 +78,7 @@ import eu.europeana.metis.core.workflow.WorkflowExecution;
 import eu.europeana.metis.core.workflow.plugins.AbstractMetisPlugin;
 import eu.europeana.metis.core.workflow.plugins.PluginType;
 import eu.europeana.metis.core.workflow.plugins.Topology;
+import eu.europeana.metis.exception.BadContentException;
 import eu.europeana.metis.exception.ExternalTaskException;
 import eu.europeana.metis.exception.GenericMetisException;
 import eu.europeana.metis.exception.UserUnauthorizedException;
@@ -105,6 +112,14 @@ class TestProxiesService {
 
     proxiesService = spy(new ProxiesService(workflowExecutionDao, ecloudDataSetServiceClient,
         recordServiceClient, fileServiceClient, dpsClient, "ecloudProvider", authorizer, proxiesHelper));
+
+    // The tests change the mocked responses between calls: they should not be remembered.
+    proxiesService.setContentUriCacheTimeToLiveInSecs(0);
+  }
+
+  @AfterAll
+  static void destroy() {
+    proxiesService.close();
   }
 
   @AfterEach
@@ -609,6 +624,202 @@ class TestProxiesService {
     proxiesService.getRecord(plugin, ecloudId);
   }
 
+  @Test
+  void testGetRecordWithContentUriCache()
+      throws MCSException, IOException, ExternalTaskException {
+
+    // Create representation
+    final Representation representation = mock(Representation.class);
+    final String contentUri = "http://example.com";
+    final File file = new File();
+    file.setContentUri(URI.create(contentUri));
+    when(representation.getFiles()).thenReturn(Collections.singletonList(file));
+
+    // Create plugin
+    final AbstractExecutablePlugin plugin = mock(AbstractExecutablePlugin.class);
+    when(plugin.getPluginType()).thenReturn(PluginType.MEDIA_PROCESS);
+    when(plugin.getStartedDate()).thenReturn(new Date());
+
+    // Configure mocks
+    final String ecloudId = "ecloud ID";
+    doReturn(Collections.singletonList(representation)).when(recordServiceClient)
+        .getRepresentationsByRevision(anyString(), anyString(), anyString(), anyString(),
+            anyString());
+    final String testContent = "test content";
+    when(fileServiceClient.getFile(contentUri)).thenAnswer(
+        invocation -> new ByteArrayInputStream(testContent.getBytes(StandardCharsets.UTF_8)));
+
+    // Get the record twice: the representation should only be requested once.
+    proxiesService.setContentUriCacheTimeToLiveInSecs(60);
+    try {
+      assertEquals(testContent, proxiesService.getRecord(plugin, ecloudId).getXmlRecord());
+      assertEquals(testContent, proxiesService.getRecord(plugin, ecloudId).getXmlRecord());
+      verify(recordServiceClient, times(1))
+          .getRepresentationsByRevision(anyString(), anyString(), anyString(), anyString(),
+              anyString());
+      verify(fileServiceClient, times(2)).getFile(contentUri);
+    } finally {
+      proxiesService.setContentUriCacheTimeToLiveInSecs(0);
+    }
+
+    // Without the cache, the representation should be requested every time.
+    proxiesService.getRecord(plugin, ecloudId);
+    verify(recordServiceClient, times(2))
+        .getRepresentationsByRevision(anyString(), anyString(), anyString(), anyString(),
+            anyString());
+  }
+
+  @Test
+  void testGetListOfFileContentsFromPluginExecution_TooManyRecords() {
+    proxiesService.setMaxRecordsPerRequest(2);
+    try {
+      final ListOfIds input = new ListOfIds();
+      input.setIds(Arrays.asList("ID 1", "ID 2", "ID 3"));
+      assertThrows(BadContentException.class, () -> proxiesService
+          .getListOfFileContentsFromPluginExecution(
+              TestObjectFactory.createMetisUser(TestObjectFactory.EMAIL),
+              TestObjectFactory.EXECUTIONID, ExecutablePluginType.MEDIA_PROCESS, input));
+      verifyNoMoreInteractions(workflowExecutionDao);
+    } finally {
+      proxiesService.setMaxRecordsPerRequest(0);
+    }
+  }
+
+  @Test
+  void testGetRecordsKeepsOrder() throws ExternalTaskException {
+
+    // The records finish in the reverse order: the first one takes longest.
+    final AbstractExecutablePlugin plugin = mock(AbstractExecutablePlugin.class);
+    final List<String> ids = Arrays.asList("ID 1", "ID 2", "ID 3", "ID 4");
+    for (int i = 0; i < ids.size(); i++) {
+      final String id = ids.get(i);
+      final long delay = (ids.size() - i) * 50L;
+      doAnswer(invocation -> {
+        Thread.sleep(delay);
+        return new Record(id, "content of " + id);
+      }).when(proxiesService).getRecord(plugin, id);
+    }
+
+    // The result should still be in the order of the IDs.
+    final List<Record> records = proxiesService.getRecords(plugin, ids);
+    assertEquals(ids, records.stream().map(Record::getEcloudId).collect(Collectors.toList()));
+  }
+
+  @Test
+  void testGetRecordsTimesOut() throws Exception {
+
+    // The second record never finishes (until it is cancelled).
+    final AbstractExecutablePlugin plugin = mock(AbstractExecutablePlugin.class);
+    final CountDownLatch cancelled = new CountDownLatch(1);
+    doReturn(new Record("ID 1", "content")).when(proxiesService).getRecord(plugin, "ID 1");
+    doAnswer(invocation -> {
+      try {
+        new CountDownLatch(1).await();
+      } catch (InterruptedException e) {
+        cancelled.countDown();
+      }
+      return null;
+    }).when(proxiesService).getRecord(plugin, "ID 2");
+
+    // Request the records: this should time out and cancel the waiting request.
+    proxiesService.setRecordRequestTimeoutInSecs(1);
+    try {
+      assertThrows(ExternalTaskException.class,
+          () -> proxiesService.getRecords(plugin, Arrays.asList("ID 1", "ID 2")));
+      assertTrue(cancelled.await(10, TimeUnit.SECONDS));
+    } finally {
+      proxiesService.setRecordRequestTimeoutInSecs(0);
+    }
+  }
+
+  @Test
+  void testGetRecordsTimeoutAppliesToWholeList() throws Exception {
+
+    // With one thread, the records are retrieved one after the other: each one is in time, but the
+    // list as a whole is not.
+    final ProxiesService service = spy(new ProxiesService(workflowExecutionDao,
+        ecloudDataSetServiceClient, recordServiceClient, fileServiceClient, dpsClient,
+        "ecloudProvider", authorizer, proxiesHelper));
+    service.setMaxConcurrentRecordRequests(1);
+    service.setRecordRequestTimeoutInSecs(1);
+    final AbstractExecutablePlugin plugin = mock(AbstractExecutablePlugin.class);
+    doAnswer(invocation -> {
+      Thread.sleep(600);
+      return new Record(invocation.getArgument(1), "content");
+    }).when(service).getRecord(eq(plugin), anyString());
+    try {
+      assertThrows(ExternalTaskException.class,
+          () -> service.getRecords(plugin, Arrays.asList("ID 1", "ID 2", "ID 3")));
+    } finally {
+      service.close();
+    }
+  }
+
+  @Test
+  void testGetRecordsTimesOutWhenQueueIsFull() throws Exception {
+
+    // The only thread is blocked, so the queue fills up: the request should not wait beyond the
+    // timeout for room in the queue, and it should not run the request in the calling thread.
+    final ProxiesService service = spy(new ProxiesService(workflowExecutionDao,
+        ecloudDataSetServiceClient, recordServiceClient, fileServiceClient, dpsClient,
+        "ecloudProvider", authorizer, proxiesHelper));
+    service.setMaxConcurrentRecordRequests(1);
+    service.setRecordRequestTimeoutInSecs(1);
+    final AbstractExecutablePlugin plugin = mock(AbstractExecutablePlugin.class);
+    final Thread callingThread = Thread.currentThread();
+    doAnswer(invocation -> {
+      assertNotSame(callingThread, Thread.currentThread());
+      new CountDownLatch(1).await();
+      return null;
+    }).when(service).getRecord(eq(plugin), anyString());
+    final List<String> ids = IntStream.range(0, 20).mapToObj(index -> "ID " + index)
+        .collect(Collectors.toList());
+    try {
+      final long start = System.nanoTime();
+      assertThrows(ExternalTaskException.class, () -> service.getRecords(plugin, ids));
+      assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+    } finally {
+      service.close();
+    }
+  }
+
+  @Test
+  void testGetRecordsCancelsOtherRequestsOnFailure() throws Exception {
+
+    // The first record fails once the second one has started, the second one waits until cancelled.
+    final AbstractExecutablePlugin plugin = mock(AbstractExecutablePlugin.class);
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch cancelled = new CountDownLatch(1);
+    doAnswer(invocation -> {
+      started.await();
+      throw new ExternalTaskException("Failed");
+    }).when(proxiesService).getRecord(plugin, "ID 1");
+    doAnswer(invocation -> {
+      started.countDown();
+      try {
+        new CountDownLatch(1).await();
+      } catch (InterruptedException e) {
+        cancelled.countDown();
+      }
+      return null;
+    }).when(proxiesService).getRecord(plugin, "ID 2");
+
+    // Request the records: the failure should be passed on and the other request cancelled.
+    assertThrows(ExternalTaskException.class,
+        () -> proxiesService.getRecords(plugin, Arrays.asList("ID 1", "ID 2")));
+    assertTrue(cancelled.await(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void testGetRecordsAfterClose() {
+    final ProxiesService closedService = new ProxiesService(workflowExecutionDao,
+        ecloudDataSetServiceClient, recordServiceClient, fileServiceClient, dpsClient,
+        "ecloudProvider", authorizer, proxiesHelper);
+    closedService.close();
+    assertThrows(IllegalStateException.class, () -> closedService
+        .getRecords(mock(AbstractExecutablePlugin.class), Collections.singletonList("ID 1")));
+  }
+
   private Pair<AbstractExecutablePlugin<?>, ExecutablePluginType> getUsedAndUnusedPluginType(
       WorkflowExecution execution) {
     final Set<PluginType> usedPluginTypes = execution.getMetisPlugins().stream()
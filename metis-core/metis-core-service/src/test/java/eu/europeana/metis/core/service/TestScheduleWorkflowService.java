@@ -1,6 +1,11 @@
 package eu.europeana.metis.core.service;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -27,6 +32,9 @@ import eu.europeana.metis.core.workflow.Workflow;
 import eu.europeana.metis.exception.BadContentException;
 import eu.europeana.metis.exception.UserUnauthorizedException;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Date;
 import org.bson.types.ObjectId;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
@@ -89,9 +97,11 @@ class TestScheduleWorkflowService {
         .thenReturn(null);
     when(scheduledWorkflowDao.create(scheduledWorkflow))
         .thenReturn(new ObjectId().toString());
+    scheduledWorkflow.setScheduleFrequence(ScheduleFrequence.DAILY);
     scheduleWorkflowService.scheduleWorkflow(metisUser, scheduledWorkflow);
     verify(authorizer, times(1)).authorizeWriteExistingDatasetById(metisUser, datasetId);
     verifyNoMoreInteractions(authorizer);
+    assertNotNull(scheduledWorkflow.getNextFireTime());
   }
 
   @Test
@@ -190,13 +200,88 @@ class TestScheduleWorkflowService {
   }
 
   @Test
-  void getAllScheduledUserWorkflowsByDateRangeONCE() {
-    scheduleWorkflowService
-        .getAllScheduledWorkflowsByDateRangeONCE(LocalDateTime.now(), LocalDateTime.now(),
-            0);
-    verify(scheduledWorkflowDao, times(1))
-        .getAllScheduledWorkflowsByDateRangeONCE(any(LocalDateTime.class),
-            any(LocalDateTime.class), anyInt());
+  void getDueScheduledWorkflows() {
+    final Date now = new Date();
+    scheduleWorkflowService.getDueScheduledWorkflowsWithoutAuthorization(now);
+    verify(scheduledWorkflowDao, times(1)).getDueScheduledWorkflows(now);
+    verifyNoMoreInteractions(authorizer);
+  }
+
+  @Test
+  void advanceNextFireTime() {
+    final Date now = toDate(LocalDateTime.of(2020, 1, 10, 12, 0));
+    final ScheduledWorkflow scheduledWorkflow = TestObjectFactory.createScheduledWorkflowObject();
+    scheduledWorkflow.setPointerDate(toDate(LocalDateTime.of(2020, 1, 1, 10, 30)));
+    scheduledWorkflow.setScheduleFrequence(ScheduleFrequence.DAILY);
+    scheduledWorkflow.setNextFireTime(toDate(LocalDateTime.of(2020, 1, 10, 10, 30)));
+    when(scheduledWorkflowDao.updateNextFireTime(any(), any())).thenReturn(true);
+
+    // Advance to the first fire time after now (skipping the missed ones).
+    assertTrue(scheduleWorkflowService
+        .advanceNextFireTimeWithoutAuthorization(scheduledWorkflow, now));
+    verify(scheduledWorkflowDao, times(1)).updateNextFireTime(scheduledWorkflow,
+        toDate(LocalDateTime.of(2020, 1, 11, 10, 30)));
+
+    // A scheduled workflow with frequence ONCE will not be due anymore.
+    scheduledWorkflow.setScheduleFrequence(ScheduleFrequence.ONCE);
+    when(scheduledWorkflowDao.updateNextFireTime(any(), any())).thenReturn(false);
+    assertFalse(scheduleWorkflowService
+        .advanceNextFireTimeWithoutAuthorization(scheduledWorkflow, now));
+    verify(scheduledWorkflowDao, times(1)).updateNextFireTime(scheduledWorkflow, null);
+  }
+
+  @Test
+  void initializeNextFireTimes() {
+    final Date now = toDate(LocalDateTime.of(2020, 1, 10, 12, 0));
+    final ScheduledWorkflow recurring = TestObjectFactory.createScheduledWorkflowObject();
+    recurring.setPointerDate(toDate(LocalDateTime.of(2020, 1, 1, 10, 30)));
+    recurring.setScheduleFrequence(ScheduleFrequence.WEEKLY);
+    final ScheduledWorkflow expired = TestObjectFactory.createScheduledWorkflowObject();
+    expired.setPointerDate(toDate(LocalDateTime.of(2020, 1, 1, 10, 30)));
+    when(scheduledWorkflowDao.getScheduledWorkflowsWithoutNextFireTime(now))
+        .thenReturn(Arrays.asList(recurring, expired));
+    scheduleWorkflowService.initializeNextFireTimesWithoutAuthorization(now);
+    verify(scheduledWorkflowDao, times(1)).updateNextFireTime(recurring,
+        toDate(LocalDateTime.of(2020, 1, 15, 10, 30)));
+    verify(scheduledWorkflowDao, times(1)).getScheduledWorkflowsWithoutNextFireTime(now);
+    verifyNoMoreInteractions(scheduledWorkflowDao);
+  }
+
+  @Test
+  void calculateNextFireTime() {
+    final ScheduledWorkflow scheduledWorkflow = TestObjectFactory.createScheduledWorkflowObject();
+    final Date pointerDate = toDate(LocalDateTime.of(2020, 1, 31, 10, 30));
+    scheduledWorkflow.setPointerDate(pointerDate);
+    final Date before = toDate(LocalDateTime.of(2020, 1, 1, 0, 0));
+    final Date after = toDate(LocalDateTime.of(2020, 3, 5, 12, 0));
+
+    scheduledWorkflow.setScheduleFrequence(ScheduleFrequence.ONCE);
+    assertEquals(pointerDate, scheduledWorkflow.calculateNextFireTime(before));
+    assertNull(scheduledWorkflow.calculateNextFireTime(pointerDate));
+
+    scheduledWorkflow.setScheduleFrequence(ScheduleFrequence.DAILY);
+    assertEquals(pointerDate, scheduledWorkflow.calculateNextFireTime(before));
+    assertEquals(toDate(LocalDateTime.of(2020, 2, 1, 10, 30)),
+        scheduledWorkflow.calculateNextFireTime(pointerDate));
+    assertEquals(toDate(LocalDateTime.of(2020, 3, 6, 10, 30)),
+        scheduledWorkflow.calculateNextFireTime(after));
+
+    scheduledWorkflow.setScheduleFrequence(ScheduleFrequence.WEEKLY);
+    assertEquals(toDate(LocalDateTime.of(2020, 3, 6, 10, 30)),
+        scheduledWorkflow.calculateNextFireTime(after));
+
+    scheduledWorkflow.setScheduleFrequence(ScheduleFrequence.MONTHLY);
+    assertEquals(toDate(LocalDateTime.of(2020, 2, 29, 10, 30)),
+        scheduledWorkflow.calculateNextFireTime(pointerDate));
+    assertEquals(toDate(LocalDateTime.of(2020, 3, 31, 10, 30)),
+        scheduledWorkflow.calculateNextFireTime(after));
+
+    scheduledWorkflow.setScheduleFrequence(ScheduleFrequence.NULL);
+    assertNull(scheduledWorkflow.calculateNextFireTime(before));
+  }
+
+  private static Date toDate(LocalDateTime localDateTime) {
+    return Date.from(localDateTime.atZone(ZoneId.systemDefault()).toInstant());
   }
 
   @Test
@@ -7,10 +7,16 @@ import eu.europeana.metis.mediaprocessing.model.RdfResourceEntry;
 import eu.europeana.metis.mediaprocessing.model.ResourceExtractionResult;
 import java.io.Closeable;
 import java.time.Duration;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import org.apache.commons.pool2.BasePooledObjectFactory;
 import org.apache.commons.pool2.PooledObject;
 import org.apache.commons.pool2.impl.DefaultPooledObject;
 import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * <p>
@@ -19,9 +25,17 @@ import org.apache.commons.pool2.impl.GenericObjectPool;
  * otherwise spent on repeatedly creating and destroying media processors.
  * </p>
  * <p>
- * This pool can have an unlimited number of indexers, that will be created automatically whenever
- * they are needed (i.e. when all other indexers are in use already). This thread pool implements
- * the automatic destruction of idle indexers, given a certain permissible idle time.
+ * This pool has a configurable maximum number of processors (see {@link
+ * MediaProcessorPoolSettings}): processors are created automatically whenever they are needed (i.e.
+ * when all other processors are in use already) until this maximum is reached. After that, callers
+ * wait until a processor is returned to the pool (back-pressure), optionally with a maximum wait
+ * time. This pool implements the automatic destruction of idle processors, given a certain
+ * permissible idle time.
+ * </p>
+ * <p>
+ * The pool can optionally be adaptive: in that case its maximum size is periodically reevaluated
+ * based on the number of waiting callers and the time they had to wait. Statistics of the pool are
+ * available through {@link #getPoolStatistics()}.
  * </p>
  * <p>
  * This class is used through one of the inner subclasses that this class provides.
@@ -38,26 +52,47 @@ import org.apache.commons.pool2.impl.GenericObjectPool;
 public abstract class AbstractMediaProcessorPool<I, O, E extends Exception, T extends PoolableProcessor<I, O, E>> implements
     Closeable {
 
-  private static final int MAX_IDLE_TIME_FOR_PROCESSOR_IN_SECONDS = 300;
-  private static final int IDLE_TIME_CHECK_INTERVAL_IN_SECONDS = 60;
+  private static final Logger LOGGER = LoggerFactory.getLogger(AbstractMediaProcessorPool.class);
 
   private final GenericObjectPool<T> pool;
+  private final ScheduledExecutorService adaptationExecutor;
 
-  private AbstractMediaProcessorPool(MediaProcessorFactory processorFactory) {
+  private AbstractMediaProcessorPool(MediaProcessorFactory processorFactory,
+      MediaProcessorPoolSettings settings) {
 
-    // Create indexer pool with default options.
+    // Create processor pool with default options.
     pool = new GenericObjectPool<>(
         new PooledProcessorFactory<>(processorFactory, this::createProcessor));
 
-    // Set custom options for the size of the pool: no max or min number of processor objects.
-    pool.setMaxIdle(-1);
-    pool.setMinIdle(-1);
-    pool.setMaxTotal(-1);
+    // Set custom options for the size of the pool.
+    pool.setMaxTotal(
+        settings.isAdaptive() ? settings.getAdaptiveMinTotal() : settings.getMaxTotal());
+    pool.setMaxIdle(settings.getMaxIdle());
+    pool.setMinIdle(settings.getMinIdle());
+
+    // Set custom options for the behavior when the pool is exhausted: wait for a processor.
+    pool.setBlockWhenExhausted(true);
+    pool.setMaxWaitMillis(settings.getMaxWaitTime());
 
     // Set custom options for pool regarding eviction (when processor has been idle for some time).
     pool.setSoftMinEvictableIdleTimeMillis(-1);
-    pool.setMinEvictableIdleTimeMillis(convertSecsToMillis(MAX_IDLE_TIME_FOR_PROCESSOR_IN_SECONDS));
-    pool.setTimeBetweenEvictionRunsMillis(convertSecsToMillis(IDLE_TIME_CHECK_INTERVAL_IN_SECONDS));
+    pool.setMinEvictableIdleTimeMillis(convertSecsToMillis(settings.getMaxIdleTime()));
+    pool.setTimeBetweenEvictionRunsMillis(convertSecsToMillis(settings.getIdleCheckInterval()));
+
+    // Set up the periodic adaptation of the pool size if needed.
+    if (settings.isAdaptive()) {
+      adaptationExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "media-processor-pool-adaptation");
+        thread.setDaemon(true);
+        return thread;
+      });
+      final PoolSizeAdapter adapter = new PoolSizeAdapter(pool, settings.getAdaptiveMinTotal(),
+          settings.getMaxTotal(), settings.getBorrowWaitThreshold());
+      adaptationExecutor.scheduleWithFixedDelay(adapter::adapt, settings.getAdaptationInterval(),
+          settings.getAdaptationInterval(), TimeUnit.SECONDS);
+    } else {
+      adaptationExecutor = null;
+    }
   }
 
   private static long convertSecsToMillis(long seconds) {
@@ -66,24 +101,29 @@ public abstract class AbstractMediaProcessorPool<I, O, E extends Exception, T ex
 
   /**
    * This method provides access to the pool. It takes one processor from the pool and processes the
-   * given input.
+   * given input. If no processor is available and the pool has reached its maximum size, this
+   * method waits until a processor becomes available (or until the configured maximum wait time
+   * has elapsed).
    *
    * @param input The input to process.
    * @return The result of processing the given input.
    * @throws E In case a problem occurred while processing the input.
-   * @throws MediaProcessorException In case a problem occurred while obtaining processor from the pool.
+   * @throws MediaProcessorException In case a problem occurred while obtaining processor from the
+   * pool (including the case where no processor became available in time).
    */
   public O processTask(I input) throws MediaProcessorException, E {
 
-    // Obtain indexer from the pool.
+    // Obtain processor from the pool.
     final T processor;
     try {
       processor = pool.borrowObject();
+    } catch (NoSuchElementException e) {
+      throw new MediaProcessorException("No processor became available in the pool in time.", e);
     } catch (Exception e) {
       throw new MediaProcessorException("Error while obtaining processor from the pool.", e);
     }
 
-    // Perform indexing and release indexer.
+    // Perform processing and release processor.
     try {
       return processor.processTask(input);
     } finally {
@@ -91,13 +131,108 @@ public abstract class AbstractMediaProcessorPool<I, O, E extends Exception, T ex
     }
   }
 
+  /**
+   * This method returns a snapshot of the statistics of this pool.
+   *
+   * @return The statistics. Is not null.
+   */
+  public MediaProcessorPoolStatistics getPoolStatistics() {
+    return new MediaProcessorPoolStatistics(pool.getMaxTotal(), pool.getNumActive(),
+        pool.getNumIdle(), pool.getNumWaiters(), pool.getCreatedCount(), pool.getDestroyedCount(),
+        pool.getBorrowedCount(), pool.getMeanBorrowWaitTimeMillis(),
+        pool.getMaxBorrowWaitTimeMillis(), pool.getMeanActiveTimeMillis());
+  }
+
   abstract T createProcessor(MediaProcessorFactory processorFactory) throws MediaProcessorException;
 
   @Override
   public void close() {
+    if (adaptationExecutor != null) {
+      adaptationExecutor.shutdownNow();
+    }
     this.pool.close();
   }
 
+  /**
+   * This class contains the logic of resizing an adaptive pool. The pool grows when callers are
+   * waiting for processors (or had to wait longer than the threshold on average) while all
+   * processors are in use. The pool shrinks (one processor at a time) when no callers are waiting
+   * and less than half of the processors are in use. Note that lowering the maximum does not by
+   * itself remove any processors (the evictor only applies the idle limits), so idle processors
+   * above the new maximum are invalidated actively.
+   */
+  static class PoolSizeAdapter {
+
+    private final GenericObjectPool<?> pool;
+    private final int minTotal;
+    private final int maxTotal;
+    private final long borrowWaitThreshold;
+
+    PoolSizeAdapter(GenericObjectPool<?> pool, int minTotal, int maxTotal,
+        long borrowWaitThreshold) {
+      this.pool = pool;
+      this.minTotal = minTotal;
+      this.maxTotal = maxTotal;
+      this.borrowWaitThreshold = borrowWaitThreshold;
+    }
+
+    void adapt() {
+      try {
+        final int currentMaxTotal = pool.getMaxTotal();
+        final int numWaiters = pool.getNumWaiters();
+        final int numActive = pool.getNumActive();
+        final boolean saturated = numActive >= currentMaxTotal;
+        final int newMaxTotal;
+        if (saturated && (numWaiters > 0
+            || pool.getMeanBorrowWaitTimeMillis() > borrowWaitThreshold)) {
+          newMaxTotal = Math.min(maxTotal, currentMaxTotal + Math.max(1, numWaiters));
+        } else if (numWaiters == 0 && numActive * 2 < currentMaxTotal) {
+          newMaxTotal = Math.max(minTotal, Math.max(numActive, currentMaxTotal - 1));
+        } else {
+          newMaxTotal = currentMaxTotal;
+        }
+        if (newMaxTotal != currentMaxTotal) {
+          LOGGER.debug("Resizing media processor pool from {} to {} (active: {}, waiting: {}).",
+              currentMaxTotal, newMaxTotal, numActive, numWaiters);
+          pool.setMaxTotal(newMaxTotal);
+          if (newMaxTotal < currentMaxTotal) {
+            removeExcessIdleProcessors(newMaxTotal);
+          }
+        }
+      } catch (RuntimeException e) {
+        LOGGER.warn("Problem while adapting the size of the media processor pool.", e);
+      }
+    }
+
+    private void removeExcessIdleProcessors(int newMaxTotal) {
+      final int numIdle = pool.getNumIdle();
+      final int excess = Math.min(numIdle, pool.getNumActive() + numIdle - newMaxTotal);
+      for (int i = 0; i < excess; i++) {
+        removeIdleProcessor(pool);
+      }
+    }
+
+    private static <T> void removeIdleProcessor(GenericObjectPool<T> pool) {
+
+      // Borrow without waiting: this only succeeds if there is an idle processor (no new processor
+      // is created as the pool is above its maximum).
+      final T processor;
+      try {
+        processor = pool.borrowObject(0);
+      } catch (NoSuchElementException e) {
+        return;
+      } catch (Exception e) {
+        LOGGER.warn("Problem while obtaining an idle processor to remove from the pool.", e);
+        return;
+      }
+      try {
+        pool.invalidateObject(processor);
+      } catch (Exception e) {
+        LOGGER.warn("Problem while removing an idle processor from the pool.", e);
+      }
+    }
+  }
+
   private static class PooledProcessorFactory<T extends Closeable> extends
       BasePooledObjectFactory<T> {
 
@@ -144,7 +279,18 @@ public abstract class AbstractMediaProcessorPool<I, O, E extends Exception, T ex
      * @param processorFactory The processor factory with which to create the media extractor.
      */
     public MediaExtractorPool(MediaProcessorFactory processorFactory) {
-      super(processorFactory);
+      this(processorFactory, new MediaProcessorPoolSettings());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param processorFactory The processor factory with which to create the media extractor.
+     * @param settings The settings for the pool.
+     */
+    public MediaExtractorPool(MediaProcessorFactory processorFactory,
+        MediaProcessorPoolSettings settings) {
+      super(processorFactory, settings);
     }
 
     @Override
@@ -166,7 +312,18 @@ public abstract class AbstractMediaProcessorPool<I, O, E extends Exception, T ex
      * @param processorFactory The processor factory with which to create the link checker.
      */
     public LinkCheckerPool(MediaProcessorFactory processorFactory) {
-      super(processorFactory);
+      this(processorFactory, new MediaProcessorPoolSettings());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param processorFactory The processor factory with which to create the link checker.
+     * @param settings The settings for the pool.
+     */
+    public LinkCheckerPool(MediaProcessorFactory processorFactory,
+        MediaProcessorPoolSettings settings) {
+      super(processorFactory, settings);
     }
 
     @Override
@@ -51,12 +51,21 @@ public class MediaProcessorFactory {
    */
   public static final int DEFAULT_RESOURCE_DOWNLOAD_TIMEOUT = 600_000;
 
+  /**
+   * The default value of the maximum number of pages of a PDF file that are scanned for text and
+   * images when extracting the metadata. It's currently set to {@value
+   * MediaProcessorFactory#DEFAULT_PDF_PAGE_SCAN_LIMIT}.
+   */
+  public static final int DEFAULT_PDF_PAGE_SCAN_LIMIT = 50;
+
   private int maxRedirectCount = DEFAULT_MAX_REDIRECT_COUNT;
   private int thumbnailGenerateTimeout = DEFAULT_THUMBNAIL_GENERATE_TIMEOUT;
   private int audioVideoProbeTimeout = DEFAULT_AUDIO_VIDEO_PROBE_TIMEOUT;
   private int resourceConnectTimeout = DEFAULT_RESOURCE_CONNECT_TIMEOUT;
   private int resourceSocketTimeout = DEFAULT_RESOURCE_SOCKET_TIMEOUT;
   private int resourceDownloadTimeout = DEFAULT_RESOURCE_DOWNLOAD_TIMEOUT;
+  private int pdfPageScanLimit = DEFAULT_PDF_PAGE_SCAN_LIMIT;
+  private boolean audioVideoRemoteHeaderProbing = false;
 
   /**
    * Set the maximum number of times we will follow a redirect. The default (when not calling this
@@ -134,6 +143,32 @@ public class MediaProcessorFactory {
         resourceDownloadTimeout < 1 ? DEFAULT_RESOURCE_DOWNLOAD_TIMEOUT : resourceDownloadTimeout;
   }
 
+  /**
+   * Set the maximum number of pages of a PDF file that are scanned (starting with the first page)
+   * to determine whether the file contains text and to find the resolution of the images. The
+   * default (when not calling this method or calling it with zero or a negative number) is {@value
+   * MediaProcessorFactory#DEFAULT_PDF_PAGE_SCAN_LIMIT} pages.
+   *
+   * @param pdfPageScanLimit The maximum number of pages to scan.
+   */
+  public void setPdfPageScanLimit(int pdfPageScanLimit) {
+    this.pdfPageScanLimit = pdfPageScanLimit < 1 ? DEFAULT_PDF_PAGE_SCAN_LIMIT : pdfPageScanLimit;
+  }
+
+  /**
+   * Set whether audio/video resources that are not downloaded are probed from their header before
+   * falling back to ffprobe. This requires an extra (range) request for each such resource, and
+   * ffprobe is still invoked if the header can not be probed. The default (when not calling this
+   * method) is false: ffprobe is invoked directly. Before enabling this, parity with the installed
+   * ffprobe version can be checked by running AudioVideoHeaderProberParityTest.
+   *
+   * @param audioVideoRemoteHeaderProbing Whether to probe remote audio/video resources from their
+   * header.
+   */
+  public void setAudioVideoRemoteHeaderProbing(boolean audioVideoRemoteHeaderProbing) {
+    this.audioVideoRemoteHeaderProbing = audioVideoRemoteHeaderProbing;
+  }
+
   /**
    * Create a media extractor object that can be used to extract media metadata and thumbnails.
    *
@@ -143,7 +178,7 @@ public class MediaProcessorFactory {
   public MediaExtractor createMediaExtractor() throws MediaProcessorException {
     return new MediaExtractorImpl(maxRedirectCount, thumbnailGenerateTimeout,
         audioVideoProbeTimeout, resourceConnectTimeout, resourceSocketTimeout,
-        resourceDownloadTimeout);
+        resourceDownloadTimeout, pdfPageScanLimit, audioVideoRemoteHeaderProbing);
   }
 
   /**
@@ -0,0 +1,237 @@
+package eu.europeana.metis.mediaprocessing;
+
+/**
+ * This class contains the settings for an {@link AbstractMediaProcessorPool}: the size of the pool,
+ * the eviction of idle processors, the behavior when the pool is exhausted and the adaptive sizing
+ * of the pool. All settings have sensible defaults, so that only the ones that differ need to be
+ * set. This object is not thread-safe: it is meant to be set up once and then passed to the pool
+ * constructor (which copies the values it needs).
+ */
+public class MediaProcessorPoolSettings {
+
+  /**
+   * The default value of the maximum number of processors in the pool (both in use and idle). It's
+   * currently set to {@value MediaProcessorPoolSettings#DEFAULT_MAX_TOTAL}.
+   */
+  public static final int DEFAULT_MAX_TOTAL = 20;
+
+  /**
+   * The default value of the minimum number of idle processors that the pool tries to maintain.
+   * It's currently set to {@value MediaProcessorPoolSettings#DEFAULT_MIN_IDLE}.
+   */
+  public static final int DEFAULT_MIN_IDLE = 0;
+
+  /**
+   * The default value of the maximum number of idle processors in the pool. It's currently set to
+   * {@value MediaProcessorPoolSettings#DEFAULT_MAX_IDLE}.
+   */
+  public static final int DEFAULT_MAX_IDLE = DEFAULT_MAX_TOTAL;
+
+  /**
+   * The default value of the amount of time, in seconds, that a processor may be idle before it is
+   * eligible for eviction. It's currently set to {@value MediaProcessorPoolSettings#DEFAULT_MAX_IDLE_TIME}
+   * seconds.
+   */
+  public static final int DEFAULT_MAX_IDLE_TIME = 300;
+
+  /**
+   * The default value of the interval, in seconds, between two runs of the idle processor evictor.
+   * It's currently set to {@value MediaProcessorPoolSettings#DEFAULT_IDLE_CHECK_INTERVAL} seconds.
+   */
+  public static final int DEFAULT_IDLE_CHECK_INTERVAL = 60;
+
+  /**
+   * The default value of the maximum amount of time, in milliseconds, that a caller waits for a
+   * processor to become available when the pool is exhausted. It's currently set to {@value
+   * MediaProcessorPoolSettings#DEFAULT_MAX_WAIT_TIME}, meaning that callers wait indefinitely.
+   */
+  public static final long DEFAULT_MAX_WAIT_TIME = -1;
+
+  /**
+   * The default value of the lower bound, in number of processors, to which an adaptive pool can
+   * shrink. It's currently set to {@value MediaProcessorPoolSettings#DEFAULT_ADAPTIVE_MIN_TOTAL}.
+   */
+  public static final int DEFAULT_ADAPTIVE_MIN_TOTAL = 2;
+
+  /**
+   * The default value of the interval, in seconds, between two resizing evaluations of an adaptive
+   * pool. It's currently set to {@value MediaProcessorPoolSettings#DEFAULT_ADAPTATION_INTERVAL}
+   * seconds.
+   */
+  public static final int DEFAULT_ADAPTATION_INTERVAL = 10;
+
+  /**
+   * The default value of the mean time, in milliseconds, that callers may wait for a processor
+   * before an adaptive pool grows. It's currently set to {@value MediaProcessorPoolSettings#DEFAULT_BORROW_WAIT_THRESHOLD}
+   * milliseconds.
+   */
+  public static final long DEFAULT_BORROW_WAIT_THRESHOLD = 1_000;
+
+  private int maxTotal = DEFAULT_MAX_TOTAL;
+  private int minIdle = DEFAULT_MIN_IDLE;
+  private int maxIdle = DEFAULT_MAX_IDLE;
+  private int maxIdleTime = DEFAULT_MAX_IDLE_TIME;
+  private int idleCheckInterval = DEFAULT_IDLE_CHECK_INTERVAL;
+  private long maxWaitTime = DEFAULT_MAX_WAIT_TIME;
+  private boolean adaptive = false;
+  private int adaptiveMinTotal = DEFAULT_ADAPTIVE_MIN_TOTAL;
+  private int adaptationInterval = DEFAULT_ADAPTATION_INTERVAL;
+  private long borrowWaitThreshold = DEFAULT_BORROW_WAIT_THRESHOLD;
+
+  /**
+   * Set the maximum number of processors in the pool (both in use and idle). If the pool is
+   * adaptive, this is the upper bound to which the pool can grow. The default (when not calling
+   * this method or calling it with zero or a negative number) is {@value
+   * MediaProcessorPoolSettings#DEFAULT_MAX_TOTAL}.
+   *
+   * @param maxTotal The maximum number of processors in the pool.
+   */
+  public void setMaxTotal(int maxTotal) {
+    this.maxTotal = maxTotal < 1 ? DEFAULT_MAX_TOTAL : maxTotal;
+  }
+
+  /**
+   * Set the minimum number of idle processors that the pool tries to maintain (i.e. that are not
+   * subject to eviction). The default (when not calling this method or calling it with a negative
+   * number) is {@value MediaProcessorPoolSettings#DEFAULT_MIN_IDLE}.
+   *
+   * @param minIdle The minimum number of idle processors.
+   */
+  public void setMinIdle(int minIdle) {
+    this.minIdle = minIdle < 0 ? DEFAULT_MIN_IDLE : minIdle;
+  }
+
+  /**
+   * Set the maximum number of idle processors in the pool. Processors that are returned to the pool
+   * when this number is reached are destroyed. The default (when not calling this method or calling
+   * it with a negative number) is {@value MediaProcessorPoolSettings#DEFAULT_MAX_IDLE}.
+   *
+   * @param maxIdle The maximum number of idle processors.
+   */
+  public void setMaxIdle(int maxIdle) {
+    this.maxIdle = maxIdle < 0 ? DEFAULT_MAX_IDLE : maxIdle;
+  }
+
+  /**
+   * Set the amount of time, in seconds, that a processor may be idle before it is eligible for
+   * eviction. The default (when not calling this method or calling it with zero or a negative
+   * number) is {@value MediaProcessorPoolSettings#DEFAULT_MAX_IDLE_TIME} seconds.
+   *
+   * @param maxIdleTime The maximum idle time in seconds.
+   */
+  public void setMaxIdleTime(int maxIdleTime) {
+    this.maxIdleTime = maxIdleTime < 1 ? DEFAULT_MAX_IDLE_TIME : maxIdleTime;
+  }
+
+  /**
+   * Set the interval, in seconds, between two runs of the idle processor evictor. The default (when
+   * not calling this method or calling it with zero or a negative number) is {@value
+   * MediaProcessorPoolSettings#DEFAULT_IDLE_CHECK_INTERVAL} seconds.
+   *
+   * @param idleCheckInterval The interval in seconds.
+   */
+  public void setIdleCheckInterval(int idleCheckInterval) {
+    this.idleCheckInterval = idleCheckInterval < 1 ? DEFAULT_IDLE_CHECK_INTERVAL
+        : idleCheckInterval;
+  }
+
+  /**
+   * Set the maximum amount of time, in milliseconds, that a caller waits for a processor to become
+   * available when the pool is exhausted. After this time, processing fails with a {@link
+   * eu.europeana.metis.mediaprocessing.exception.MediaProcessorException}. The default (when not
+   * calling this method or calling it with a negative number) is to wait indefinitely.
+   *
+   * @param maxWaitTime The maximum wait time in milliseconds.
+   */
+  public void setMaxWaitTime(long maxWaitTime) {
+    this.maxWaitTime = maxWaitTime < 0 ? DEFAULT_MAX_WAIT_TIME : maxWaitTime;
+  }
+
+  /**
+   * Set whether the pool is adaptive. An adaptive pool starts with the minimum size (see {@link
+   * #setAdaptiveMinTotal(int)}) and periodically grows (up to the maximum size, see {@link
+   * #setMaxTotal(int)}) when callers have to wait for processors, or shrinks when processors are
+   * underused. The default is false.
+   *
+   * @param adaptive Whether the pool is adaptive.
+   */
+  public void setAdaptive(boolean adaptive) {
+    this.adaptive = adaptive;
+  }
+
+  /**
+   * Set the lower bound, in number of processors, to which an adaptive pool can shrink. This is
+   * also the size with which an adaptive pool starts. This value is capped by the maximum size (see
+   * {@link #setMaxTotal(int)}). The default (when not calling this method or calling it with zero
+   * or a negative number) is {@value MediaProcessorPoolSettings#DEFAULT_ADAPTIVE_MIN_TOTAL}.
+   *
+   * @param adaptiveMinTotal The minimum size of an adaptive pool.
+   */
+  public void setAdaptiveMinTotal(int adaptiveMinTotal) {
+    this.adaptiveMinTotal = adaptiveMinTotal < 1 ? DEFAULT_ADAPTIVE_MIN_TOTAL : adaptiveMinTotal;
+  }
+
+  /**
+   * Set the interval, in seconds, between two resizing evaluations of an adaptive pool. The default
+   * (when not calling this method or calling it with zero or a negative number) is {@value
+   * MediaProcessorPoolSettings#DEFAULT_ADAPTATION_INTERVAL} seconds.
+   *
+   * @param adaptationInterval The interval in seconds.
+   */
+  public void setAdaptationInterval(int adaptationInterval) {
+    this.adaptationInterval = adaptationInterval < 1 ? DEFAULT_ADAPTATION_INTERVAL
+        : adaptationInterval;
+  }
+
+  /**
+   * Set the mean time, in milliseconds, that callers may wait for a processor before an adaptive
+   * pool grows. The default (when not calling this method or calling it with a negative number) is
+   * {@value MediaProcessorPoolSettings#DEFAULT_BORROW_WAIT_THRESHOLD} milliseconds.
+   *
+   * @param borrowWaitThreshold The threshold in milliseconds.
+   */
+  public void setBorrowWaitThreshold(long borrowWaitThreshold) {
+    this.borrowWaitThreshold = borrowWaitThreshold < 0 ? DEFAULT_BORROW_WAIT_THRESHOLD
+        : borrowWaitThreshold;
+  }
+
+  int getMaxTotal() {
+    return maxTotal;
+  }
+
+  int getMinIdle() {
+    return minIdle;
+  }
+
+  int getMaxIdle() {
+    return maxIdle;
+  }
+
+  int getMaxIdleTime() {
+    return maxIdleTime;
+  }
+
+  int getIdleCheckInterval() {
+    return idleCheckInterval;
+  }
+
+  long getMaxWaitTime() {
+    return maxWaitTime;
+  }
+
+  boolean isAdaptive() {
+    return adaptive;
+  }
+
+  int getAdaptiveMinTotal() {
+    return Math.min(adaptiveMinTotal, maxTotal);
+  }
+
+  int getAdaptationInterval() {
+    return adaptationInterval;
+  }
+
+  long getBorrowWaitThreshold() {
+    return borrowWaitThreshold;
+  }
+}
@@ -0,0 +1,117 @@
+package eu.europeana.metis.mediaprocessing;
+
+/**
+ * This class contains a snapshot of the statistics of an {@link AbstractMediaProcessorPool}. It can
+ * be used to monitor the pool and to size the media workers. This object is immutable.
+ */
+public class MediaProcessorPoolStatistics {
+
+  private final int currentMaxTotal;
+  private final int numActive;
+  private final int numIdle;
+  private final int numWaiters;
+  private final long createdCount;
+  private final long destroyedCount;
+  private final long borrowedCount;
+  private final long meanBorrowWaitTimeMillis;
+  private final long maxBorrowWaitTimeMillis;
+  private final long meanActiveTimeMillis;
+
+  MediaProcessorPoolStatistics(int currentMaxTotal, int numActive, int numIdle, int numWaiters,
+      long createdCount, long destroyedCount, long borrowedCount, long meanBorrowWaitTimeMillis,
+      long maxBorrowWaitTimeMillis, long meanActiveTimeMillis) {
+    this.currentMaxTotal = currentMaxTotal;
+    this.numActive = numActive;
+    this.numIdle = numIdle;
+    this.numWaiters = numWaiters;
+    this.createdCount = createdCount;
+    this.destroyedCount = destroyedCount;
+    this.borrowedCount = borrowedCount;
+    this.meanBorrowWaitTimeMillis = meanBorrowWaitTimeMillis;
+    this.maxBorrowWaitTimeMillis = maxBorrowWaitTimeMillis;
+    this.meanActiveTimeMillis = meanActiveTimeMillis;
+  }
+
+  /**
+   * @return The current maximum number of processors in the pool. For adaptive pools this value
+   * changes over time.
+   */
+  public int getCurrentMaxTotal() {
+    return currentMaxTotal;
+  }
+
+  /**
+   * @return The number of processors that are currently in use.
+   */
+  public int getNumActive() {
+    return numActive;
+  }
+
+  /**
+   * @return The number of processors that are currently idle in the pool.
+   */
+  public int getNumIdle() {
+    return numIdle;
+  }
+
+  /**
+   * @return The number of callers that are currently waiting for a processor.
+   */
+  public int getNumWaiters() {
+    return numWaiters;
+  }
+
+  /**
+   * @return The total number of processors created by the pool.
+   */
+  public long getCreatedCount() {
+    return createdCount;
+  }
+
+  /**
+   * @return The total number of processors destroyed by the pool.
+   */
+  public long getDestroyedCount() {
+    return destroyedCount;
+  }
+
+  /**
+   * @return The total number of times a processor was obtained from the pool.
+   */
+  public long getBorrowedCount() {
+    return borrowedCount;
+  }
+
+  /**
+   * @return The mean time, in milliseconds, that callers waited for a processor (over the most
+   * recent tasks).
+   */
+  public long getMeanBorrowWaitTimeMillis() {
+    return meanBorrowWaitTimeMillis;
+  }
+
+  /**
+   * @return The maximum time, in milliseconds, that a caller waited for a processor.
+   */
+  public long getMaxBorrowWaitTimeMillis() {
+    return maxBorrowWaitTimeMillis;
+  }
+
+  /**
+   * @return The mean time, in milliseconds, that a processor was in use (over the most recent
+   * tasks).
+   */
+  public long getMeanActiveTimeMillis() {
+    return meanActiveTimeMillis;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "MediaProcessorPoolStatistics{currentMaxTotal=%d, numActive=%d, numIdle=%d, numWaiters=%d,"
+            + " createdCount=%d, destroyedCount=%d, borrowedCount=%d, meanBorrowWaitTimeMillis=%d,"
+            + " maxBorrowWaitTimeMillis=%d, meanActiveTimeMillis=%d}", currentMaxTotal, numActive,
+        numIdle, numWaiters, createdCount, destroyedCount, borrowedCount, meanBorrowWaitTimeMillis,
+        maxBorrowWaitTimeMillis, meanActiveTimeMillis);
+  }
+}
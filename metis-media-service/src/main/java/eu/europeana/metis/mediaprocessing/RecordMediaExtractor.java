@@ -0,0 +1,401 @@
+package eu.europeana.metis.mediaprocessing;
+
+import eu.europeana.metis.mediaprocessing.AbstractMediaProcessorPool.MediaExtractorPool;
+import eu.europeana.metis.mediaprocessing.exception.MediaExtractionException;
+import eu.europeana.metis.mediaprocessing.exception.MediaProcessorException;
+import eu.europeana.metis.mediaprocessing.model.EnrichedRdf;
+import eu.europeana.metis.mediaprocessing.model.RdfResourceEntry;
+import eu.europeana.metis.mediaprocessing.model.ResourceExtractionResult;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * This class processes all resources of a record in parallel: the resources are distributed over
+ * the processors in a {@link MediaExtractorPool} and the results are reassembled in the order in
+ * which the resources were provided. This means that a record with many resources (e.g. a
+ * manuscript with hundreds of pages) does not occupy a single processor for a long time.
+ * </p>
+ * <p>
+ * The parallelism is bounded in two ways: there is a maximum number of resources of the same
+ * record that are processed at the same time, and a maximum number of resources on the same host
+ * that are processed at the same time (shared across all records processed by this instance). The
+ * latter prevents us from overloading a single provider's server. Note that the scheduling is done
+ * in the calling thread: resources that can't be started because their host is busy are skipped in
+ * favor of resources on other hosts, so that they don't block the worker threads. The per-host
+ * limits are only kept for hosts that are currently in use, so they don't accumulate over time.
+ * </p>
+ * <p>
+ * This class does not download or analyze anything itself: it is the entry point for external
+ * callers (such as the media processing in eCloud) that process whole records.
+ * </p>
+ * <p>
+ * This class is thread-safe: multiple records can be processed at the same time.
+ * </p>
+ */
+public class RecordMediaExtractor implements Closeable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(RecordMediaExtractor.class);
+
+  /**
+   * The default value of the number of worker threads. It's currently set to {@value
+   * RecordMediaExtractor#DEFAULT_THREAD_COUNT}.
+   */
+  public static final int DEFAULT_THREAD_COUNT = MediaProcessorPoolSettings.DEFAULT_MAX_TOTAL;
+
+  /**
+   * The default value of the maximum number of resources of one record that are processed at the
+   * same time. It's currently set to {@value
+   * RecordMediaExtractor#DEFAULT_MAX_RESOURCES_PER_RECORD}.
+   */
+  public static final int DEFAULT_MAX_RESOURCES_PER_RECORD = 5;
+
+  /**
+   * The default value of the maximum number of resources on one host that are processed at the
+   * same time. It's currently set to {@value RecordMediaExtractor#DEFAULT_MAX_RESOURCES_PER_HOST}.
+   */
+  public static final int DEFAULT_MAX_RESOURCES_PER_HOST = 4;
+
+  private static final String UNKNOWN_HOST = "";
+
+  private final MediaExtractorPool pool;
+  private final ExecutorService executor;
+  private final int maxResourcesPerRecord;
+  private final int maxResourcesPerHost;
+  private final Map<String, HostPermits> hostPermits = new ConcurrentHashMap<>();
+
+  /**
+   * Constructor with default values for the thread count and the limits.
+   *
+   * @param pool The pool of media extractors with which to process the resources. Note that the
+   * pool is not closed when this object is closed.
+   */
+  public RecordMediaExtractor(MediaExtractorPool pool) {
+    this(pool, DEFAULT_THREAD_COUNT, DEFAULT_MAX_RESOURCES_PER_RECORD,
+        DEFAULT_MAX_RESOURCES_PER_HOST);
+  }
+
+  /**
+   * Constructor. Values that are not positive are replaced by their default values.
+   *
+   * @param pool The pool of media extractors with which to process the resources. Note that the
+   * pool is not closed when this object is closed.
+   * @param threadCount The number of worker threads. This should typically not exceed the maximum
+   * size of the pool, as the additional threads would just wait for a processor.
+   * @param maxResourcesPerRecord The maximum number of resources of one record that are processed
+   * at the same time.
+   * @param maxResourcesPerHost The maximum number of resources on one host that are processed at
+   * the same time.
+   */
+  public RecordMediaExtractor(MediaExtractorPool pool, int threadCount, int maxResourcesPerRecord,
+      int maxResourcesPerHost) {
+    this.pool = pool;
+    this.executor = Executors
+        .newFixedThreadPool(threadCount < 1 ? DEFAULT_THREAD_COUNT : threadCount);
+    this.maxResourcesPerRecord =
+        maxResourcesPerRecord < 1 ? DEFAULT_MAX_RESOURCES_PER_RECORD : maxResourcesPerRecord;
+    this.maxResourcesPerHost =
+        maxResourcesPerHost < 1 ? DEFAULT_MAX_RESOURCES_PER_HOST : maxResourcesPerHost;
+  }
+
+  /**
+   * Processes the resources of one record and enriches the RDF with the resulting metadata. The
+   * RDF is enriched in the calling thread, in the order in which the resources are provided, so
+   * the result does not depend on the order in which the processing finishes.
+   *
+   * @param rdf The RDF of the record to enrich.
+   * @param resourceEntries The resources of the record to process.
+   * @return The outcome for each of the resources, in the same order as the resources. The caller
+   * is responsible for handling the thumbnails and closing the results.
+   * @throws InterruptedException In case the thread was interrupted while waiting for the
+   * processing to finish. In this case, resources that have not started yet are skipped and all
+   * results (including those that are still being processed) are closed.
+   */
+  public List<ResourceOutcome> processRecord(EnrichedRdf rdf,
+      List<RdfResourceEntry> resourceEntries) throws InterruptedException {
+    final List<ResourceOutcome> outcomes = processResources(resourceEntries);
+    for (ResourceOutcome outcome : outcomes) {
+      if (outcome.getResult() != null && outcome.getResult().getMetadata() != null) {
+        rdf.enrichResource(outcome.getResult().getMetadata());
+      }
+    }
+    return outcomes;
+  }
+
+  /**
+   * Processes the resources of one record.
+   *
+   * @param resourceEntries The resources of the record to process.
+   * @return The outcome for each of the resources, in the same order as the resources. The caller
+   * is responsible for closing the results.
+   * @throws InterruptedException In case the thread was interrupted while waiting for the
+   * processing to finish. In this case, resources that have not started yet are skipped and all
+   * results (including those that are still being processed) are closed.
+   */
+  public List<ResourceOutcome> processResources(List<RdfResourceEntry> resourceEntries)
+      throws InterruptedException {
+
+    // Prepare the pending resources and the result list.
+    final List<ResourceOutcome> outcomes = new ArrayList<>(
+        Collections.nCopies(resourceEntries.size(), null));
+    final List<Integer> pending = new LinkedList<>();
+    for (int i = 0; i < resourceEntries.size(); i++) {
+      pending.add(i);
+    }
+
+    // Schedule the resources and wait for the results.
+    final CompletionService<ResourceOutcome> completionService =
+        new ExecutorCompletionService<>(executor);
+    final ProcessingState state = new ProcessingState();
+    int inFlight = 0;
+    try {
+      while (!pending.isEmpty() || inFlight > 0) {
+
+        // Start as many resources as we can without waiting for a host.
+        final Iterator<Integer> iterator = pending.iterator();
+        while (inFlight < maxResourcesPerRecord && iterator.hasNext()) {
+          final int index = iterator.next();
+          final String host = getHost(resourceEntries.get(index).getResourceUrl());
+          if (tryAcquireHostPermit(host)) {
+            iterator.remove();
+            completionService.submit(() -> process(index, resourceEntries.get(index), host, state));
+            inFlight++;
+          }
+        }
+
+        // If nothing is running, all hosts are busy with other records: wait for the first one.
+        if (inFlight == 0) {
+          final int index = pending.remove(0);
+          final String host = getHost(resourceEntries.get(index).getResourceUrl());
+          acquireHostPermit(host);
+          completionService.submit(() -> process(index, resourceEntries.get(index), host, state));
+          inFlight++;
+        }
+
+        // Wait for a resource to finish.
+        final ResourceOutcome outcome = getOutcome(completionService.take());
+        state.claim(outcome.getResult());
+        outcomes.set(outcome.getIndex(), outcome);
+        inFlight--;
+      }
+    } catch (InterruptedException e) {
+      // Don't cancel the futures: tasks that haven't started need to run to release their permit.
+      // Close the results: those that we have and those that are (or will be) finished but that we
+      // will not collect.
+      state.cancel();
+      outcomes.stream().filter(outcome -> outcome != null && outcome.getResult() != null)
+          .map(ResourceOutcome::getResult).forEach(RecordMediaExtractor::closeResult);
+      throw e;
+    }
+    return outcomes;
+  }
+
+  private static ResourceOutcome getOutcome(Future<ResourceOutcome> future)
+      throws InterruptedException {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      // Cannot happen: the task catches all exceptions.
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private ResourceOutcome process(int index, RdfResourceEntry resourceEntry, String host,
+      ProcessingState state) {
+    try {
+      if (state.isCancelled()) {
+        return new ResourceOutcome(index, resourceEntry, null, null);
+      }
+      final ResourceExtractionResult result = pool.processTask(resourceEntry);
+      return state.publish(result) ? new ResourceOutcome(index, resourceEntry, result, null)
+          : new ResourceOutcome(index, resourceEntry, null, null);
+    } catch (Exception e) {
+      return new ResourceOutcome(index, resourceEntry, null, e);
+    } finally {
+      releaseHostPermit(host);
+    }
+  }
+
+  private static void closeResult(ResourceExtractionResult result) {
+    try {
+      result.close();
+    } catch (IOException | RuntimeException e) {
+      LOGGER.warn("Could not close the result of a cancelled resource.", e);
+    }
+  }
+
+  private boolean tryAcquireHostPermit(String host) {
+    final HostPermits permits = retainHostPermits(host);
+    final boolean acquired = permits.semaphore.tryAcquire();
+    if (!acquired) {
+      releaseHostPermits(host);
+    }
+    return acquired;
+  }
+
+  private void acquireHostPermit(String host) throws InterruptedException {
+    final HostPermits permits = retainHostPermits(host);
+    try {
+      permits.semaphore.acquire();
+    } catch (InterruptedException e) {
+      releaseHostPermits(host);
+      throw e;
+    }
+  }
+
+  private void releaseHostPermit(String host) {
+    hostPermits.get(host).semaphore.release();
+    releaseHostPermits(host);
+  }
+
+  private HostPermits retainHostPermits(String host) {
+    return hostPermits.compute(host, (key, permits) -> {
+      final HostPermits result = permits == null ? new HostPermits(maxResourcesPerHost) : permits;
+      result.users++;
+      return result;
+    });
+  }
+
+  private void releaseHostPermits(String host) {
+    hostPermits.computeIfPresent(host, (key, permits) -> {
+      permits.users--;
+      return permits.users == 0 ? null : permits;
+    });
+  }
+
+  int getHostCount() {
+    return hostPermits.size();
+  }
+
+  private static String getHost(String url) {
+    try {
+      final String host = URI.create(url).getHost();
+      return host == null ? UNKNOWN_HOST : host.toLowerCase();
+    } catch (IllegalArgumentException | NullPointerException e) {
+      return UNKNOWN_HOST;
+    }
+  }
+
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * The permits for one host. The number of users (resources that hold or wait for a permit) is
+   * kept so that the permits can be removed when the host is no longer in use. The users are only
+   * counted inside the atomic map operations, so no further synchronization is needed.
+   */
+  private static class HostPermits {
+
+    private final Semaphore semaphore;
+    private int users;
+
+    HostPermits(int maxResourcesPerHost) {
+      this.semaphore = new Semaphore(maxResourcesPerHost);
+    }
+  }
+
+  /**
+   * The state of the processing of one record. Results that are finished but that are not yet
+   * claimed by the calling thread are kept, so that they can be closed when the processing is
+   * cancelled. After cancellation, results that are finished are closed right away.
+   */
+  private static class ProcessingState {
+
+    private final Set<ResourceExtractionResult> unclaimedResults = Collections
+        .newSetFromMap(new IdentityHashMap<>());
+    private boolean cancelled;
+
+    synchronized boolean isCancelled() {
+      return cancelled;
+    }
+
+    synchronized boolean publish(ResourceExtractionResult result) {
+      if (result == null) {
+        return true;
+      }
+      if (cancelled) {
+        closeResult(result);
+        return false;
+      }
+      unclaimedResults.add(result);
+      return true;
+    }
+
+    synchronized void claim(ResourceExtractionResult result) {
+      if (result != null) {
+        unclaimedResults.remove(result);
+      }
+    }
+
+    synchronized void cancel() {
+      cancelled = true;
+      unclaimedResults.forEach(RecordMediaExtractor::closeResult);
+      unclaimedResults.clear();
+    }
+  }
+
+  /**
+   * This class contains the outcome of processing one resource: either a result or an exception.
+   */
+  public static class ResourceOutcome {
+
+    private final int index;
+    private final RdfResourceEntry resourceEntry;
+    private final ResourceExtractionResult result;
+    private final Exception exception;
+
+    ResourceOutcome(int index, RdfResourceEntry resourceEntry, ResourceExtractionResult result,
+        Exception exception) {
+      this.index = index;
+      this.resourceEntry = resourceEntry;
+      this.result = result;
+      this.exception = exception;
+    }
+
+    int getIndex() {
+      return index;
+    }
+
+    public RdfResourceEntry getResourceEntry() {
+      return resourceEntry;
+    }
+
+    /**
+     * @return The result of the processing. Is null if the processing failed (in which case {@link
+     * #getException()} returns the exception) or if the processor returned no result.
+     */
+    public ResourceExtractionResult getResult() {
+      return result;
+    }
+
+    /**
+     * @return The exception that occurred during processing, or null if the processing succeeded.
+     * This is typically a {@link MediaExtractionException} or a {@link
+     * MediaProcessorException}.
+     */
+    public Exception getException() {
+      return exception;
+    }
+  }
+}
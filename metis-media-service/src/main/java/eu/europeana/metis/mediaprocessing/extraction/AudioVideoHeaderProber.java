@@ -0,0 +1,654 @@
+package eu.europeana.metis.mediaprocessing.extraction;
+
+import eu.europeana.metis.mediaprocessing.model.AbstractResourceMetadata;
+import eu.europeana.metis.mediaprocessing.model.AudioResourceMetadata;
+import eu.europeana.metis.mediaprocessing.model.VideoResourceMetadata;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * This class extracts audio/video metadata from the header (i.e. the first bytes) of a resource,
+ * without the need to invoke ffprobe. It supports the most common containers: WAV (PCM and
+ * A-law/mu-law), MP3 (MPEG audio layer I, II and III, with or without Xing/Info/VBRI header) and
+ * MP4/M4A/MOV (ISO base media file format, provided that the 'moov' box is contained in the
+ * header). The values are computed in the same way as ffprobe does, so that the resulting metadata
+ * is the same as that obtained from the ffprobe output.
+ * </p>
+ * <p>
+ * If the format is not supported, or if the header does not contain enough information, this class
+ * returns null: the caller should then fall back to ffprobe. This class is stateless and
+ * thread-safe.
+ * </p>
+ */
+class AudioVideoHeaderProber {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AudioVideoHeaderProber.class);
+
+  private static final String MP3_MIME_TYPE = "audio/mpeg";
+
+  private static final Set<String> SUPPORTED_MIME_TYPES = Collections.unmodifiableSet(
+      new HashSet<>(Arrays.asList("audio/wav", "audio/x-wav", "audio/wave", "audio/vnd.wave",
+          MP3_MIME_TYPE, "audio/mp4", "audio/x-m4a", "video/mp4", "video/x-m4v",
+          "video/quicktime")));
+
+  private static final int[][] MP3_BIT_RATES_MPEG1 = {
+      {0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448},
+      {0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384},
+      {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320}};
+  private static final int[][] MP3_BIT_RATES_MPEG2 = {
+      {0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256},
+      {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160},
+      {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160}};
+  private static final int[] MP3_SAMPLE_RATES_MPEG1 = {44100, 48000, 32000};
+  private static final int MP3_VERSION_MPEG1 = 3;
+  private static final int MP3_VERSION_MPEG2 = 2;
+  private static final int MP3_LAYER_1 = 3;
+  private static final int MP3_LAYER_2 = 2;
+  private static final int MP3_LAYER_3 = 1;
+  private static final int MP3_CHANNEL_MODE_MONO = 3;
+  private static final int MP3_MAX_SYNC_SEARCH = 4096;
+  private static final int ID3V2_HEADER_SIZE = 10;
+  private static final int XING_FLAG_FRAMES = 0x1;
+  private static final int XING_FLAG_BYTES = 0x2;
+
+  private static final int WAV_FORMAT_PCM = 0x1;
+  private static final int WAV_FORMAT_FLOAT = 0x3;
+  private static final int WAV_FORMAT_ALAW = 0x6;
+  private static final int WAV_FORMAT_MULAW = 0x7;
+  private static final int WAV_FORMAT_EXTENSIBLE = 0xFFFE;
+
+  private static final int BOX_HEADER_SIZE = 8;
+
+  /**
+   * Determines whether resources of the given mime type may be supported by this prober. This can
+   * be used to avoid obtaining the header of a resource that can not be probed anyway.
+   *
+   * @param detectedMimeType The detected mime type of the resource.
+   * @return Whether the resource may be supported.
+   */
+  boolean supportsMimeType(String detectedMimeType) {
+    return SUPPORTED_MIME_TYPES.contains(detectedMimeType);
+  }
+
+  /**
+   * Extracts the metadata from the header of a resource.
+   *
+   * @param header The header of the resource (the first bytes). Can be shorter than the resource.
+   * @param detectedMimeType The detected mime type of the resource.
+   * @param resourceUrl The URL of the resource.
+   * @param fileSize The total size of the resource in bytes.
+   * @return The metadata, or null if the metadata could not be extracted from the header.
+   */
+  AbstractResourceMetadata probe(byte[] header, String detectedMimeType, String resourceUrl,
+      long fileSize) {
+    final ByteBuffer buffer = ByteBuffer.wrap(header).order(ByteOrder.BIG_ENDIAN);
+    try {
+      final AbstractResourceMetadata result;
+      if (isWav(buffer)) {
+        result = probeWav(buffer, detectedMimeType, resourceUrl, fileSize);
+      } else if (isMp4(buffer)) {
+        result = probeMp4(buffer, detectedMimeType, resourceUrl, fileSize);
+      } else if (MP3_MIME_TYPE.equals(detectedMimeType)) {
+        result = probeMp3(buffer, detectedMimeType, resourceUrl, fileSize);
+      } else {
+        result = null;
+      }
+      return result;
+    } catch (IndexOutOfBoundsException | BufferUnderflowException | ArithmeticException e) {
+      LOGGER.debug("Could not probe header of resource {}.", resourceUrl, e);
+      return null;
+    }
+  }
+
+  private static boolean hasFourCc(ByteBuffer buffer, int position, String fourCc) {
+    return buffer.limit() >= position + 4 && fourCc.equals(readFourCc(buffer, position));
+  }
+
+  private static String readFourCc(ByteBuffer buffer, int position) {
+    final byte[] bytes = new byte[4];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = buffer.get(position + i);
+    }
+    return new String(bytes, StandardCharsets.ISO_8859_1);
+  }
+
+  private static long readUnsignedInt(ByteBuffer buffer, int position) {
+    return buffer.getInt(position) & 0xFFFFFFFFL;
+  }
+
+  private static int readUnsignedShort(ByteBuffer buffer, int position) {
+    return buffer.getShort(position) & 0xFFFF;
+  }
+
+  private static int readUnsignedByte(ByteBuffer buffer, int position) {
+    return buffer.get(position) & 0xFF;
+  }
+
+  // WAV
+
+  private static boolean isWav(ByteBuffer buffer) {
+    return hasFourCc(buffer, 0, "RIFF") && hasFourCc(buffer, 8, "WAVE");
+  }
+
+  private static AbstractResourceMetadata probeWav(ByteBuffer bigEndianBuffer,
+      String detectedMimeType, String resourceUrl, long fileSize) {
+    final ByteBuffer buffer = bigEndianBuffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+
+    // Go through the chunks until we have found the format and the data.
+    int formatTag = -1;
+    int channels = 0;
+    int sampleRate = 0;
+    int blockAlign = 0;
+    int bitsPerSample = 0;
+    long dataSize = -1;
+    long position = 12;
+    while (dataSize < 0 && position + BOX_HEADER_SIZE <= buffer.limit()) {
+      final String chunkId = readFourCc(buffer, (int) position);
+      final long chunkSize = readUnsignedInt(buffer, (int) position + 4);
+      final int chunkStart = (int) position + BOX_HEADER_SIZE;
+      if ("fmt ".equals(chunkId)) {
+        formatTag = readUnsignedShort(buffer, chunkStart);
+        channels = readUnsignedShort(buffer, chunkStart + 2);
+        sampleRate = Math.toIntExact(readUnsignedInt(buffer, chunkStart + 4));
+        blockAlign = readUnsignedShort(buffer, chunkStart + 12);
+        bitsPerSample = readUnsignedShort(buffer, chunkStart + 14);
+        if (formatTag == WAV_FORMAT_EXTENSIBLE && chunkSize >= 40) {
+          formatTag = readUnsignedShort(buffer, chunkStart + 24);
+        }
+      } else if ("data".equals(chunkId)) {
+        // The data size can be unreliable (e.g. for streamed files): cap it by the file size.
+        dataSize = Math.min(chunkSize, fileSize - chunkStart);
+      }
+      position = chunkStart + chunkSize + (chunkSize & 1);
+    }
+
+    // Compute the values.
+    final String codecName = getWavCodecName(formatTag, bitsPerSample);
+    if (codecName == null || dataSize < 0 || channels == 0 || sampleRate == 0 || blockAlign == 0) {
+      return null;
+    }
+    final double duration = (double) (dataSize / blockAlign) / sampleRate;
+    final int bitRate = sampleRate * channels * bitsPerSample;
+    return new AudioResourceMetadata(detectedMimeType, resourceUrl, fileSize, duration, bitRate,
+        channels, sampleRate, bitsPerSample, codecName);
+  }
+
+  private static String getWavCodecName(int formatTag, int bitsPerSample) {
+    final String codecName;
+    if (formatTag == WAV_FORMAT_PCM && bitsPerSample == 8) {
+      codecName = "pcm_u8";
+    } else if (formatTag == WAV_FORMAT_PCM && bitsPerSample % 8 == 0 && bitsPerSample > 8
+        && bitsPerSample <= 32) {
+      codecName = "pcm_s" + bitsPerSample + "le";
+    } else if (formatTag == WAV_FORMAT_FLOAT && (bitsPerSample == 32 || bitsPerSample == 64)) {
+      codecName = "pcm_f" + bitsPerSample + "le";
+    } else if (formatTag == WAV_FORMAT_ALAW && bitsPerSample == 8) {
+      codecName = "pcm_alaw";
+    } else if (formatTag == WAV_FORMAT_MULAW && bitsPerSample == 8) {
+      codecName = "pcm_mulaw";
+    } else {
+      codecName = null;
+    }
+    return codecName;
+  }
+
+  // MP3
+
+  private static AbstractResourceMetadata probeMp3(ByteBuffer buffer, String detectedMimeType,
+      String resourceUrl, long fileSize) {
+
+    // Skip the ID3v2 tag if there is one.
+    int audioStart = 0;
+    if (buffer.limit() >= ID3V2_HEADER_SIZE && buffer.get(0) == 'I' && buffer.get(1) == 'D'
+        && buffer.get(2) == '3') {
+      final int tagSize = (readUnsignedByte(buffer, 6) << 21) | (readUnsignedByte(buffer, 7) << 14)
+          | (readUnsignedByte(buffer, 8) << 7) | readUnsignedByte(buffer, 9);
+      final boolean hasFooter = (readUnsignedByte(buffer, 5) & 0x10) != 0;
+      audioStart = ID3V2_HEADER_SIZE + tagSize + (hasFooter ? ID3V2_HEADER_SIZE : 0);
+    }
+
+    // Find the first frame: it should be followed by another frame (if in the buffer).
+    final int searchEnd = Math.min(buffer.limit() - 4, audioStart + MP3_MAX_SYNC_SEARCH);
+    Mp3FrameHeader frame = null;
+    for (int position = audioStart; frame == null && position < searchEnd; position++) {
+      final Mp3FrameHeader candidate = Mp3FrameHeader.parse(buffer, position);
+      if (candidate != null) {
+        final int nextPosition = position + candidate.frameLength;
+        final boolean nextFrameValid = nextPosition + 4 > buffer.limit()
+            || Mp3FrameHeader.parse(buffer, nextPosition) != null;
+        frame = nextFrameValid ? candidate : null;
+      }
+    }
+    if (frame == null) {
+      return null;
+    }
+
+    // Look for a Xing/Info or VBRI header in the first frame.
+    long frameCount = -1;
+    long byteCount = -1;
+    boolean isCbr = true;
+    final int xingPosition = frame.position + 4 + frame.getSideInfoSize();
+    final int vbriPosition = frame.position + 4 + 32;
+    if (hasFourCc(buffer, xingPosition, "Xing") || hasFourCc(buffer, xingPosition, "Info")) {
+      isCbr = hasFourCc(buffer, xingPosition, "Info");
+      final long flags = readUnsignedInt(buffer, xingPosition + 4);
+      int fieldPosition = xingPosition + 8;
+      if ((flags & XING_FLAG_FRAMES) != 0) {
+        frameCount = readUnsignedInt(buffer, fieldPosition);
+        fieldPosition += 4;
+      }
+      if ((flags & XING_FLAG_BYTES) != 0) {
+        byteCount = readUnsignedInt(buffer, fieldPosition);
+      }
+    } else if (hasFourCc(buffer, vbriPosition, "VBRI")) {
+      isCbr = false;
+      byteCount = readUnsignedInt(buffer, vbriPosition + 10);
+      frameCount = readUnsignedInt(buffer, vbriPosition + 14);
+    }
+
+    // Compute the values.
+    final long audioSize = fileSize - frame.position;
+    final double duration;
+    final int bitRate;
+    if (frameCount > 0) {
+      duration = (double) frameCount * frame.samplesPerFrame / frame.sampleRate;
+      final long bitRateByteCount = byteCount > 0 ? byteCount : audioSize;
+      bitRate = isCbr ? frame.bitRate : (int) Math.round(bitRateByteCount * 8.0 / duration);
+    } else if (isCbr) {
+      duration = audioSize * 8.0 / frame.bitRate;
+      bitRate = frame.bitRate;
+    } else {
+      return null;
+    }
+    return new AudioResourceMetadata(detectedMimeType, resourceUrl, fileSize, duration, bitRate,
+        frame.channels, frame.sampleRate, 0, frame.getCodecName());
+  }
+
+  private static final class Mp3FrameHeader {
+
+    private final int position;
+    private final int version;
+    private final int layer;
+    private final int bitRate;
+    private final int sampleRate;
+    private final int channels;
+    private final int samplesPerFrame;
+    private final int frameLength;
+
+    private Mp3FrameHeader(int position, int version, int layer, int bitRate, int sampleRate,
+        int channels, int samplesPerFrame, int frameLength) {
+      this.position = position;
+      this.version = version;
+      this.layer = layer;
+      this.bitRate = bitRate;
+      this.sampleRate = sampleRate;
+      this.channels = channels;
+      this.samplesPerFrame = samplesPerFrame;
+      this.frameLength = frameLength;
+    }
+
+    static Mp3FrameHeader parse(ByteBuffer buffer, int position) {
+      if (position + 4 > buffer.limit()) {
+        return null;
+      }
+      final int byte1 = readUnsignedByte(buffer, position);
+      final int byte2 = readUnsignedByte(buffer, position + 1);
+      final int byte3 = readUnsignedByte(buffer, position + 2);
+      final int byte4 = readUnsignedByte(buffer, position + 3);
+      if (byte1 != 0xFF || (byte2 & 0xE0) != 0xE0) {
+        return null;
+      }
+      final int version = (byte2 >> 3) & 0x3;
+      final int layer = (byte2 >> 1) & 0x3;
+      final int bitRateIndex = (byte3 >> 4) & 0xF;
+      final int sampleRateIndex = (byte3 >> 2) & 0x3;
+      if (version == 1 || layer == 0 || bitRateIndex == 0 || bitRateIndex == 15
+          || sampleRateIndex == 3) {
+        return null;
+      }
+      final int padding = (byte3 >> 1) & 0x1;
+      final int channelMode = (byte4 >> 6) & 0x3;
+
+      final int[][] bitRateTable =
+          version == MP3_VERSION_MPEG1 ? MP3_BIT_RATES_MPEG1 : MP3_BIT_RATES_MPEG2;
+      final int bitRate = bitRateTable[MP3_LAYER_1 - layer][bitRateIndex] * 1000;
+      final int sampleRateDivisor;
+      if (version == MP3_VERSION_MPEG1) {
+        sampleRateDivisor = 1;
+      } else if (version == MP3_VERSION_MPEG2) {
+        sampleRateDivisor = 2;
+      } else {
+        sampleRateDivisor = 4;
+      }
+      final int sampleRate = MP3_SAMPLE_RATES_MPEG1[sampleRateIndex] / sampleRateDivisor;
+      final int samplesPerFrame;
+      final int frameLength;
+      if (layer == MP3_LAYER_1) {
+        samplesPerFrame = 384;
+        frameLength = (12 * bitRate / sampleRate + padding) * 4;
+      } else {
+        samplesPerFrame = (layer == MP3_LAYER_3 && version != MP3_VERSION_MPEG1) ? 576 : 1152;
+        frameLength = samplesPerFrame / 8 * bitRate / sampleRate + padding;
+      }
+      final int channels = channelMode == MP3_CHANNEL_MODE_MONO ? 1 : 2;
+      return new Mp3FrameHeader(position, version, layer, bitRate, sampleRate, channels,
+          samplesPerFrame, frameLength);
+    }
+
+    int getSideInfoSize() {
+      final int sideInfoSize;
+      if (version == MP3_VERSION_MPEG1) {
+        sideInfoSize = channels == 1 ? 17 : 32;
+      } else {
+        sideInfoSize = channels == 1 ? 9 : 17;
+      }
+      return sideInfoSize;
+    }
+
+    String getCodecName() {
+      final String codecName;
+      if (layer == MP3_LAYER_1) {
+        codecName = "mp1";
+      } else if (layer == MP3_LAYER_2) {
+        codecName = "mp2";
+      } else {
+        codecName = "mp3";
+      }
+      return codecName;
+    }
+  }
+
+  // MP4
+
+  private static boolean isMp4(ByteBuffer buffer) {
+    return hasFourCc(buffer, 4, "ftyp");
+  }
+
+  private static AbstractResourceMetadata probeMp4(ByteBuffer buffer, String detectedMimeType,
+      String resourceUrl, long fileSize) {
+
+    // Find the moov box: it needs to be completely contained in the header.
+    final int moov = findBox(buffer, 0, buffer.limit(), "moov");
+    if (moov < 0 || getBoxEnd(buffer, moov) > buffer.limit()) {
+      return null;
+    }
+
+    // Go through the tracks: find the first video track and the first audio track.
+    Mp4Track videoTrack = null;
+    Mp4Track audioTrack = null;
+    int position = moov + BOX_HEADER_SIZE;
+    final int moovEnd = getBoxEnd(buffer, moov);
+    while (position + BOX_HEADER_SIZE <= moovEnd) {
+      if (hasFourCc(buffer, position + 4, "trak")) {
+        final Mp4Track track = Mp4Track.parse(buffer, position);
+        if (track != null && track.isVideo() && videoTrack == null) {
+          videoTrack = track;
+        } else if (track != null && track.isAudio() && audioTrack == null) {
+          audioTrack = track;
+        }
+      }
+      position = getBoxEnd(buffer, position);
+    }
+
+    // Create the metadata: video takes precedence.
+    final AbstractResourceMetadata result;
+    if (videoTrack != null) {
+      final String codecName = getMp4VideoCodecName(videoTrack.sampleEntryType);
+      result = codecName == null ? null : new VideoResourceMetadata(detectedMimeType, resourceUrl,
+          fileSize, videoTrack.getDuration(), videoTrack.getBitRate(), videoTrack.width,
+          videoTrack.height, codecName, videoTrack.getFrameRate());
+    } else if (audioTrack != null) {
+      final String codecName = getMp4AudioCodecName(audioTrack.sampleEntryType);
+      result = codecName == null ? null : new AudioResourceMetadata(detectedMimeType, resourceUrl,
+          fileSize, audioTrack.getDuration(), audioTrack.getBitRate(), audioTrack.channels,
+          audioTrack.sampleRate, 0, codecName);
+    } else {
+      result = null;
+    }
+    return result;
+  }
+
+  private static String getMp4VideoCodecName(String sampleEntryType) {
+    final String codecName;
+    switch (sampleEntryType) {
+      case "avc1":
+      case "avc3":
+        codecName = "h264";
+        break;
+      case "hvc1":
+      case "hev1":
+        codecName = "hevc";
+        break;
+      case "mp4v":
+        codecName = "mpeg4";
+        break;
+      case "av01":
+        codecName = "av1";
+        break;
+      case "vp09":
+        codecName = "vp9";
+        break;
+      default:
+        codecName = null;
+        break;
+    }
+    return codecName;
+  }
+
+  private static String getMp4AudioCodecName(String sampleEntryType) {
+    final String codecName;
+    switch (sampleEntryType) {
+      case "mp4a":
+        codecName = "aac";
+        break;
+      case "ac-3":
+        codecName = "ac3";
+        break;
+      case "ec-3":
+        codecName = "eac3";
+        break;
+      case "Opus":
+        codecName = "opus";
+        break;
+      case ".mp3":
+        codecName = "mp3";
+        break;
+      default:
+        codecName = null;
+        break;
+    }
+    return codecName;
+  }
+
+  /**
+   * Finds the first box of the given type between the given positions (on one level).
+   *
+   * @return The position of the box, or -1 if no such box could be found.
+   */
+  private static int findBox(ByteBuffer buffer, int start, int end, String type) {
+    int position = start;
+    while (position + BOX_HEADER_SIZE <= end) {
+      if (hasFourCc(buffer, position + 4, type)) {
+        return position;
+      }
+      position = getBoxEnd(buffer, position);
+    }
+    return -1;
+  }
+
+  /**
+   * Finds the box with the given path (of nested types) starting with the children of the given
+   * box.
+   *
+   * @return The position of the box, or -1 if no such box could be found.
+   */
+  private static int findNestedBox(ByteBuffer buffer, int parent, String... path) {
+    int box = parent;
+    for (String type : path) {
+      box = findBox(buffer, box + BOX_HEADER_SIZE, getBoxEnd(buffer, box), type);
+      if (box < 0) {
+        break;
+      }
+    }
+    return box;
+  }
+
+  /**
+   * Determines the end of the box at the given position. The end is always after the position, so
+   * that loops over boxes always progress (also for malformed input).
+   */
+  private static int getBoxEnd(ByteBuffer buffer, int position) {
+    final long size = readUnsignedInt(buffer, position);
+    final long end;
+    if (size == 0) {
+      end = buffer.limit();
+    } else if (size == 1) {
+      final long largeSize = buffer.getLong(position + BOX_HEADER_SIZE);
+      if (largeSize < BOX_HEADER_SIZE + 8) {
+        throw new IndexOutOfBoundsException(
+            "Invalid box size " + largeSize + " at " + position + ".");
+      }
+      end = largeSize > Integer.MAX_VALUE ? Integer.MAX_VALUE : (position + largeSize);
+    } else if (size < BOX_HEADER_SIZE) {
+      throw new IndexOutOfBoundsException("Invalid box size " + size + " at " + position + ".");
+    } else {
+      end = position + size;
+    }
+    if (end <= position) {
+      throw new IndexOutOfBoundsException("Invalid box end " + end + " at " + position + ".");
+    }
+    return (int) Math.min(end, Integer.MAX_VALUE);
+  }
+
+  private static final class Mp4Track {
+
+    private final String handlerType;
+    private final String sampleEntryType;
+    private final long timeScale;
+    private final long mediaDuration;
+    private final long sampleCount;
+    private final long totalSampleSize;
+    private final long totalSampleDuration;
+    private final int width;
+    private final int height;
+    private final int channels;
+    private final int sampleRate;
+
+    private Mp4Track(String handlerType, String sampleEntryType, long timeScale,
+        long mediaDuration, long sampleCount, long totalSampleSize, long totalSampleDuration,
+        int width, int height, int channels, int sampleRate) {
+      this.handlerType = handlerType;
+      this.sampleEntryType = sampleEntryType;
+      this.timeScale = timeScale;
+      this.mediaDuration = mediaDuration;
+      this.sampleCount = sampleCount;
+      this.totalSampleSize = totalSampleSize;
+      this.totalSampleDuration = totalSampleDuration;
+      this.width = width;
+      this.height = height;
+      this.channels = channels;
+      this.sampleRate = sampleRate;
+    }
+
+    static Mp4Track parse(ByteBuffer buffer, int trak) {
+
+      // Find the boxes we need.
+      final int mdhd = findNestedBox(buffer, trak, "mdia", "mdhd");
+      final int hdlr = findNestedBox(buffer, trak, "mdia", "hdlr");
+      final int stbl = findNestedBox(buffer, trak, "mdia", "minf", "stbl");
+      if (mdhd < 0 || hdlr < 0 || stbl < 0) {
+        return null;
+      }
+      final int stsd = findNestedBox(buffer, stbl, "stsd");
+      final int stts = findNestedBox(buffer, stbl, "stts");
+      final int stsz = findNestedBox(buffer, stbl, "stsz");
+      if (stsd < 0 || stts < 0 || stsz < 0 || readUnsignedInt(buffer, stsd + 12) < 1) {
+        return null;
+      }
+
+      // Read the media header.
+      final int mdhdVersion = readUnsignedByte(buffer, mdhd + 8);
+      final long timeScale;
+      final long mediaDuration;
+      if (mdhdVersion == 1) {
+        timeScale = readUnsignedInt(buffer, mdhd + 28);
+        mediaDuration = buffer.getLong(mdhd + 32);
+      } else {
+        timeScale = readUnsignedInt(buffer, mdhd + 20);
+        mediaDuration = readUnsignedInt(buffer, mdhd + 24);
+      }
+
+      // Read the handler and the first sample entry.
+      final String handlerType = readFourCc(buffer, hdlr + 16);
+      final int sampleEntry = stsd + 16;
+      final String sampleEntryType = readFourCc(buffer, sampleEntry + 4);
+      int width = 0;
+      int height = 0;
+      int channels = 0;
+      int sampleRate = 0;
+      if ("vide".equals(handlerType)) {
+        width = readUnsignedShort(buffer, sampleEntry + 32);
+        height = readUnsignedShort(buffer, sampleEntry + 34);
+      } else if ("soun".equals(handlerType)) {
+        channels = readUnsignedShort(buffer, sampleEntry + 24);
+        sampleRate = (int) (readUnsignedInt(buffer, sampleEntry + 32) >>> 16);
+      }
+
+      // Read the sample durations.
+      final long sttsEntryCount = readUnsignedInt(buffer, stts + 12);
+      long totalSampleDuration = 0;
+      for (int i = 0; i < sttsEntryCount; i++) {
+        final int entry = stts + 16 + i * 8;
+        totalSampleDuration += readUnsignedInt(buffer, entry) * readUnsignedInt(buffer, entry + 4);
+      }
+
+      // Read the sample sizes.
+      final long sampleSize = readUnsignedInt(buffer, stsz + 12);
+      final long sampleCount = readUnsignedInt(buffer, stsz + 16);
+      long totalSampleSize = 0;
+      if (sampleSize == 0) {
+        for (int i = 0; i < sampleCount; i++) {
+          totalSampleSize += readUnsignedInt(buffer, stsz + 20 + i * 4);
+        }
+      } else {
+        totalSampleSize = sampleSize * sampleCount;
+      }
+
+      // Check that we have a usable track (e.g. not a fragmented file).
+      if (timeScale == 0 || mediaDuration == 0 || sampleCount == 0 || totalSampleDuration == 0) {
+        return null;
+      }
+      return new Mp4Track(handlerType, sampleEntryType, timeScale, mediaDuration, sampleCount,
+          totalSampleSize, totalSampleDuration, width, height, channels, sampleRate);
+    }
+
+    boolean isVideo() {
+      return "vide".equals(handlerType);
+    }
+
+    boolean isAudio() {
+      return "soun".equals(handlerType);
+    }
+
+    double getDuration() {
+      return (double) mediaDuration / timeScale;
+    }
+
+    int getBitRate() {
+      return Math.toIntExact(Math.round(totalSampleSize * 8.0 * timeScale / totalSampleDuration));
+    }
+
+    double getFrameRate() {
+      return (double) sampleCount * timeScale / totalSampleDuration;
+    }
+  }
+}
@@ -3,18 +3,20 @@ package eu.europeana.metis.mediaprocessing.extraction;
 import eu.europeana.metis.mediaprocessing.exception.CommandExecutionException;
 import eu.europeana.metis.mediaprocessing.exception.MediaExtractionException;
 import eu.europeana.metis.mediaprocessing.exception.MediaProcessorException;
+import eu.europeana.metis.mediaprocessing.http.DashManifestDownloadClient;
+import eu.europeana.metis.mediaprocessing.http.ResourceHeaderDownloadClient;
 import eu.europeana.metis.mediaprocessing.model.AbstractResourceMetadata;
 import eu.europeana.metis.mediaprocessing.model.AudioResourceMetadata;
 import eu.europeana.metis.mediaprocessing.model.Resource;
 import eu.europeana.metis.mediaprocessing.model.ResourceExtractionResultImpl;
 import eu.europeana.metis.mediaprocessing.model.VideoResourceMetadata;
 import eu.europeana.metis.utils.MediaType;
-import io.lindstrom.mpd.MPDParser;
 import io.lindstrom.mpd.data.AdaptationSet;
 import io.lindstrom.mpd.data.FrameRate;
 import io.lindstrom.mpd.data.MPD;
 import io.lindstrom.mpd.data.Period;
 import io.lindstrom.mpd.data.Representation;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
@@ -28,6 +30,8 @@ import java.util.List;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -43,26 +47,80 @@ import org.slf4j.LoggerFactory;
  * <p>
  * Note: No thumbnails are created for audio or video files.
  * </p>
+ * <p>
+ * For the most common containers (see {@link AudioVideoHeaderProber}), the metadata is extracted
+ * from the first bytes of the resource if the resource is downloaded. Only if this is not
+ * possible, ffprobe is invoked. Resources that are not downloaded are only probed (with a range
+ * request) if a client for downloading resource headers is provided: otherwise ffprobe is invoked
+ * directly, so that no extra request is made for resources that ffprobe analyzes anyway.
+ * </p>
+ * <p>
+ * DASH manifests are downloaded through a dedicated client (with strict limits on size and time)
+ * and the parsed manifests are cached, so that resources referring to the same manifest do not
+ * trigger a new download.
+ * </p>
  */
-class AudioVideoProcessor implements MediaProcessor {
+class AudioVideoProcessor implements MediaProcessor, Closeable {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(AudioVideoProcessor.class);
 
+  /**
+   * The number of bytes at the start of a resource that are used to probe the resource without
+   * ffprobe (see {@link AudioVideoHeaderProber}).
+   */
+  static final int HEADER_PROBE_SIZE = 256 * 1024;
+
+  private static final int DASH_MANIFEST_CACHE_SIZE = 200;
+  private static final long DASH_MANIFEST_CACHE_EXPIRATION_IN_MILLIS = Duration.ofHours(1)
+      .toMillis();
+
+  /**
+   * The DASH manifest cache shared by all instances (and therefore by all pooled extractors).
+   */
+  private static final DashManifestCache GLOBAL_DASH_MANIFEST_CACHE = new DashManifestCache(
+      DASH_MANIFEST_CACHE_SIZE, DASH_MANIFEST_CACHE_EXPIRATION_IN_MILLIS);
+
   private static String globalFfprobeCommand;
 
   private final CommandExecutor commandExecutor;
   private final String ffprobeCommand;
+  private final DashManifestDownloadClient dashManifestDownloadClient;
+  private final DashManifestCache dashManifestCache;
+  private final ResourceHeaderDownloadClient resourceHeaderDownloadClient;
+  private final AudioVideoHeaderProber headerProber;
 
   /**
    * Constructor. This is a wrapper for {@link AudioVideoProcessor#AudioVideoProcessor(CommandExecutor,
-   * String)} where the property is detected. It is advisable to use this constructor for
-   * non-testing purposes.
+   * String, DashManifestDownloadClient, ResourceHeaderDownloadClient)} where the property is
+   * detected. It is advisable to use this constructor for non-testing purposes.
    *
    * @param commandExecutor A command executor.
+   * @param dashManifestDownloadClient The client with which to download DASH manifests.
+   * @param resourceHeaderDownloadClient The client with which to download resource headers. Can be
+   * null, in which case resources that are not downloaded are not probed.
    * @throws MediaProcessorException In case the properties could not be initialized.
    */
-  AudioVideoProcessor(CommandExecutor commandExecutor) throws MediaProcessorException {
-    this(commandExecutor, getGlobalFfprobeCommand(commandExecutor));
+  AudioVideoProcessor(CommandExecutor commandExecutor,
+      DashManifestDownloadClient dashManifestDownloadClient,
+      ResourceHeaderDownloadClient resourceHeaderDownloadClient) throws MediaProcessorException {
+    this(commandExecutor, getGlobalFfprobeCommand(commandExecutor), dashManifestDownloadClient,
+        resourceHeaderDownloadClient);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param commandExecutor A command executor.
+   * @param ffprobeCommand The ffprobe command (how to trigger ffprobe).
+   * @param dashManifestDownloadClient The client with which to download DASH manifests.
+   * @param resourceHeaderDownloadClient The client with which to download resource headers. Can be
+   * null, in which case resources that are not downloaded are not probed.
+   */
+  AudioVideoProcessor(CommandExecutor commandExecutor, String ffprobeCommand,
+      DashManifestDownloadClient dashManifestDownloadClient,
+      ResourceHeaderDownloadClient resourceHeaderDownloadClient) {
+    this(commandExecutor, ffprobeCommand, dashManifestDownloadClient, GLOBAL_DASH_MANIFEST_CACHE,
+        resourceHeaderDownloadClient, new AudioVideoHeaderProber());
   }
 
   /**
@@ -70,10 +128,22 @@ class AudioVideoProcessor implements MediaProcessor {
    *
    * @param commandExecutor A command executor.
    * @param ffprobeCommand The ffprobe command (how to trigger ffprobe).
+   * @param dashManifestDownloadClient The client with which to download DASH manifests.
+   * @param dashManifestCache The cache for parsed DASH manifests.
+   * @param resourceHeaderDownloadClient The client with which to download resource headers. Can be
+   * null, in which case resources that are not downloaded are not probed.
+   * @param headerProber The prober that extracts metadata from resource headers.
    */
-  AudioVideoProcessor(CommandExecutor commandExecutor, String ffprobeCommand) {
+  AudioVideoProcessor(CommandExecutor commandExecutor, String ffprobeCommand,
+      DashManifestDownloadClient dashManifestDownloadClient, DashManifestCache dashManifestCache,
+      ResourceHeaderDownloadClient resourceHeaderDownloadClient,
+      AudioVideoHeaderProber headerProber) {
     this.commandExecutor = commandExecutor;
     this.ffprobeCommand = ffprobeCommand;
+    this.dashManifestDownloadClient = dashManifestDownloadClient;
+    this.dashManifestCache = dashManifestCache;
+    this.resourceHeaderDownloadClient = resourceHeaderDownloadClient;
+    this.headerProber = headerProber;
   }
 
   private static String getGlobalFfprobeCommand(CommandExecutor commandExecutor)
@@ -160,6 +230,12 @@ class AudioVideoProcessor implements MediaProcessor {
     if ("application/dash+xml".equals(detectedMimeType)) {
       metadata = parseMpdResource(resource, detectedMimeType);
     } else {
+      // Try to get the metadata from the header of the resource.
+      metadata = probeHeader(resource, detectedMimeType);
+    }
+
+    // If this is not possible, we use ffprobe.
+    if (metadata == null) {
       // Execute command
       final List<String> response;
       try {
@@ -175,72 +251,109 @@ class AudioVideoProcessor implements MediaProcessor {
 
   }
 
-  AbstractResourceMetadata parseMpdResource(Resource resource, String detectedMimeType)
+  AbstractResourceMetadata probeHeader(Resource resource, String detectedMimeType)
       throws MediaExtractionException {
-    MPDParser parser = new MPDParser();
-    MPD mpd;
 
-    final AbstractResourceMetadata metadata;
-    try (InputStream inputStream = resource.getActualLocation().toURL().openStream()) {
-      mpd = parser.parse(inputStream);
-      final Period period = mpd.getPeriods().stream().findFirst()
-          .orElseThrow(() -> new MediaExtractionException("Cannot find period element in mpd"));
-
-      final AdaptationSet videoAdaptationSet = period.getAdaptationSets().stream()
-          .filter(adaptationSet -> {
-            boolean video = false;
-            if (adaptationSet.getMimeType() != null) {
-              video = adaptationSet.getMimeType().startsWith("video");
-            } else if (adaptationSet.getContentType() != null) {
-              video = adaptationSet.getContentType().startsWith("video");
-            }
-            return video;
-          }).findFirst().orElseThrow(() -> new MediaExtractionException(
-              "Cannot find video adaptation set element in mpd"));
-
-      //If only one available, get that one, otherwise get the first of type video
-      Representation videoRepresentation = videoAdaptationSet.getRepresentations().get(0);
-      if (videoAdaptationSet.getRepresentations().size() > 1) {
-        //Get the one with the highest width*height if possible
-        videoRepresentation = videoAdaptationSet.getRepresentations().stream()
-            .filter(representation -> representation.getWidth() != null
-                && representation.getHeight() != null).max(Comparator.comparing(
-                representation -> representation.getWidth() * representation.getHeight()))
-            .orElse(null);
-
-        //If not max resolution found then get the one that is at least of type video
-        if (videoRepresentation == null) {
-          videoRepresentation = videoAdaptationSet.getRepresentations().stream()
-              .filter(representation -> (representation.getMimeType() != null && representation
-                  .getMimeType().startsWith("video")) || representation.getWidth() != null
-                  || representation.getHeight() != null)
-              .findFirst().orElseThrow(() -> new MediaExtractionException(
-                  "Cannot find video representation element in mpd"));
+    // Check whether we can probe this resource without making an unnecessary request.
+    final boolean hasContent = resourceHasContent(resource);
+    if (!hasContent && (resourceHeaderDownloadClient == null
+        || !headerProber.supportsMimeType(detectedMimeType))) {
+      return null;
+    }
+
+    // Obtain the header and the file size: either from the content or from the remote location.
+    final byte[] header;
+    final Long fileSize;
+    try {
+      if (hasContent) {
+        try (final InputStream inputStream = resource.getContentStream()) {
+          header = IOUtils.toByteArray(new BoundedInputStream(inputStream, HEADER_PROBE_SIZE));
         }
+        fileSize = resource.getContentSize();
+      } else {
+        header = resourceHeaderDownloadClient.download(resource.getActualLocation());
+        fileSize = resource.getProvidedFileSize();
       }
+    } catch (IOException e) {
+      LOGGER.debug("Could not obtain header of resource {}: falling back to ffprobe.",
+          resource.getResourceUrl(), e);
+      return null;
+    }
+
+    // Probe the header.
+    if (header == null || fileSize == null || fileSize <= 0) {
+      return null;
+    }
+    return headerProber.probe(header, detectedMimeType, resource.getResourceUrl(), fileSize);
+  }
+
+  AbstractResourceMetadata parseMpdResource(Resource resource, String detectedMimeType)
+      throws MediaExtractionException {
 
-      final Duration mediaPresentationDuration = mpd.getMediaPresentationDuration();
-      //Get value either from the adaptation set or the representation
-      final Long width = videoRepresentation.getWidth() == null ? videoAdaptationSet.getWidth()
-          : videoRepresentation.getWidth();
-      final Long height = videoRepresentation.getHeight() == null ? videoAdaptationSet.getHeight()
-          : videoRepresentation.getHeight();
-      final FrameRate frameRate =
-          videoRepresentation.getFrameRate() == null ? videoAdaptationSet.getFrameRate()
-              : videoRepresentation.getFrameRate();
-      final double frameRateValue = frameRate == null ? -1 : frameRate.getNumerator();
-      final String codecNames =
-          videoRepresentation.getCodecs() == null ? videoAdaptationSet.getCodecs()
-              : videoRepresentation.getCodecs();
-      final double bitRate = videoRepresentation.getBandwidth();
-
-      metadata = new VideoResourceMetadata(detectedMimeType, resource.getResourceUrl(),
-          null, (double) mediaPresentationDuration.getSeconds(), (int) bitRate,
-          Math.toIntExact(width), Math.toIntExact(height), codecNames, frameRateValue);
+    // Obtain the manifest (from the cache if possible).
+    final MPD mpd;
+    try {
+      mpd = dashManifestCache
+          .getOrLoad(resource.getActualLocation(), dashManifestDownloadClient::download);
     } catch (IOException e) {
       throw new MediaExtractionException("Problem while analyzing audio/video file.", e);
     }
-    return metadata;
+
+    // Analyze the manifest.
+    final Period period = mpd.getPeriods().stream().findFirst()
+        .orElseThrow(() -> new MediaExtractionException("Cannot find period element in mpd"));
+
+    final AdaptationSet videoAdaptationSet = period.getAdaptationSets().stream()
+        .filter(adaptationSet -> {
+          boolean video = false;
+          if (adaptationSet.getMimeType() != null) {
+            video = adaptationSet.getMimeType().startsWith("video");
+          } else if (adaptationSet.getContentType() != null) {
+            video = adaptationSet.getContentType().startsWith("video");
+          }
+          return video;
+        }).findFirst().orElseThrow(() -> new MediaExtractionException(
+            "Cannot find video adaptation set element in mpd"));
+
+    //If only one available, get that one, otherwise get the first of type video
+    Representation videoRepresentation = videoAdaptationSet.getRepresentations().get(0);
+    if (videoAdaptationSet.getRepresentations().size() > 1) {
+      //Get the one with the highest width*height if possible
+      videoRepresentation = videoAdaptationSet.getRepresentations().stream()
+          .filter(representation -> representation.getWidth() != null
+              && representation.getHeight() != null).max(Comparator.comparing(
+              representation -> representation.getWidth() * representation.getHeight()))
+          .orElse(null);
+
+      //If not max resolution found then get the one that is at least of type video
+      if (videoRepresentation == null) {
+        videoRepresentation = videoAdaptationSet.getRepresentations().stream()
+            .filter(representation -> (representation.getMimeType() != null && representation
+                .getMimeType().startsWith("video")) || representation.getWidth() != null
+                || representation.getHeight() != null)
+            .findFirst().orElseThrow(() -> new MediaExtractionException(
+                "Cannot find video representation element in mpd"));
+      }
+    }
+
+    final Duration mediaPresentationDuration = mpd.getMediaPresentationDuration();
+    //Get value either from the adaptation set or the representation
+    final Long width = videoRepresentation.getWidth() == null ? videoAdaptationSet.getWidth()
+        : videoRepresentation.getWidth();
+    final Long height = videoRepresentation.getHeight() == null ? videoAdaptationSet.getHeight()
+        : videoRepresentation.getHeight();
+    final FrameRate frameRate =
+        videoRepresentation.getFrameRate() == null ? videoAdaptationSet.getFrameRate()
+            : videoRepresentation.getFrameRate();
+    final double frameRateValue = frameRate == null ? -1 : frameRate.getNumerator();
+    final String codecNames =
+        videoRepresentation.getCodecs() == null ? videoAdaptationSet.getCodecs()
+            : videoRepresentation.getCodecs();
+    final double bitRate = videoRepresentation.getBandwidth();
+
+    return new VideoResourceMetadata(detectedMimeType, resource.getResourceUrl(),
+        null, (double) mediaPresentationDuration.getSeconds(), (int) bitRate,
+        Math.toIntExact(width), Math.toIntExact(height), codecNames, frameRateValue);
   }
 
   JSONObject readCommandResponseToJson(List<String> response) {
@@ -334,4 +447,15 @@ class AudioVideoProcessor implements MediaProcessor {
     }
     return null;
   }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      dashManifestDownloadClient.close();
+    } finally {
+      if (resourceHeaderDownloadClient != null) {
+        resourceHeaderDownloadClient.close();
+      }
+    }
+  }
 }
@@ -0,0 +1,131 @@
+package eu.europeana.metis.mediaprocessing.extraction;
+
+import io.lindstrom.mpd.data.MPD;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * This class is a small cache for parsed DASH manifests (MPD files), keyed by the location of the
+ * manifest. It is meant to prevent downloading and parsing the same manifest repeatedly when many
+ * resources (typically within the same dataset) refer to it. The cache is bounded in size (least
+ * recently used entries are evicted first) and entries expire after a fixed time. Concurrent
+ * requests for the same manifest share one download: only the first caller loads the manifest,
+ * the others wait for the result. This class is thread-safe and is meant to be shared by all
+ * processors.
+ */
+class DashManifestCache {
+
+  private final int maxSize;
+  private final long expirationTimeInMillis;
+  private final Map<URI, CacheEntry> cache;
+
+  /**
+   * Constructor.
+   *
+   * @param maxSize The maximum number of manifests in the cache.
+   * @param expirationTimeInMillis The time, in milliseconds, after which a cached manifest expires.
+   */
+  DashManifestCache(int maxSize, long expirationTimeInMillis) {
+    this.maxSize = maxSize;
+    this.expirationTimeInMillis = expirationTimeInMillis;
+    this.cache = new LinkedHashMap<URI, CacheEntry>(16, 0.75F, true) {
+
+      private static final long serialVersionUID = -2937641542170317411L;
+
+      @Override
+      protected boolean removeEldestEntry(Entry<URI, CacheEntry> eldest) {
+        return size() > DashManifestCache.this.maxSize;
+      }
+    };
+  }
+
+  /**
+   * Obtains the manifest for the given location, either from the cache or by using the loader (in
+   * which case the result is added to the cache). If another caller is already loading the same
+   * manifest, this method waits for that result instead of loading it again. Note that the loader
+   * is called without holding the lock on the cache. Failed loads are not cached.
+   *
+   * @param location The location of the manifest.
+   * @param loader The loader to use if the manifest is not in the cache (or has expired).
+   * @return The manifest.
+   * @throws IOException In case the loader threw this exception (or the thread was interrupted
+   * while waiting for another caller to load the manifest).
+   */
+  MPD getOrLoad(URI location, ManifestLoader loader) throws IOException {
+
+    // Find the entry in the cache, or create a new one if we need to load the manifest.
+    final long now = System.currentTimeMillis();
+    final CacheEntry entry;
+    final boolean mustLoad;
+    synchronized (cache) {
+      final CacheEntry existingEntry = cache.get(location);
+      if (existingEntry != null && existingEntry.expirationTime > now) {
+        entry = existingEntry;
+        mustLoad = false;
+      } else {
+        entry = new CacheEntry(now + expirationTimeInMillis);
+        cache.put(location, entry);
+        mustLoad = true;
+      }
+    }
+
+    // Load the manifest if needed. A failed load is removed so that the next caller tries again.
+    // Errors are caught too: otherwise the callers waiting for this load would wait forever.
+    if (mustLoad) {
+      try {
+        entry.manifest.complete(loader.load(location));
+      } catch (Throwable e) {
+        synchronized (cache) {
+          cache.remove(location, entry);
+        }
+        entry.manifest.completeExceptionally(e);
+        throw e;
+      }
+    }
+
+    // Obtain the (possibly loaded by another caller) manifest.
+    try {
+      return entry.manifest.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for manifest: " + location);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw new IOException("Could not load manifest: " + location, e.getCause());
+      }
+      throw new IllegalStateException("Could not load manifest: " + location, e.getCause());
+    }
+  }
+
+  /**
+   * Implementations of this interface can load a manifest.
+   */
+  @FunctionalInterface
+  interface ManifestLoader {
+
+    /**
+     * Load the manifest.
+     *
+     * @param location The location of the manifest.
+     * @return The manifest.
+     * @throws IOException In case there was a problem loading the manifest.
+     */
+    MPD load(URI location) throws IOException;
+  }
+
+  private static class CacheEntry {
+
+    private final CompletableFuture<MPD> manifest = new CompletableFuture<>();
+    private final long expirationTime;
+
+    CacheEntry(long expirationTime) {
+      this.expirationTime = expirationTime;
+    }
+  }
+}
@@ -1,10 +1,13 @@
 package eu.europeana.metis.mediaprocessing.extraction;
 
 import eu.europeana.metis.mediaprocessing.MediaExtractor;
+import eu.europeana.metis.mediaprocessing.MediaProcessorFactory;
 import eu.europeana.metis.mediaprocessing.exception.MediaExtractionException;
 import eu.europeana.metis.mediaprocessing.exception.MediaProcessorException;
+import eu.europeana.metis.mediaprocessing.http.DashManifestDownloadClient;
 import eu.europeana.metis.mediaprocessing.http.MimeTypeDetectHttpClient;
 import eu.europeana.metis.mediaprocessing.http.ResourceDownloadClient;
+import eu.europeana.metis.mediaprocessing.http.ResourceHeaderDownloadClient;
 import eu.europeana.metis.mediaprocessing.model.RdfResourceEntry;
 import eu.europeana.metis.mediaprocessing.model.Resource;
 import eu.europeana.metis.mediaprocessing.model.ResourceExtractionResult;
@@ -39,6 +42,10 @@ public class MediaExtractorImpl implements MediaExtractor {
   private static final Set<UrlType> URL_TYPES_FOR_REDUCED_PROCESSING = Collections
       .singleton(UrlType.IS_SHOWN_AT);
 
+  private static final int DASH_MANIFEST_MAX_SIZE = 2 * 1024 * 1024;
+  private static final int DASH_MANIFEST_DOWNLOAD_TIMEOUT = 30_000;
+  private static final int HEADER_DOWNLOAD_TIMEOUT = 30_000;
+
   private final ResourceDownloadClient resourceDownloadClient;
   private final MimeTypeDetectHttpClient mimeTypeDetectHttpClient;
   private final Tika tika;
@@ -84,6 +91,53 @@ public class MediaExtractorImpl implements MediaExtractor {
   public MediaExtractorImpl(int redirectCount, int thumbnailGenerateTimeout,
       int audioVideoProbeTimeout, int connectTimeout, int socketTimeout, int downloadTimeout)
       throws MediaProcessorException {
+    this(redirectCount, thumbnailGenerateTimeout, audioVideoProbeTimeout, connectTimeout,
+        socketTimeout, downloadTimeout, MediaProcessorFactory.DEFAULT_PDF_PAGE_SCAN_LIMIT);
+  }
+
+  /**
+   * Constructor for non-testing purposes.
+   *
+   * @param redirectCount The maximum number of times we will follow a redirect.
+   * @param thumbnailGenerateTimeout The maximum amount of time, in seconds, a thumbnail generation
+   * command is allowed to take before it is forcibly destroyed (i.e. cancelled).
+   * @param audioVideoProbeTimeout The maximum amount of time, in seconds, a audio/video probe
+   * command is allowed to take before it is forcibly destroyed (i.e. cancelled).
+   * @param connectTimeout The connection timeout in milliseconds for downloading resources.
+   * @param socketTimeout The socket timeout in milliseconds for downloading resources.
+   * @param downloadTimeout The download timeout in milliseconds for downloading resources.
+   * @param pdfPageScanLimit The maximum number of pages of a PDF file that are scanned for text and
+   * images.
+   * @throws MediaProcessorException In case something went wrong while initializing the extractor.
+   */
+  public MediaExtractorImpl(int redirectCount, int thumbnailGenerateTimeout,
+      int audioVideoProbeTimeout, int connectTimeout, int socketTimeout, int downloadTimeout,
+      int pdfPageScanLimit) throws MediaProcessorException {
+    this(redirectCount, thumbnailGenerateTimeout, audioVideoProbeTimeout, connectTimeout,
+        socketTimeout, downloadTimeout, pdfPageScanLimit, false);
+  }
+
+  /**
+   * Constructor for non-testing purposes.
+   *
+   * @param redirectCount The maximum number of times we will follow a redirect.
+   * @param thumbnailGenerateTimeout The maximum amount of time, in seconds, a thumbnail generation
+   * command is allowed to take before it is forcibly destroyed (i.e. cancelled).
+   * @param audioVideoProbeTimeout The maximum amount of time, in seconds, a audio/video probe
+   * command is allowed to take before it is forcibly destroyed (i.e. cancelled).
+   * @param connectTimeout The connection timeout in milliseconds for downloading resources.
+   * @param socketTimeout The socket timeout in milliseconds for downloading resources.
+   * @param downloadTimeout The download timeout in milliseconds for downloading resources.
+   * @param pdfPageScanLimit The maximum number of pages of a PDF file that are scanned for text and
+   * images.
+   * @param audioVideoRemoteHeaderProbing Whether audio/video resources that are not downloaded are
+   * probed from their header (obtained with a range request) before falling back to ffprobe.
+   * @throws MediaProcessorException In case something went wrong while initializing the extractor.
+   */
+  public MediaExtractorImpl(int redirectCount, int thumbnailGenerateTimeout,
+      int audioVideoProbeTimeout, int connectTimeout, int socketTimeout, int downloadTimeout,
+      int pdfPageScanLimit, boolean audioVideoRemoteHeaderProbing)
+      throws MediaProcessorException {
     final ThumbnailGenerator thumbnailGenerator = new ThumbnailGenerator(
         new CommandExecutor(thumbnailGenerateTimeout));
     this.resourceDownloadClient = new ResourceDownloadClient(redirectCount,
@@ -92,8 +146,16 @@ public class MediaExtractorImpl implements MediaExtractor {
         downloadTimeout);
     this.tika = new Tika();
     this.imageProcessor = new ImageProcessor(thumbnailGenerator);
-    this.audioVideoProcessor = new AudioVideoProcessor(new CommandExecutor(audioVideoProbeTimeout));
-    this.textProcessor = new TextProcessor(thumbnailGenerator);
+    final DashManifestDownloadClient dashManifestDownloadClient = new DashManifestDownloadClient(
+        redirectCount, connectTimeout, socketTimeout,
+        Math.min(downloadTimeout, DASH_MANIFEST_DOWNLOAD_TIMEOUT), DASH_MANIFEST_MAX_SIZE);
+    final ResourceHeaderDownloadClient resourceHeaderDownloadClient =
+        audioVideoRemoteHeaderProbing ? new ResourceHeaderDownloadClient(redirectCount,
+            connectTimeout, socketTimeout, Math.min(downloadTimeout, HEADER_DOWNLOAD_TIMEOUT),
+            AudioVideoProcessor.HEADER_PROBE_SIZE) : null;
+    this.audioVideoProcessor = new AudioVideoProcessor(new CommandExecutor(audioVideoProbeTimeout),
+        dashManifestDownloadClient, resourceHeaderDownloadClient);
+    this.textProcessor = new TextProcessor(thumbnailGenerator, pdfPageScanLimit);
   }
 
   @Override
@@ -268,7 +330,11 @@ public class MediaExtractorImpl implements MediaExtractor {
 
   @Override
   public void close() throws IOException {
-    resourceDownloadClient.close();
+    try {
+      resourceDownloadClient.close();
+    } finally {
+      audioVideoProcessor.close();
+    }
   }
 
   /**
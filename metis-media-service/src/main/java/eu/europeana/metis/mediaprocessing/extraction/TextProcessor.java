@@ -1,16 +1,26 @@
 package eu.europeana.metis.mediaprocessing.extraction;
 
+import com.itextpdf.text.io.RandomAccessSourceFactory;
+import com.itextpdf.text.pdf.PdfDictionary;
+import com.itextpdf.text.pdf.PdfIndirectReference;
+import com.itextpdf.text.pdf.PdfName;
+import com.itextpdf.text.pdf.PdfNumber;
+import com.itextpdf.text.pdf.PdfObject;
 import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.RandomAccessFileOrArray;
 import com.itextpdf.text.pdf.parser.ImageRenderInfo;
 import com.itextpdf.text.pdf.parser.Matrix;
+import com.itextpdf.text.pdf.parser.PdfImageObject;
 import com.itextpdf.text.pdf.parser.PdfReaderContentParser;
 import com.itextpdf.text.pdf.parser.RenderListener;
 import com.itextpdf.text.pdf.parser.TextRenderInfo;
+import eu.europeana.metis.mediaprocessing.MediaProcessorFactory;
 import eu.europeana.metis.mediaprocessing.exception.MediaExtractionException;
 import eu.europeana.metis.mediaprocessing.model.Resource;
 import eu.europeana.metis.mediaprocessing.model.ResourceExtractionResultImpl;
 import eu.europeana.metis.mediaprocessing.model.TextResourceMetadata;
 import eu.europeana.metis.mediaprocessing.model.Thumbnail;
+import java.awt.Dimension;
 import java.awt.image.BufferedImage;
 import java.io.Closeable;
 import java.io.File;
@@ -27,6 +37,10 @@ import org.slf4j.LoggerFactory;
  * <p>
  * Note: if we don't have metadata, we don't return thumbnails either.
  * </p>
+ * <p>
+ * PDF files are opened in partial mode and are only scanned until both text and an image
+ * resolution are found, or until the configured maximum number of pages has been scanned.
+ * </p>
  */
 class TextProcessor implements MediaProcessor {
 
@@ -37,6 +51,7 @@ class TextProcessor implements MediaProcessor {
   protected static final int DISPLAY_DPI = 72;
 
   private final ThumbnailGenerator thumbnailGenerator;
+  private final int pdfPageScanLimit;
 
   /**
    * Constructor.
@@ -45,7 +60,20 @@ class TextProcessor implements MediaProcessor {
    * responsible for closing this object.
    */
   TextProcessor(ThumbnailGenerator thumbnailGenerator) {
+    this(thumbnailGenerator, MediaProcessorFactory.DEFAULT_PDF_PAGE_SCAN_LIMIT);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param thumbnailGenerator An object that can generate thumbnails. The calling class is
+   * responsible for closing this object.
+   * @param pdfPageScanLimit The maximum number of pages of a PDF file that are scanned for text and
+   * images (starting with the first page).
+   */
+  TextProcessor(ThumbnailGenerator thumbnailGenerator, int pdfPageScanLimit) {
     this.thumbnailGenerator = thumbnailGenerator;
+    this.pdfPageScanLimit = pdfPageScanLimit;
   }
 
   @Override
@@ -110,8 +138,9 @@ class TextProcessor implements MediaProcessor {
   PdfCharacteristics findPdfCharacteristics(File content) throws MediaExtractionException {
     try (OpenPdfFile openPdf = openPdfFile(content)) {
 
-      // Go by each page: if we find the data we need, we can stop.
-      for (int i = 1; i <= openPdf.getNumberOfPages(); i++) {
+      // Go by each page (up to the limit): if we find the data we need, we can stop.
+      final int pagesToScan = Math.min(openPdf.getNumberOfPages(), pdfPageScanLimit);
+      for (int i = 1; i <= pagesToScan; i++) {
         openPdf.getPdfParser().processContent(i, openPdf.getPdfListener());
         if (openPdf.getPdfListener().getDpi() != null && openPdf.getPdfListener().hasText()) {
           break;
@@ -137,7 +166,10 @@ class TextProcessor implements MediaProcessor {
     private PdfReaderContentParser pdfParser;
 
     OpenPdfFile(File content) throws IOException {
-      pdfReader = new PdfReader(content.getAbsolutePath());
+      // Open the file in partial mode: only the cross-reference table is read into memory, the
+      // objects (e.g. the page content) are read from the file when needed.
+      pdfReader = new PdfReader(new RandomAccessFileOrArray(
+          new RandomAccessSourceFactory().createBestSource(content.getAbsolutePath())), null);
     }
 
     int getNumberOfPages() {
@@ -222,16 +254,27 @@ class TextProcessor implements MediaProcessor {
 
       try {
 
-        // Get the image: if this is null, it means that the image is not there or the image is not
-        // of a supported format.
-        final BufferedImage image = iri.getImage().getBufferedImage();
-        if (image == null) {
-          return;
+        // Get the image dimensions: preferably from the image dictionary, as this does not require
+        // decoding the image. Otherwise from the image itself.
+        final PdfDictionary imageDictionary = getImageDictionary(iri);
+        final PdfNumber widthObject =
+            imageDictionary == null ? null : imageDictionary.getAsNumber(PdfName.WIDTH);
+        final PdfNumber heightObject =
+            imageDictionary == null ? null : imageDictionary.getAsNumber(PdfName.HEIGHT);
+        final int widthInPixels;
+        final int heightInPixels;
+        if (widthObject != null && heightObject != null) {
+          widthInPixels = widthObject.intValue();
+          heightInPixels = heightObject.intValue();
+        } else {
+          final Dimension dimension = getDimensionFromImage(iri);
+          if (dimension == null) {
+            return;
+          }
+          widthInPixels = dimension.width;
+          heightInPixels = dimension.height;
         }
 
-        int widthInPixels = image.getWidth();
-        int heightInPixels = image.getHeight();
-
         Matrix imageMatrix = iri.getImageCTM();
         double widthInInches = (double) imageMatrix.get(Matrix.I11) / DISPLAY_DPI;
         double heightInInches = (double) imageMatrix.get(Matrix.I22) / DISPLAY_DPI;
@@ -243,5 +286,35 @@ class TextProcessor implements MediaProcessor {
         LOGGER.info("Could not extract PDF image", e);
       }
     }
+
+    /**
+     * Obtains the dictionary of an image XObject through its reference. This does not decode (or
+     * even read) the image stream.
+     *
+     * @param iri The image render info.
+     * @return The image dictionary, or null if the image is not an XObject (i.e. an inline image).
+     */
+    PdfDictionary getImageDictionary(ImageRenderInfo iri) {
+      final PdfIndirectReference reference = iri.getRef();
+      final PdfObject imageObject = reference == null ? null : PdfReader.getPdfObject(reference);
+      return imageObject instanceof PdfDictionary ? (PdfDictionary) imageObject : null;
+    }
+
+    private static Dimension getDimensionFromImage(ImageRenderInfo iri) throws IOException {
+
+      // For inline images, the dictionary is only available through the image object.
+      final PdfImageObject imageObject = iri.getImage();
+      final PdfObject widthObject = imageObject.get(PdfName.WIDTH);
+      final PdfObject heightObject = imageObject.get(PdfName.HEIGHT);
+      if (widthObject instanceof PdfNumber && heightObject instanceof PdfNumber) {
+        return new Dimension(((PdfNumber) widthObject).intValue(),
+            ((PdfNumber) heightObject).intValue());
+      }
+
+      // Get the image: if this is null, it means that the image is not there or the image is not
+      // of a supported format.
+      final BufferedImage image = imageObject.getBufferedImage();
+      return image == null ? null : new Dimension(image.getWidth(), image.getHeight());
+    }
   }
 }
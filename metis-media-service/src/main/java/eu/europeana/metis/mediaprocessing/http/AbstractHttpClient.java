@@ -104,6 +104,7 @@ abstract class AbstractHttpClient<I, R> implements Closeable {
     // Set up the connection.
     final String resourceUlr = getResourceUrl(resourceEntry);
     final HttpGet httpGet = new HttpGet(resourceUlr);
+    configureRequest(httpGet);
     final HttpClientContext context = HttpClientContext.create();
 
     // Set up the abort trigger
@@ -162,6 +163,15 @@ abstract class AbstractHttpClient<I, R> implements Closeable {
     return status >= HTTP_SUCCESS_MIN_INCLUSIVE && status < HTTP_SUCCESS_MAX_EXCLUSIVE;
   }
 
+  /**
+   * This method allows subclasses to configure the request before it is sent (e.g. to set request
+   * headers). The default implementation does nothing.
+   *
+   * @param request The request to configure.
+   */
+  protected void configureRequest(HttpGet request) {
+  }
+
   /**
    * This method extracts the resource URL (where to send the request) from the resource entry.
    *
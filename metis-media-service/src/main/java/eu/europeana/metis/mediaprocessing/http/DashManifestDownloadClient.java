@@ -0,0 +1,78 @@
+package eu.europeana.metis.mediaprocessing.http;
+
+import io.lindstrom.mpd.MPDParser;
+import io.lindstrom.mpd.data.MPD;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.http.HttpHeaders;
+import org.apache.http.client.methods.HttpGet;
+
+/**
+ * An {@link AbstractHttpClient} that downloads and parses a DASH manifest (MPD file). The manifest
+ * is fully read into memory before parsing, so a strict limit on the size of the manifest is
+ * enforced. It expects the (actual) location of the manifest as resource entry input.
+ */
+public class DashManifestDownloadClient extends AbstractHttpClient<URI, MPD> {
+
+  private static final String ACCEPT_HEADER_VALUE =
+      "application/dash+xml, application/xml;q=0.9, text/xml;q=0.8";
+
+  private final MPDParser parser = new MPDParser();
+  private final int maxManifestSize;
+
+  /**
+   * Constructor.
+   *
+   * @param maxRedirectCount The maximum number of times we follow a redirect status (status 3xx).
+   * @param connectTimeout The connection timeout in milliseconds.
+   * @param socketTimeout The socket timeout in milliseconds.
+   * @param requestTimeout The time after which the request will be aborted (if it hasn't finished
+   * by then). In milliseconds.
+   * @param maxManifestSize The maximum size of the manifest, in bytes. Larger manifests are
+   * rejected.
+   */
+  public DashManifestDownloadClient(int maxRedirectCount, int connectTimeout, int socketTimeout,
+      int requestTimeout, int maxManifestSize) {
+    super(maxRedirectCount, connectTimeout, socketTimeout, requestTimeout);
+    this.maxManifestSize = maxManifestSize;
+  }
+
+  @Override
+  protected void configureRequest(HttpGet request) {
+    request.setHeader(HttpHeaders.ACCEPT, ACCEPT_HEADER_VALUE);
+  }
+
+  @Override
+  protected String getResourceUrl(URI resourceEntry) {
+    return resourceEntry.toString();
+  }
+
+  @Override
+  protected MPD createResult(URI resourceEntry, URI actualUri, String mimeType, Long fileSize,
+      ContentRetriever contentRetriever) throws IOException {
+
+    // Check the size if it is given.
+    if (fileSize != null && fileSize > maxManifestSize) {
+      throw new IOException(
+          "Manifest " + resourceEntry + " is too large (" + fileSize + " bytes).");
+    }
+
+    // Read the content (at most one byte more than the maximum to detect overflow).
+    final byte[] content;
+    try (final InputStream inputStream = new BoundedInputStream(contentRetriever.getContent(),
+        maxManifestSize + 1L)) {
+      content = IOUtils.toByteArray(inputStream);
+    }
+    if (content.length > maxManifestSize) {
+      throw new IOException(
+          "Manifest " + resourceEntry + " is too large (more than " + maxManifestSize + " bytes).");
+    }
+
+    // Parse the manifest.
+    return parser.parse(new ByteArrayInputStream(content));
+  }
+}
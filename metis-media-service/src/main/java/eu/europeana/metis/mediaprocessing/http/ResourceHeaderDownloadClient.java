@@ -0,0 +1,62 @@
+package eu.europeana.metis.mediaprocessing.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.http.HttpHeaders;
+import org.apache.http.client.methods.HttpGet;
+
+/**
+ * An {@link AbstractHttpClient} that obtains the first bytes (the header) of a resource using an
+ * HTTP range request. It expects the (actual) location of the resource as resource entry input. If
+ * the server does not honor the range request (i.e. it would send more than the requested number of
+ * bytes), the content is not downloaded and the result is null.
+ */
+public class ResourceHeaderDownloadClient extends AbstractHttpClient<URI, byte[]> {
+
+  private final int headerSize;
+
+  /**
+   * Constructor.
+   *
+   * @param maxRedirectCount The maximum number of times we follow a redirect status (status 3xx).
+   * @param connectTimeout The connection timeout in milliseconds.
+   * @param socketTimeout The socket timeout in milliseconds.
+   * @param requestTimeout The time after which the request will be aborted (if it hasn't finished
+   * by then). In milliseconds.
+   * @param headerSize The number of bytes to obtain from the start of the resource.
+   */
+  public ResourceHeaderDownloadClient(int maxRedirectCount, int connectTimeout, int socketTimeout,
+      int requestTimeout, int headerSize) {
+    super(maxRedirectCount, connectTimeout, socketTimeout, requestTimeout);
+    this.headerSize = headerSize;
+  }
+
+  @Override
+  protected void configureRequest(HttpGet request) {
+    request.setHeader(HttpHeaders.RANGE, "bytes=0-" + (headerSize - 1));
+  }
+
+  @Override
+  protected String getResourceUrl(URI resourceEntry) {
+    return resourceEntry.toString();
+  }
+
+  @Override
+  protected byte[] createResult(URI resourceEntry, URI actualUri, String mimeType, Long fileSize,
+      ContentRetriever contentRetriever) throws IOException {
+
+    // If the server ignored the range (or didn't say how much it will send), we don't download.
+    if (fileSize == null || fileSize > headerSize) {
+      return null;
+    }
+
+    // Read the content.
+    try (final InputStream inputStream = new BoundedInputStream(contentRetriever.getContent(),
+        headerSize)) {
+      return IOUtils.toByteArray(inputStream);
+    }
+  }
+}
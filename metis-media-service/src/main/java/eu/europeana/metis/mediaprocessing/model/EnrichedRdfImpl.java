@@ -18,6 +18,7 @@ import java.util.Set;
 public class EnrichedRdfImpl extends RdfWrapper implements EnrichedRdf {
 
   private final Map<String, Set<String>> thumbnailTargetNames = new HashMap<>();
+  private Map<String, WebResourceType> webResourcesByUrl;
 
   /**
    * Constructor.
@@ -29,17 +30,25 @@ public class EnrichedRdfImpl extends RdfWrapper implements EnrichedRdf {
   }
 
   private WebResource getOrCreateWebResource(String url) {
-    if (getRdf().getWebResourceList() == null) {
-      getRdf().setWebResourceList(new ArrayList<>());
-    }
-    for (WebResourceType resource : getRdf().getWebResourceList()) {
-      if (resource.getAbout().equals(url)) {
-        return new WebResource(resource);
+
+    // Index the web resources on first use, so that we don't need to scan the list every time.
+    if (webResourcesByUrl == null) {
+      if (getRdf().getWebResourceList() == null) {
+        getRdf().setWebResourceList(new ArrayList<>());
+      }
+      webResourcesByUrl = new HashMap<>();
+      for (WebResourceType resource : getRdf().getWebResourceList()) {
+        webResourcesByUrl.putIfAbsent(resource.getAbout(), resource);
       }
     }
-    WebResourceType resource = new WebResourceType();
-    resource.setAbout(url);
-    getRdf().getWebResourceList().add(resource);
+
+    // Find the resource, or create it if it doesn't exist yet.
+    final WebResourceType resource = webResourcesByUrl.computeIfAbsent(url, key -> {
+      final WebResourceType newResource = new WebResourceType();
+      newResource.setAbout(key);
+      getRdf().getWebResourceList().add(newResource);
+      return newResource;
+    });
     return new WebResource(resource);
   }
 
@@ -0,0 +1,164 @@
+package eu.europeana.metis.mediaprocessing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import eu.europeana.metis.mediaprocessing.AbstractMediaProcessorPool.LinkCheckerPool;
+import eu.europeana.metis.mediaprocessing.AbstractMediaProcessorPool.MediaExtractorPool;
+import eu.europeana.metis.mediaprocessing.AbstractMediaProcessorPool.PoolSizeAdapter;
+import eu.europeana.metis.mediaprocessing.exception.MediaProcessorException;
+import eu.europeana.metis.mediaprocessing.model.RdfResourceEntry;
+import eu.europeana.metis.mediaprocessing.model.ResourceExtractionResult;
+import java.io.Closeable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.pool2.BasePooledObjectFactory;
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.junit.jupiter.api.Test;
+
+class AbstractMediaProcessorPoolTest {
+
+  @Test
+  void testProcessTaskAndStatistics() throws Exception {
+    final MediaProcessorFactory factory = mock(MediaProcessorFactory.class);
+    final MediaExtractor extractor = mock(MediaExtractor.class);
+    doReturn(extractor).when(factory).createMediaExtractor();
+    final RdfResourceEntry input = mock(RdfResourceEntry.class);
+    final ResourceExtractionResult result = mock(ResourceExtractionResult.class);
+    doReturn(result).when(extractor).processTask(input);
+
+    final MediaProcessorPoolSettings settings = new MediaProcessorPoolSettings();
+    settings.setMaxTotal(3);
+    try (final MediaExtractorPool pool = new MediaExtractorPool(factory, settings)) {
+      assertSame(result, pool.processTask(input));
+      assertSame(result, pool.processTask(input));
+      final MediaProcessorPoolStatistics statistics = pool.getPoolStatistics();
+      assertEquals(3, statistics.getCurrentMaxTotal());
+      assertEquals(0, statistics.getNumActive());
+      assertEquals(1, statistics.getNumIdle());
+      assertEquals(1, statistics.getCreatedCount());
+      assertEquals(2, statistics.getBorrowedCount());
+    }
+  }
+
+  @Test
+  void testBackPressureWithMaxWaitTime() throws Exception {
+    final MediaProcessorFactory factory = mock(MediaProcessorFactory.class);
+    final CountDownLatch taskStarted = new CountDownLatch(1);
+    final CountDownLatch releaseTask = new CountDownLatch(1);
+    final LinkChecker linkChecker = new LinkChecker() {
+      @Override
+      public void performLinkChecking(String resourceEntry) {
+        taskStarted.countDown();
+        try {
+          releaseTask.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+    doReturn(linkChecker).when(factory).createLinkChecker();
+
+    final MediaProcessorPoolSettings settings = new MediaProcessorPoolSettings();
+    settings.setMaxTotal(1);
+    settings.setMaxWaitTime(50);
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try (final LinkCheckerPool pool = new LinkCheckerPool(factory, settings)) {
+      executor.submit(() -> pool.processTask("first"));
+      assertTrue(taskStarted.await(10, TimeUnit.SECONDS));
+      assertThrows(MediaProcessorException.class, () -> pool.processTask("second"));
+      assertEquals(1, pool.getPoolStatistics().getCreatedCount());
+      releaseTask.countDown();
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void testPoolSizeAdapter() {
+    final GenericObjectPool<?> pool = mock(GenericObjectPool.class);
+    final PoolSizeAdapter adapter = new PoolSizeAdapter(pool, 2, 10, 1000);
+
+    // Saturated with waiters: grow by the number of waiters.
+    doReturn(4).when(pool).getMaxTotal();
+    doReturn(4).when(pool).getNumActive();
+    doReturn(3).when(pool).getNumWaiters();
+    adapter.adapt();
+    verify(pool).setMaxTotal(7);
+
+    // Saturated with waiters, but never above the maximum.
+    doReturn(9).when(pool).getMaxTotal();
+    doReturn(9).when(pool).getNumActive();
+    adapter.adapt();
+    verify(pool).setMaxTotal(10);
+
+    // Underused: shrink by one.
+    doReturn(6).when(pool).getMaxTotal();
+    doReturn(1).when(pool).getNumActive();
+    doReturn(0).when(pool).getNumWaiters();
+    adapter.adapt();
+    verify(pool).setMaxTotal(5);
+
+    // Underused, but never below the minimum.
+    doReturn(2).when(pool).getMaxTotal();
+    doReturn(0).when(pool).getNumActive();
+    adapter.adapt();
+    verify(pool, never()).setMaxTotal(1);
+
+    // Busy but without waiters: no change.
+    doReturn(4).when(pool).getMaxTotal();
+    doReturn(3).when(pool).getNumActive();
+    doReturn(0L).when(pool).getMeanBorrowWaitTimeMillis();
+    adapter.adapt();
+    verify(pool, never()).setMaxTotal(4);
+    verify(pool, never()).setMaxTotal(3);
+  }
+
+  @Test
+  void testPoolSizeAdapterRemovesExcessIdleProcessors() throws Exception {
+    final GenericObjectPool<Closeable> pool = new GenericObjectPool<>(
+        new BasePooledObjectFactory<Closeable>() {
+          @Override
+          public Closeable create() {
+            return mock(Closeable.class);
+          }
+
+          @Override
+          public PooledObject<Closeable> wrap(Closeable processor) {
+            return new DefaultPooledObject<>(processor);
+          }
+        });
+    try {
+      pool.setMaxTotal(3);
+      final Closeable first = pool.borrowObject();
+      final Closeable second = pool.borrowObject();
+      final Closeable third = pool.borrowObject();
+      pool.returnObject(first);
+      pool.returnObject(second);
+      pool.returnObject(third);
+      assertEquals(3, pool.getNumIdle());
+
+      // Underused: shrink by one and remove the idle processor that is now too many.
+      new PoolSizeAdapter(pool, 1, 3, 1000).adapt();
+      assertEquals(2, pool.getMaxTotal());
+      assertEquals(2, pool.getNumIdle());
+      assertEquals(1, pool.getDestroyedCount());
+    } finally {
+      pool.close();
+    }
+  }
+}
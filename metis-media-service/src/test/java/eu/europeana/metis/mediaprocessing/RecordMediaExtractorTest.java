@@ -0,0 +1,182 @@
+package eu.europeana.metis.mediaprocessing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import eu.europeana.metis.mediaprocessing.AbstractMediaProcessorPool.MediaExtractorPool;
+import eu.europeana.metis.mediaprocessing.RecordMediaExtractor.ResourceOutcome;
+import eu.europeana.metis.mediaprocessing.exception.MediaExtractionException;
+import eu.europeana.metis.mediaprocessing.model.EnrichedRdf;
+import eu.europeana.metis.mediaprocessing.model.RdfResourceEntry;
+import eu.europeana.metis.mediaprocessing.model.ResourceExtractionResult;
+import eu.europeana.metis.mediaprocessing.model.ResourceMetadata;
+import eu.europeana.metis.mediaprocessing.model.UrlType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+class RecordMediaExtractorTest {
+
+  private static RdfResourceEntry createEntry(String url) {
+    return new RdfResourceEntry(url, Collections.singletonList(UrlType.HAS_VIEW));
+  }
+
+  @Test
+  void testProcessRecord() throws Exception {
+
+    // Create resources: the first one finishes last, the second one fails.
+    final RdfResourceEntry entry1 = createEntry("http://host1.org/1");
+    final RdfResourceEntry entry2 = createEntry("http://host2.org/2");
+    final RdfResourceEntry entry3 = createEntry("http://host3.org/3");
+    final ResourceMetadata metadata1 = mock(ResourceMetadata.class);
+    final ResourceMetadata metadata3 = mock(ResourceMetadata.class);
+    final ResourceExtractionResult result1 = mock(ResourceExtractionResult.class);
+    final ResourceExtractionResult result3 = mock(ResourceExtractionResult.class);
+    doReturn(metadata1).when(result1).getMetadata();
+    doReturn(metadata3).when(result3).getMetadata();
+    final MediaExtractionException exception = new MediaExtractionException("");
+    final MediaExtractorPool pool = mock(MediaExtractorPool.class);
+    doAnswer(invocation -> {
+      Thread.sleep(100);
+      return result1;
+    }).when(pool).processTask(entry1);
+    doThrow(exception).when(pool).processTask(entry2);
+    doReturn(result3).when(pool).processTask(entry3);
+
+    // Process the record
+    final EnrichedRdf rdf = mock(EnrichedRdf.class);
+    final List<ResourceOutcome> outcomes;
+    try (final RecordMediaExtractor extractor = new RecordMediaExtractor(pool, 3, 3, 1)) {
+      outcomes = extractor.processRecord(rdf, Arrays.asList(entry1, entry2, entry3));
+    }
+
+    // Check the outcomes: they should be in the input order.
+    assertEquals(3, outcomes.size());
+    assertSame(entry1, outcomes.get(0).getResourceEntry());
+    assertSame(result1, outcomes.get(0).getResult());
+    assertNull(outcomes.get(0).getException());
+    assertSame(entry2, outcomes.get(1).getResourceEntry());
+    assertNull(outcomes.get(1).getResult());
+    assertSame(exception, outcomes.get(1).getException());
+    assertSame(entry3, outcomes.get(2).getResourceEntry());
+    assertSame(result3, outcomes.get(2).getResult());
+
+    // Check the enrichment: it should be in the input order too.
+    final InOrder inOrder = inOrder(rdf);
+    inOrder.verify(rdf).enrichResource(metadata1);
+    inOrder.verify(rdf).enrichResource(metadata3);
+    inOrder.verifyNoMoreInteractions();
+  }
+
+  @Test
+  void testLimitsPerRecordAndPerHost() throws Exception {
+
+    // Create resources on two hosts.
+    final List<RdfResourceEntry> entries = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      entries.add(createEntry("http://host" + (i % 2) + ".org/" + i));
+    }
+
+    // Track the number of resources that are processed at the same time (in total and per host).
+    final AtomicInteger running = new AtomicInteger();
+    final AtomicInteger maxRunning = new AtomicInteger();
+    final AtomicInteger[] runningPerHost = {new AtomicInteger(), new AtomicInteger()};
+    final AtomicInteger maxRunningPerHost = new AtomicInteger();
+    final MediaExtractorPool pool = mock(MediaExtractorPool.class);
+    doAnswer(invocation -> {
+      final RdfResourceEntry entry = invocation.getArgument(0);
+      final AtomicInteger hostCounter = runningPerHost[entry.getResourceUrl().contains("host0")
+          ? 0 : 1];
+      maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+      maxRunningPerHost.accumulateAndGet(hostCounter.incrementAndGet(), Math::max);
+      Thread.sleep(20);
+      hostCounter.decrementAndGet();
+      running.decrementAndGet();
+      return null;
+    }).when(pool).processTask(any());
+
+    // Process the record and check the limits.
+    final EnrichedRdf rdf = mock(EnrichedRdf.class);
+    final List<ResourceOutcome> outcomes;
+    try (final RecordMediaExtractor extractor = new RecordMediaExtractor(pool, 10, 3, 2)) {
+      outcomes = extractor.processRecord(rdf, entries);
+    }
+    assertEquals(10, outcomes.size());
+    for (int i = 0; i < 10; i++) {
+      assertSame(entries.get(i), outcomes.get(i).getResourceEntry());
+    }
+    assertTrue(maxRunning.get() <= 3);
+    assertTrue(maxRunningPerHost.get() <= 2);
+    verify(rdf, never()).enrichResource(any());
+  }
+
+  @Test
+  void testHostPermitsAreRemovedAfterUse() throws Exception {
+    final MediaExtractorPool pool = mock(MediaExtractorPool.class);
+    try (final RecordMediaExtractor extractor = new RecordMediaExtractor(pool, 2, 2, 1)) {
+      extractor.processResources(Arrays.asList(createEntry("http://host1.org/1"),
+          createEntry("http://host1.org/2"), createEntry("http://host2.org/3")));
+      assertEquals(0, extractor.getHostCount());
+    }
+  }
+
+  @Test
+  void testResultsAreClosedWhenInterrupted() throws Exception {
+
+    // The first resource finishes right away, the second one waits until it is released.
+    final RdfResourceEntry entry1 = createEntry("http://host1.org/1");
+    final RdfResourceEntry entry2 = createEntry("http://host2.org/2");
+    final ResourceExtractionResult result1 = mock(ResourceExtractionResult.class);
+    final ResourceExtractionResult result2 = mock(ResourceExtractionResult.class);
+    final CountDownLatch secondStarted = new CountDownLatch(1);
+    final CountDownLatch releaseSecond = new CountDownLatch(1);
+    final MediaExtractorPool pool = mock(MediaExtractorPool.class);
+    doReturn(result1).when(pool).processTask(entry1);
+    doAnswer(invocation -> {
+      secondStarted.countDown();
+      releaseSecond.await();
+      return result2;
+    }).when(pool).processTask(entry2);
+
+    // Interrupt the processing while the second resource is in flight.
+    final ExecutorService caller = Executors.newSingleThreadExecutor();
+    try (final RecordMediaExtractor extractor = new RecordMediaExtractor(pool, 2, 2, 1)) {
+      final Future<List<ResourceOutcome>> outcomes = caller
+          .submit(() -> extractor.processResources(Arrays.asList(entry1, entry2)));
+      assertTrue(secondStarted.await(10, TimeUnit.SECONDS));
+      caller.shutdownNow();
+      final ExecutionException exception = assertThrows(ExecutionException.class,
+          () -> outcomes.get(10, TimeUnit.SECONDS));
+      assertTrue(exception.getCause() instanceof InterruptedException);
+
+      // Both the finished result and the result that finishes later should be closed.
+      releaseSecond.countDown();
+      verify(result1, timeout(10_000)).close();
+      verify(result2, timeout(10_000)).close();
+    } finally {
+      caller.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,131 @@
+package eu.europeana.metis.mediaprocessing.extraction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+import eu.europeana.metis.mediaprocessing.exception.MediaProcessorException;
+import eu.europeana.metis.mediaprocessing.model.AbstractResourceMetadata;
+import eu.europeana.metis.mediaprocessing.model.AudioResourceMetadata;
+import eu.europeana.metis.mediaprocessing.model.Resource;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares the metadata that the {@link AudioVideoHeaderProber} extracts from complete, playable
+ * files with the metadata that ffprobe reports for the same files. This test is skipped if ffprobe
+ * is not installed.
+ */
+class AudioVideoHeaderProberParityTest {
+
+  private static final String URL = "http://valid.url.nl/test";
+  private static final double DURATION_DELTA = 0.05;
+
+  private static CommandExecutor commandExecutor;
+  private static AudioVideoProcessor audioVideoProcessor;
+  private static Path directory;
+
+  private final AudioVideoHeaderProber prober = new AudioVideoHeaderProber();
+
+  @BeforeAll
+  static void setUp() throws IOException {
+    commandExecutor = new CommandExecutor(60);
+    String ffprobeCommand;
+    try {
+      ffprobeCommand = AudioVideoProcessor.discoverFfprobeCommand(commandExecutor);
+    } catch (MediaProcessorException e) {
+      ffprobeCommand = null;
+    }
+    assumeTrue(ffprobeCommand != null, "ffprobe is not installed.");
+    audioVideoProcessor = new AudioVideoProcessor(commandExecutor, ffprobeCommand, null, null);
+    directory = Files.createTempDirectory("prober-parity");
+  }
+
+  @AfterAll
+  static void tearDown() throws IOException {
+    if (directory != null) {
+      FileUtils.deleteDirectory(directory.toFile());
+    }
+  }
+
+  private static byte[] createWav(int channels, int sampleRate, int bitsPerSample,
+      int sampleCount) {
+    final int dataSize = sampleCount * channels * bitsPerSample / 8;
+    final byte[] header = AudioVideoHeaderProberTest
+        .createWavHeader(1, channels, sampleRate, bitsPerSample, dataSize);
+    final ByteBuffer buffer = ByteBuffer.allocate(header.length + dataSize)
+        .order(ByteOrder.LITTLE_ENDIAN).put(header);
+    for (int sample = 0; sample < sampleCount; sample++) {
+      final double value = Math.sin(2 * Math.PI * 440 * sample / sampleRate);
+      for (int channel = 0; channel < channels; channel++) {
+        if (bitsPerSample == 8) {
+          buffer.put((byte) (128 + Math.round(value * 100)));
+        } else {
+          buffer.putShort((short) Math.round(value * 10_000));
+        }
+      }
+    }
+    return buffer.array();
+  }
+
+  private static byte[] createMp3(int frameCount) {
+    // MPEG-1 layer III frames at 128 kbps and 44.1 kHz (stereo, no padding). All side information
+    // and main data is zero, which decodes to silence.
+    final int frameLength = 144 * 128_000 / 44_100;
+    final ByteBuffer buffer = ByteBuffer.allocate(frameCount * frameLength);
+    for (int frame = 0; frame < frameCount; frame++) {
+      buffer.position(frame * frameLength);
+      buffer.put(new byte[]{(byte) 0xFF, (byte) 0xFB, (byte) 0x90, (byte) 0x00});
+    }
+    return buffer.array();
+  }
+
+  private AudioResourceMetadata probeWithFfprobe(String fileName, byte[] content,
+      String mimeType) throws Exception {
+    final Path file = Files.write(directory.resolve(fileName), content);
+    final Resource resource = mock(Resource.class);
+    doReturn(true).when(resource).hasContent();
+    doReturn(file).when(resource).getContentPath();
+    doReturn(URL).when(resource).getResourceUrl();
+    final AbstractResourceMetadata metadata = audioVideoProcessor.parseCommandResponse(resource,
+        mimeType, commandExecutor
+            .execute(audioVideoProcessor.createAudioVideoAnalysisCommand(resource), false));
+    assertTrue(metadata instanceof AudioResourceMetadata);
+    return (AudioResourceMetadata) metadata;
+  }
+
+  private void assertParity(String fileName, byte[] content, String mimeType) throws Exception {
+    final AudioResourceMetadata expected = probeWithFfprobe(fileName, content, mimeType);
+    final AbstractResourceMetadata result = prober.probe(content, mimeType, URL, content.length);
+    assertNotNull(result);
+    assertTrue(result instanceof AudioResourceMetadata);
+    final AudioResourceMetadata actual = (AudioResourceMetadata) result;
+    assertEquals(expected.getDuration(), actual.getDuration(), DURATION_DELTA);
+    assertEquals(expected.getBitRate(), actual.getBitRate());
+    assertEquals(expected.getChannels(), actual.getChannels());
+    assertEquals(expected.getSampleRate(), actual.getSampleRate());
+    assertEquals(expected.getSampleSize(), actual.getSampleSize());
+    assertEquals(expected.getCodecName(), actual.getCodecName());
+  }
+
+  @Test
+  void testWavParity() throws Exception {
+    assertParity("stereo.wav", createWav(2, 44_100, 16, 44_100), "audio/x-wav");
+    assertParity("mono.wav", createWav(1, 8_000, 8, 20_000), "audio/x-wav");
+  }
+
+  @Test
+  void testMp3Parity() throws Exception {
+    assertParity("silence.mp3", createMp3(200), "audio/mpeg");
+  }
+}
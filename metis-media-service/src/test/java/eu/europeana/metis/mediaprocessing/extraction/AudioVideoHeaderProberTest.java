@@ -0,0 +1,210 @@
+package eu.europeana.metis.mediaprocessing.extraction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import eu.europeana.metis.mediaprocessing.model.AbstractResourceMetadata;
+import eu.europeana.metis.mediaprocessing.model.AudioResourceMetadata;
+import eu.europeana.metis.mediaprocessing.model.VideoResourceMetadata;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The expected values in this test are the values that ffprobe reports for the same files.
+ */
+class AudioVideoHeaderProberTest {
+
+  private static final String URL = "http://valid.url.nl/test";
+  private static final double DELTA = 0.000001;
+
+  private final AudioVideoHeaderProber prober = new AudioVideoHeaderProber();
+
+  static byte[] createWavHeader(int formatTag, int channels, int sampleRate, int bitsPerSample,
+      int dataSize) {
+    final int blockAlign = channels * bitsPerSample / 8;
+    final ByteBuffer buffer = ByteBuffer.allocate(44).order(ByteOrder.LITTLE_ENDIAN);
+    buffer.put("RIFF".getBytes(StandardCharsets.US_ASCII)).putInt(36 + dataSize)
+        .put("WAVE".getBytes(StandardCharsets.US_ASCII));
+    buffer.put("fmt ".getBytes(StandardCharsets.US_ASCII)).putInt(16).putShort((short) formatTag)
+        .putShort((short) channels).putInt(sampleRate).putInt(sampleRate * blockAlign)
+        .putShort((short) blockAlign).putShort((short) bitsPerSample);
+    buffer.put("data".getBytes(StandardCharsets.US_ASCII)).putInt(dataSize);
+    return buffer.array();
+  }
+
+  private static byte[] box(String type, byte[]... contents) {
+    final ByteArrayOutputStream content = new ByteArrayOutputStream();
+    for (byte[] part : contents) {
+      content.write(part, 0, part.length);
+    }
+    return ByteBuffer.allocate(8 + content.size()).putInt(8 + content.size())
+        .put(type.getBytes(StandardCharsets.ISO_8859_1)).put(content.toByteArray()).array();
+  }
+
+  private static byte[] ints(int... values) {
+    final ByteBuffer buffer = ByteBuffer.allocate(values.length * 4);
+    Arrays.stream(values).forEach(buffer::putInt);
+    return buffer.array();
+  }
+
+  private static byte[] createMp4(String handlerType, byte[] sampleEntry) {
+    final byte[] mdhd = box("mdhd", ints(0, 0, 0, 1000, 10_000, 0));
+    final byte[] hdlr = box("hdlr", ints(0, 0), handlerType.getBytes(StandardCharsets.ISO_8859_1),
+        ints(0, 0, 0));
+    final byte[] stsd = box("stsd", ints(0, 1), sampleEntry);
+    final byte[] stts = box("stts", ints(0, 1, 250, 40));
+    final byte[] stsz = box("stsz", ints(0, 4000, 250));
+    final byte[] stbl = box("stbl", stsd, stts, stsz);
+    final byte[] trak = box("trak", box("tkhd", ints(0)),
+        box("mdia", mdhd, hdlr, box("minf", stbl)));
+    final byte[] moov = box("moov", box("mvhd", ints(0)), trak);
+    final byte[] ftyp = box("ftyp", "isom".getBytes(StandardCharsets.ISO_8859_1), ints(0));
+    final byte[] result = new byte[ftyp.length + moov.length];
+    System.arraycopy(ftyp, 0, result, 0, ftyp.length);
+    System.arraycopy(moov, 0, result, ftyp.length, moov.length);
+    return result;
+  }
+
+  @Test
+  void testProbeWav() {
+    final byte[] header = createWavHeader(1, 2, 44_100, 16, 176_400);
+    final AbstractResourceMetadata result = prober
+        .probe(header, "audio/x-wav", URL, 176_400 + 44);
+    assertTrue(result instanceof AudioResourceMetadata);
+    final AudioResourceMetadata metadata = (AudioResourceMetadata) result;
+    assertEquals(1.0, metadata.getDuration(), DELTA);
+    assertEquals(Integer.valueOf(1_411_200), metadata.getBitRate());
+    assertEquals(Integer.valueOf(2), metadata.getChannels());
+    assertEquals(Integer.valueOf(44_100), metadata.getSampleRate());
+    assertEquals(Integer.valueOf(16), metadata.getSampleSize());
+    assertEquals("pcm_s16le", metadata.getCodecName());
+    assertEquals(Long.valueOf(176_400 + 44), metadata.getContentSize());
+
+    // Unsupported format (ADPCM): fall back.
+    assertNull(prober.probe(createWavHeader(2, 2, 44_100, 4, 1000), "audio/x-wav", URL, 1044));
+  }
+
+  @Test
+  void testProbeMp3Cbr() {
+
+    // ID3v2 tag of 100 bytes, followed by MPEG-1 layer III frames (128 kbps, 44.1 kHz, stereo).
+    final byte[] header = new byte[100 + 2 * 417];
+    header[0] = 'I';
+    header[1] = 'D';
+    header[2] = '3';
+    header[9] = 90;
+    final byte[] frameHeader = new byte[]{(byte) 0xFF, (byte) 0xFB, (byte) 0x90, 0x00};
+    System.arraycopy(frameHeader, 0, header, 100, 4);
+    System.arraycopy(frameHeader, 0, header, 100 + 417, 4);
+
+    final AbstractResourceMetadata result = prober
+        .probe(header, "audio/mpeg", URL, 100 + 417 * 1000);
+    assertTrue(result instanceof AudioResourceMetadata);
+    final AudioResourceMetadata metadata = (AudioResourceMetadata) result;
+    assertEquals(26.0625, metadata.getDuration(), DELTA);
+    assertEquals(Integer.valueOf(128_000), metadata.getBitRate());
+    assertEquals(Integer.valueOf(2), metadata.getChannels());
+    assertEquals(Integer.valueOf(44_100), metadata.getSampleRate());
+    assertEquals(Integer.valueOf(0), metadata.getSampleSize());
+    assertEquals("mp3", metadata.getCodecName());
+
+    // Other mime type: not probed as MP3.
+    assertNull(prober.probe(header, "audio/ogg", URL, 100 + 417 * 1000));
+  }
+
+  @Test
+  void testProbeMp3Vbr() {
+
+    // MPEG-1 layer III frame with Xing header (1000 frames, 500000 bytes).
+    final byte[] header = new byte[2 * 417];
+    final byte[] frameHeader = new byte[]{(byte) 0xFF, (byte) 0xFB, (byte) 0x90, 0x00};
+    System.arraycopy(frameHeader, 0, header, 0, 4);
+    System.arraycopy(frameHeader, 0, header, 417, 4);
+    final byte[] xing = ByteBuffer.allocate(16).put("Xing".getBytes(StandardCharsets.US_ASCII))
+        .putInt(3).putInt(1000).putInt(500_000).array();
+    System.arraycopy(xing, 0, header, 4 + 32, xing.length);
+
+    final AbstractResourceMetadata result = prober.probe(header, "audio/mpeg", URL, 500_000);
+    assertTrue(result instanceof AudioResourceMetadata);
+    final AudioResourceMetadata metadata = (AudioResourceMetadata) result;
+    assertEquals(1000 * 1152 / 44_100.0, metadata.getDuration(), DELTA);
+    assertEquals(Integer.valueOf(153_125), metadata.getBitRate());
+    assertEquals("mp3", metadata.getCodecName());
+  }
+
+  @Test
+  void testProbeMp4Video() {
+    final byte[] sampleEntry = box("avc1", new byte[6], new byte[]{0, 1}, new byte[16],
+        ByteBuffer.allocate(4).putShort((short) 640).putShort((short) 480).array(),
+        new byte[50]);
+    final byte[] header = createMp4("vide", sampleEntry);
+
+    final AbstractResourceMetadata result = prober.probe(header, "video/mp4", URL, 1_000_000);
+    assertTrue(result instanceof VideoResourceMetadata);
+    final VideoResourceMetadata metadata = (VideoResourceMetadata) result;
+    assertEquals(10.0, metadata.getDuration(), DELTA);
+    assertEquals(Integer.valueOf(800_000), metadata.getBitRate());
+    assertEquals(Integer.valueOf(640), metadata.getWidth());
+    assertEquals(Integer.valueOf(480), metadata.getHeight());
+    assertEquals("h264", metadata.getCodecName());
+    assertEquals(25.0, metadata.getFrameRate(), DELTA);
+
+    // The moov box is not completely in the header: fall back.
+    assertNull(prober.probe(Arrays.copyOf(header, header.length - 10), "video/mp4", URL,
+        1_000_000));
+  }
+
+  @Test
+  void testProbeMp4Audio() {
+    final byte[] sampleEntry = box("mp4a", new byte[6], new byte[]{0, 1}, new byte[8],
+        ByteBuffer.allocate(12).putShort((short) 2).putShort((short) 16).putInt(0)
+            .putInt(48_000 << 16).array());
+    final byte[] header = createMp4("soun", sampleEntry);
+
+    final AbstractResourceMetadata result = prober.probe(header, "audio/mp4", URL, 1_000_000);
+    assertTrue(result instanceof AudioResourceMetadata);
+    final AudioResourceMetadata metadata = (AudioResourceMetadata) result;
+    assertEquals(10.0, metadata.getDuration(), DELTA);
+    assertEquals(Integer.valueOf(800_000), metadata.getBitRate());
+    assertEquals(Integer.valueOf(2), metadata.getChannels());
+    assertEquals(Integer.valueOf(48_000), metadata.getSampleRate());
+    assertEquals(Integer.valueOf(0), metadata.getSampleSize());
+    assertEquals("aac", metadata.getCodecName());
+  }
+
+  @Test
+  void testProbeMp4InvalidLargeSize() {
+    final byte[] ftyp = box("ftyp", "isom".getBytes(StandardCharsets.ISO_8859_1), ints(0));
+    for (long largeSize : new long[]{0, 8, -16}) {
+      final byte[] header = Arrays.copyOf(ftyp, ftyp.length + 16);
+      ByteBuffer.wrap(header, ftyp.length, 16).putInt(1)
+          .put("free".getBytes(StandardCharsets.ISO_8859_1)).putLong(largeSize);
+      assertNull(assertTimeoutPreemptively(Duration.ofSeconds(10),
+          () -> prober.probe(header, "video/mp4", URL, 1000)));
+    }
+  }
+
+  @Test
+  void testProbeUnsupported() {
+    final byte[] header = "RIFF\0\0\0\0AVI LIST".getBytes(StandardCharsets.ISO_8859_1);
+    assertNull(prober.probe(header, "video/x-msvideo", URL, 1000));
+    assertNull(prober.probe(new byte[0], "video/mp4", URL, 1000));
+  }
+
+  @Test
+  void testSupportsMimeType() {
+    assertTrue(prober.supportsMimeType("audio/mpeg"));
+    assertTrue(prober.supportsMimeType("audio/x-wav"));
+    assertTrue(prober.supportsMimeType("video/mp4"));
+    assertFalse(prober.supportsMimeType("video/webm"));
+    assertFalse(prober.supportsMimeType(null));
+  }
+}
@@ -3,6 +3,7 @@ package eu.europeana.metis.mediaprocessing.extraction;
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
 import static com.github.tomakehurst.wiremock.client.WireMock.containing;
 import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
 import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -13,6 +14,7 @@ import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyDouble;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -21,14 +23,18 @@ import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.github.tomakehurst.wiremock.WireMockServer;
 import eu.europeana.metis.mediaprocessing.exception.CommandExecutionException;
 import eu.europeana.metis.mediaprocessing.exception.MediaExtractionException;
 import eu.europeana.metis.mediaprocessing.exception.MediaProcessorException;
+import eu.europeana.metis.mediaprocessing.http.DashManifestDownloadClient;
+import eu.europeana.metis.mediaprocessing.http.ResourceHeaderDownloadClient;
 import eu.europeana.metis.mediaprocessing.model.AbstractResourceMetadata;
 import eu.europeana.metis.mediaprocessing.model.AudioResourceMetadata;
 import eu.europeana.metis.mediaprocessing.model.Resource;
@@ -56,7 +62,11 @@ class AudioVideoProcessorTest {
 
   private static final String FF_PROBE_COMMAND = "ffprobe command";
 
+  private static final int MAX_MANIFEST_SIZE = 100_000;
+
   private static CommandExecutor commandExecutor;
+  private static DashManifestDownloadClient dashManifestDownloadClient;
+  private static ResourceHeaderDownloadClient resourceHeaderDownloadClient;
   private static AudioVideoProcessor audioVideoProcessor;
 
   private static int portForWireMock = 9999;
@@ -74,14 +84,18 @@ class AudioVideoProcessorTest {
   @BeforeAll
   static void createMocks() {
     commandExecutor = mock(CommandExecutor.class);
-    audioVideoProcessor = spy(new AudioVideoProcessor(commandExecutor, FF_PROBE_COMMAND));
+    dashManifestDownloadClient = new DashManifestDownloadClient(0, 1_000, 1_000, 5_000,
+        MAX_MANIFEST_SIZE);
+    resourceHeaderDownloadClient = mock(ResourceHeaderDownloadClient.class);
+    audioVideoProcessor = spy(new AudioVideoProcessor(commandExecutor, FF_PROBE_COMMAND,
+        dashManifestDownloadClient, resourceHeaderDownloadClient));
     wireMockServer = new WireMockServer(wireMockConfig().port(portForWireMock));
     wireMockServer.start();
   }
 
   @BeforeEach
   void resetMocks() {
-    reset(commandExecutor);
+    reset(commandExecutor, resourceHeaderDownloadClient);
   }
 
   @Test
@@ -451,6 +465,43 @@ class AudioVideoProcessorTest {
     assertEquals(360, ((VideoResourceMetadata)metadata).getHeight().intValue());
   }
 
+  @Test
+  void testParseMpdResourceUsesCache() throws MediaExtractionException, URISyntaxException {
+    final Resource resource = mock(Resource.class);
+    when(resource.getActualLocation())
+        .thenReturn(new URI("http://127.0.0.1:" + portForWireMock + "/cached-url.mpd"));
+    wireMockServer.stubFor(get(urlEqualTo("/cached-url.mpd"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withHeader("Content-Type", "application/dash+xml")
+            .withBodyFile("example.mpd")));
+
+    // Parse twice: the manifest should be downloaded only once.
+    final AbstractResourceMetadata metadata1 = audioVideoProcessor
+        .parseMpdResource(resource, "application/dash+xml");
+    final AbstractResourceMetadata metadata2 = audioVideoProcessor
+        .parseMpdResource(resource, "application/dash+xml");
+    assertEquals(((VideoResourceMetadata) metadata1).getWidth(),
+        ((VideoResourceMetadata) metadata2).getWidth());
+    wireMockServer.verify(1, getRequestedFor(urlEqualTo("/cached-url.mpd")));
+  }
+
+  @Test
+  void testParseMpdResourceTooLarge() throws URISyntaxException {
+    final Resource resource = mock(Resource.class);
+    when(resource.getActualLocation())
+        .thenReturn(new URI("http://127.0.0.1:" + portForWireMock + "/large-url.mpd"));
+    final byte[] largeBody = new byte[MAX_MANIFEST_SIZE + 1];
+    Arrays.fill(largeBody, (byte) ' ');
+    wireMockServer.stubFor(get(urlEqualTo("/large-url.mpd"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withHeader("Content-Type", "application/dash+xml")
+            .withBody(largeBody)));
+    assertThrows(MediaExtractionException.class,
+        () -> audioVideoProcessor.parseMpdResource(resource, "application/dash+xml"));
+  }
+
   @Test
   void testDownloadResourceForFullProcessing() {
     assertFalse(audioVideoProcessor.downloadResourceForFullProcessing());
@@ -524,7 +575,8 @@ class AudioVideoProcessorTest {
     doReturn(true).when(resource).hasContent();
     final String detectedMimeType = "detected mime type";
 
-    // Prepare processor
+    // Prepare processor: header probing is not possible.
+    doReturn(null).when(audioVideoProcessor).probeHeader(resource, detectedMimeType);
     final List<String> command = Collections.emptyList();
     doReturn(command).when(audioVideoProcessor).createAudioVideoAnalysisCommand(resource);
     final List<String> response = Collections.emptyList();
@@ -548,4 +600,63 @@ class AudioVideoProcessorTest {
     // Check that all is well again
     assertNotNull(audioVideoProcessor.extractMetadata(resource, detectedMimeType));
   }
+
+  @Test
+  void testExtractWithHeaderProbe() throws IOException, MediaExtractionException,
+      CommandExecutionException {
+
+    // Create resource
+    final Resource resource = mock(Resource.class);
+    final String detectedMimeType = "audio/wav";
+    final AbstractResourceMetadata metadata = mock(AbstractResourceMetadata.class);
+    doReturn(metadata).when(audioVideoProcessor).probeHeader(resource, detectedMimeType);
+
+    // Check that ffprobe is not called.
+    final ResourceExtractionResultImpl result = audioVideoProcessor
+        .extractMetadata(resource, detectedMimeType);
+    assertSame(metadata, result.getOriginalMetadata());
+    verify(commandExecutor, never()).execute(any(), anyBoolean());
+  }
+
+  @Test
+  void testProbeHeaderWithoutContent() throws IOException, MediaExtractionException,
+      URISyntaxException {
+
+    // Create resource without content.
+    final Resource resource = mock(Resource.class);
+    final URI location = new URI("http://valid.url.nl/test.wav");
+    doReturn(location).when(resource).getActualLocation();
+    doReturn(false).when(resource).hasContent();
+    final String detectedMimeType = "audio/wav";
+
+    // Server does not support range requests: no metadata.
+    doReturn(null).when(resourceHeaderDownloadClient).download(location);
+    doReturn(1000L).when(resource).getProvidedFileSize();
+    assertNull(audioVideoProcessor.probeHeader(resource, detectedMimeType));
+
+    // Download problem: no metadata.
+    doThrow(IOException.class).when(resourceHeaderDownloadClient).download(location);
+    assertNull(audioVideoProcessor.probeHeader(resource, detectedMimeType));
+
+    // Header is downloaded: metadata is obtained.
+    final byte[] header = AudioVideoHeaderProberTest.createWavHeader(1, 2, 44_100, 16, 1000 - 44);
+    doReturn(header).when(resourceHeaderDownloadClient).download(location);
+    assertNotNull(audioVideoProcessor.probeHeader(resource, detectedMimeType));
+
+    // No file size known: no metadata.
+    doReturn(null).when(resource).getProvidedFileSize();
+    assertNull(audioVideoProcessor.probeHeader(resource, detectedMimeType));
+
+    // Unsupported mime type: no request is made.
+    reset(resourceHeaderDownloadClient);
+    doReturn(1000L).when(resource).getProvidedFileSize();
+    assertNull(audioVideoProcessor.probeHeader(resource, "video/webm"));
+    verify(resourceHeaderDownloadClient, never()).download(any());
+
+    // No header download client (remote probing disabled): no request is made.
+    final AudioVideoProcessor processorWithoutRemoteProbing = new AudioVideoProcessor(
+        commandExecutor, FF_PROBE_COMMAND, dashManifestDownloadClient, null);
+    assertNull(processorWithoutRemoteProbing.probeHeader(resource, detectedMimeType));
+    verify(resourceHeaderDownloadClient, never()).download(any());
+  }
 }
@@ -0,0 +1,113 @@
+package eu.europeana.metis.mediaprocessing.extraction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import io.lindstrom.mpd.data.MPD;
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class DashManifestCacheTest {
+
+  private static final URI LOCATION = URI.create("http://example.com/manifest.mpd");
+
+  @Test
+  void testConcurrentCallersShareOneLoad() throws Exception {
+    final DashManifestCache cache = new DashManifestCache(10, 60_000);
+    final MPD manifest = mock(MPD.class);
+    final AtomicInteger loadCount = new AtomicInteger(0);
+    final CountDownLatch loadStarted = new CountDownLatch(1);
+    final CountDownLatch releaseLoad = new CountDownLatch(1);
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      final Future<MPD> first = executor.submit(() -> cache.getOrLoad(LOCATION, location -> {
+        loadCount.incrementAndGet();
+        loadStarted.countDown();
+        try {
+          releaseLoad.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return manifest;
+      }));
+      assertTrue(loadStarted.await(10, TimeUnit.SECONDS));
+      final Future<MPD> second = executor.submit(() -> cache.getOrLoad(LOCATION, location -> {
+        loadCount.incrementAndGet();
+        return mock(MPD.class);
+      }));
+      releaseLoad.countDown();
+      assertSame(manifest, first.get(10, TimeUnit.SECONDS));
+      assertSame(manifest, second.get(10, TimeUnit.SECONDS));
+      assertEquals(1, loadCount.get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void testFailedLoadIsNotCached() throws IOException {
+    final DashManifestCache cache = new DashManifestCache(10, 60_000);
+    assertThrows(IOException.class, () -> cache.getOrLoad(LOCATION, location -> {
+      throw new IOException("Failure");
+    }));
+    final MPD manifest = mock(MPD.class);
+    assertSame(manifest, cache.getOrLoad(LOCATION, location -> manifest));
+  }
+
+  @Test
+  void testLoadErrorIsPassedToWaitingCallers() throws Exception {
+    final DashManifestCache cache = new DashManifestCache(10, 60_000);
+    final CountDownLatch loadStarted = new CountDownLatch(1);
+    final CountDownLatch releaseLoad = new CountDownLatch(1);
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      final Future<MPD> first = executor.submit(() -> cache.getOrLoad(LOCATION, location -> {
+        loadStarted.countDown();
+        try {
+          releaseLoad.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        throw new StackOverflowError();
+      }));
+      assertTrue(loadStarted.await(10, TimeUnit.SECONDS));
+      final Future<MPD> second = executor.submit(() -> cache.getOrLoad(LOCATION,
+          location -> mock(MPD.class)));
+      releaseLoad.countDown();
+      final ExecutionException firstException = assertThrows(ExecutionException.class,
+          () -> first.get(10, TimeUnit.SECONDS));
+      assertTrue(firstException.getCause() instanceof StackOverflowError);
+      final ExecutionException secondException = assertThrows(ExecutionException.class,
+          () -> second.get(10, TimeUnit.SECONDS));
+      assertTrue(secondException.getCause() instanceof IllegalStateException);
+    } finally {
+      executor.shutdownNow();
+    }
+    final MPD manifest = mock(MPD.class);
+    assertSame(manifest, cache.getOrLoad(LOCATION, location -> manifest));
+  }
+
+  @Test
+  void testExpiredAndEvictedEntriesAreReloaded() throws IOException {
+    final DashManifestCache expiringCache = new DashManifestCache(10, 0);
+    final MPD manifest = mock(MPD.class);
+    expiringCache.getOrLoad(LOCATION, location -> mock(MPD.class));
+    assertSame(manifest, expiringCache.getOrLoad(LOCATION, location -> manifest));
+
+    final DashManifestCache smallCache = new DashManifestCache(1, 60_000);
+    smallCache.getOrLoad(LOCATION, location -> mock(MPD.class));
+    smallCache.getOrLoad(URI.create("http://example.com/other.mpd"), location -> mock(MPD.class));
+    assertSame(manifest, smallCache.getOrLoad(LOCATION, location -> manifest));
+  }
+}
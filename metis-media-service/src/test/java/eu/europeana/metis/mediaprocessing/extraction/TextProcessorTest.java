@@ -6,18 +6,24 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.notNull;
+import static org.mockito.Mockito.clearInvocations;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
+import com.itextpdf.text.pdf.PdfDictionary;
+import com.itextpdf.text.pdf.PdfName;
+import com.itextpdf.text.pdf.PdfNumber;
 import com.itextpdf.text.pdf.parser.ImageRenderInfo;
 import com.itextpdf.text.pdf.parser.Matrix;
 import com.itextpdf.text.pdf.parser.PdfImageObject;
@@ -261,6 +267,31 @@ class TextProcessorTest {
         () -> textProcessor.findPdfCharacteristics(content));
   }
 
+  @Test
+  void testFindPdfCharacteristicsWithPageScanLimit() throws IOException, MediaExtractionException {
+
+    // Mock pdf reading utility classes: we have 4 pages but scan at most 2.
+    final TextProcessor limitedTextProcessor = spy(new TextProcessor(thumbnailGenerator, 2));
+    final File content = new File("content file");
+    final OpenPdfFile openPdfFile = mock(OpenPdfFile.class);
+    doReturn(4).when(openPdfFile).getNumberOfPages();
+    doReturn(openPdfFile).when(limitedTextProcessor).openPdfFile(content);
+    final PdfReaderContentParser pdfParser = mock(PdfReaderContentParser.class);
+    doReturn(pdfParser).when(openPdfFile).getPdfParser();
+    final PdfListener pdfListener = mock(PdfListener.class);
+    doReturn(pdfListener).when(openPdfFile).getPdfListener();
+
+    // Parse pdf without text and without image: only the first two pages should be scanned.
+    doReturn(null).when(pdfListener).getDpi();
+    doReturn(false).when(pdfListener).hasText();
+    doReturn(pdfListener).when(pdfParser).processContent(anyInt(), notNull());
+    final PdfCharacteristics result = limitedTextProcessor.findPdfCharacteristics(content);
+    assertNull(result.getResolution());
+    assertFalse(result.containsText());
+    verify(pdfParser, times(2)).processContent(anyInt(), eq(pdfListener));
+    verify(pdfParser, never()).processContent(eq(3), any());
+  }
+
   @Test
   void testPdfListenerText() {
 
@@ -328,6 +359,27 @@ class TextProcessorTest {
     listener.renderImage(renderInfo);
     assertEquals(Integer.valueOf(Math.min(imageWidth, imageHeight)),listener.getDpi());
 
+    // If the dimensions are in the image dictionary, the image should not be obtained or decoded.
+    final PdfListener dictionaryListener = spy(new PdfListener());
+    final PdfDictionary imageDictionary = new PdfDictionary();
+    imageDictionary.put(PdfName.WIDTH, new PdfNumber(horizontalScaling * imageWidth));
+    imageDictionary.put(PdfName.HEIGHT, new PdfNumber(verticalScaling * imageHeight));
+    doReturn(imageDictionary).when(dictionaryListener).getImageDictionary(renderInfo);
+    clearInvocations(renderInfo);
+    dictionaryListener.renderImage(renderInfo);
+    assertEquals(Integer.valueOf(Math.min(imageWidth, imageHeight)), dictionaryListener.getDpi());
+    verify(renderInfo, never()).getImage();
+
+    // For inline images, the dimensions can still be taken from the image object's dictionary.
+    final PdfListener inlineImageListener = new PdfListener();
+    doReturn(new PdfNumber(horizontalScaling * imageWidth)).when(pdfImage).get(PdfName.WIDTH);
+    doReturn(new PdfNumber(verticalScaling * imageHeight)).when(pdfImage).get(PdfName.HEIGHT);
+    doThrow(IOException.class).when(pdfImage).getBufferedImage();
+    inlineImageListener.renderImage(renderInfo);
+    assertEquals(Integer.valueOf(Math.min(imageWidth, imageHeight)), inlineImageListener.getDpi());
+    doReturn(null).when(pdfImage).get(PdfName.WIDTH);
+    doReturn(null).when(pdfImage).get(PdfName.HEIGHT);
+
     // In case of error: current value should not change. Try with new Image Listener.
     final PdfListener blankListener = new PdfListener();
     doThrow(IOException.class).when(pdfImage).getBufferedImage();
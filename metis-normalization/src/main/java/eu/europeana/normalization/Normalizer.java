@@ -1,6 +1,7 @@
 package eu.europeana.normalization;
 
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 import eu.europeana.normalization.model.NormalizationBatchResult;
 import eu.europeana.normalization.model.NormalizationResult;
 import eu.europeana.normalization.util.NormalizationException;
@@ -33,4 +34,19 @@ public interface Normalizer {
    */
   NormalizationBatchResult normalize(List<String> edmRecords) throws NormalizationException;
 
+  /**
+   * This method is a convenience method for calling {@link #normalize(String)} for multiple EDM
+   * records in parallel, using the given executor. The records are normalized independently of each
+   * other: a problem with one record is reported in the result for that record and does not affect
+   * the other records.
+   * 
+   * @param edmRecords The records to normalize.
+   * @param executor The executor to perform the normalizations with.
+   * @return The normalized records (in the same order as the input records), along with reports on
+   *         the normalizations.
+   * @throws NormalizationException In case there was a problem.
+   */
+  NormalizationBatchResult normalize(List<String> edmRecords, ExecutorService executor)
+      throws NormalizationException;
+
 }
@@ -4,6 +4,9 @@ import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
@@ -49,6 +52,44 @@ class NormalizerImpl implements Normalizer {
     return new NormalizationBatchResult(result);
   }
 
+  @Override
+  public NormalizationBatchResult normalize(List<String> edmRecords, ExecutorService executor)
+      throws NormalizationException {
+
+    // Sanity check.
+    if (edmRecords == null || edmRecords.stream().anyMatch(Objects::isNull)) {
+      throw new IllegalArgumentException("Input is null or contains null elements.");
+    }
+    if (executor == null) {
+      throw new IllegalArgumentException("Executor is null.");
+    }
+
+    // Submit all records.
+    final List<Future<NormalizationResult>> futures = new ArrayList<>(edmRecords.size());
+    for (String record : edmRecords) {
+      futures.add(executor.submit(() -> normalize(record)));
+    }
+
+    // Collect the results in the order of the input.
+    final List<NormalizationResult> result = new ArrayList<>(edmRecords.size());
+    try {
+      for (Future<NormalizationResult> future : futures) {
+        result.add(future.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new NormalizationException("Interrupted while normalizing records.", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof NormalizationException) {
+        throw (NormalizationException) e.getCause();
+      }
+      throw new NormalizationException("Unexpected problem: " + e.getCause().getMessage(), e);
+    } finally {
+      futures.forEach(future -> future.cancel(true));
+    }
+    return new NormalizationBatchResult(result);
+  }
+
   @Override
   public NormalizationResult normalize(String edmRecord) throws NormalizationException {
 
@@ -25,7 +25,8 @@ import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
 /**
- * Utility methods for working with XML DOMs (org.w3c.dom)
+ * Utility methods for working with XML DOMs (org.w3c.dom). The document builders and transformers
+ * that are used to parse and serialize DOM trees are created once per thread and then reused.
  *
  * @author Nuno Freire (nfreire@gmail.com)
  */
@@ -33,6 +34,8 @@ public final class XmlUtil {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(XmlUtil.class);
   private static final DocumentBuilderFactory FACTORY = DocumentBuilderFactory.newInstance();
+  private static final ThreadLocal<DocumentBuilder> DOCUMENT_BUILDERS = new ThreadLocal<>();
+  private static final ThreadLocal<Transformer> TRANSFORMERS = new ThreadLocal<>();
 
   static {
     try {
@@ -149,8 +152,7 @@ public final class XmlUtil {
    */
   public static Document parseDom(Reader reader) throws XmlException {
     try {
-      DocumentBuilder builder = FACTORY.newDocumentBuilder();
-      return builder.parse(new org.xml.sax.InputSource(reader));
+      return getDocumentBuilder().parse(new org.xml.sax.InputSource(reader));
     } catch (ParserConfigurationException | SAXException | IOException e) {
       throw new XmlException("Could not parse DOM for '" + reader.toString() + "'!", e);
     }
@@ -179,9 +181,7 @@ public final class XmlUtil {
       throws XmlException {
     try {
       StringWriter ret = new StringWriter();
-      final TransformerFactory transformerFactory = TransformerFactory.newInstance();
-      transformerFactory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-      Transformer transformer = transformerFactory.newTransformer();
+      Transformer transformer = getTransformer();
       if (outputProperties != null) {
         transformer.setOutputProperties(outputProperties);
       }
@@ -193,4 +193,28 @@ public final class XmlUtil {
       throw new XmlException("Could not write dom to string!", e);
     }
   }
+
+  private static DocumentBuilder getDocumentBuilder() throws ParserConfigurationException {
+    DocumentBuilder builder = DOCUMENT_BUILDERS.get();
+    if (builder == null) {
+      builder = FACTORY.newDocumentBuilder();
+      DOCUMENT_BUILDERS.set(builder);
+    } else {
+      builder.reset();
+    }
+    return builder;
+  }
+
+  private static Transformer getTransformer() throws TransformerException {
+    Transformer transformer = TRANSFORMERS.get();
+    if (transformer == null) {
+      final TransformerFactory transformerFactory = TransformerFactory.newInstance();
+      transformerFactory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+      transformer = transformerFactory.newTransformer();
+      TRANSFORMERS.set(transformer);
+    } else {
+      transformer.reset();
+    }
+    return transformer;
+  }
 }
@@ -20,7 +20,9 @@ import eu.europeana.normalization.util.Namespace.Element;
 /**
  * This object represents an XPath query, containing an expression and the namespaces that occur in
  * it. This query can be executed on a DOM tree. Internally it uses the
- * {@link javax.xml.xpath.XPath} API.
+ * {@link javax.xml.xpath.XPath} API. The expression is compiled only once per thread (as compiled
+ * expressions are not thread-safe), so that instances of this class can be shared and reused
+ * between threads without compiling the expression for every execution.
  *
  * @author jochen
  *
@@ -30,12 +32,15 @@ public final class XpathQuery {
   /** The element rdf:RDF that may be used to create queries. **/
   public static final Element RDF_TAG = Namespace.RDF.getElement("RDF");
 
-  private static final XPathFactory XPATH_FACTORY = XPathFactory.newInstance();
+  private static final ThreadLocal<XPathFactory> XPATH_FACTORY =
+      ThreadLocal.withInitial(XPathFactory::newInstance);
 
   private final Map<String, String> namespaceByPrefixMap;
   private final String expressionFormat;
   private final String expression;
   private final List<Element> elements;
+  private final NamespaceContext namespaceContext = new SimpleNamespaceContext();
+  private final ThreadLocal<XPathExpression> compiledExpression = new ThreadLocal<>();
 
   /**
    * Constructor. It uses {@link String#format(String, Object...)} to format the given input format
@@ -93,13 +98,18 @@ public final class XpathQuery {
   }
 
   private XPathExpression toXPath() throws XPathExpressionException {
-    XPath xpath = XPATH_FACTORY.newXPath();
-    xpath.setNamespaceContext(new SimpleNamespaceContext());
-    return xpath.compile(this.expression);
+    XPathExpression result = compiledExpression.get();
+    if (result == null) {
+      final XPath xpath = XPATH_FACTORY.get().newXPath();
+      xpath.setNamespaceContext(namespaceContext);
+      result = xpath.compile(this.expression);
+      compiledExpression.set(result);
+    }
+    return result;
   }
 
   /**
-   * This method executes the query on a DOM tree.
+   * This method executes the query on a DOM tree. This method is thread-safe.
    *
    * @param dom The DOM tree on which to execute the query.
    * @return The list of nodes that satisfy the query. Is not null, but could of course be empty.
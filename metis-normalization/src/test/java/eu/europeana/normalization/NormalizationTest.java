@@ -1,5 +1,6 @@
 package eu.europeana.normalization;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 import eu.europeana.normalization.model.NormalizationBatchResult;
@@ -7,7 +8,11 @@ import eu.europeana.normalization.util.NormalizationConfigurationException;
 import eu.europeana.normalization.util.NormalizationException;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.apache.commons.io.IOUtils;
 import org.junit.jupiter.api.Test;
 
@@ -33,4 +38,27 @@ class NormalizationTest {
     final NormalizationBatchResult result = normalizer.normalize(Collections.singletonList(record));
     assertNotNull(result);
   }
+
+  @Test
+  void testParallelNormalization()
+      throws IOException, NormalizationException, NormalizationConfigurationException {
+
+    // Create a batch with a problematic record between valid records.
+    final String record = IOUtils
+        .toString(getClass().getClassLoader().getResourceAsStream("edm-record-internal.xml"),
+            StandardCharsets.UTF_8);
+    final List<String> records = Arrays.asList(record, "not xml", record, record);
+
+    // The parallel normalization should give the same results (in order) as the sequential one.
+    final Normalizer normalizer = new NormalizerFactory().getNormalizer();
+    final NormalizationBatchResult expected = normalizer.normalize(records);
+    final ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      final NormalizationBatchResult result = normalizer.normalize(records, executor);
+      assertEquals(expected.getNormalizedRecordsInEdmXml(), result.getNormalizedRecordsInEdmXml());
+      assertEquals(1, result.getErrorCount());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
 }
@@ -0,0 +1,60 @@
+package eu.europeana.normalization.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
+
+class XpathQueryTest {
+
+  private static final String RECORD = "<rdf:RDF xmlns:rdf=\"" + Namespace.RDF.getUri()
+      + "\" xmlns:ore=\"" + Namespace.ORE.getUri() + "\" xmlns:dc=\"" + Namespace.DC.getUri()
+      + "\"><ore:Proxy><dc:title>A</dc:title><dc:title>B</dc:title></ore:Proxy>"
+      + "<ore:Aggregation><dc:title>C</dc:title></ore:Aggregation></rdf:RDF>";
+
+  private static final XpathQuery PROXY_TITLES = new XpathQuery("/%s/%s/%s",
+      XpathQuery.RDF_TAG, Namespace.ORE.getElement("Proxy"), Namespace.DC.getElement("title"));
+
+  @Test
+  void testExecute() throws Exception {
+    final Document document = XmlUtil.parseDom(new StringReader(RECORD));
+
+    // Execute the query twice: the second time the compiled expression is reused.
+    for (int i = 0; i < 2; i++) {
+      final NodeList result = PROXY_TITLES.execute(document);
+      assertEquals(2, result.getLength());
+      assertEquals("A", result.item(0).getTextContent());
+      assertEquals("B", result.item(1).getTextContent());
+    }
+
+    // Combined queries also work.
+    final XpathQuery combined = XpathQuery.combine(PROXY_TITLES, new XpathQuery("/%s/%s/%s",
+        XpathQuery.RDF_TAG, Namespace.ORE.getElement("Aggregation"),
+        Namespace.DC.getElement("title")));
+    assertEquals(3, combined.execute(document).getLength());
+  }
+
+  @Test
+  void testConcurrentExecution() throws Exception {
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      final List<Future<Integer>> results = new ArrayList<>();
+      for (int i = 0; i < 100; i++) {
+        results.add(executor.submit(
+            () -> PROXY_TITLES.execute(XmlUtil.parseDom(new StringReader(RECORD))).getLength()));
+      }
+      for (Future<Integer> result : results) {
+        assertEquals(Integer.valueOf(2), result.get());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,94 @@
+package eu.europeana.metis.transformation.service;
+
+/**
+ * This class contains a snapshot of the statistics of a {@link ConcurrentCacheWithExpirationTime}.
+ * The counts are cumulative since the creation of the cache.
+ */
+public class CacheStatistics {
+
+  private final int size;
+  private final long hitCount;
+  private final long missCount;
+  private final long refreshCount;
+  private final long loadSuccessCount;
+  private final long loadFailureCount;
+  private final long totalLoadTimeInMillis;
+  private final long evictionCount;
+
+  CacheStatistics(int size, long hitCount, long missCount, long refreshCount,
+      long loadSuccessCount, long loadFailureCount, long totalLoadTimeInMillis,
+      long evictionCount) {
+    this.size = size;
+    this.hitCount = hitCount;
+    this.missCount = missCount;
+    this.refreshCount = refreshCount;
+    this.loadSuccessCount = loadSuccessCount;
+    this.loadFailureCount = loadFailureCount;
+    this.totalLoadTimeInMillis = totalLoadTimeInMillis;
+    this.evictionCount = evictionCount;
+  }
+
+  /**
+   * @return The number of items currently in the cache.
+   */
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * @return The number of requests that were served with a valid cached value.
+   */
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * @return The number of requests for which the value was absent or expired.
+   */
+  public long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * @return The number of background refreshes that were started.
+   */
+  public long getRefreshCount() {
+    return refreshCount;
+  }
+
+  /**
+   * @return The number of times a value was loaded successfully.
+   */
+  public long getLoadSuccessCount() {
+    return loadSuccessCount;
+  }
+
+  /**
+   * @return The number of times loading a value failed.
+   */
+  public long getLoadFailureCount() {
+    return loadFailureCount;
+  }
+
+  /**
+   * @return The total time, in milliseconds, spent loading values (successfully or not).
+   */
+  public long getTotalLoadTimeInMillis() {
+    return totalLoadTimeInMillis;
+  }
+
+  /**
+   * @return The number of items that were evicted because the cache reached its maximum size.
+   */
+  public long getEvictionCount() {
+    return evictionCount;
+  }
+
+  @Override
+  public String toString() {
+    return "CacheStatistics{size=" + size + ", hitCount=" + hitCount + ", missCount=" + missCount
+        + ", refreshCount=" + refreshCount + ", loadSuccessCount=" + loadSuccessCount
+        + ", loadFailureCount=" + loadFailureCount + ", totalLoadTimeInMillis="
+        + totalLoadTimeInMillis + ", evictionCount=" + evictionCount + '}';
+  }
+}
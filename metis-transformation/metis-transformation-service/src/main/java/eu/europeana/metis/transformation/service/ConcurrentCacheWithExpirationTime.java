@@ -0,0 +1,416 @@
+package eu.europeana.metis.transformation.service;
+
+import eu.europeana.metis.transformation.service.CacheValueSupplier.CacheValueSupplierException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * A concurrent cache object that caches objects against a key with an expiration time.
+ * </p>
+ * <p>
+ * The expiration time enforces that an object is not given out by the cache if its expiration time
+ * has passed. Another setting is the leniency mode. This indicates whether we allow using a
+ * previously obtained version beyond its expiration time if a problem occurred getting the latest
+ * version.
+ * </p>
+ * <p>
+ * In addition, this cache offers the following:
+ * <ul>
+ * <li><b>Single-flight loading</b>: if multiple threads request a value that is absent or
+ * expired, only one of them loads it and the others wait for the result.</li>
+ * <li><b>Maximum size</b>: when the cache grows beyond its maximum size, the least recently
+ * accessed items are evicted. For larger caches this is done in batches (the cache may exceed its
+ * maximum size by 10%), so that the cost of finding these items is spread over many insertions.
+ * Items that are being loaded are never evicted.</li>
+ * <li><b>Refresh-ahead</b>: when a value is requested that is about to expire (i.e. a given
+ * fraction of its expiration time has passed), it is reloaded in the background while the current
+ * value is returned. Frequently used values are therefore never reloaded in the calling
+ * thread.</li>
+ * <li><b>Statistics</b>: see {@link #getStatistics()}.</li>
+ * </ul>
+ * </p>
+ * <p>
+ * The settings can be changed and take effect immediately. This class is thread-safe.
+ * </p>
+ *
+ * @param <K> The key type of the map in the cache
+ * @param <V> The value type of the map in the cache
+ */
+public class ConcurrentCacheWithExpirationTime<K, V> {
+
+  private static final Logger LOGGER = LoggerFactory
+      .getLogger(ConcurrentCacheWithExpirationTime.class);
+
+  /** The default expiration time. **/
+  protected static final Duration DEFAULT_EXPIRATION_TIME = Duration.ZERO.plusHours(1);
+
+  /** The default leniency mode. **/
+  protected static final boolean DEFAULT_LENIENCY_MODE = true;
+
+  /** The default maximum size. **/
+  protected static final int DEFAULT_MAX_SIZE = 1_000;
+
+  /** The default fraction of the expiration time after which a value is refreshed ahead. **/
+  protected static final double DEFAULT_REFRESH_AHEAD_FRACTION = 0.8;
+
+  private static final int REFRESH_THREAD_COUNT = 2;
+
+  private static final int EVICTION_SLACK_DIVISOR = 10;
+
+  private final Map<K, CacheItem<V>> cache = new ConcurrentHashMap<>();
+  private final ExecutorService refreshExecutor;
+  private final Object evictionLock = new Object();
+
+  private volatile Duration expirationTime;
+  private volatile boolean lenientWithReloads;
+  private volatile int maxSize;
+  private volatile double refreshAheadFraction = DEFAULT_REFRESH_AHEAD_FRACTION;
+
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+  private final AtomicLong refreshCount = new AtomicLong();
+  private final AtomicLong loadSuccessCount = new AtomicLong();
+  private final AtomicLong loadFailureCount = new AtomicLong();
+  private final AtomicLong totalLoadTimeInNanos = new AtomicLong();
+  private final AtomicLong evictionCount = new AtomicLong();
+
+  /**
+   * Constructor.
+   *
+   * @param expirationTime The expiration time of the cache. A negative expiration time ensures that
+   * all data will always be reloaded.
+   * @param lenientWithReloads Whether or not we apply the lenient mode.
+   * @param maxSize The maximum number of items in the cache. Must be positive.
+   */
+  public ConcurrentCacheWithExpirationTime(Duration expirationTime, boolean lenientWithReloads,
+      int maxSize) {
+    if (expirationTime == null || maxSize < 1) {
+      throw new IllegalArgumentException();
+    }
+    this.expirationTime = expirationTime;
+    this.lenientWithReloads = lenientWithReloads;
+    this.maxSize = maxSize;
+    final ThreadPoolExecutor executor = new ThreadPoolExecutor(REFRESH_THREAD_COUNT,
+        REFRESH_THREAD_COUNT, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+      final Thread thread = new Thread(runnable, "cache-refresh");
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.allowCoreThreadTimeOut(true);
+    this.refreshExecutor = executor;
+  }
+
+  /**
+   * Constructor using the default expiration time (given by {@link #DEFAULT_EXPIRATION_TIME}), the
+   * default lenient mode (given by {@link #DEFAULT_LENIENCY_MODE}) and the default maximum size
+   * (given by {@link #DEFAULT_MAX_SIZE}).
+   */
+  public ConcurrentCacheWithExpirationTime() {
+    this(DEFAULT_EXPIRATION_TIME, DEFAULT_LENIENCY_MODE, DEFAULT_MAX_SIZE);
+  }
+
+  /**
+   * Set a new expiration time for this cache.
+   *
+   * @param expirationTime The new expiration time. A negative expiration time ensures that all data
+   * will always be reloaded.
+   */
+  public void setExpirationTime(Duration expirationTime) {
+    if (expirationTime == null) {
+      throw new IllegalArgumentException();
+    }
+    this.expirationTime = expirationTime;
+  }
+
+  /**
+   * @return The current expiration time.
+   */
+  Duration getExpirationTime() {
+    return expirationTime;
+  }
+
+  /**
+   * Set a new leniency mode.
+   *
+   * @param lenientWithReloads The new leniency mode.
+   */
+  public void setLenientWithReloads(boolean lenientWithReloads) {
+    this.lenientWithReloads = lenientWithReloads;
+  }
+
+  /**
+   * @return The current leniency mode.
+   */
+  boolean isLenientWithReloads() {
+    return lenientWithReloads;
+  }
+
+  /**
+   * Set a new maximum size. If the cache is currently larger, the excess items are evicted when
+   * new items are added.
+   *
+   * @param maxSize The new maximum size. Must be positive.
+   */
+  public void setMaxSize(int maxSize) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException();
+    }
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Set the fraction of the expiration time after which a requested value is refreshed in the
+   * background. For instance, the value 0.8 means that values are refreshed when they are
+   * requested in the last 20% of their lifetime. A value of 1 or higher disables refresh-ahead.
+   *
+   * @param refreshAheadFraction The new fraction. Must be positive.
+   */
+  public void setRefreshAheadFraction(double refreshAheadFraction) {
+    if (refreshAheadFraction <= 0) {
+      throw new IllegalArgumentException();
+    }
+    this.refreshAheadFraction = refreshAheadFraction;
+  }
+
+  /**
+   * Obtain the value for the given key. If the value is not present, or has expired, the supplier
+   * is used to get the latest version of the value (and store it in cache). If the value is about
+   * to expire, the supplier is used to get the latest version of the value in the background.
+   *
+   * @param key The key to look up.
+   * @param valueSupplier A supplier that can be used to obtain the latest version of the value.
+   * Note that null will be considered a legitimate value (and not a failed supply).
+   * @return The value.
+   * @throws CacheValueSupplierException In case a problem occurred while obtaining the latest
+   * version of the value and we are either not in lenient mode or no previous version exists to
+   * use instead.
+   */
+  public V getFromCache(K key, CacheValueSupplier<V> valueSupplier)
+      throws CacheValueSupplierException {
+
+    // Get or add the cache item, and evict items if we added one.
+    final CacheItem<V> newItem = new CacheItem<>();
+    final CacheItem<V> item = cache.computeIfAbsent(key, k -> newItem);
+    if (item == newItem) {
+      evictExcessItems();
+    }
+    final long now = getNowInMillis();
+    item.lastAccessTime = now;
+
+    // If the item is valid, return it (and trigger a refresh if needed).
+    final long expirationTimeInMillis = expirationTime.toMillis();
+    if (item.hasValue && !isExpired(item, expirationTimeInMillis, now)) {
+      hitCount.incrementAndGet();
+      if (now - item.loadTime >= expirationTimeInMillis * refreshAheadFraction) {
+        triggerRefresh(item, valueSupplier);
+      }
+      return item.value;
+    }
+
+    // Otherwise load it (or wait for the thread that is loading it).
+    missCount.incrementAndGet();
+    return load(item, valueSupplier, expirationTimeInMillis);
+  }
+
+  private V load(CacheItem<V> item, CacheValueSupplier<V> valueSupplier,
+      long expirationTimeInMillis) throws CacheValueSupplierException {
+
+    // Find out whether another thread is already loading. If not, this thread will do it.
+    final CompletableFuture<V> pendingLoad;
+    final boolean isLoader;
+    synchronized (item) {
+      if (item.pendingLoad == null) {
+        // Recheck the state: maybe the item was loaded while we waited for the lock.
+        if (item.hasValue && !isExpired(item, expirationTimeInMillis, getNowInMillis())) {
+          return item.value;
+        }
+        item.pendingLoad = new CompletableFuture<>();
+        isLoader = true;
+      } else {
+        isLoader = false;
+      }
+      pendingLoad = item.pendingLoad;
+    }
+    if (isLoader) {
+      performLoad(item, valueSupplier, pendingLoad, lenientWithReloads);
+    }
+
+    // Wait for the result.
+    try {
+      return pendingLoad.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CacheValueSupplierException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof CacheValueSupplierException) {
+        throw (CacheValueSupplierException) e.getCause();
+      }
+      throw new CacheValueSupplierException(e.getCause());
+    }
+  }
+
+  private void triggerRefresh(CacheItem<V> item, CacheValueSupplier<V> valueSupplier) {
+    final CompletableFuture<V> pendingLoad;
+    synchronized (item) {
+      if (item.pendingLoad != null) {
+        return;
+      }
+      item.pendingLoad = new CompletableFuture<>();
+      pendingLoad = item.pendingLoad;
+    }
+    refreshCount.incrementAndGet();
+    try {
+      // A failed refresh should not remove the current value: always use the lenient mode.
+      refreshExecutor.execute(() -> performLoad(item, valueSupplier, pendingLoad, true));
+    } catch (RejectedExecutionException e) {
+      LOGGER.warn("Could not schedule refresh of cached value.", e);
+      synchronized (item) {
+        item.pendingLoad = null;
+      }
+      pendingLoad.complete(item.value);
+    }
+  }
+
+  private void performLoad(CacheItem<V> item, CacheValueSupplier<V> valueSupplier,
+      CompletableFuture<V> pendingLoad, boolean lenient) {
+    final long startTime = System.nanoTime();
+    try {
+      final V value = valueSupplier.get();
+      totalLoadTimeInNanos.addAndGet(System.nanoTime() - startTime);
+      loadSuccessCount.incrementAndGet();
+      item.value = value;
+      item.loadTime = getNowInMillis();
+      item.hasValue = true;
+      pendingLoad.complete(value);
+    } catch (CacheValueSupplierException | RuntimeException e) {
+      totalLoadTimeInNanos.addAndGet(System.nanoTime() - startTime);
+      loadFailureCount.incrementAndGet();
+      if (item.hasValue && lenient) {
+        LOGGER.warn("Could not obtain value for caching.", e);
+        if (lenientWithReloads) {
+          // In lenient mode we don't want to try often: keep using the previous value for now.
+          item.loadTime = getNowInMillis();
+        }
+        pendingLoad.complete(item.value);
+      } else {
+        pendingLoad.completeExceptionally(e);
+      }
+    } finally {
+      synchronized (item) {
+        item.pendingLoad = null;
+      }
+    }
+  }
+
+  private static boolean isExpired(CacheItem<?> item, long expirationTimeInMillis, long now) {
+    return expirationTimeInMillis < 0 || now - item.loadTime > expirationTimeInMillis;
+  }
+
+  private void evictExcessItems() {
+
+    // Only evict if we exceed the maximum size by more than the slack.
+    final int currentMaxSize = maxSize;
+    final int slack = currentMaxSize / EVICTION_SLACK_DIVISOR;
+    if (cache.size() <= currentMaxSize + slack) {
+      return;
+    }
+
+    // Evict the least recently used items in one go (one thread at a time). Items without a value
+    // or with a pending load are skipped: evicting them would cause the value to be loaded twice.
+    synchronized (evictionLock) {
+      final int excess = cache.size() - currentMaxSize;
+      if (excess <= slack) {
+        return;
+      }
+      // Take a snapshot of the access times, as they may change while sorting.
+      final List<EvictionCandidate<K, V>> itemsToEvict = cache.entrySet().stream()
+          .filter(entry -> isEvictable(entry.getValue())).map(EvictionCandidate::new)
+          .sorted(Comparator.comparingLong(candidate -> candidate.lastAccessTime))
+          .limit(excess).collect(Collectors.toList());
+      for (EvictionCandidate<K, V> candidate : itemsToEvict) {
+        if (cache.remove(candidate.key, candidate.item)) {
+          evictionCount.incrementAndGet();
+        }
+      }
+    }
+  }
+
+  private static boolean isEvictable(CacheItem<?> item) {
+    synchronized (item) {
+      return item.hasValue && item.pendingLoad == null;
+    }
+  }
+
+  /**
+   * This method cleans the cache of any items that have not been accessed for a given amount of
+   * time (i.e. in the time span given by the parameter). This method could be called by a scheduled
+   * cleanup.
+   *
+   * @param since The interval length of the period we want to check (which ends now). A negative
+   * duration cleans everything.
+   */
+  public void removeItemsNotAccessedSince(Duration since) {
+    final long now = getNowInMillis();
+    final long sinceInMillis = since.toMillis();
+    cache.entrySet().removeIf(entry -> sinceInMillis < 0
+        || now - entry.getValue().lastAccessTime > sinceInMillis);
+  }
+
+  /**
+   * This method returns a snapshot of the statistics of this cache.
+   *
+   * @return The statistics. Is not null.
+   */
+  public CacheStatistics getStatistics() {
+    return new CacheStatistics(cache.size(), hitCount.get(), missCount.get(), refreshCount.get(),
+        loadSuccessCount.get(), loadFailureCount.get(),
+        TimeUnit.NANOSECONDS.toMillis(totalLoadTimeInNanos.get()), evictionCount.get());
+  }
+
+  /**
+   * @return The current time in milliseconds.
+   */
+  long getNowInMillis() {
+    return System.currentTimeMillis();
+  }
+
+  private static class CacheItem<V> {
+
+    private volatile V value;
+    private volatile boolean hasValue;
+    private volatile long loadTime;
+    private volatile long lastAccessTime;
+
+    // Locked: access only when synchronized on this item.
+    private CompletableFuture<V> pendingLoad;
+  }
+
+  private static class EvictionCandidate<K, V> {
+
+    private final K key;
+    private final CacheItem<V> item;
+    private final long lastAccessTime;
+
+    EvictionCandidate(Entry<K, CacheItem<V>> entry) {
+      this.key = entry.getKey();
+      this.item = entry.getValue();
+      this.lastAccessTime = entry.getValue().lastAccessTime;
+    }
+  }
+}
@@ -6,48 +6,31 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.Iterator;
 import java.util.Objects;
 import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import javax.xml.XMLConstants;
-import javax.xml.namespace.NamespaceContext;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathExpression;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import org.apache.commons.lang3.StringUtils;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.xml.sax.SAXException;
 
 /**
  * An instance of this class can be used to create Europeana IDs for RDF records. This class is
- * <b>not thread-safe</b>: this means that instances should not be shared between different
- * threads.
+ * thread-safe: the RDF about is extracted with a streaming (StAX) reader that is created for each
+ * call, so instances can be shared between threads without any locking.
  *
  * @author jochen
  */
 public final class EuropeanaIdCreator {
 
-  private static final Logger LOGGER = LoggerFactory.getLogger(EuropeanaIdCreator.class);
-
-  private static final int EVALUATE_XPATH_ATTEMPT_COUNT = 20;
-  private static final int EVALUATE_XPATH_ATTEMPT_INTERVAL_IN_MS = 50;
-
   private static final String RDF_NAMESPACE_URI = "http://www.w3.org/1999/02/22-rdf-syntax-ns#";
-  private static final String RDF_NAMESPACE_PREFIX = "rdf";
+  private static final String RDF_ELEMENT_NAME = "RDF";
+  private static final String RDF_ABOUT_ATTRIBUTE_NAME = "about";
 
   private static final String EDM_NAMESPACE_URI = "http://www.europeana.eu/schemas/edm/";
-  private static final String EDM_NAMESPACE_PREFIX = "edm";
-
-  private static final String RDF_ABOUT_EXPRESSION =
-      String.format("/%s:RDF/%s:ProvidedCHO[1]/@%s:about", RDF_NAMESPACE_PREFIX,
-          EDM_NAMESPACE_PREFIX, RDF_NAMESPACE_PREFIX);
+  private static final String PROVIDED_CHO_ELEMENT_NAME = "ProvidedCHO";
 
   private static final Pattern LEGACY_COLLECTION_ID_PATTERN = Pattern.compile("[a-zA-Z]");
   private static final Pattern LEGACY_RDF_ABOUT_REPLACE_PATTERN = Pattern.compile("[^a-zA-Z0-9_]");
@@ -56,8 +39,10 @@ public final class EuropeanaIdCreator {
   private static final Supplier<EuropeanaIdException> ID_NOT_FOUND_EXCEPTION_SUPPLIER =
       () -> new EuropeanaIdException("Could not find provider ID in source.");
 
-  private final XPathExpression rdfAboutExtractor;
-  private DocumentBuilder builder;
+  /**
+   * Once configured, the factory can be shared: it is only used to create (unshared) readers.
+   */
+  private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
 
   /**
    * Constructor.
@@ -65,25 +50,15 @@ public final class EuropeanaIdCreator {
    * @throws EuropeanaIdException In case of problems setting the RDF about extractor.
    */
   public EuropeanaIdCreator() throws EuropeanaIdException {
-    try {
-      DocumentBuilderFactory df = DocumentBuilderFactory.newInstance();
-      df.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-      df.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
-      df.setNamespaceAware(true);
-      builder = df.newDocumentBuilder();
-    } catch (ParserConfigurationException e) {
-      throw new EuropeanaIdException("Something went wrong while setting up the document builder.",
-          e);
-    }
+    // Nothing to set up: the extraction uses the shared factory.
+  }
 
-    final XPath xpath = XPathFactory.newInstance().newXPath();
-    xpath.setNamespaceContext(new RdfNamespaceResolver());
-    try {
-      rdfAboutExtractor = xpath.compile(RDF_ABOUT_EXPRESSION);
-    } catch (XPathExpressionException e) {
-      LOGGER.warn("Something went wrong while setting up the xpath.", e);
-      throw new EuropeanaIdException("Something went wrong while setting up the xpath.", e);
-    }
+  private static XMLInputFactory createXmlInputFactory() {
+    final XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+    return factory;
   }
 
   /**
@@ -208,11 +183,7 @@ public final class EuropeanaIdCreator {
     try (final InputStream inputStream =
         new ByteArrayInputStream(rdfString.getBytes(StandardCharsets.UTF_8))) {
       result = extractRdfAboutFromInputStream(inputStream);
-    } catch (InterruptedException e) {
-      LOGGER.warn("Thread interrupted.");
-      Thread.currentThread().interrupt();
-      return null;
-    } catch (IOException e) {
+    } catch (IOException | XMLStreamException e) {
       throw new EuropeanaIdException(
           "Something went wrong while extracting the provider ID from the source.", e);
     }
@@ -224,107 +195,47 @@ public final class EuropeanaIdCreator {
     return result;
   }
 
-  /*
-   * TODO Note: the synchronized block around the actual call to the RDF about extractor is
-   * necessary to solve issue MET-1258. It is currently expected that somewhere in the apache xerces
-   * implementation there is a threading issue that causes exceptions even if individual threads are
-   * calling privately owned instances of this class. Eventually an upgrade to a later version of
-   * the apache libraries or a move towards another parser would be needed to solve this issue
-   * permanently.
-   * TODO This is also why the loop with the attempts was added.
+  /**
+   * This method finds the rdf:about of the first edm:ProvidedCHO that is a direct child of the
+   * rdf:RDF root element (i.e. the equivalent of the XPath
+   * <code>/rdf:RDF/edm:ProvidedCHO[1]/@rdf:about</code>). It stops reading as soon as this element
+   * is found, without building a document in memory.
+   *
+   * @param inputStream The RDF.
+   * @return The rdf:about, or null if there is no such element or attribute.
+   * @throws XMLStreamException In case the input could not be parsed. Documents with a document
+   * type declaration are not accepted.
    */
-  private String extractRdfAboutFromInputStream(InputStream inputStream)
-      throws EuropeanaIdException, InterruptedException {
-
-    // Keep track of the latest exception received.
-    Exception xpathException = null;
-
-    // Try a number of times.
-    for (int i = 0; i < EVALUATE_XPATH_ATTEMPT_COUNT; i++) {
-
-      // Sleep first to give a race condition time to resolve itself (except during the first run).
-      if (i > 0) {
-        Thread.sleep(EVALUATE_XPATH_ATTEMPT_INTERVAL_IN_MS);
-      }
-
-      // Make sure that no frfother thread in this JVM goes here at the same time.
-      synchronized (EuropeanaIdCreator.class) {
-        try {
-          // Attempt evaluation of XPath.
-          return rdfAboutExtractor.evaluate(builder.parse(inputStream));
-        } catch (XPathExpressionException | SAXException | IOException e) {
-          if (isRaceCondition(e)) {
-
-            // Handle exception that is caused by a race condition: remember it and try again.
-            LOGGER.warn("Race condition error occurred during attempt {} of {}. Trying again...", i,
-                EVALUATE_XPATH_ATTEMPT_COUNT, e);
-            xpathException = e;
-          } else {
-
-            // Handle unexpected exception that is not caused by a race condition: re-throw.
-            throw new EuropeanaIdException(
-                "Something went wrong while extracting the provider ID from the source.", e);
+  private static String extractRdfAboutFromInputStream(InputStream inputStream)
+      throws XMLStreamException {
+    final XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(inputStream);
+    try {
+      int depth = 0;
+      while (reader.hasNext()) {
+        final int event = reader.next();
+        if (event == XMLStreamConstants.DTD) {
+          throw new XMLStreamException("Document type declarations are not allowed.");
+        } else if (event == XMLStreamConstants.END_ELEMENT) {
+          depth--;
+        } else if (event == XMLStreamConstants.START_ELEMENT) {
+          depth++;
+          if (depth == 1 && !isElement(reader, RDF_NAMESPACE_URI, RDF_ELEMENT_NAME)) {
+            return null;
+          }
+          if (depth == 2 && isElement(reader, EDM_NAMESPACE_URI, PROVIDED_CHO_ELEMENT_NAME)) {
+            return reader.getAttributeValue(RDF_NAMESPACE_URI, RDF_ABOUT_ATTRIBUTE_NAME);
           }
         }
       }
+      return null;
+    } finally {
+      reader.close();
     }
-
-    // If we are here, it is because all attempts have failed. Re-throw the latest exception.
-    throw new EuropeanaIdException("Last XPath evaluation attempt generated exception.",
-        xpathException);
   }
 
-  private static boolean isRaceCondition(Exception exception) {
-
-    // Check for the thread collision exception
-    if (exception.getMessage() != null
-        && exception.getMessage().contains("FWK005 parse may not be called while parsing")) {
-      return true;
-    }
-
-    // Check for the specific null pointer exception
-    if (exception.getCause() instanceof NullPointerException) {
-      final StackTraceElement[] stackTrace = exception.getCause().getStackTrace();
-      final StackTraceElement firstMethod = stackTrace.length > 0 ? stackTrace[0] : null;
-      return firstMethod != null
-          && "org.apache.xerces.parsers.AbstractDOMParser".equals(firstMethod.getClassName())
-          && "characters".equals(firstMethod.getMethodName());
-    }
-
-    // So it is not
-    return false;
-  }
-
-  private static final class RdfNamespaceResolver implements NamespaceContext {
-
-    @Override
-    public String getNamespaceURI(String prefix) {
-      if (prefix == null) {
-        throw new IllegalArgumentException();
-      }
-      final String result;
-      switch (prefix) {
-        case RDF_NAMESPACE_PREFIX:
-          result = RDF_NAMESPACE_URI;
-          break;
-        case EDM_NAMESPACE_PREFIX:
-          result = EDM_NAMESPACE_URI;
-          break;
-        default:
-          result = XMLConstants.NULL_NS_URI;
-          break;
-      }
-      return result;
-    }
-
-    @Override
-    public String getPrefix(String uri) {
-      throw new UnsupportedOperationException();
-    }
-
-    @Override
-    public Iterator<String> getPrefixes(String uri) {
-      throw new UnsupportedOperationException();
-    }
+  private static boolean isElement(XMLStreamReader reader, String namespaceUri,
+      String localName) {
+    return namespaceUri.equals(reader.getNamespaceURI()) && localName
+        .equals(reader.getLocalName());
   }
 }
@@ -0,0 +1,179 @@
+package eu.europeana.metis.transformation.service;
+
+import eu.europeana.metis.transformation.service.CacheValueSupplier.CacheValueSupplierException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.xml.transform.Result;
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+
+/**
+ * <p>
+ * This class performs XSL transforms (XSLT), like {@link XsltTransformer}, but instances of this
+ * class are <b>thread-safe</b>: one instance can be shared by all threads that transform records
+ * with the same XSLT and dataset parameters. Internally, it keeps a pool of transformers that are
+ * created from the (cached) compiled XSLT. When the compiled XSLT is reloaded by the cache, the
+ * pool is replaced.
+ * </p>
+ * <p>
+ * This class only offers stream-based transformations, so that the result never needs to be held
+ * in memory as a string.
+ * </p>
+ */
+public class PooledXsltTransformer {
+
+  /**
+   * The default value of the maximum number of idle transformers kept in the pool. It's currently
+   * set to {@value PooledXsltTransformer#DEFAULT_MAX_IDLE_TRANSFORMERS}.
+   */
+  public static final int DEFAULT_MAX_IDLE_TRANSFORMERS = 16;
+
+  private final String xsltUrl;
+  private final String datasetName;
+  private final String edmCountry;
+  private final String edmLanguage;
+  private final int maxIdleTransformers;
+
+  private final AtomicReference<TransformerPool> currentPool = new AtomicReference<>();
+
+  /**
+   * Constructor in the case that no value of the datasetId field needs to be set.
+   *
+   * @param xsltUrl The URL of the XSLT file.
+   * @throws TransformationException In case there was a problem setting up the transformation.
+   */
+  public PooledXsltTransformer(String xsltUrl) throws TransformationException {
+    this(xsltUrl, null, null, null, DEFAULT_MAX_IDLE_TRANSFORMERS);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param xsltUrl The URL of the XSLT file.
+   * @param datasetName the dataset name related to the dataset
+   * @param edmCountry the Country related to the dataset
+   * @param edmLanguage the language related to the dataset
+   * @param maxIdleTransformers The maximum number of idle transformers kept in the pool. If this
+   * value is not positive, the default ({@link #DEFAULT_MAX_IDLE_TRANSFORMERS}) is used.
+   * @throws TransformationException In case there was a problem with setting up the
+   * transformation.
+   */
+  public PooledXsltTransformer(String xsltUrl, String datasetName, String edmCountry,
+      String edmLanguage, int maxIdleTransformers) throws TransformationException {
+    this.xsltUrl = xsltUrl;
+    this.datasetName = datasetName;
+    this.edmCountry = edmCountry;
+    this.edmLanguage = edmLanguage;
+    this.maxIdleTransformers =
+        maxIdleTransformers < 1 ? DEFAULT_MAX_IDLE_TRANSFORMERS : maxIdleTransformers;
+
+    // Compile the XSLT now, so that we fail early.
+    getPool();
+  }
+
+  /**
+   * Transforms a file, writing the result to the given output stream.
+   *
+   * @param fileContent The file to be transformed. This method does not close the stream.
+   * @param output The output stream to which to write the transformed file. This method does not
+   * close the stream.
+   * @param europeanaGeneratedIdsMap all the identifiers related to europeana RDF elements
+   * @throws TransformationException In case there was a problem with the transformation.
+   */
+  public void transform(InputStream fileContent, OutputStream output,
+      EuropeanaGeneratedIdsMap europeanaGeneratedIdsMap) throws TransformationException {
+    transform(new StreamSource(fileContent), new StreamResult(output), europeanaGeneratedIdsMap);
+  }
+
+  /**
+   * Transforms a source, writing the result to the given result.
+   *
+   * @param source The source to be transformed.
+   * @param result The result to which to write the transformed source.
+   * @param europeanaGeneratedIdsMap all the identifiers related to europeana RDF elements
+   * @throws TransformationException In case there was a problem with the transformation.
+   */
+  public void transform(Source source, Result result,
+      EuropeanaGeneratedIdsMap europeanaGeneratedIdsMap) throws TransformationException {
+    final TransformerPool pool = getPool();
+    final Transformer transformer = pool.borrowTransformer();
+    try {
+      XsltTransformer.setRecordParameters(transformer, europeanaGeneratedIdsMap);
+      transformer.transform(source, result);
+    } catch (TransformerException | RuntimeException e) {
+      // Don't return the transformer: we can't be sure that it is still in a usable state.
+      throw new TransformationException(e);
+    }
+    pool.returnTransformer(transformer);
+  }
+
+  private TransformerPool getPool() throws TransformationException {
+    final Templates templates;
+    try {
+      templates = XsltTransformer.getTemplates(xsltUrl);
+    } catch (CacheValueSupplierException e) {
+      throw new TransformationException(e);
+    }
+    final TransformerPool pool = currentPool.get();
+    if (pool != null && pool.templates == templates) {
+      return pool;
+    }
+
+    // The templates are new or have been reloaded: replace the pool (if nobody else did already).
+    final TransformerPool newPool = new TransformerPool(templates);
+    return currentPool.compareAndSet(pool, newPool) ? newPool : currentPool.get();
+  }
+
+  /**
+   * A pool of transformers for one compiled XSLT. Transformers are created when needed: the pool
+   * only bounds the number of idle transformers that it keeps.
+   */
+  private class TransformerPool {
+
+    private final Templates templates;
+    private final Queue<Transformer> idleTransformers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    TransformerPool(Templates templates) {
+      this.templates = templates;
+    }
+
+    Transformer borrowTransformer() throws TransformationException {
+      final Transformer idleTransformer = idleTransformers.poll();
+      if (idleTransformer != null) {
+        idleCount.decrementAndGet();
+        return idleTransformer;
+      }
+      try {
+        final Transformer transformer = templates.newTransformer();
+        XsltTransformer.setDatasetParameters(transformer, datasetName, edmCountry, edmLanguage);
+        return transformer;
+      } catch (TransformerConfigurationException e) {
+        throw new TransformationException(e);
+      }
+    }
+
+    void returnTransformer(Transformer transformer) {
+
+      // Reset the record parameters (so that they don't leak into the next record).
+      transformer.clearParameters();
+      XsltTransformer.setDatasetParameters(transformer, datasetName, edmCountry, edmLanguage);
+
+      // Keep the transformer if there is room in the pool.
+      if (idleCount.incrementAndGet() <= maxIdleTransformers) {
+        idleTransformers.offer(transformer);
+      } else {
+        idleCount.decrementAndGet();
+      }
+    }
+  }
+}
@@ -4,9 +4,12 @@ import eu.europeana.metis.transformation.service.CacheValueSupplier.CacheValueSu
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.StringWriter;
 import java.net.URL;
 import java.time.Duration;
+import javax.xml.transform.Result;
+import javax.xml.transform.Source;
 import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerConfigurationException;
@@ -20,12 +23,13 @@ import org.apache.commons.lang3.StringUtils;
 /**
  * This class performs XSL transforms (XSLT). Instances of this class are <b>not thread-safe</b>.
  * For each thread a new instance needs to be created, but, due to the caching mechanism of the XSLT
- * compilation, this operation is not very expensive.
+ * compilation, this operation is not very expensive. For a thread-safe alternative, see {@link
+ * PooledXsltTransformer}.
  */
 public class XsltTransformer {
 
-  private static final CacheWithExpirationTime<String, Templates> TEMPLATES_CACHE =
-      new CacheWithExpirationTime<>();
+  private static final ConcurrentCacheWithExpirationTime<String, Templates> TEMPLATES_CACHE =
+      new ConcurrentCacheWithExpirationTime<>();
 
   private final Transformer transformer;
 
@@ -56,15 +60,7 @@ public class XsltTransformer {
     } catch (TransformerConfigurationException | CacheValueSupplierException e) {
       throw new TransformationException(e);
     }
-    if (StringUtils.isNotBlank(datasetName)) {
-      transformer.setParameter("datasetName", datasetName);
-    }
-    if (StringUtils.isNotBlank(edmLanguage)) {
-      transformer.setParameter("edmLanguage", edmLanguage);
-    }
-    if (StringUtils.isNotBlank(edmCountry)) {
-      transformer.setParameter("edmCountry", edmCountry);
-    }
+    setDatasetParameters(transformer, datasetName, edmCountry, edmLanguage);
   }
 
   /**
@@ -77,6 +73,65 @@ public class XsltTransformer {
    */
   public StringWriter transform(byte[] fileContent,
       EuropeanaGeneratedIdsMap europeanaGeneratedIdsMap) throws TransformationException {
+    try (final InputStream contentStream = new ByteArrayInputStream(fileContent)) {
+      final StringWriter result = new StringWriter();
+      transform(new StreamSource(contentStream), new StreamResult(result),
+          europeanaGeneratedIdsMap);
+      return result;
+    } catch (IOException e) {
+      throw new TransformationException(e);
+    }
+  }
+
+  /**
+   * Transforms a file using this instance's XSL transformation, writing the result to the given
+   * output stream. This avoids holding the (complete) result in memory.
+   *
+   * @param fileContent The file to be transformed. This method does not close the stream.
+   * @param output The output stream to which to write the transformed file. This method does not
+   * close the stream.
+   * @param europeanaGeneratedIdsMap all the identifiers related to europeana RDF elements
+   * @throws TransformationException In case there was a problem with the transformation.
+   */
+  public void transform(InputStream fileContent, OutputStream output,
+      EuropeanaGeneratedIdsMap europeanaGeneratedIdsMap) throws TransformationException {
+    transform(new StreamSource(fileContent), new StreamResult(output), europeanaGeneratedIdsMap);
+  }
+
+  /**
+   * Transforms a source using this instance's XSL transformation, writing the result to the given
+   * result.
+   *
+   * @param source The source to be transformed.
+   * @param result The result to which to write the transformed source.
+   * @param europeanaGeneratedIdsMap all the identifiers related to europeana RDF elements
+   * @throws TransformationException In case there was a problem with the transformation.
+   */
+  public void transform(Source source, Result result,
+      EuropeanaGeneratedIdsMap europeanaGeneratedIdsMap) throws TransformationException {
+    setRecordParameters(transformer, europeanaGeneratedIdsMap);
+    try {
+      transformer.transform(source, result);
+    } catch (TransformerException e) {
+      throw new TransformationException(e);
+    }
+  }
+
+  static void setDatasetParameters(Transformer transformer, String datasetName,
+      String edmCountry, String edmLanguage) {
+    if (StringUtils.isNotBlank(datasetName)) {
+      transformer.setParameter("datasetName", datasetName);
+    }
+    if (StringUtils.isNotBlank(edmLanguage)) {
+      transformer.setParameter("edmLanguage", edmLanguage);
+    }
+    if (StringUtils.isNotBlank(edmCountry)) {
+      transformer.setParameter("edmCountry", edmCountry);
+    }
+  }
+
+  static void setRecordParameters(Transformer transformer,
+      EuropeanaGeneratedIdsMap europeanaGeneratedIdsMap) {
     if (europeanaGeneratedIdsMap != null) {
       transformer.setParameter("providedCHOAboutId",
           europeanaGeneratedIdsMap.getEuropeanaGeneratedId());
@@ -90,16 +145,9 @@ public class XsltTransformer {
       transformer.setParameter("dcIdentifier",
           europeanaGeneratedIdsMap.getSourceProvidedChoAbout());
     }
-    try (final InputStream contentStream = new ByteArrayInputStream(fileContent)) {
-      final StringWriter result = new StringWriter();
-      transformer.transform(new StreamSource(contentStream), new StreamResult(result));
-      return result;
-    } catch (TransformerException | IOException e) {
-      throw new TransformationException(e);
-    }
   }
 
-  private static Templates getTemplates(String xsltUrl) throws CacheValueSupplierException {
+  static Templates getTemplates(String xsltUrl) throws CacheValueSupplierException {
     return TEMPLATES_CACHE.getFromCache(xsltUrl, () -> createTemplatesFromUrl(xsltUrl));
   }
 
@@ -115,7 +163,7 @@ public class XsltTransformer {
 
   /**
    * Set a new expiration time for the internal XSLT cache by calling {@link
-   * CacheWithExpirationTime#setExpirationTime(Duration)}.
+   * ConcurrentCacheWithExpirationTime#setExpirationTime(Duration)}.
    *
    * @param expirationTime The new expiration time.
    */
@@ -125,7 +173,7 @@ public class XsltTransformer {
 
   /**
    * Set a new leniency mode for the internal XSLT cache by calling {@link
-   * CacheWithExpirationTime#setLenientWithReloads(boolean)}.
+   * ConcurrentCacheWithExpirationTime#setLenientWithReloads(boolean)}.
    *
    * @param lenientWithReloads The new leniency mode.
    */
@@ -134,7 +182,28 @@ public class XsltTransformer {
   }
 
   /**
-   * Clean up the internal XSLT cache by calling {@link CacheWithExpirationTime#removeItemsNotAccessedSince(Duration)}.
+   * Set a new maximum size for the internal XSLT cache by calling {@link
+   * ConcurrentCacheWithExpirationTime#setMaxSize(int)}.
+   *
+   * @param maxSize The new maximum size.
+   */
+  public static void setMaxCacheSize(int maxSize) {
+    TEMPLATES_CACHE.setMaxSize(maxSize);
+  }
+
+  /**
+   * Obtain the statistics of the internal XSLT cache by calling {@link
+   * ConcurrentCacheWithExpirationTime#getStatistics()}.
+   *
+   * @return The statistics.
+   */
+  public static CacheStatistics getCacheStatistics() {
+    return TEMPLATES_CACHE.getStatistics();
+  }
+
+  /**
+   * Clean up the internal XSLT cache by calling {@link
+   * ConcurrentCacheWithExpirationTime#removeItemsNotAccessedSince(Duration)}.
    *
    * @param since The interval length of the period we want to check (which ends now). A negative
    * duration cleans everything.
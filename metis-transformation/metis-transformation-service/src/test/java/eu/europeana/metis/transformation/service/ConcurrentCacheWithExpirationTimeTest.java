@@ -0,0 +1,232 @@
+package eu.europeana.metis.transformation.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+
+import eu.europeana.metis.transformation.service.CacheValueSupplier.CacheValueSupplierException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class ConcurrentCacheWithExpirationTimeTest {
+
+  private static final String KEY = "key";
+
+  @Test
+  void testConstruction() {
+    final ConcurrentCacheWithExpirationTime<String, String> cache =
+        new ConcurrentCacheWithExpirationTime<>();
+    assertEquals(ConcurrentCacheWithExpirationTime.DEFAULT_EXPIRATION_TIME,
+        cache.getExpirationTime());
+    assertEquals(ConcurrentCacheWithExpirationTime.DEFAULT_LENIENCY_MODE,
+        cache.isLenientWithReloads());
+    final Duration expirationTime = Duration.ofMinutes(5);
+    cache.setExpirationTime(expirationTime);
+    cache.setLenientWithReloads(!ConcurrentCacheWithExpirationTime.DEFAULT_LENIENCY_MODE);
+    assertEquals(expirationTime, cache.getExpirationTime());
+    assertEquals(!ConcurrentCacheWithExpirationTime.DEFAULT_LENIENCY_MODE,
+        cache.isLenientWithReloads());
+  }
+
+  @Test
+  void testExpirationAndLeniency() throws CacheValueSupplierException {
+    final ConcurrentCacheWithExpirationTime<String, String> cache = spy(
+        new ConcurrentCacheWithExpirationTime<>(Duration.ofSeconds(10), true, 10));
+    cache.setRefreshAheadFraction(1.0);
+
+    // Load the value.
+    doReturn(1_000L).when(cache).getNowInMillis();
+    assertEquals("value1", cache.getFromCache(KEY, () -> "value1"));
+
+    // Before expiration: the cached value is returned.
+    doReturn(5_000L).when(cache).getNowInMillis();
+    assertEquals("value1", cache.getFromCache(KEY, () -> "value2"));
+
+    // After expiration: the value is reloaded.
+    doReturn(12_000L).when(cache).getNowInMillis();
+    assertEquals("value2", cache.getFromCache(KEY, () -> "value2"));
+
+    // After expiration with failure in lenient mode: the old value is returned.
+    doReturn(30_000L).when(cache).getNowInMillis();
+    final CacheValueSupplier<String> failingSupplier = () -> {
+      throw new CacheValueSupplierException(new Exception());
+    };
+    assertEquals("value2", cache.getFromCache(KEY, failingSupplier));
+
+    // After expiration with failure in strict mode: the exception is thrown.
+    cache.setLenientWithReloads(false);
+    doReturn(50_000L).when(cache).getNowInMillis();
+    assertThrows(CacheValueSupplierException.class, () -> cache.getFromCache(KEY, failingSupplier));
+
+    // Check the statistics.
+    final CacheStatistics statistics = cache.getStatistics();
+    assertEquals(1, statistics.getSize());
+    assertEquals(1, statistics.getHitCount());
+    assertEquals(4, statistics.getMissCount());
+    assertEquals(2, statistics.getLoadSuccessCount());
+    assertEquals(2, statistics.getLoadFailureCount());
+  }
+
+  @Test
+  void testSingleFlightLoading() throws Exception {
+    final ConcurrentCacheWithExpirationTime<String, String> cache =
+        new ConcurrentCacheWithExpirationTime<>();
+    final AtomicInteger loadCount = new AtomicInteger();
+    final CountDownLatch loadStarted = new CountDownLatch(1);
+    final CountDownLatch releaseLoad = new CountDownLatch(1);
+    final CacheValueSupplier<String> supplier = () -> {
+      loadCount.incrementAndGet();
+      loadStarted.countDown();
+      try {
+        releaseLoad.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return "value";
+    };
+
+    // Start one loading thread, and then more threads while it is loading.
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      final Future<String> first = executor.submit(() -> cache.getFromCache(KEY, supplier));
+      assertTrue(loadStarted.await(10, TimeUnit.SECONDS));
+      final Future<String> second = executor.submit(() -> cache.getFromCache(KEY, supplier));
+      final Future<String> third = executor.submit(() -> cache.getFromCache(KEY, supplier));
+      releaseLoad.countDown();
+      assertEquals("value", first.get());
+      assertEquals("value", second.get());
+      assertEquals("value", third.get());
+      assertEquals(1, loadCount.get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void testEviction() throws CacheValueSupplierException {
+    final ConcurrentCacheWithExpirationTime<String, String> cache = spy(
+        new ConcurrentCacheWithExpirationTime<>(Duration.ofHours(1), true, 2));
+    doReturn(1_000L).when(cache).getNowInMillis();
+    cache.getFromCache("key1", () -> "value1");
+    doReturn(2_000L).when(cache).getNowInMillis();
+    cache.getFromCache("key2", () -> "value2");
+    doReturn(3_000L).when(cache).getNowInMillis();
+    cache.getFromCache("key1", () -> "value1");
+
+    // Adding a third key evicts the least recently used one (key2).
+    doReturn(4_000L).when(cache).getNowInMillis();
+    cache.getFromCache("key3", () -> "value3");
+    assertEquals(2, cache.getStatistics().getSize());
+    assertEquals(1, cache.getStatistics().getEvictionCount());
+    assertEquals("value1", cache.getFromCache("key1", () -> "other"));
+    assertEquals("other", cache.getFromCache("key2", () -> "other"));
+  }
+
+  @Test
+  void testRefreshAhead() throws Exception {
+    final ConcurrentCacheWithExpirationTime<String, String> cache = spy(
+        new ConcurrentCacheWithExpirationTime<>(Duration.ofSeconds(10), true, 10));
+    cache.setRefreshAheadFraction(0.5);
+    doReturn(1_000L).when(cache).getNowInMillis();
+    cache.getFromCache(KEY, () -> "value1");
+
+    // Past the refresh-ahead point: the old value is returned and refreshed in the background.
+    final CountDownLatch refreshed = new CountDownLatch(1);
+    doReturn(8_000L).when(cache).getNowInMillis();
+    assertEquals("value1", cache.getFromCache(KEY, () -> {
+      refreshed.countDown();
+      return "value2";
+    }));
+    assertTrue(refreshed.await(10, TimeUnit.SECONDS));
+    assertEquals(1, cache.getStatistics().getRefreshCount());
+
+    // Wait for the refresh to be stored, then check the new value.
+    for (int i = 0; i < 100 && cache.getStatistics().getLoadSuccessCount() < 2; i++) {
+      Thread.sleep(10);
+    }
+    assertEquals("value2", cache.getFromCache(KEY, () -> "value3"));
+  }
+
+  @Test
+  void testRemoveItemsNotAccessedSince() throws CacheValueSupplierException {
+    final ConcurrentCacheWithExpirationTime<String, String> cache = spy(
+        new ConcurrentCacheWithExpirationTime<>());
+    doReturn(1_000L).when(cache).getNowInMillis();
+    cache.getFromCache("key1", () -> "value1");
+    doReturn(5_000L).when(cache).getNowInMillis();
+    cache.getFromCache("key2", () -> "value2");
+    doReturn(6_000L).when(cache).getNowInMillis();
+    cache.removeItemsNotAccessedSince(Duration.ofSeconds(2));
+    assertEquals(1, cache.getStatistics().getSize());
+    cache.removeItemsNotAccessedSince(Duration.ofSeconds(-1));
+    assertEquals(0, cache.getStatistics().getSize());
+  }
+
+  @Test
+  void testEvictionInBatches() throws CacheValueSupplierException {
+    final ConcurrentCacheWithExpirationTime<String, String> cache = spy(
+        new ConcurrentCacheWithExpirationTime<>(Duration.ofHours(1), true, 20));
+
+    // Up to 10% above the maximum size: nothing is evicted.
+    for (int i = 0; i < 22; i++) {
+      doReturn(1_000L + i).when(cache).getNowInMillis();
+      cache.getFromCache("key" + i, () -> "value");
+    }
+    assertEquals(22, cache.getStatistics().getSize());
+    assertEquals(0, cache.getStatistics().getEvictionCount());
+
+    // Beyond that: the cache is brought back to its maximum size, evicting the oldest items.
+    doReturn(2_000L).when(cache).getNowInMillis();
+    cache.getFromCache("key22", () -> "value");
+    assertEquals(20, cache.getStatistics().getSize());
+    assertEquals(3, cache.getStatistics().getEvictionCount());
+    assertEquals("other", cache.getFromCache("key0", () -> "other"));
+    assertEquals("value", cache.getFromCache("key3", () -> "other"));
+  }
+
+  @Test
+  void testEvictionSkipsItemsBeingLoaded() throws Exception {
+    final ConcurrentCacheWithExpirationTime<String, String> cache =
+        new ConcurrentCacheWithExpirationTime<>(Duration.ofHours(1), true, 1);
+    cache.getFromCache("key1", () -> "value1");
+
+    // Start loading the second key, and add a third key while it is loading.
+    final AtomicInteger loadCount = new AtomicInteger();
+    final CountDownLatch loadStarted = new CountDownLatch(1);
+    final CountDownLatch releaseLoad = new CountDownLatch(1);
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      final Future<String> loading = executor.submit(() -> cache.getFromCache("key2", () -> {
+        loadCount.incrementAndGet();
+        loadStarted.countDown();
+        try {
+          releaseLoad.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return "value2";
+      }));
+      assertTrue(loadStarted.await(10, TimeUnit.SECONDS));
+      cache.getFromCache("key3", () -> "value3");
+      releaseLoad.countDown();
+      assertEquals("value2", loading.get(10, TimeUnit.SECONDS));
+    } finally {
+      executor.shutdownNow();
+    }
+
+    // The item that was being loaded should still be there: it should not be loaded again.
+    assertEquals("value2", cache.getFromCache("key2", () -> {
+      loadCount.incrementAndGet();
+      return "other";
+    }));
+    assertEquals(1, loadCount.get());
+  }
+}
@@ -7,6 +7,9 @@ import eu.europeana.corelib.definitions.jibx.ProvidedCHOType;
 import eu.europeana.corelib.definitions.jibx.RDF;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
@@ -117,4 +120,41 @@ class EuropeanaIdCreatorTest {
   public void testRdfStringIdCreationWithEmptyAbout() {
     assertThrows(EuropeanaIdException.class, () -> new EuropeanaIdCreator().constructEuropeanaId(createRdfString("", RECORD_ID), DATASET_ID));
   }
+
+  @Test
+  public void testRdfStringIdCreationWithDoctype() {
+    final String rdfString = createRdfString(RECORD_ID)
+        .replace("<rdf:RDF", "<!DOCTYPE rdf:RDF [<!ENTITY id \"" + RECORD_ID + "\">]>\n<rdf:RDF");
+    assertThrows(EuropeanaIdException.class,
+        () -> new EuropeanaIdCreator().constructEuropeanaId(rdfString, DATASET_ID));
+  }
+
+  @Test
+  public void testRdfStringIdCreationWithNestedCho() throws EuropeanaIdException {
+    final String rdfString = String.format(RDF_SKELETON,
+        "<edm:WebResource><edm:ProvidedCHO rdf:about=\"nested\"/></edm:WebResource>"
+            + String.format(PROVIDED_CHO_SKELETON, String.format(RDF_ABOUT_SKELETON, RECORD_ID)));
+    assertEquals("/" + DATASET_ID + "/" + RECORD_ID,
+        new EuropeanaIdCreator().constructEuropeanaId(rdfString, DATASET_ID)
+            .getEuropeanaGeneratedId());
+  }
+
+  @Test
+  public void testConcurrentIdCreation() throws Exception {
+    final EuropeanaIdCreator creator = new EuropeanaIdCreator();
+    final ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      final List<Future<String>> results = new ArrayList<>();
+      for (int i = 0; i < 200; i++) {
+        final String rdfString = createRdfString(RECORD_ID_PATH + "/" + i);
+        results.add(executor.submit(() -> creator.constructEuropeanaId(rdfString, DATASET_ID)
+            .getEuropeanaGeneratedId()));
+      }
+      for (int i = 0; i < results.size(); i++) {
+        assertEquals("/" + DATASET_ID + "/" + RECORD_ID_PATH + "_" + i, results.get(i).get());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
 }
@@ -0,0 +1,83 @@
+package eu.europeana.metis.transformation.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+
+class PooledXsltTransformerTest {
+
+  private byte[] readFile(String fileName) throws IOException {
+    try (final InputStream inputStream = getClass().getClassLoader()
+        .getResourceAsStream(fileName)) {
+      return IOUtils.toByteArray(inputStream);
+    }
+  }
+
+  private String transform(PooledXsltTransformer transformer, byte[] fileContent)
+      throws TransformationException {
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    transformer.transform(new ByteArrayInputStream(fileContent), output, null);
+    return new String(output.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  void shouldTransformGivenFileWithInjection() throws IOException, TransformationException {
+    final URL xsltFile = getClass().getClassLoader().getResource("inject_node.xslt");
+    final byte[] fileToTransform = readFile("xmlForTestingParamInjection.xml");
+    final PooledXsltTransformer transformer = new PooledXsltTransformer(xsltFile.toString(),
+        "sample", null, null, 2);
+
+    // Transform twice: the second time uses a transformer from the pool.
+    for (int i = 0; i < 2; i++) {
+      final String resultXml = transform(transformer, fileToTransform);
+      assertTrue(resultXml.contains("<injected_node>sample</injected_node>"));
+    }
+
+    // The result should be the same as with the non-pooled transformer.
+    assertEquals(new XsltTransformer(xsltFile.toString(), "sample", null, null)
+        .transform(fileToTransform, null).toString(), transform(transformer, fileToTransform));
+  }
+
+  @Test
+  void shouldTransformConcurrently() throws Exception {
+    final URL xsltFile = getClass().getClassLoader().getResource("inject_node.xslt");
+    final byte[] fileToTransform = readFile("xmlForTestingParamInjection.xml");
+    final PooledXsltTransformer transformer = new PooledXsltTransformer(xsltFile.toString(),
+        "sample", null, null, 2);
+    final String expected = transform(transformer, fileToTransform);
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      final List<Future<String>> results = new ArrayList<>();
+      for (int i = 0; i < 50; i++) {
+        results.add(executor.submit(() -> transform(transformer, fileToTransform)));
+      }
+      for (Future<String> result : results) {
+        assertEquals(expected, result.get());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void shouldFailForMalformedFile() throws IOException, TransformationException {
+    final URL xsltFile = getClass().getClassLoader().getResource("inject_node.xslt");
+    final byte[] fileToTransform = readFile("malformedFile.xml");
+    final PooledXsltTransformer transformer = new PooledXsltTransformer(xsltFile.toString());
+    assertThrows(TransformationException.class, () -> transform(transformer, fileToTransform));
+  }
+}
@@ -1,9 +1,12 @@
 package eu.europeana.validation.rest;
 
 import static eu.europeana.metis.RestEndpoints.SCHEMA_BATCH_VALIDATE;
+import static eu.europeana.metis.RestEndpoints.SCHEMA_BATCH_VALIDATE_STREAM;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 import static org.springframework.http.MediaType.APPLICATION_XML_VALUE;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import eu.europeana.metis.RestEndpoints;
 import eu.europeana.metis.utils.ZipFileReader;
 import eu.europeana.validation.model.ValidationResult;
@@ -16,9 +19,12 @@ import eu.europeana.validation.service.ValidationExecutionService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -29,6 +35,7 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * REST API Implementation of the Validation Service
@@ -42,18 +49,21 @@ public class ValidationController {
 
   private final ValidationExecutionService validator;
   private final SchemaProvider schemaProvider;
+  private final ObjectMapper objectMapper;
 
   /**
    * Cretes validation controller based on provided {@link ValidationExecutionService}
    *
    * @param validationExecutionService the service that handles validation execution
    * @param schemaProvider the object that provides the schemas
+   * @param objectMapper the object mapper used for writing streaming JSON responses
    */
   @Autowired
   public ValidationController(ValidationExecutionService validationExecutionService,
-      SchemaProvider schemaProvider) {
+      SchemaProvider schemaProvider, ObjectMapper objectMapper) {
     this.validator = validationExecutionService;
     this.schemaProvider = schemaProvider;
+    this.objectMapper = objectMapper;
   }
 
   /**
@@ -136,4 +146,99 @@ public class ValidationController {
       throw new ServerException(e);
     }
   }
+
+  /**
+   * Streaming Batch Validation REST API implementation. It is exposed via
+   * /validate/batch/stream/EDM-{EXTERNAL,INTERNAL}. The parameters are a zip file with records
+   * (folders are not currently supported so records need to be at the root of the file). The
+   * records are read from the zip file and validated one at the time (with a bounded number of
+   * records being validated concurrently) and the failed results are written to the response as
+   * soon as they are available, so memory usage does not depend on the size of the batch.
+   *
+   * @param targetSchema The schema to validate against
+   * @param providedZipFile A zip file
+   * @return A Validation result List in JSON format, that is written in chunks. The success field
+   * (written after all records are validated) is true if and only if the list is empty. As the
+   * response status is sent before the validation starts, a failure during the validation can't
+   * be reported through the status: in that case the list contains the results written so far,
+   * the success field is false and an additional field 'error' contains the error message.
+   * @throws ServerException encapsulates several errors
+   * @throws BatchValidationException if the schema does not exist.
+   */
+  @PostMapping(value = SCHEMA_BATCH_VALIDATE_STREAM, produces = APPLICATION_JSON_VALUE)
+  @ApiOperation(value = "Validate zip file based on schema, streaming the results",
+      response = ValidationResultList.class)
+  public StreamingResponseBody batchValidateStreaming(
+      @ApiParam(value = "schema") @PathVariable("schema") String targetSchema,
+      @ApiParam(value = "file") @RequestParam("file") MultipartFile providedZipFile)
+      throws ServerException, BatchValidationException {
+
+    if (!schemaProvider.isPredefined(targetSchema)) {
+      throw new BatchValidationException("It is not predefined schema.",
+          new ValidationResultList());
+    }
+
+    // Open the zip file now: the request (and the uploaded file) is not available afterwards.
+    final ZipFileReader.RecordIterator records;
+    try {
+      records = new ZipFileReader().getRecordIteratorFromZipFile(providedZipFile.getInputStream());
+    } catch (IOException e) {
+      throw new ServerException(e);
+    }
+    if (!records.hasNext()) {
+      closeQuietly(records);
+      throw new ServerException("No suitable records found in zip file.");
+    }
+
+    return outputStream -> {
+      try (final ZipFileReader.RecordIterator recordsToValidate = records;
+          final JsonGenerator generator = objectMapper.getFactory()
+              .createGenerator(outputStream)) {
+        writeValidationResults(targetSchema, recordsToValidate, generator);
+      }
+    };
+  }
+
+  private void writeValidationResults(String targetSchema, ZipFileReader.RecordIterator records,
+      JsonGenerator generator) throws IOException {
+    generator.writeStartObject();
+    generator.writeArrayFieldStart("resultList");
+    final AtomicInteger failureCount = new AtomicInteger();
+    String error = null;
+    try {
+      validator.batchValidation(targetSchema, null, null, records, result -> {
+        try {
+          generator.writeObject(result);
+          generator.flush();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        failureCount.incrementAndGet();
+      });
+    } catch (UncheckedIOException e) {
+      // We can't write to the response anymore: there is no way to report this.
+      throw e.getCause();
+    } catch (ExecutionException e) {
+      LOGGER.error("Batch validation failed.", e);
+      error = "Batch validation failed: " + e.getMessage();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      LOGGER.error("Batch validation was interrupted.", e);
+      error = "Batch validation was interrupted.";
+    }
+    generator.writeEndArray();
+    generator.writeBooleanField("success", error == null && failureCount.get() == 0);
+    if (error != null) {
+      generator.writeStringField("error", error);
+    }
+    generator.writeEndObject();
+  }
+
+  private static void closeQuietly(Closeable closeable) {
+    try {
+      closeable.close();
+    } catch (IOException e) {
+      LOGGER.warn("Could not close resource.", e);
+    }
+  }
 }
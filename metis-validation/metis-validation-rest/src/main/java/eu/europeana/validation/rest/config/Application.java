@@ -1,5 +1,6 @@
 package eu.europeana.validation.rest.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import eu.europeana.corelib.web.socks.SocksProxy;
 import eu.europeana.validation.service.ClasspathResourceResolver;
 import eu.europeana.validation.service.PredefinedSchemas;
@@ -86,10 +87,21 @@ public class Application implements WebMvcConfigurer, InitializingBean {
 
   @Override
   public void configureMessageConverters(List<HttpMessageConverter<?>> converters) {
-    converters.add(new MappingJackson2HttpMessageConverter());
+    converters.add(new MappingJackson2HttpMessageConverter(objectMapper()));
     converters.add(new StringHttpMessageConverter());
   }
 
+  /**
+   * Creates the {@link ObjectMapper} for application context. It is used both for the JSON
+   * responses and for the JSON that is written directly to (streaming) responses.
+   *
+   * @return ObjectMapper instance
+   */
+  @Bean
+  public ObjectMapper objectMapper() {
+    return new ObjectMapper();
+  }
+
   @Override
   public void addResourceHandlers(ResourceHandlerRegistry registry) {
     registry.addResourceHandler("swagger-ui.html")
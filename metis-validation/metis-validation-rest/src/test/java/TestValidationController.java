@@ -5,7 +5,14 @@ import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMoc
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
-
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.tomakehurst.wiremock.WireMockServer;
 import eu.europeana.metis.RestEndpoints;
 import eu.europeana.validation.model.ValidationResult;
@@ -23,7 +30,9 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Unmarshaller;
@@ -82,7 +91,8 @@ class TestValidationController {
   void setup() {
     if (isOneTime) {
       mockMvc = MockMvcBuilders
-          .standaloneSetup(new ValidationController(validationExecutionService, schemaProvider))
+          .standaloneSetup(new ValidationController(validationExecutionService, schemaProvider,
+              new ObjectMapper()))
           .setControllerAdvice(new HttpMessageNotReadableExceptionMapper(),
               new ServerExceptionMapper(), new ValidationExceptionController(),
               new BatchValidationExceptionController())
@@ -196,6 +206,63 @@ class TestValidationController {
     }
   }
 
+  @Test
+  void shouldStreamValidationResultsForZipFile() throws Exception {
+
+    wireMockServer.resetAll();
+    wireMockServer.stubFor(get(urlEqualTo("/schema.zip"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withBodyFile("test_schema.zip")));
+
+    MockMultipartFile file = new MockMultipartFile("file", "filename.txt", "text/plain",
+        new FileInputStream("src/test/resources/test_wrong.zip"));
+    MvcResult asyncResult = mockMvc.perform(MockMvcRequestBuilders
+        .fileUpload(RestEndpoints.SCHEMA_BATCH_VALIDATE_STREAM, "EDM-INTERNAL")
+        .file(file))
+        .andExpect(MockMvcResultMatchers.request().asyncStarted())
+        .andReturn();
+    asyncResult.getAsyncResult();
+    MvcResult result = mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(asyncResult))
+        .andExpect(MockMvcResultMatchers.status().is(200))
+        .andReturn();
+    ValidationResultList validationResultList = new ObjectMapper()
+        .readValue(result.getResponse().getContentAsString(), ValidationResultList.class);
+    assertFalse(validationResultList.isSuccess());
+    assertFalse(validationResultList.getResultList().isEmpty());
+    for (ValidationResult validationResult : validationResultList.getResultList()) {
+      assertFalse(validationResult.isSuccess());
+    }
+  }
+
+  @Test
+  void shouldEndStreamWithErrorWhenValidationFails() throws Exception {
+
+    final ValidationExecutionService failingService = mock(ValidationExecutionService.class);
+    final SchemaProvider predefinedSchemaProvider = mock(SchemaProvider.class);
+    doReturn(true).when(predefinedSchemaProvider).isPredefined("EDM-INTERNAL");
+    doThrow(new ExecutionException(new IOException("Schema not available"))).when(failingService)
+        .batchValidation(eq("EDM-INTERNAL"), any(), any(), any(Iterator.class), any());
+    final MockMvc failingMockMvc = MockMvcBuilders.standaloneSetup(
+        new ValidationController(failingService, predefinedSchemaProvider, new ObjectMapper()))
+        .build();
+
+    MockMultipartFile file = new MockMultipartFile("file", "filename.txt", "text/plain",
+        new FileInputStream("src/test/resources/test_batch.zip"));
+    MvcResult asyncResult = failingMockMvc.perform(MockMvcRequestBuilders
+        .fileUpload(RestEndpoints.SCHEMA_BATCH_VALIDATE_STREAM, "EDM-INTERNAL")
+        .file(file))
+        .andExpect(MockMvcResultMatchers.request().asyncStarted())
+        .andReturn();
+    asyncResult.getAsyncResult();
+    MvcResult result = failingMockMvc.perform(MockMvcRequestBuilders.asyncDispatch(asyncResult))
+        .andReturn();
+    JsonNode response = new ObjectMapper().readTree(result.getResponse().getContentAsString());
+    assertFalse(response.get("success").asBoolean());
+    assertTrue(response.get("resultList").isArray());
+    assertTrue(response.get("error").asText().contains("Schema not available"));
+  }
+
   @Test
   void ShouldReturnResultSetOfExceptionsForUndefinedSchemaForZipFile() throws Exception {
     MockMultipartFile file = new MockMultipartFile("file", "filename.txt", "text/plain",
@@ -3,32 +3,116 @@ package eu.europeana.validation.service;
 import java.io.File;
 import java.io.IOException;
 import java.io.StringReader;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.ls.LSInput;
 import org.w3c.dom.ls.LSResourceResolver;
 
 /**
+ * <p>
  * Class enabling classpath XSD reading for split XSDs. This is because of an issue with JAXP XSD
- * loading. When initializing the {@link #setPrefix(String)} the value should be sanitized otherwise
- * the use of this class can became unsecure.
+ * loading.
+ * </p>
+ * <p>
+ * Instances obtained through {@link #getResolverForSchema(String)} hold all XSD files of one
+ * schema in memory (they are read once, when the resolver is first requested) and are immutable,
+ * so they can be used concurrently without any file access. Instances created with the constructor
+ * read the files from disk, relative to the prefix set with {@link #setPrefix(String)}. When
+ * initializing the prefix the value should be sanitized otherwise the use of this class can became
+ * unsecure.
+ * </p>
  */
 public class ClasspathResourceResolver implements LSResourceResolver {
 
+  private static final String XSD_EXTENSION = ".xsd";
+
   private String prefix;
+  private final Map<String, String> resources;
+  private final Map<String, ClasspathResourceResolver> resolversPerSchemaDirectory =
+      new ConcurrentHashMap<>();
   private static final Logger LOGGER = LoggerFactory.getLogger(ClasspathResourceResolver.class);
 
+  /**
+   * Constructor for a resolver that reads the files from disk.
+   */
+  public ClasspathResourceResolver() {
+    this.resources = null;
+  }
+
+  private ClasspathResourceResolver(String prefix, Map<String, String> resources) {
+    this.prefix = prefix;
+    this.resources = Collections.unmodifiableMap(resources);
+  }
+
+  /**
+   * Obtains the (immutable, in-memory) resolver for the schema with the given root file. All XSD
+   * files in the directory of the root file (and its subdirectories) are loaded the first time the
+   * resolver for this directory is requested.
+   *
+   * @param schemaRootFile The path of the schema root file. This has to be a sanitized input
+   * otherwise the method could become unsecure.
+   * @return The resolver.
+   * @throws IOException In case the schema files could not be read.
+   */
+  public ClasspathResourceResolver getResolverForSchema(String schemaRootFile) throws IOException {
+    final Path directory = Paths.get(schemaRootFile).toAbsolutePath().normalize().getParent();
+    try {
+      return resolversPerSchemaDirectory
+          .computeIfAbsent(directory.toString(), key -> loadResolver(directory));
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Removes the resolvers for the schemas in the given directory.
+   *
+   * @param directory the directory
+   */
+  public void evictResolversInDirectory(Path directory) {
+    resolversPerSchemaDirectory.keySet()
+        .removeIf(schemaDirectory -> SchemaProvider.isInDirectory(schemaDirectory, directory));
+  }
+
+  private static ClasspathResourceResolver loadResolver(Path directory) {
+    final Map<String, String> resources = new HashMap<>();
+    try (Stream<Path> files = Files.walk(directory)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        if (Files.isRegularFile(file) && file.getFileName().toString().toLowerCase(Locale.ENGLISH)
+            .endsWith(XSD_EXTENSION)) {
+          resources.put(file.toAbsolutePath().normalize().toString(),
+              new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    LOGGER.debug("Loaded {} schema files from {}.", resources.size(), directory);
+    return new ClasspathResourceResolver(directory.toString(), resources);
+  }
+
   @Override
   public LSInput resolveResource(String type, String namespaceURI, String publicId, String systemId,
       String baseURI) {
     try {
-      //Read file from system
-      String fullPath = new File(prefix, systemId).getAbsolutePath();
-      final byte[] bytes = Files.readAllBytes(Paths.get(fullPath));
-      final String fileContent = new String(bytes, StandardCharsets.UTF_8.name());
+      //Read file from memory if we have it, otherwise from system
+      final Path fullPath = new File(prefix, systemId).toPath().toAbsolutePath().normalize();
+      String fileContent = resources == null ? null : resources.get(fullPath.toString());
+      if (fileContent == null) {
+        final byte[] bytes = Files.readAllBytes(fullPath);
+        fileContent = new String(bytes, StandardCharsets.UTF_8.name());
+      }
       final StringReader stringReader = new StringReader(fileContent);
 
       LSInput input = new ClasspathLSInput();
@@ -52,9 +136,13 @@ public class ClasspathResourceResolver implements LSResourceResolver {
 
   /**
    * @param prefix the prefix to set
+   * @throws IllegalStateException In case this is an (immutable) resolver obtained through {@link
+   * #getResolverForSchema(String)}.
    */
   public void setPrefix(String prefix) {
+    if (resources != null) {
+      throw new IllegalStateException("The prefix of this resolver cannot be changed.");
+    }
     this.prefix = prefix;
   }
 }
-
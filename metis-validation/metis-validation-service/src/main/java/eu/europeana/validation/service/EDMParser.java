@@ -1,43 +1,66 @@
 package eu.europeana.validation.service;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 import javax.xml.XMLConstants;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.transform.Result;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.sax.SAXSource;
 import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
-import javax.xml.validation.Validator;
+import javax.xml.validation.TypeInfoProvider;
+import javax.xml.validation.ValidatorHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.ls.LSResourceResolver;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
+import org.xml.sax.SAXNotRecognizedException;
+import org.xml.sax.SAXNotSupportedException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+import org.xml.sax.helpers.XMLFilterImpl;
 
 /**
- * Helper class for EDM service exposing two validator and a DOMParser
+ * Helper class for EDM service that validates documents in a single streaming (SAX) pass. Compiled
+ * schemas are cached (and compiled exactly once), validators are pooled per schema and parsers are
+ * confined to the thread that uses them, so that none of these objects need to be created for
+ * every document.
  */
 final class EDMParser {
 
   private static EDMParser p;
-  private static final ConcurrentMap<String, Schema> CACHE = new ConcurrentHashMap<>();
-  private static final DocumentBuilderFactory PARSE_FACTORY = DocumentBuilderFactory.newInstance();
+  private static final ConcurrentMap<String, FutureTask<Schema>> CACHE = new ConcurrentHashMap<>();
+  private static final ConcurrentMap<String, Queue<ValidatorHandler>> VALIDATOR_POOLS =
+      new ConcurrentHashMap<>();
+  private static final SAXParserFactory SAX_PARSE_FACTORY = SAXParserFactory.newInstance();
+  private static final ThreadLocal<SAXParser> SAX_PARSERS = new ThreadLocal<>();
   private static final Logger LOGGER = LoggerFactory.getLogger(EDMParser.class);
 
   static {
     try {
-      PARSE_FACTORY.setNamespaceAware(true);
-      PARSE_FACTORY
-          .setFeature("http://apache.org/xml/features/validation/schema-full-checking", false);
-      PARSE_FACTORY.setFeature("http://apache.org/xml/features/honour-all-schemaLocations", true);
-      PARSE_FACTORY.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-      PARSE_FACTORY.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
-    } catch (ParserConfigurationException e) {
-      LOGGER.error("Unable to create DocumentBuilderFactory", e);
+      SAX_PARSE_FACTORY.setNamespaceAware(true);
+      SAX_PARSE_FACTORY.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+      SAX_PARSE_FACTORY
+          .setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+    } catch (ParserConfigurationException | SAXException e) {
+      LOGGER.error("Unable to create SAXParserFactory", e);
     }
   }
 
@@ -45,53 +68,143 @@ final class EDMParser {
   }
 
   /**
-   * Get an EDM Parser using DOM
+   * Parse the given source and validate it against the given schema in one pass, without building
+   * a document tree. The SAX events of the (valid) document can be passed on to a transformer, so
+   * that the document can be transformed in the same pass. This method takes a validator from the
+   * pool for this schema (or creates one if none is available) and returns it to the pool
+   * afterwards.
    *
-   * @return EDM parser.
+   * @param path The path location of the schema. This has to be a sanitized input otherwise the
+   * method could become unsecure.
+   * @param resolver the resolver used for the schema
+   * @param source The source to validate.
+   * @param transformer The transformer to which to pass the document. Can be null, in which case
+   * the document is only validated.
+   * @param transformationResult The result of the transformation. Is ignored if no transformer is
+   * provided.
+   * @throws SAXException In case the source is not valid, or the schema could not be compiled.
+   * @throws IOException In case the source or the schema could not be read.
+   * @throws TransformerException In case the transformation failed (for another reason than the
+   * source being invalid).
    */
-  public DocumentBuilder getEdmParser() {
-    try {
-      return PARSE_FACTORY.newDocumentBuilder();
-    } catch (ParserConfigurationException e) {
-      LOGGER.error("Unable to configure parser", e);
+  public void validate(String path, LSResourceResolver resolver, InputSource source,
+      Transformer transformer, Result transformationResult)
+      throws SAXException, IOException, TransformerException {
+
+    // Get the validator and the reader.
+    final Queue<ValidatorHandler> pool = VALIDATOR_POOLS
+        .computeIfAbsent(path, key -> new ConcurrentLinkedQueue<>());
+    ValidatorHandler validator = pool.poll();
+    if (validator == null) {
+      validator = createValidatorHandler(getSchema(path, resolver));
+    }
+    final ValidatingReader reader = new ValidatingReader(getSaxReader(), validator);
+
+    // Perform the validation (and transformation).
+    if (transformer == null) {
+      reader.setContentHandler(new DefaultHandler());
+      reader.parse(source);
+    } else {
+      try {
+        transformer.transform(new SAXSource(reader, source), transformationResult);
+      } catch (TransformerException e) {
+        // If the problem occurred during parsing/validating, we report that problem.
+        if (reader.getParseException() != null) {
+          throw reader.getParseException();
+        }
+        throw e;
+      }
+    }
+
+    // Only return the validator if validation completed: otherwise we can't be sure of its state.
+    validator.setContentHandler(null);
+    pool.offer(validator);
+  }
+
+  private static ValidatorHandler createValidatorHandler(Schema schema) {
+    final ValidatorHandler validator = schema.newValidatorHandler();
+
+    // Don't let the validator change the document that is passed on (e.g. by adding defaults).
+    // Note that default attributes can't be switched off: these are removed by the validating
+    // reader.
+    for (String feature : new String[]{
+        "http://apache.org/xml/features/validation/schema/element-default",
+        "http://apache.org/xml/features/validation/schema/normalized-value"}) {
+      try {
+        validator.setFeature(feature, false);
+      } catch (SAXNotRecognizedException | SAXNotSupportedException e) {
+        LOGGER.debug("Validator does not support feature {}.", feature, e);
+      }
     }
-    return null;
+    return validator;
   }
 
   /**
-   * Get a JAXP schema validator (singleton)
+   * Removes the compiled schemas and pooled validators of the schemas in the given directory.
    *
-   * @param path The path location of the schema. This has to be a sanitized input otherwise the
-   * method could become unsecure.
-   * @param resolver the resolver used for the schema
-   * @return JAXP schema validator.
+   * @param directory the directory
    */
-  public Validator getEdmValidator(String path, LSResourceResolver resolver) {
-    try {
-      Schema schema = getSchema(path, resolver);
-      return schema.newValidator();
-    } catch (SAXException | IOException e) {
-      LOGGER.error("Unable to create validator", e);
+  static void evictSchemasInDirectory(Path directory) {
+    CACHE.keySet().removeIf(path -> SchemaProvider.isInDirectory(path, directory));
+    VALIDATOR_POOLS.keySet().removeIf(path -> SchemaProvider.isInDirectory(path, directory));
+  }
+
+  private static XMLReader getSaxReader() throws SAXException {
+    SAXParser parser = SAX_PARSERS.get();
+    if (parser == null) {
+      try {
+        parser = SAX_PARSE_FACTORY.newSAXParser();
+      } catch (ParserConfigurationException e) {
+        throw new SAXException("Unable to configure parser", e);
+      }
+      SAX_PARSERS.set(parser);
+    } else {
+      parser.reset();
     }
-    return null;
+    return parser.getXMLReader();
   }
 
   private Schema getSchema(String path, LSResourceResolver resolver)
       throws SAXException, IOException {
 
-    if (!CACHE.containsKey(path)) {
-      SchemaFactory factory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-      factory.setResourceResolver(resolver);
-      factory.setFeature("http://apache.org/xml/features/validation/schema-full-checking",
-          false);
-      factory.setFeature("http://apache.org/xml/features/honour-all-schemaLocations", true);
-      //Protection from XXE
-      factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-      factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
-      Schema schema = factory.newSchema(new StreamSource(Files.newInputStream(Paths.get(path))));
-      CACHE.put(path, schema);
+    // Make sure that only one thread compiles the schema: the others wait for the result.
+    final FutureTask<Schema> newTask = new FutureTask<>(() -> compileSchema(path, resolver));
+    final FutureTask<Schema> existingTask = CACHE.putIfAbsent(path, newTask);
+    final FutureTask<Schema> task = existingTask == null ? newTask : existingTask;
+    if (existingTask == null) {
+      newTask.run();
+    }
+
+    // Obtain the result. If compilation failed, remove the task so that it can be tried again.
+    try {
+      return task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for the schema to be compiled.", e);
+    } catch (ExecutionException e) {
+      CACHE.remove(path, task);
+      if (e.getCause() instanceof SAXException) {
+        throw (SAXException) e.getCause();
+      } else if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException("Unable to compile schema.", e.getCause());
+    }
+  }
+
+  private static Schema compileSchema(String path, LSResourceResolver resolver)
+      throws SAXException, IOException {
+    SchemaFactory factory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+    factory.setResourceResolver(resolver);
+    factory.setFeature("http://apache.org/xml/features/validation/schema-full-checking",
+        false);
+    factory.setFeature("http://apache.org/xml/features/honour-all-schemaLocations", true);
+    //Protection from XXE
+    factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+    factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+    try (InputStream schemaStream = Files.newInputStream(Paths.get(path))) {
+      return factory.newSchema(new StreamSource(schemaStream));
     }
-    return CACHE.get(path);
   }
 
   /**
@@ -107,4 +220,72 @@ final class EDMParser {
       return p;
     }
   }
+
+  /**
+   * A reader that validates the document read by the underlying (parent) reader before passing the
+   * events on to its own content handler. Attributes that the validator added from the schema
+   * defaults are removed, so that the content handler receives the document as it was submitted.
+   * It remembers the exception that occurred during parsing (if any).
+   */
+  private static class ValidatingReader extends XMLFilterImpl {
+
+    private final ValidatorHandler validator;
+    private SAXException parseException;
+
+    ValidatingReader(XMLReader parent, ValidatorHandler validator) {
+      super(parent);
+      this.validator = validator;
+    }
+
+    @Override
+    public void parse(InputSource input) throws SAXException, IOException {
+      final SpecifiedAttributesFilter filter = new SpecifiedAttributesFilter(validator);
+      filter.setContentHandler(getContentHandler());
+      validator.setContentHandler(filter);
+      getParent().setContentHandler(validator);
+      try {
+        getParent().parse(input);
+      } catch (SAXException e) {
+        parseException = e;
+        throw e;
+      }
+    }
+
+    SAXException getParseException() {
+      return parseException;
+    }
+  }
+
+  /**
+   * A filter that receives the events from a validator and removes the attributes that were not
+   * specified in the document (i.e. that the validator added from the schema defaults).
+   */
+  private static class SpecifiedAttributesFilter extends XMLFilterImpl {
+
+    private final ValidatorHandler validator;
+
+    SpecifiedAttributesFilter(ValidatorHandler validator) {
+      this.validator = validator;
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes)
+        throws SAXException {
+      final TypeInfoProvider typeInfoProvider = validator.getTypeInfoProvider();
+      AttributesImpl specifiedAttributes = null;
+      if (typeInfoProvider != null) {
+        // Go backwards, so that removing an attribute does not change the index of the others.
+        for (int i = attributes.getLength() - 1; i >= 0; i--) {
+          if (!typeInfoProvider.isSpecified(i)) {
+            if (specifiedAttributes == null) {
+              specifiedAttributes = new AttributesImpl(attributes);
+            }
+            specifiedAttributes.removeAttribute(i);
+          }
+        }
+      }
+      super.startElement(uri, localName, qName,
+          specifiedAttributes == null ? attributes : specifiedAttributes);
+    }
+  }
 }
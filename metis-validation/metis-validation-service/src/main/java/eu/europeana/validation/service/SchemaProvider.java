@@ -5,11 +5,37 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.math.BigInteger;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import org.apache.commons.io.FileUtils;
@@ -24,6 +50,28 @@ import org.slf4j.LoggerFactory;
  * schemas will be stored. This is done so, to avoid file system collisions of processes that run
  * the exact same code and are independent from each other.
  * <p>
+ * Schemas are prepared (i.e. retrieved and unzipped) asynchronously and independently of each
+ * other: preparing one schema never blocks the use of another schema. Each schema is prepared at
+ * most once at a time (concurrent requests for the same schema wait for the same preparation).
+ * The schema files are prepared in a staging directory and then moved to their final location in
+ * one atomic operation, so that no thread can ever see a partially prepared schema. This location
+ * is versioned by the checksum of the archive: the files in a published directory never change, so
+ * that anything cached by their path (compiled schemas, validators, resolvers) can not become out
+ * of date.
+ * </p>
+ * <p>
+ * The source of a prepared schema is checked again (in the background) when it is requested after
+ * the source check interval (see {@link #setSourceCheckIntervalInSecs(int)}). If the archive
+ * changed, the new version is prepared in a new directory and used from then on. The replaced
+ * version is kept until the next check (so that validations that are still using it can finish),
+ * after which it is deleted, after notifying the listeners registered with {@link
+ * #addRetiredDirectoryListener(Consumer)}.
+ * </p>
+ * <p>
+ * Schema archives can be retrieved from any URL (including local <code>file:</code> URLs) or from
+ * the classpath, using the prefix {@value #CLASSPATH_PREFIX}.
+ * </p>
+ * <p>
  * The {@link #TMP_DIR} field is set through a system variable named "java.io.tmpdir". This value
  * should be sanitized and controlled otherwise this class can become unsecure.
  * </p>
@@ -33,13 +81,49 @@ import org.slf4j.LoggerFactory;
  */
 public class SchemaProvider {
 
+  /**
+   * The prefix with which to indicate that a schema archive is to be loaded from the classpath.
+   */
+  public static final String CLASSPATH_PREFIX = "classpath:";
+
+  /**
+   * The default number of threads that prepare schemas: {@value}.
+   */
+  public static final int DEFAULT_PREPARATION_THREAD_COUNT = 2;
+
+  /**
+   * The default maximum time, in seconds, to wait for the preparation of a schema: {@value}.
+   */
+  public static final int DEFAULT_PREPARATION_TIMEOUT_IN_SECS = 300;
+
+  /**
+   * The default time, in seconds, after which the source of a prepared schema is checked again:
+   * {@value}.
+   */
+  public static final int DEFAULT_SOURCE_CHECK_INTERVAL_IN_SECS = 3600;
+
   private static final Logger LOGGER = LoggerFactory.getLogger(SchemaProvider.class);
 
   private static final String TMP_DIR = System.getProperty("java.io.tmpdir");
   private static final String ZIP_FILE_NAME = "zip.zip";
+  private static final String CHECKSUM_FILE_NAME = "zip.zip.sha256";
+  private static final String CHECKSUM_ALGORITHM = "SHA-256";
+  private static final String STAGING_DIRECTORY_PREFIX = ".staging-";
+  private static final String RETIRED_DIRECTORY_PREFIX = ".retired-";
+  private static final Pattern VERSION_DIRECTORY_PATTERN = Pattern.compile("[0-9a-f]{64}");
+  private static final int CONNECT_TIMEOUT_IN_MILLIS = 10_000;
+  private static final int READ_TIMEOUT_IN_MILLIS = 60_000;
+
   private String schemasRootDirectory;
 
   private final PredefinedSchemas predefinedSchemasLocations;
+  private final ConcurrentMap<String, PreparedDirectory> schemaDirectories =
+      new ConcurrentHashMap<>();
+  private final List<Consumer<Path>> retiredDirectoryListeners = new CopyOnWriteArrayList<>();
+  private final ExecutorService preparationExecutor;
+  private volatile int preparationTimeoutInSecs = DEFAULT_PREPARATION_TIMEOUT_IN_SECS;
+  private volatile long sourceCheckIntervalInMillis = TimeUnit.SECONDS
+      .toMillis(DEFAULT_SOURCE_CHECK_INTERVAL_IN_SECS);
 
   /**
    * Creates {@link SchemaProvider} for given {@link PredefinedSchemas} object. The {@link
@@ -58,12 +142,74 @@ public class SchemaProvider {
 
     LOGGER.info("Creating schema manager. Files will be stored in: {}", schemasRootDirectory);
     this.predefinedSchemasLocations = predefinedSchemasLocations;
+
+    // Threads that are idle for a while are stopped, so the executor does not need to be shut down.
+    final ThreadPoolExecutor executor = new ThreadPoolExecutor(DEFAULT_PREPARATION_THREAD_COUNT,
+        DEFAULT_PREPARATION_THREAD_COUNT, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<>(),
+        runnable -> {
+          final Thread thread = new Thread(runnable, "schema-preparation");
+          thread.setDaemon(true);
+          return thread;
+        });
+    executor.allowCoreThreadTimeOut(true);
+    this.preparationExecutor = executor;
+  }
+
+  /**
+   * Set the maximum time to wait for the preparation of a schema. The default (when not calling
+   * this method or calling it with zero or a negative number) is {@value
+   * #DEFAULT_PREPARATION_TIMEOUT_IN_SECS} seconds.
+   *
+   * @param preparationTimeoutInSecs the maximum time to wait in seconds
+   */
+  public void setPreparationTimeoutInSecs(int preparationTimeoutInSecs) {
+    this.preparationTimeoutInSecs = preparationTimeoutInSecs < 1
+        ? DEFAULT_PREPARATION_TIMEOUT_IN_SECS : preparationTimeoutInSecs;
   }
 
   /**
-   * Retrieves schema object from given (remote) location.
+   * Set the time after which the source of a prepared schema is checked again. If set to 0, the
+   * source is checked every time the schema is requested (unless a check is already running). The
+   * default (when not calling this method or calling it with a negative number) is {@value
+   * #DEFAULT_SOURCE_CHECK_INTERVAL_IN_SECS} seconds.
    *
-   * @param zipUrl place where (remote) zip file is located. Accepts url to file.
+   * @param sourceCheckIntervalInSecs the source check interval in seconds
+   */
+  public void setSourceCheckIntervalInSecs(int sourceCheckIntervalInSecs) {
+    this.sourceCheckIntervalInMillis = TimeUnit.SECONDS.toMillis(sourceCheckIntervalInSecs < 0
+        ? DEFAULT_SOURCE_CHECK_INTERVAL_IN_SECS : sourceCheckIntervalInSecs);
+  }
+
+  /**
+   * Registers a listener that is notified of every schema directory that is about to be deleted
+   * because a newer version of the schema was prepared. Listeners can use this to evict anything
+   * they cached for the files in this directory.
+   *
+   * @param listener the listener, receiving the directory that is about to be deleted
+   */
+  public void addRetiredDirectoryListener(Consumer<Path> listener) {
+    retiredDirectoryListeners.add(listener);
+  }
+
+  /**
+   * Determines whether the given path is (a file) in the given directory.
+   *
+   * @param path the path
+   * @param directory the directory
+   * @return whether the path is in the directory
+   */
+  static boolean isInDirectory(String path, Path directory) {
+    return path != null && Paths.get(path).toAbsolutePath().normalize()
+        .startsWith(directory.toAbsolutePath().normalize());
+  }
+
+  /**
+   * Retrieves schema object from given (remote) location. This method blocks until the schema is
+   * prepared, but no longer than the preparation timeout (see {@link
+   * #setPreparationTimeoutInSecs(int)}).
+   *
+   * @param zipUrl place where (remote) zip file is located. Accepts url to file, or a classpath
+   * location preceded by {@value #CLASSPATH_PREFIX}.
    * @param rootFileLocation indicates where root xsd file is located inside zip. The caller is
    * responsible to provide a valid path to that file
    * @param schematronLocation place where schematron file is located
@@ -72,16 +218,49 @@ public class SchemaProvider {
    */
   public Schema getSchema(String zipUrl, String rootFileLocation,
       String schematronLocation) throws SchemaProviderException {
-    synchronized (this) {
-
-      final String schemasDirectoryName = prepareDirectoryName(zipUrl);
-      File downloadedFile = downloadZipIfNeeded(zipUrl, schemasDirectoryName);
-      unzipArchiveIfNeeded(downloadedFile, rootFileLocation);
-      return prepareSchema(schemasDirectoryName, downloadedFile.getParentFile(), rootFileLocation,
-          schematronLocation);
+    try {
+      return getSchemaAsync(zipUrl, rootFileLocation, schematronLocation)
+          .get(preparationTimeoutInSecs, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SchemaProviderException("Interrupted while waiting for the schema.", e);
+    } catch (TimeoutException e) {
+      throw new SchemaProviderException("Timed out while waiting for the schema.", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof SchemaProviderException) {
+        throw (SchemaProviderException) e.getCause();
+      }
+      throw new SchemaProviderException("Unable to prepare schema", e.getCause());
     }
   }
 
+  /**
+   * Retrieves schema object from given (remote) location without blocking. If the schema is not
+   * yet prepared, it will be prepared in the background. This method can be used to prepare schemas
+   * ahead of their first use.
+   *
+   * @param zipUrl place where (remote) zip file is located. Accepts url to file, or a classpath
+   * location preceded by {@value #CLASSPATH_PREFIX}.
+   * @param rootFileLocation indicates where root xsd file is located inside zip. The caller is
+   * responsible to provide a valid path to that file
+   * @param schematronLocation place where schematron file is located
+   * @return the future schema object. If retrieving the schema fails, this future will complete
+   * with a {@link SchemaProviderException}.
+   * @throws SchemaProviderException in case the zip url is not valid.
+   */
+  public CompletableFuture<Schema> getSchemaAsync(String zipUrl, String rootFileLocation,
+      String schematronLocation) throws SchemaProviderException {
+    final String schemasDirectoryName = prepareDirectoryName(zipUrl);
+    return getSchemaDirectory(zipUrl, schemasDirectoryName).thenApply(directory -> {
+      try {
+        return prepareSchema(schemasDirectoryName, directory.toFile(), rootFileLocation,
+            schematronLocation);
+      } catch (SchemaProviderException e) {
+        throw new CompletionException(e);
+      }
+    });
+  }
+
   /**
    * Creates instance of {@link Schema} class based on provided type of schema
    *
@@ -105,6 +284,11 @@ public class SchemaProvider {
   }
 
   private String prepareDirectoryName(String name) throws SchemaProviderException {
+    if (name != null && name.startsWith(CLASSPATH_PREFIX)) {
+      final String resource = StringUtils.removeStart(name, CLASSPATH_PREFIX);
+      return "classpath_" + StringUtils
+          .removeStart(StringUtils.substringBeforeLast(resource, "."), "/");
+    }
     URL url;
     try {
       url = new URL(name);
@@ -127,50 +311,210 @@ public class SchemaProvider {
     return predefinedSchemasLocations.contains(name);
   }
 
+  private CompletableFuture<Path> getSchemaDirectory(String zipLocation, String directoryName) {
+
+    // If we have a prepared directory that is still there, we return it (and check its source if
+    // that is due).
+    final PreparedDirectory existingDirectory = schemaDirectories.get(directoryName);
+    if (existingDirectory == null || isRemoved(existingDirectory.path)) {
+      if (existingDirectory != null) {
+        schemaDirectories.remove(directoryName, existingDirectory);
+      }
+    } else {
+      checkSourceIfDue(zipLocation, directoryName, existingDirectory);
+      return existingDirectory.path;
+    }
+
+    // Otherwise we start the preparation (unless another thread has just done so).
+    final PreparedDirectory newDirectory = new PreparedDirectory();
+    final PreparedDirectory concurrentDirectory = schemaDirectories
+        .putIfAbsent(directoryName, newDirectory);
+    if (concurrentDirectory != null) {
+      return concurrentDirectory.path;
+    }
+    preparationExecutor.execute(() -> {
+      try {
+        newDirectory.complete(prepareSchemaDirectory(zipLocation, directoryName, null));
+      } catch (SchemaProviderException | RuntimeException e) {
+        // Remove the failed preparation so that the next request tries again.
+        schemaDirectories.remove(directoryName, newDirectory);
+        newDirectory.path.completeExceptionally(e);
+      }
+    });
+    return newDirectory.path;
+  }
+
+  private void checkSourceIfDue(String zipLocation, String directoryName,
+      PreparedDirectory existingDirectory) {
+    if (!existingDirectory.isCheckDue(sourceCheckIntervalInMillis)
+        || !existingDirectory.checking.compareAndSet(false, true)) {
+      return;
+    }
+    preparationExecutor.execute(() -> {
+      final Path currentPath = existingDirectory.path.join();
+      try {
+        final Path checkedPath = prepareSchemaDirectory(zipLocation, directoryName, currentPath);
+        if (checkedPath.equals(currentPath)) {
+          existingDirectory.checkedTimeInMillis = System.currentTimeMillis();
+        } else {
+          final PreparedDirectory updatedDirectory = new PreparedDirectory();
+          updatedDirectory.complete(checkedPath);
+          schemaDirectories.replace(directoryName, existingDirectory, updatedDirectory);
+        }
+      } catch (SchemaProviderException | RuntimeException e) {
+        LOGGER.warn("Could not check schema archive {}: the prepared schema remains in use.",
+            zipLocation, e);
+        existingDirectory.checkedTimeInMillis = System.currentTimeMillis();
+      } finally {
+        existingDirectory.checking.set(false);
+      }
+    });
+  }
+
+  private static boolean isRemoved(CompletableFuture<Path> future) {
+    return future.isDone() && !future.isCompletedExceptionally() && !Files
+        .isDirectory(future.join());
+  }
+
   /**
-   * Downloads zip file to specified directory
-   *
-   * @param zipLocation location of the file to be downloaded
-   * @param destinationDir place where downloaded file will be saved
-   * @return newly created file
+   * Retrieves the archive and makes sure that it is prepared in the directory for its checksum.
+   * Other versions of the schema are deleted, except for the given current version.
    */
-  private File downloadZipIfNeeded(String zipLocation, String destinationDir)
+  private Path prepareSchemaDirectory(String zipLocation, String directoryName, Path currentPath)
       throws SchemaProviderException {
+    final Path rootDirectory = Paths.get(schemasRootDirectory);
+    final Path stagingDirectory = rootDirectory
+        .resolve(STAGING_DIRECTORY_PREFIX + UUID.randomUUID().toString());
+    try {
 
-    File schemasLocation = new File(schemasRootDirectory, destinationDir);
+      // Retrieve the archive, so that we know which version we need.
+      Files.createDirectories(stagingDirectory);
+      final File zipFile = stagingDirectory.resolve(ZIP_FILE_NAME).toFile();
+      final String checksum = downloadZip(zipLocation, zipFile);
+      final Path schemaDirectory = rootDirectory.resolve(directoryName).resolve(checksum);
 
-    if (new File(schemasLocation, ZIP_FILE_NAME).exists()) {
-      LOGGER.debug("Zip file will not be downloaded, already exists in temp directory");
-      return new File(schemasLocation, ZIP_FILE_NAME);
+      // If this version is already there and still valid we use it. Otherwise we prepare the
+      // directory in the staging area and then move it in place.
+      if (isValidSchemaDirectory(schemaDirectory, checksum)) {
+        LOGGER.debug("Schema archive {} is already prepared in {}.", zipLocation,
+            schemaDirectory);
+      } else {
+        unzipArchive(zipFile);
+        Files.write(stagingDirectory.resolve(CHECKSUM_FILE_NAME),
+            checksum.getBytes(StandardCharsets.UTF_8));
+        publishDirectory(stagingDirectory, schemaDirectory);
+        LOGGER.info("Schema archive {} is prepared in {}.", zipLocation, schemaDirectory);
+      }
+      removeOtherVersions(schemaDirectory, currentPath);
+      return schemaDirectory;
+    } catch (IOException e) {
+      throw new SchemaProviderException("Unable to prepare schema directory", e);
+    } finally {
+      FileUtils.deleteQuietly(stagingDirectory.toFile());
+    }
+  }
+
+  private void removeOtherVersions(Path schemaDirectory, Path currentPath) throws IOException {
+    final List<Path> otherVersions;
+    try (Stream<Path> versions = Files.list(schemaDirectory.getParent())) {
+      otherVersions = versions.filter(Files::isDirectory)
+          .filter(version -> VERSION_DIRECTORY_PATTERN.matcher(version.getFileName().toString())
+              .matches())
+          .filter(version -> !version.equals(schemaDirectory) && !version.equals(currentPath))
+          .collect(Collectors.toList());
+    }
+    for (Path version : otherVersions) {
+      retiredDirectoryListeners.forEach(listener -> listener.accept(version));
+      FileUtils.deleteQuietly(version.toFile());
     }
+  }
 
-    //If the zip file does not exist it means the directory would not exist either
-    if (!schemasLocation.mkdirs() && !schemasLocation.exists()) {
-      throw new SchemaProviderException("Unable to create schemaDirecory");
+  private static void publishDirectory(Path stagingDirectory, Path schemaDirectory)
+      throws IOException {
+    Files.createDirectories(schemaDirectory.getParent());
+    Path retiredDirectory = null;
+    if (Files.exists(schemaDirectory)) {
+      retiredDirectory = stagingDirectory
+          .resolveSibling(RETIRED_DIRECTORY_PREFIX + UUID.randomUUID().toString());
+      Files.move(schemaDirectory, retiredDirectory, StandardCopyOption.ATOMIC_MOVE);
+    }
+    Files.move(stagingDirectory, schemaDirectory, StandardCopyOption.ATOMIC_MOVE);
+    if (retiredDirectory != null) {
+      FileUtils.deleteQuietly(retiredDirectory.toFile());
     }
+  }
 
-    final File destinationFile = new File(schemasLocation, ZIP_FILE_NAME);
-    try (InputStream urlLocation = new URL(zipLocation).openStream();
-        OutputStream fos = Files.newOutputStream(destinationFile.toPath())
-    ) {
-      IOUtils.copy(urlLocation, fos);
-      return destinationFile;
+  private static boolean isValidSchemaDirectory(Path schemaDirectory, String checksum)
+      throws SchemaProviderException {
+    final Path zipFile = schemaDirectory.resolve(ZIP_FILE_NAME);
+    final Path checksumFile = schemaDirectory.resolve(CHECKSUM_FILE_NAME);
+    if (!Files.isRegularFile(zipFile) || !Files.isRegularFile(checksumFile)) {
+      return false;
+    }
+    try (InputStream inputStream = Files.newInputStream(zipFile)) {
+      final String storedChecksum = new String(Files.readAllBytes(checksumFile),
+          StandardCharsets.UTF_8);
+      return checksum.equals(storedChecksum) && checksum
+          .equals(copyWithChecksum(inputStream, null));
     } catch (IOException e) {
-      throw new SchemaProviderException("Unable to store schema file", e);
+      LOGGER.warn("Could not verify existing schema directory {}.", schemaDirectory, e);
+      return false;
     }
   }
 
-  private void unzipArchiveIfNeeded(File downloadedFile, String rootFileLocation)
+  /**
+   * Downloads zip file to specified destination
+   *
+   * @param zipLocation location of the file to be downloaded
+   * @param destinationFile place where downloaded file will be saved
+   * @return the checksum of the downloaded file
+   */
+  private static String downloadZip(String zipLocation, File destinationFile)
       throws SchemaProviderException {
+    try (InputStream inputStream = openZip(zipLocation);
+        OutputStream fos = Files.newOutputStream(destinationFile.toPath())) {
+      return copyWithChecksum(inputStream, fos);
+    } catch (IOException e) {
+      throw new SchemaProviderException("Unable to store schema file", e);
+    }
+  }
 
-    if (rootFileExists(new File(downloadedFile.getParent()), rootFileLocation)) {
-      LOGGER.debug("Archive will not be unzipped.");
-    } else {
-      unzipArchive(downloadedFile);
+  private static InputStream openZip(String zipLocation) throws IOException {
+    if (zipLocation.startsWith(CLASSPATH_PREFIX)) {
+      final String resource = StringUtils
+          .removeStart(StringUtils.removeStart(zipLocation, CLASSPATH_PREFIX), "/");
+      final InputStream inputStream = SchemaProvider.class.getClassLoader()
+          .getResourceAsStream(resource);
+      if (inputStream == null) {
+        throw new IOException("Could not find classpath resource " + resource);
+      }
+      return inputStream;
+    }
+    final URLConnection connection = new URL(zipLocation).openConnection();
+    connection.setConnectTimeout(CONNECT_TIMEOUT_IN_MILLIS);
+    connection.setReadTimeout(READ_TIMEOUT_IN_MILLIS);
+    return connection.getInputStream();
+  }
+
+  private static String copyWithChecksum(InputStream inputStream, OutputStream outputStream)
+      throws SchemaProviderException, IOException {
+    final MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance(CHECKSUM_ALGORITHM);
+    } catch (NoSuchAlgorithmException e) {
+      throw new SchemaProviderException("Unable to compute checksum", e);
     }
+    try (DigestInputStream digestStream = new DigestInputStream(inputStream, digest)) {
+      if (outputStream == null) {
+        IOUtils.consume(digestStream);
+      } else {
+        IOUtils.copy(digestStream, outputStream);
+      }
+    }
+    return String.format("%064x", new BigInteger(1, digest.digest()));
   }
 
-  private void unzipArchive(File downloadedFile) throws SchemaProviderException {
+  private static void unzipArchive(File downloadedFile) throws SchemaProviderException {
     try (ZipFile zip = new ZipFile(downloadedFile)) {
       Enumeration<? extends ZipEntry> entries = zip.entries();
       while (entries.hasMoreElements()) {
@@ -182,16 +526,19 @@ public class SchemaProvider {
     }
   }
 
-  private void handleZipEntry(File downloadedFile, ZipFile zip, ZipEntry entry)
+  private static void handleZipEntry(File downloadedFile, ZipFile zip, ZipEntry entry)
       throws SchemaProviderException, IOException {
+    final Path directory = downloadedFile.getParentFile().toPath().toAbsolutePath().normalize();
+    final Path target = directory.resolve(entry.getName()).normalize();
+    if (!target.startsWith(directory)) {
+      throw new SchemaProviderException("Zip entry is outside of the target directory");
+    }
     if (entry.isDirectory()) {
-      if (!new File(downloadedFile.getParent(), entry.getName()).mkdir()) {
-        throw new SchemaProviderException("Could not create directory");
-      }
+      Files.createDirectories(target);
     } else {
-      InputStream zipStream = zip.getInputStream(entry);
-      FileUtils.copyInputStreamToFile(zipStream,
-          new File(downloadedFile.getParent(), entry.getName()));
+      try (InputStream zipStream = zip.getInputStream(entry)) {
+        FileUtils.copyInputStreamToFile(zipStream, target.toFile());
+      }
     }
   }
 
@@ -223,6 +570,27 @@ public class SchemaProvider {
    * @throws IOException if an exception happened while trying to delete the directory
    */
   public void cleanUp() throws IOException {
+    schemaDirectories.clear();
     FileUtils.deleteDirectory(new File(schemasRootDirectory));
   }
+
+  /**
+   * A (future) prepared schema directory, with the time at which its source was last checked.
+   */
+  private static final class PreparedDirectory {
+
+    private final CompletableFuture<Path> path = new CompletableFuture<>();
+    private final AtomicBoolean checking = new AtomicBoolean(false);
+    private volatile long checkedTimeInMillis;
+
+    void complete(Path preparedPath) {
+      checkedTimeInMillis = System.currentTimeMillis();
+      path.complete(preparedPath);
+    }
+
+    boolean isCheckDue(long checkIntervalInMillis) {
+      return path.isDone() && !path.isCompletedExceptionally()
+          && System.currentTimeMillis() - checkedTimeInMillis >= checkIntervalInMillis;
+    }
+  }
 }
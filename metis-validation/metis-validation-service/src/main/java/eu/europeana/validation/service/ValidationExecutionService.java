@@ -3,6 +3,7 @@ package eu.europeana.validation.service;
 import eu.europeana.validation.model.ValidationResult;
 import eu.europeana.validation.model.ValidationResultList;
 import java.io.IOException;
+import java.util.function.Consumer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -19,7 +20,9 @@ public class ValidationExecutionService {
   private final ClasspathResourceResolver lsResourceResolver;
   private final ExecutorService es;
   private final SchemaProvider schemaProvider;
+  private final int maxValidationsInFlight;
   private static final int DEFAULT_THREADS_COUNT = 10;
+  private static final int MAX_VALIDATIONS_IN_FLIGHT_PER_THREAD = 2;
 
   /**
    * Creates {@link ValidationExecutionService} instance based on given configuration
@@ -33,7 +36,16 @@ public class ValidationExecutionService {
       ClasspathResourceResolver lsResourceResolver, SchemaProvider schemaProvider) {
     this.lsResourceResolver = lsResourceResolver;
     this.es = Executors.newFixedThreadPool(validationServiceConfig.getThreadCount());
+    this.maxValidationsInFlight =
+        validationServiceConfig.getThreadCount() * MAX_VALIDATIONS_IN_FLIGHT_PER_THREAD;
     this.schemaProvider = schemaProvider;
+
+    // Evict everything that was cached for a schema version that is deleted.
+    schemaProvider.addRetiredDirectoryListener(directory -> {
+      EDMParser.evictSchemasInDirectory(directory);
+      Validator.evictTemplatesInDirectory(directory);
+      lsResourceResolver.evictResolversInDirectory(directory);
+    });
   }
 
 
@@ -87,28 +99,70 @@ public class ValidationExecutionService {
       final String schematronFileLocation,
       List<String> documents) throws InterruptedException, ExecutionException {
 
+    List<ValidationResult> results = new ArrayList<>();
+    batchValidation(schema, rootFileLocation, schematronFileLocation, documents.iterator(),
+        results::add);
+
+    ValidationResultList resultList = new ValidationResultList();
+    resultList.setResultList(results);
+    if (resultList.getResultList().isEmpty()) {
+      resultList.setSuccess(true);
+    }
+    return resultList;
+  }
+
+  /**
+   * Batch service given a schema, that reads and validates the documents as they are needed. The
+   * number of documents that are being validated (or waiting to be validated) at any one time is
+   * bounded, so that the documents don't all need to be held in memory at the same time. Failed
+   * results are passed to the consumer as soon as they are available (in order of completion), so
+   * that they don't need to be held in memory either.
+   *
+   * @param schema The schema to validate against
+   * @param rootFileLocation place where entry xsd file is located
+   * @param schematronFileLocation place where schematron file is located
+   * @param documents The documents to validate. The documents are obtained as they are needed.
+   * @param failureConsumer The consumer of the results of the validations that failed. This
+   * consumer is called in the calling thread.
+   * @return The number of documents that were validated.
+   */
+  public int batchValidation(final String schema, final String rootFileLocation,
+      final String schematronFileLocation, Iterator<String> documents,
+      Consumer<ValidationResult> failureConsumer) throws InterruptedException, ExecutionException {
+
     ExecutorCompletionService<ValidationResult> cs = new ExecutorCompletionService<>(es);
-    for (final String document : documents) {
+    int documentCount = 0;
+    int validationsInFlight = 0;
+    while (documents.hasNext()) {
+
+      // Wait until there is room for the next document.
+      if (validationsInFlight >= maxValidationsInFlight) {
+        processValidationResult(cs.take(), failureConsumer);
+        validationsInFlight--;
+      }
+
+      // Read the next document and submit it.
+      final String document = documents.next();
       cs.submit(
           new Validator(schema, rootFileLocation, schematronFileLocation, document, schemaProvider,
               lsResourceResolver));
+      validationsInFlight++;
+      documentCount++;
     }
 
-    List<ValidationResult> results = new ArrayList<>();
-    for (int i = 0; i < documents.size(); i++) {
-      Future<ValidationResult> future = cs.take();
-      ValidationResult res = future.get();
-      if (!res.isSuccess()) {
-        results.add(res);
-      }
+    // Process the remaining results.
+    for (; validationsInFlight > 0; validationsInFlight--) {
+      processValidationResult(cs.take(), failureConsumer);
     }
+    return documentCount;
+  }
 
-    ValidationResultList resultList = new ValidationResultList();
-    resultList.setResultList(results);
-    if (resultList.getResultList().isEmpty()) {
-      resultList.setSuccess(true);
+  private static void processValidationResult(Future<ValidationResult> future,
+      Consumer<ValidationResult> failureConsumer) throws ExecutionException, InterruptedException {
+    ValidationResult res = future.get();
+    if (!res.isSuccess()) {
+      failureConsumer.accept(res);
     }
-    return resultList;
   }
 
   @PreDestroy
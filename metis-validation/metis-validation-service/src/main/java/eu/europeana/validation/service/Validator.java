@@ -7,29 +7,29 @@ import java.io.File;
 import java.io.IOException;
 import java.io.StringReader;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.xml.XMLConstants;
+import javax.xml.transform.ErrorListener;
 import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMResult;
-import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.sax.SAXResult;
 import javax.xml.transform.stream.StreamSource;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+import org.xml.sax.Attributes;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
 
 /**
  * EDM Validator class Created by gmamakis on 18-12-15.
@@ -37,7 +37,32 @@ import org.xml.sax.SAXException;
 public class Validator implements Callable<ValidationResult> {
 
   private static final String NODE_ID_ATTR = "nodeId";
+  private static final String FAILED_ASSERT_ELEMENT = "failed-assert";
+  private static final Pattern RECORD_ID_PATTERN = Pattern
+      .compile("ProvidedCHO\\s+rdf:about\\s?=\\s?\"(.+)\"\\s?>");
   private static final Logger LOGGER = LoggerFactory.getLogger(Validator.class);
+
+  /**
+   * Error listener for the schematron transformation: warnings are logged, errors are rethrown so
+   * that they end up in the validation result (instead of being printed to the standard error).
+   */
+  private static final ErrorListener SCHEMATRON_ERROR_LISTENER = new ErrorListener() {
+
+    @Override
+    public void warning(TransformerException exception) {
+      LOGGER.debug("Warning during schematron validation.", exception);
+    }
+
+    @Override
+    public void error(TransformerException exception) throws TransformerException {
+      throw exception;
+    }
+
+    @Override
+    public void fatalError(TransformerException exception) throws TransformerException {
+      throw exception;
+    }
+  };
   private static ConcurrentMap<String, Templates> templatesCache;
 
   private final String schema;
@@ -61,7 +86,8 @@ public class Validator implements Callable<ValidationResult> {
    * @param document document that will be validated
    * @param schemaProvider the class that provides the schemas. Make sure it is initialized with
    * safe schema location paths.
-   * @param resolver the resolver used for parsing split xsds
+   * @param resolver the resolver used for parsing split xsds. It is used to obtain an (immutable)
+   * resolver for the schema: it is not changed by this class.
    */
   public Validator(String schema, String rootFileLocation, String schematronFileLocation,
       String document, SchemaProvider schemaProvider, ClasspathResourceResolver resolver) {
@@ -98,7 +124,10 @@ public class Validator implements Callable<ValidationResult> {
   }
 
   /**
-   * Validate method using JAXP
+   * Validate method using JAXP. The document is parsed once: it is validated against the XSD while
+   * it is being parsed, and the same events are passed on to the Schematron transformation (if
+   * applicable). The outcome of the Schematron transformation is inspected while it is being
+   * produced, without building a result document.
    *
    * @return The outcome of the Validation
    */
@@ -109,21 +138,22 @@ public class Validator implements Callable<ValidationResult> {
     try {
       Schema savedSchema = getSchemaByName(schema);
 
-      resolver.setPrefix(StringUtils.substringBeforeLast(savedSchema.getPath(), File.separator));
-
-      Document doc = EDMParser.getInstance().getEdmParser().parse(source);
-      EDMParser.getInstance().getEdmValidator(savedSchema.getPath(), resolver)
-          .validate(new DOMSource(doc));
+      final Transformer transformer;
+      final SchematronResultHandler schematronResult;
       if (StringUtils.isNotEmpty(savedSchema.getSchematronPath())) {
-        Transformer transformer = getTransformer(savedSchema);
-
-        DOMResult result = new DOMResult();
-        transformer.transform(new DOMSource(doc), result);
-        NodeList nresults = result.getNode().getFirstChild().getChildNodes();
-        final ValidationResult errorResult = checkNodeListForErrors(nresults);
-        if (errorResult != null) {
-          return errorResult;
-        }
+        transformer = getTransformer(savedSchema);
+        schematronResult = new SchematronResultHandler();
+      } else {
+        transformer = null;
+        schematronResult = null;
+      }
+      EDMParser.getInstance().validate(savedSchema.getPath(),
+          resolver.getResolverForSchema(savedSchema.getPath()), source, transformer,
+          schematronResult == null ? null : new SAXResult(schematronResult));
+      if (schematronResult != null && schematronResult.hasFailedAssert()) {
+        return constructValidationError(document,
+            "Schematron error: " + schematronResult.getFailedAssertText().trim(),
+            schematronResult.getFailedAssertNodeId());
       }
     } catch (IOException | SchemaProviderException | SAXException | TransformerException e) {
       return constructValidationError(document, e);
@@ -132,17 +162,13 @@ public class Validator implements Callable<ValidationResult> {
     return constructOk();
   }
 
-  private ValidationResult checkNodeListForErrors(NodeList nresults) {
-    for (int i = 0; i < nresults.getLength(); i++) {
-      Node nresult = nresults.item(i);
-      if ("failed-assert".equals(nresult.getLocalName())) {
-        String nodeId = nresult.getAttributes().getNamedItem(NODE_ID_ATTR) == null ? null
-            : nresult.getAttributes().getNamedItem(NODE_ID_ATTR).getTextContent();
-        return constructValidationError(document,
-            "Schematron error: " + nresult.getTextContent().trim(), nodeId);
-      }
-    }
-    return null;
+  /**
+   * Removes the compiled Schematron templates of the files in the given directory.
+   *
+   * @param directory the directory
+   */
+  static void evictTemplatesInDirectory(Path directory) {
+    templatesCache.keySet().removeIf(path -> SchemaProvider.isInDirectory(path, directory));
   }
 
   private Transformer getTransformer(Schema schema)
@@ -160,7 +186,9 @@ public class Validator implements Callable<ValidationResult> {
       templatesCache.put(schematronPath, template);
     }
 
-    return templatesCache.get(schematronPath).newTransformer();
+    final Transformer transformer = templatesCache.get(schematronPath).newTransformer();
+    transformer.setErrorListener(SCHEMATRON_ERROR_LISTENER);
+    return transformer;
   }
 
   private ValidationResult constructValidationError(String document, Exception e) {
@@ -194,8 +222,7 @@ public class Validator implements Callable<ValidationResult> {
   }
 
   private String getRecordId(String document) {
-    Pattern pattern = Pattern.compile("ProvidedCHO\\s+rdf:about\\s?=\\s?\"(.+)\"\\s?>");
-    Matcher matcher = pattern.matcher(document);
+    Matcher matcher = RECORD_ID_PATTERN.matcher(document);
     if (matcher.find()) {
       return matcher.group(1);
     } else {
@@ -215,6 +242,53 @@ public class Validator implements Callable<ValidationResult> {
     return validate();
   }
 
-}
+  /**
+   * Content handler that receives the Schematron output and remembers the first failed assertion
+   * (i.e. a <code>failed-assert</code> element directly under the root element).
+   */
+  private static class SchematronResultHandler extends DefaultHandler {
+
+    private int depth = 0;
+    private boolean inFailedAssert = false;
+    private boolean hasFailedAssert = false;
+    private String failedAssertNodeId;
+    private final StringBuilder failedAssertText = new StringBuilder();
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) {
+      depth++;
+      if (!hasFailedAssert && depth == 2 && FAILED_ASSERT_ELEMENT.equals(localName)) {
+        hasFailedAssert = true;
+        inFailedAssert = true;
+        failedAssertNodeId = attributes.getValue(NODE_ID_ATTR);
+      }
+    }
 
+    @Override
+    public void endElement(String uri, String localName, String qName) {
+      if (depth == 2) {
+        inFailedAssert = false;
+      }
+      depth--;
+    }
 
+    @Override
+    public void characters(char[] ch, int start, int length) {
+      if (inFailedAssert) {
+        failedAssertText.append(ch, start, length);
+      }
+    }
+
+    boolean hasFailedAssert() {
+      return hasFailedAssert;
+    }
+
+    String getFailedAssertNodeId() {
+      return failedAssertNodeId;
+    }
+
+    String getFailedAssertText() {
+      return failedAssertText.toString();
+    }
+  }
+}
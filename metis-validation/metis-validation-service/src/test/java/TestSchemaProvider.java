@@ -3,6 +3,8 @@ import static com.github.tomakehurst.wiremock.client.WireMock.get;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
 import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -15,7 +17,20 @@ import eu.europeana.validation.service.PredefinedSchemas;
 import eu.europeana.validation.service.SchemaProvider;
 import eu.europeana.validation.service.SchemaProviderException;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 import org.apache.commons.io.FileUtils;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
@@ -39,6 +54,8 @@ class TestSchemaProvider {
   private static WireMockServer wireMockServer;
   private static final PredefinedSchemas PREDEFINED_SCHEMAS_LOCATIONS = new PredefinedSchemas();
   private static final SchemaProvider schemaProvider;
+  private static final File TEST_SCHEMA_ZIP = new File(
+      "src/test/resources/__files/test_schema.zip");
 
   static {
     PREDEFINED_SCHEMAS_LOCATIONS
@@ -65,7 +82,7 @@ class TestSchemaProvider {
   }
 
   @Test
-  void shouldCreateCorrectSchemaForEdmInternal() throws SchemaProviderException {
+  void shouldCreateCorrectSchemaForEdmInternal() throws SchemaProviderException, IOException {
 
     wireMockServer.stubFor(get(urlEqualTo("/internal_test_schema.zip"))
         .willReturn(aResponse()
@@ -82,7 +99,7 @@ class TestSchemaProvider {
   }
 
   @Test
-  void shouldCreateCorrectSchemaForEdmExternal() throws SchemaProviderException {
+  void shouldCreateCorrectSchemaForEdmExternal() throws SchemaProviderException, IOException {
     wireMockServer.stubFor(get(urlEqualTo("/external_test_schema.zip"))
         .willReturn(aResponse()
             .withStatus(200)
@@ -96,7 +113,7 @@ class TestSchemaProvider {
   }
 
   @Test
-  void shouldCreateCorrectSchemaForCustomSchema() throws SchemaProviderException {
+  void shouldCreateCorrectSchemaForCustomSchema() throws SchemaProviderException, IOException {
     wireMockServer.stubFor(get(urlEqualTo("/custom_schema.zip"))
         .willReturn(aResponse()
             .withStatus(200)
@@ -130,34 +147,33 @@ class TestSchemaProvider {
 
   @Test
   void zipFileShouldBeCreatedInCorrectLocationForEdmInternal()
-      throws SchemaProviderException {
+      throws SchemaProviderException, IOException {
     wireMockServer.resetAll();
     wireMockServer.stubFor(get(urlEqualTo("/internal_test_schema.zip"))
         .willReturn(aResponse()
             .withStatus(200)
             .withBodyFile("test_schema.zip")));
     schemaProvider.getSchema("EDM-INTERNAL");
-    File zipFile = new File(schemaProvider.getSchemasDirectory() + "localhost_internal_test_schema",
-        "zip.zip");
+    File zipFile = new File(directoryLocation("localhost_internal_test_schema"), "zip.zip");
     assertTrue(zipFile.exists());
   }
 
   @Test
   void zipFileShouldBeCreatedInCorrectLocationForEdmExternal()
-      throws SchemaProviderException {
+      throws SchemaProviderException, IOException {
     wireMockServer.resetAll();
     wireMockServer.stubFor(get(urlEqualTo("/external_test_schema.zip"))
         .willReturn(aResponse()
             .withStatus(200)
             .withBodyFile("test_schema.zip")));
     schemaProvider.getSchema("EDM-EXTERNAL");
-    File zipFile = new File(schemaProvider.getSchemasDirectory() + "localhost_external_test_schema",
-        "zip.zip");
+    File zipFile = new File(directoryLocation("localhost_external_test_schema"), "zip.zip");
     assertTrue(zipFile.exists());
   }
 
   @Test
-  void zipFileShouldBeCreatedInCorrectLocationForCustomZip() throws SchemaProviderException {
+  void zipFileShouldBeCreatedInCorrectLocationForCustomZip()
+      throws SchemaProviderException, IOException {
     wireMockServer.resetAll();
     wireMockServer.stubFor(get(urlEqualTo("/userDefinedSchema.zip"))
         .willReturn(aResponse()
@@ -166,8 +182,7 @@ class TestSchemaProvider {
     schemaProvider
         .getSchema("http://localhost:" + portForWireMock + "/userDefinedSchema.zip", "EDM.xsd",
             "schematron/schematron.xsl");
-    File zipFile = new File(schemaProvider.getSchemasDirectory() + "localhost_userDefinedSchema",
-        "zip.zip");
+    File zipFile = new File(directoryLocation("localhost_userDefinedSchema"), "zip.zip");
     assertTrue(zipFile.exists());
   }
 
@@ -186,6 +201,92 @@ class TestSchemaProvider {
     assertZipFileExistence(s);
   }
 
+  @Test
+  void shouldCreateCorrectSchemaFromClasspath() throws SchemaProviderException, IOException {
+    Schema schema = schemaProvider
+        .getSchema(SchemaProvider.CLASSPATH_PREFIX + "__files/test_schema.zip", "EDM.xsd",
+            "schematron/schematron.xsl");
+    assertEquals("classpath___files/test_schema", schema.getName());
+    assertEquals(entryFileLocation("classpath___files/test_schema", "EDM.xsd"), schema.getPath());
+    assertTrue(new File(schema.getSchematronPath()).exists());
+    assertZipFileExistence(schema);
+  }
+
+  @Test
+  void shouldPrepareSchemaFromLocalFileOnce() throws Exception {
+    File localZip = File.createTempFile("local_schema", ".zip");
+    try {
+      FileUtils.copyFile(TEST_SCHEMA_ZIP, localZip);
+      final String url = localZip.toURI().toURL().toString();
+
+      // Concurrent requests for the same schema result in the same prepared directory.
+      final List<CompletableFuture<Schema>> futures = new ArrayList<>();
+      for (int i = 0; i < 5; i++) {
+        futures.add(schemaProvider.getSchemaAsync(url, "EDM.xsd", null));
+      }
+      final Schema schema = schemaProvider.getSchema(url, "EDM.xsd", null);
+      for (CompletableFuture<Schema> future : futures) {
+        assertEquals(schema.getPath(), future.get().getPath());
+      }
+      assertTrue(new File(schema.getPath()).exists());
+
+      // The prepared directory remains in use when the source disappears.
+      assertTrue(localZip.delete());
+      assertEquals(schema.getPath(), schemaProvider.getSchema(url, "EDM.xsd", null).getPath());
+    } finally {
+      FileUtils.deleteQuietly(localZip);
+    }
+  }
+
+  @Test
+  void shouldPrepareNewVersionWhenSourceChanges() throws Exception {
+    final SchemaProvider checkingSchemaProvider = new SchemaProvider(PREDEFINED_SCHEMAS_LOCATIONS);
+    checkingSchemaProvider.setSourceCheckIntervalInSecs(0);
+    final List<Path> retiredDirectories = new CopyOnWriteArrayList<>();
+    checkingSchemaProvider.addRetiredDirectoryListener(retiredDirectories::add);
+    File localZip = File.createTempFile("changing_schema", ".zip");
+    try {
+      final String url = localZip.toURI().toURL().toString();
+      writeSchemaZip(localZip, "<schema version=\"1\"/>");
+      final Schema firstVersion = checkingSchemaProvider.getSchema(url, "EDM.xsd", null);
+
+      // A changed archive is prepared in a new directory (which is used once it is prepared).
+      writeSchemaZip(localZip, "<schema version=\"2\"/>");
+      final Schema secondVersion = waitForNewVersion(checkingSchemaProvider, url, firstVersion);
+      assertNotEquals(firstVersion.getPath(), secondVersion.getPath());
+      assertTrue(FileUtils.readFileToString(new File(secondVersion.getPath()),
+          StandardCharsets.UTF_8).contains("version=\"2\""));
+
+      // By the time a later version is in use, the first version is retired.
+      writeSchemaZip(localZip, "<schema version=\"3\"/>");
+      final Schema thirdVersion = waitForNewVersion(checkingSchemaProvider, url, secondVersion);
+      assertTrue(new File(thirdVersion.getPath()).exists());
+      assertTrue(retiredDirectories.contains(Paths.get(firstVersion.getPath()).getParent()));
+      assertFalse(new File(firstVersion.getPath()).exists());
+    } finally {
+      FileUtils.deleteQuietly(localZip);
+      checkingSchemaProvider.cleanUp();
+    }
+  }
+
+  private static Schema waitForNewVersion(SchemaProvider provider, String url,
+      Schema previousVersion) throws Exception {
+    final long deadline = System.currentTimeMillis() + 10_000;
+    Schema schema = provider.getSchema(url, "EDM.xsd", null);
+    while (schema.getPath().equals(previousVersion.getPath())
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(50);
+      schema = provider.getSchema(url, "EDM.xsd", null);
+    }
+    return schema;
+  }
+
+  @Test
+  void shouldThrowExceptionForNonExistingClasspathResource() {
+    assertThrows(SchemaProviderException.class, () -> schemaProvider
+        .getSchema(SchemaProvider.CLASSPATH_PREFIX + "nonExisting.zip", "EDM.xsd", null));
+  }
+
   private void clearSchemasDir() throws IOException {
     String TMP_DIR = System.getProperty("java.io.tmpdir");
     File schemasDirectory = new File(TMP_DIR, "schemas");
@@ -193,17 +294,35 @@ class TestSchemaProvider {
     schemasDirectory.mkdirs();
   }
 
-  private void assertZipFileExistence(Schema s) {
-    File tempDirectory = new File(schemaProvider.getSchemasDirectory());
-    File zipFile = new File(tempDirectory, s.getName().toLowerCase() + "/zip.zip");
+  private void assertZipFileExistence(Schema s) throws IOException {
+    File zipFile = new File(directoryLocation(s.getName().toLowerCase()), "zip.zip");
     assertTrue(zipFile.exists());
   }
 
-  private String entryFileLocation(String schemaName, String fileLocation) {
+  private String entryFileLocation(String schemaName, String fileLocation) throws IOException {
     return directoryLocation(schemaName) + fileLocation;
   }
 
-  private String directoryLocation(String schemaName) {
-    return schemaProvider.getSchemasDirectory() + schemaName + File.separator;
+  private String directoryLocation(String schemaName) throws IOException {
+    return schemaProvider.getSchemasDirectory() + schemaName + File.separator
+        + checksum(TEST_SCHEMA_ZIP) + File.separator;
+  }
+
+  private static String checksum(File file) throws IOException {
+    try {
+      final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      return String.format("%064x",
+          new BigInteger(1, digest.digest(FileUtils.readFileToByteArray(file))));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static void writeSchemaZip(File zipFile, String schemaContent) throws IOException {
+    try (ZipOutputStream zipStream = new ZipOutputStream(new FileOutputStream(zipFile))) {
+      zipStream.putNextEntry(new ZipEntry("EDM.xsd"));
+      zipStream.write(schemaContent.getBytes(StandardCharsets.UTF_8));
+      zipStream.closeEntry();
+    }
   }
 }
\ No newline at end of file
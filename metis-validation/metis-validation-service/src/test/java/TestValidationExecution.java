@@ -9,6 +9,7 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.github.tomakehurst.wiremock.WireMockServer;
+import eu.europeana.metis.utils.ZipFileReader;
 import eu.europeana.validation.model.ValidationResult;
 import eu.europeana.validation.model.ValidationResultList;
 import eu.europeana.validation.service.ClasspathResourceResolver;
@@ -272,6 +273,22 @@ class TestValidationExecution {
   }
 
 
+  @Test
+  void testStreamingBatchValidationFailure()
+      throws IOException, ExecutionException, InterruptedException {
+    final List<ValidationResult> failures = new ArrayList<>();
+    final int documentCount;
+    try (FileInputStream zipStream = new FileInputStream("src/test/resources/test_wrong.zip");
+        ZipFileReader.RecordIterator records = new ZipFileReader()
+            .getRecordIteratorFromZipFile(zipStream)) {
+      documentCount = validationExecutionService
+          .batchValidation(EDM_INTERNAL, "EDM-INTERNAL.xsd", null, records, failures::add);
+    }
+    assertTrue(documentCount > 0);
+    assertEquals(1, failures.size());
+    assertFalse(failures.get(0).isSuccess());
+  }
+
   private Properties loadDefaultProperties(String propertyFile) {
     Properties properties = new Properties();
     try {
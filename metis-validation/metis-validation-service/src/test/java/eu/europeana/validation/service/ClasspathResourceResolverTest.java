@@ -0,0 +1,65 @@
+package eu.europeana.validation.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.ls.LSInput;
+
+class ClasspathResourceResolverTest {
+
+  private Path schemaDirectory;
+
+  @BeforeEach
+  void createSchemaDirectory() throws IOException {
+    schemaDirectory = Files.createTempDirectory("schema");
+    Files.createDirectories(schemaDirectory.resolve("sub"));
+    Files.write(schemaDirectory.resolve("root.xsd"), "root".getBytes(StandardCharsets.UTF_8));
+    Files.write(schemaDirectory.resolve("sub/child.xsd"), "child".getBytes(StandardCharsets.UTF_8));
+  }
+
+  @AfterEach
+  void deleteSchemaDirectory() throws IOException {
+    FileUtils.deleteDirectory(schemaDirectory.toFile());
+  }
+
+  private static String read(LSInput input) throws IOException {
+    return IOUtils.toString(input.getCharacterStream());
+  }
+
+  @Test
+  void testResolverForSchema() throws IOException {
+    final ClasspathResourceResolver sharedResolver = new ClasspathResourceResolver();
+    final String rootFile = schemaDirectory.resolve("root.xsd").toString();
+    final ClasspathResourceResolver resolver = sharedResolver.getResolverForSchema(rootFile);
+    assertSame(resolver, sharedResolver.getResolverForSchema(rootFile));
+
+    // The files are loaded in memory: they can be resolved after they are deleted from disk.
+    FileUtils.deleteDirectory(schemaDirectory.toFile());
+    assertEquals("child", read(resolver.resolveResource(null, null, null, "sub/child.xsd", null)));
+    assertEquals("root",
+        read(resolver.resolveResource(null, null, null, "sub/../root.xsd", null)));
+    assertNull(resolver.resolveResource(null, null, null, "other.xsd", null));
+
+    // The resolver can't be changed.
+    assertThrows(IllegalStateException.class, () -> resolver.setPrefix("other"));
+  }
+
+  @Test
+  void testResolverFromDisk() throws IOException {
+    final ClasspathResourceResolver resolver = new ClasspathResourceResolver();
+    resolver.setPrefix(schemaDirectory.toString() + File.separator + "sub");
+    assertEquals("child", read(resolver.resolveResource(null, null, null, "child.xsd", null)));
+  }
+}
@@ -0,0 +1,63 @@
+package eu.europeana.validation.service;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+class EDMParserTest {
+
+  private static final String SCHEMA = "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\">"
+      + "<xs:element name=\"root\"><xs:complexType>"
+      + "<xs:attribute name=\"specified\" type=\"xs:string\"/>"
+      + "<xs:attribute name=\"defaulted\" type=\"xs:string\" default=\"default\"/>"
+      + "</xs:complexType></xs:element></xs:schema>";
+
+  private Path schemaFile;
+
+  @BeforeEach
+  void createSchemaFile() throws IOException {
+    schemaFile = Files.createTempFile("schema", ".xsd");
+    Files.write(schemaFile, SCHEMA.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @AfterEach
+  void deleteSchemaFile() throws IOException {
+    Files.deleteIfExists(schemaFile);
+  }
+
+  private static InputSource createSource(String document) {
+    return new InputSource(new StringReader(document));
+  }
+
+  @Test
+  void testValidateDoesNotAddDefaultAttributes() throws Exception {
+    final StringWriter output = new StringWriter();
+    EDMParser.getInstance().validate(schemaFile.toString(), null,
+        createSource("<root specified=\"value\"/>"),
+        TransformerFactory.newInstance().newTransformer(), new StreamResult(output));
+    assertTrue(output.toString().contains("specified=\"value\""));
+    assertFalse(output.toString().contains("defaulted"));
+  }
+
+  @Test
+  void testValidateInvalidDocument() {
+    assertThrows(SAXException.class, () -> EDMParser.getInstance()
+        .validate(schemaFile.toString(), null, createSource("<root unknown=\"value\"/>"),
+            TransformerFactory.newInstance().newTransformer(),
+            new StreamResult(new StringWriter())));
+  }
+}